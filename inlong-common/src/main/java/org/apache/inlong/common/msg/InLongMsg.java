@@ -386,6 +386,8 @@ public class InLongMsg {
             out.writeInt(attr2MsgBuffer.size());
 
             if (compress) {
+                // only a compressed flag is written, the parsers take it as snappy,
+                // so no other codec can be used without breaking the existing parsers
                 for (String attr : attr2MsgBuffer.keySet()) {
                     out.writeUTF(attr);
                     DataBuffer data = attr2MsgBuffer.get(attr);
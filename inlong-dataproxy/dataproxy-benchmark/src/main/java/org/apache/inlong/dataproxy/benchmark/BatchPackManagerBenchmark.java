@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.benchmark;
+
+import org.apache.inlong.dataproxy.sink.mq.BatchPackManager;
+import org.apache.inlong.dataproxy.sink.mq.MessageQueueZoneSink;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import org.apache.flume.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * BatchPackManager benchmark with the events of many streams open at the same time,
+ * the full packs are dropped by the stubbed sink.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchPackManagerBenchmark {
+
+    @Param({"1000", "100000"})
+    public int streamCount;
+
+    @Param({"1024"})
+    public int msgSize;
+
+    private ProxyEvent[] events;
+    private int eventIndex = 0;
+    private BatchPackManager packManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the mock records no calls, the offered packs are released at once
+        MessageQueueZoneSink zoneSink = mock(MessageQueueZoneSink.class, withSettings().stubOnly());
+        Map<String, String> params = new HashMap<>();
+        // the packs do not time out during the trial, the overtime check only finds open packs
+        params.put(BatchPackManager.KEY_DISPATCH_TIMEOUT, String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        packManager = new BatchPackManager(zoneSink, new Context(params));
+        byte[] body = new String(new char[msgSize]).replace('\0', 'a').getBytes(StandardCharsets.UTF_8);
+        long msgTime = System.currentTimeMillis();
+        events = new ProxyEvent[streamCount];
+        for (int i = 0; i < streamCount; i++) {
+            events[i] = new ProxyEvent("group", "stream-" + i, body, msgTime, "127.0.0.1");
+            packManager.addEvent(events[i]);
+        }
+    }
+
+    @Benchmark
+    public void addEvent() {
+        packManager.addEvent(events[eventIndex]);
+        if (++eventIndex == events.length) {
+            eventIndex = 0;
+        }
+    }
+
+    @Benchmark
+    public void outputOvertimeData() {
+        packManager.setNeedOutputOvertimeData();
+        packManager.outputOvertimeData();
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.common.metric.MetricRegister;
+import org.apache.inlong.dataproxy.config.CommonConfigHolder;
+import org.apache.inlong.dataproxy.metrics.SpillChannelMetricItem;
+import org.apache.inlong.dataproxy.utils.BufferQueue;
+import org.apache.inlong.dataproxy.utils.SpillFileQueue;
+import org.apache.inlong.sdk.commons.protocol.EventConstants;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import com.google.common.base.Preconditions;
+import org.apache.flume.ChannelException;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.apache.flume.channel.AbstractChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HybridBufferQueueChannel
+ *
+ * Keeps events in memory like BufferQueueChannel until the memory usage crosses the
+ * spill watermark, then appends the events to memory-mapped segment files on local
+ * disk. While spilled events are left, new events are spilled too, so that the sink
+ * takes the events in the order they were put. The spilled events survive restart.
+ */
+public class HybridBufferQueueChannel extends AbstractChannel {
+
+    public static final Logger LOG = LoggerFactory.getLogger(HybridBufferQueueChannel.class);
+
+    public static final String KEY_SPILL_DIR = "spillDir";
+    public static final String DEFAULT_SPILL_DIR = "./data/spill";
+    public static final String KEY_SPILL_SEGMENT_SIZE_MB = "spillSegmentSizeMb";
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE_MB = 64;
+    public static final String KEY_MAX_SPILL_SIZE_MB = "maxSpillSizeMb";
+    public static final long DEFAULT_MAX_SPILL_SIZE_MB = 10 * 1024L;
+    // the percentage of the used memory permits to start spilling
+    public static final String KEY_SPILL_WATERMARK = "spillWatermark";
+    public static final int DEFAULT_SPILL_WATERMARK = 80;
+    public static final String KEY_SPILL_CHECKPOINT_INTERVAL = "spillCheckpointInterval";
+    public static final long DEFAULT_SPILL_CHECKPOINT_INTERVAL = 1000L;
+
+    private Context context;
+    private int maxBufferQueueCount;
+    private Semaphore countSemaphore;
+    private BufferQueue<ProxyEvent> bufferQueue;
+    private int spillWatermark;
+    private SpillFileQueue spillQueue;
+    private SpillChannelMetricItem metricItem;
+    private final ThreadLocal<HybridProxyTransaction> currentTransaction = new ThreadLocal<>();
+    protected Timer channelTimer;
+    private final AtomicLong takeCounter = new AtomicLong(0);
+    private final AtomicLong putCounter = new AtomicLong(0);
+
+    /**
+     * Constructor
+     */
+    public HybridBufferQueueChannel() {
+    }
+
+    /**
+     * put
+     *
+     * @param  event
+     * @throws ChannelException
+     */
+    @Override
+    public void put(Event event) throws ChannelException {
+        if (event instanceof ProxyEvent) {
+            putCounter.incrementAndGet();
+            HybridProxyTransaction transaction = currentTransaction.get();
+            Preconditions.checkState(transaction != null, "No transaction exists for this thread");
+            ProxyEvent profile = (ProxyEvent) event;
+            int eventSize = event.getBody().length;
+            if (!spillQueue.hasBacklog()
+                    && (100 - bufferQueue.getIdleRate()) < spillWatermark
+                    && countSemaphore.tryAcquire()) {
+                if (bufferQueue.tryAcquire(eventSize)) {
+                    transaction.doPut(profile);
+                    return;
+                }
+                countSemaphore.release();
+            }
+            transaction.doSpill(profile);
+        }
+    }
+
+    /**
+     * take
+     *
+     * @return Event
+     * @throws ChannelException
+     */
+    @Override
+    public Event take() throws ChannelException {
+        HybridProxyTransaction transaction = currentTransaction.get();
+        Preconditions.checkState(transaction != null, "No transaction exists for this thread");
+        ProxyEvent event = this.bufferQueue.pollRecord();
+        if (event != null) {
+            transaction.doTake(event);
+            takeCounter.incrementAndGet();
+            return event;
+        }
+        SpillFileQueue.Record record = spillQueue.read();
+        if (record == null) {
+            return null;
+        }
+        try {
+            event = decodeEvent(record.getData());
+        } catch (IOException e) {
+            // broken record, drop it
+            spillQueue.commit(record);
+            throw new ChannelException("Decode spilled event failure", e);
+        }
+        transaction.doTakeSpilled(record);
+        takeCounter.incrementAndGet();
+        return event;
+    }
+
+    /**
+     * getTransaction
+     *
+     * @return new transaction
+     */
+    @Override
+    public Transaction getTransaction() {
+        HybridProxyTransaction newTransaction = new HybridProxyTransaction(this);
+        this.currentTransaction.set(newTransaction);
+        return newTransaction;
+    }
+
+    /**
+     * start
+     */
+    @Override
+    public void start() {
+        super.start();
+        try {
+            this.metricItem = new SpillChannelMetricItem(
+                    CommonConfigHolder.getInstance().getClusterName(), getName());
+            MetricRegister.register(this.metricItem);
+            this.setReloadTimer();
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * stop
+     */
+    @Override
+    public void stop() {
+        if (channelTimer != null) {
+            channelTimer.cancel();
+        }
+        spillQueue.close();
+        super.stop();
+    }
+
+    /**
+     * setReloadTimer
+     */
+    protected void setReloadTimer() {
+        channelTimer = new Timer(true);
+        long reloadInterval = context.getLong(BufferQueueChannel.KEY_RELOADINTERVAL, 60000L);
+        TimerTask channelTask = new TimerTask() {
+
+            public void run() {
+                LOG.info("queueSize:{},availablePermits:{},maxBufferQueueCount:{},availablePermits:{},"
+                        + "put:{},take:{},spillBacklogSize:{},segmentCount:{}",
+                        bufferQueue.size(),
+                        bufferQueue.availablePermits(),
+                        maxBufferQueueCount,
+                        countSemaphore.availablePermits(),
+                        putCounter.getAndSet(0),
+                        takeCounter.getAndSet(0),
+                        spillQueue.getBacklogSize(),
+                        spillQueue.getSegmentCount());
+            }
+        };
+        channelTimer.schedule(channelTask, reloadInterval, reloadInterval);
+        long checkpointInterval = context.getLong(KEY_SPILL_CHECKPOINT_INTERVAL,
+                DEFAULT_SPILL_CHECKPOINT_INTERVAL);
+        TimerTask checkpointTask = new TimerTask() {
+
+            public void run() {
+                spillQueue.checkpoint();
+                metricItem.spillBacklogSize.set(spillQueue.getBacklogSize());
+                metricItem.segmentCount.set(spillQueue.getSegmentCount());
+                metricItem.replayLagMs.set(spillQueue.getReplayLagMs(System.currentTimeMillis()));
+            }
+        };
+        channelTimer.schedule(checkpointTask, checkpointInterval, checkpointInterval);
+    }
+
+    /**
+     * configure
+     *
+     * @param context
+     */
+    @Override
+    public void configure(Context context) {
+        this.context = context;
+        this.maxBufferQueueCount = context.getInteger(BufferQueueChannel.KEY_MAX_BUFFERQUEUE_COUNT,
+                BufferQueueChannel.DEFAULT_MAX_BUFFERQUEUE_COUNT);
+        this.countSemaphore = new Semaphore(maxBufferQueueCount, true);
+        int maxBufferQueueSizeKb = context.getInteger(BufferQueueChannel.KEY_MAX_BUFFERQUEUE_SIZE_KB,
+                BufferQueueChannel.DEFAULT_MAX_BUFFERQUEUE_SIZE_KB);
+        this.bufferQueue = new BufferQueue<>(maxBufferQueueSizeKb);
+        this.spillWatermark = context.getInteger(KEY_SPILL_WATERMARK, DEFAULT_SPILL_WATERMARK);
+        File spillDir = new File(context.getString(KEY_SPILL_DIR, DEFAULT_SPILL_DIR), getName());
+        int segmentSizeMb = context.getInteger(KEY_SPILL_SEGMENT_SIZE_MB, DEFAULT_SPILL_SEGMENT_SIZE_MB);
+        long maxSpillSizeMb = context.getLong(KEY_MAX_SPILL_SIZE_MB, DEFAULT_MAX_SPILL_SIZE_MB);
+        try {
+            this.spillQueue = new SpillFileQueue(spillDir,
+                    segmentSizeMb * 1024 * 1024, maxSpillSizeMb * 1024 * 1024);
+        } catch (IOException e) {
+            throw new ChannelException("Open spill directory failure: " + spillDir.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Spill the committed events, the events are kept in memory if the spill space is used up
+     *
+     * @param event  the event to spill
+     */
+    void spillEvent(ProxyEvent event) {
+        int eventSize = event.getBody().length;
+        try {
+            byte[] data = encodeEvent(event);
+            if (spillQueue.append(data, System.currentTimeMillis())) {
+                metricItem.spillCount.incrementAndGet();
+                metricItem.spillSize.addAndGet(data.length);
+                return;
+            }
+        } catch (IOException e) {
+            LOG.error("Spill event failure, channel={}", getName(), e);
+        }
+        metricItem.spillFailCount.incrementAndGet();
+        countSemaphore.acquireUninterruptibly();
+        bufferQueue.acquire(eventSize);
+        bufferQueue.offer(event);
+    }
+
+    void commitSpilled(SpillFileQueue.Record record) {
+        spillQueue.commit(record);
+        metricItem.replayCount.incrementAndGet();
+        metricItem.replaySize.addAndGet(record.getData().length);
+    }
+
+    SpillFileQueue getSpillQueue() {
+        return spillQueue;
+    }
+
+    Semaphore getCountSemaphore() {
+        return countSemaphore;
+    }
+
+    BufferQueue<ProxyEvent> getBufferQueue() {
+        return bufferQueue;
+    }
+
+    private static byte[] encodeEvent(ProxyEvent event) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(event.getBody().length + 256);
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        Map<String, String> headers = event.getHeaders();
+        dataOutput.writeInt(headers.size());
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            dataOutput.writeUTF(entry.getKey());
+            dataOutput.writeUTF(entry.getValue() == null ? "" : entry.getValue());
+        }
+        dataOutput.writeInt(event.getBody().length);
+        dataOutput.write(event.getBody());
+        dataOutput.flush();
+        return output.toByteArray();
+    }
+
+    private static ProxyEvent decodeEvent(byte[] data) throws IOException {
+        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(data));
+        int headerCount = dataInput.readInt();
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(dataInput.readUTF(), dataInput.readUTF());
+        }
+        byte[] body = new byte[dataInput.readInt()];
+        dataInput.readFully(body);
+        ProxyEvent event = new ProxyEvent(headers.get(EventConstants.INLONG_GROUP_ID),
+                headers.get(EventConstants.INLONG_STREAM_ID),
+                headers.get(EventConstants.HEADER_KEY_MSG_TIME),
+                headers.get(EventConstants.HEADER_KEY_SOURCE_IP),
+                headers.get(EventConstants.HEADER_KEY_SOURCE_TIME), headers, body);
+        String topic = headers.get(EventConstants.TOPIC);
+        if (topic != null) {
+            event.setTopic(topic);
+        }
+        return event;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.dataproxy.utils.SpillFileQueue;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import org.apache.flume.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HybridProxyTransaction, the transaction of HybridBufferQueueChannel
+ */
+public class HybridProxyTransaction implements Transaction {
+
+    private final HybridBufferQueueChannel channel;
+    private final List<ProxyEvent> takeList = new ArrayList<>();
+    private final List<SpillFileQueue.Record> spillTakeList = new ArrayList<>();
+    private final List<ProxyEvent> putList = new ArrayList<>();
+    private final List<ProxyEvent> spillPutList = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param channel  the channel
+     */
+    public HybridProxyTransaction(HybridBufferQueueChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * begin
+     */
+    @Override
+    public void begin() {
+    }
+
+    /**
+     * commit
+     */
+    @Override
+    public void commit() {
+        for (ProxyEvent event : takeList) {
+            channel.getCountSemaphore().release();
+            channel.getBufferQueue().release(event.getBody().length);
+        }
+        this.takeList.clear();
+        for (SpillFileQueue.Record record : spillTakeList) {
+            channel.commitSpilled(record);
+        }
+        this.spillTakeList.clear();
+        for (ProxyEvent event : putList) {
+            channel.getBufferQueue().offer(event);
+        }
+        this.putList.clear();
+        for (ProxyEvent event : spillPutList) {
+            channel.spillEvent(event);
+        }
+        this.spillPutList.clear();
+    }
+
+    /**
+     * rollback
+     */
+    @Override
+    public void rollback() {
+        for (ProxyEvent event : takeList) {
+            channel.getBufferQueue().offer(event);
+        }
+        this.takeList.clear();
+        channel.getSpillQueue().rollback(spillTakeList);
+        this.spillTakeList.clear();
+        for (ProxyEvent event : putList) {
+            channel.getCountSemaphore().release();
+            channel.getBufferQueue().release(event.getBody().length);
+        }
+        this.putList.clear();
+        this.spillPutList.clear();
+    }
+
+    /**
+     * close
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * doTake
+     *
+     * @param event  the event taken from memory
+     */
+    public void doTake(ProxyEvent event) {
+        this.takeList.add(event);
+    }
+
+    /**
+     * doTakeSpilled
+     *
+     * @param record  the record read from the spill files
+     */
+    public void doTakeSpilled(SpillFileQueue.Record record) {
+        this.spillTakeList.add(record);
+    }
+
+    /**
+     * doPut
+     *
+     * @param event  the event kept in memory
+     */
+    public void doPut(ProxyEvent event) {
+        this.putList.add(event);
+    }
+
+    /**
+     * doSpill
+     *
+     * @param event  the event to spill
+     */
+    public void doSpill(ProxyEvent event) {
+        this.spillPutList.add(event);
+    }
+}
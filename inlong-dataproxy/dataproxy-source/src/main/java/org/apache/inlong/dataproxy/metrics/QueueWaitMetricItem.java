@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.metrics;
+
+import org.apache.inlong.common.metric.CountMetric;
+import org.apache.inlong.common.metric.Dimension;
+import org.apache.inlong.common.metric.MetricDomain;
+import org.apache.inlong.common.metric.MetricItem;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QueueWaitMetricItem, the histogram of the time packs wait in the dispatch queue
+ * before a sink worker takes them, the buckets are cumulative upper bounds
+ */
+@MetricDomain(name = "DataProxyQueueWait")
+public class QueueWaitMetricItem extends MetricItem {
+
+    public static final String KEY_CLUSTER_ID = "clusterId";
+    public static final String KEY_SINK_ID = "sinkId";
+
+    // the upper bounds of the buckets in milliseconds
+    private static final long[] BUCKET_BOUNDS_MS = {1, 5, 10, 50, 100, 500, 1000};
+
+    @Dimension
+    public String clusterId;
+    @Dimension
+    public String sinkId;
+    @CountMetric
+    public AtomicLong waitLe1ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitLe5ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitLe10ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitLe50ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitLe100ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitLe500ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitLe1000ms = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitCount = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong waitSumMs = new AtomicLong(0);
+
+    private final AtomicLong[] buckets = {waitLe1ms, waitLe5ms, waitLe10ms,
+            waitLe50ms, waitLe100ms, waitLe500ms, waitLe1000ms};
+
+    /**
+     * Constructor
+     *
+     * @param clusterId  the cluster id
+     * @param sinkId     the sink name
+     */
+    public QueueWaitMetricItem(String clusterId, String sinkId) {
+        this.clusterId = clusterId;
+        this.sinkId = sinkId;
+    }
+
+    /**
+     * add a queue wait time
+     *
+     * @param waitMs  the wait time in milliseconds
+     */
+    public void addWaitTime(long waitMs) {
+        for (int i = BUCKET_BOUNDS_MS.length - 1; i >= 0 && waitMs <= BUCKET_BOUNDS_MS[i]; i--) {
+            buckets[i].incrementAndGet();
+        }
+        waitCount.incrementAndGet();
+        waitSumMs.addAndGet(waitMs);
+    }
+}
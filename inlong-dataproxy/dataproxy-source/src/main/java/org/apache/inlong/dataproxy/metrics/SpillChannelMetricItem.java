@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.metrics;
+
+import org.apache.inlong.common.metric.CountMetric;
+import org.apache.inlong.common.metric.Dimension;
+import org.apache.inlong.common.metric.GaugeMetric;
+import org.apache.inlong.common.metric.MetricDomain;
+import org.apache.inlong.common.metric.MetricItem;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpillChannelMetricItem, the metrics of the channel spilling events to local disk
+ */
+@MetricDomain(name = "DataProxySpill")
+public class SpillChannelMetricItem extends MetricItem {
+
+    public static final String KEY_CLUSTER_ID = "clusterId";
+    public static final String KEY_CHANNEL_ID = "channelId";
+
+    public static final String M_SPILL_COUNT = "spillCount";
+    public static final String M_SPILL_SIZE = "spillSize";
+    public static final String M_SPILL_FAIL_COUNT = "spillFailCount";
+    public static final String M_REPLAY_COUNT = "replayCount";
+    public static final String M_REPLAY_SIZE = "replaySize";
+    public static final String M_SPILL_BACKLOG_SIZE = "spillBacklogSize";
+    public static final String M_REPLAY_LAG_MS = "replayLagMs";
+    public static final String M_SEGMENT_COUNT = "segmentCount";
+
+    @Dimension
+    public String clusterId;
+    @Dimension
+    public String channelId;
+    @CountMetric
+    public AtomicLong spillCount = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong spillSize = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong spillFailCount = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong replayCount = new AtomicLong(0);
+    @CountMetric
+    public AtomicLong replaySize = new AtomicLong(0);
+    @GaugeMetric
+    public AtomicLong spillBacklogSize = new AtomicLong(0);
+    @GaugeMetric
+    public AtomicLong replayLagMs = new AtomicLong(0);
+    @GaugeMetric
+    public AtomicLong segmentCount = new AtomicLong(0);
+
+    /**
+     * Constructor
+     *
+     * @param clusterId  the cluster id
+     * @param channelId  the channel name
+     */
+    public SpillChannelMetricItem(String clusterId, String channelId) {
+        this.clusterId = clusterId;
+        this.channelId = channelId;
+    }
+}
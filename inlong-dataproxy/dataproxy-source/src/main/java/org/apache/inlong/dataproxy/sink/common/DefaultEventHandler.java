@@ -27,6 +27,7 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
 import org.apache.inlong.sdk.commons.utils.GzipUtils;
 
 import com.google.protobuf.ByteString;
@@ -43,6 +44,16 @@ import java.util.Map;
  */
 public class DefaultEventHandler implements EventHandler {
 
+    // the body encode mode in the params of IdTopicConfig
+    public static final String KEY_BODY_ENCODE_MODE = "bodyEncodeMode";
+    // write the protobuf through a CodedOutputStream into reused buffers
+    public static final String VAL_ENCODE_MODE_STREAM = "stream";
+    // build the MessageObjs message, then serialize and compress it
+    public static final String VAL_ENCODE_MODE_BUILDER = "builder";
+
+    // the handler is used by one sender thread, the encoder buffers are reused
+    private final MessageObjsEncoder streamEncoder = new MessageObjsEncoder();
+
     /**
      * parseHeader
      */
@@ -70,6 +81,8 @@ public class DefaultEventHandler implements EventHandler {
         // INLONG_NO_COMPRESS = 0,
         // INLONG_GZ = 1,
         // INLONG_SNAPPY = 2
+        // INLONG_ZSTD = 3
+        // INLONG_LZ4 = 4
         headers.put(EventConstants.HEADER_KEY_COMPRESS_TYPE,
                 String.valueOf(compressType.getNumber()));
         // messageKey string partition hash key, optional
@@ -82,6 +95,18 @@ public class DefaultEventHandler implements EventHandler {
     @Override
     public byte[] parseBody(IdTopicConfig idConfig, BatchPackProfile profile, INLONG_COMPRESSED_TYPE compressType)
             throws IOException {
+        if (isBuilderEncodeMode(idConfig)) {
+            return parseBodyByBuilder(profile, compressType);
+        }
+        return streamEncoder.encode(profile.getEvents(), compressType,
+                profile.getInlongGroupId(), profile.getInlongStreamId());
+    }
+
+    /**
+     * parseBodyByBuilder
+     */
+    private byte[] parseBodyByBuilder(BatchPackProfile profile, INLONG_COMPRESSED_TYPE compressType)
+            throws IOException {
         List<ProxyEvent> events = profile.getEvents();
         // encode
         MessageObjs.Builder objs = MessageObjs.newBuilder();
@@ -105,6 +130,13 @@ public class DefaultEventHandler implements EventHandler {
             case INLONG_GZ:
                 compressBytes = GzipUtils.compress(srcBytes);
                 break;
+            case INLONG_ZSTD:
+                compressBytes = CompressUtils.zstdCompress(srcBytes, 0, srcBytes.length,
+                        profile.getInlongGroupId(), profile.getInlongStreamId());
+                break;
+            case INLONG_LZ4:
+                compressBytes = CompressUtils.lz4Compress(srcBytes, 0, srcBytes.length);
+                break;
             case INLONG_NO_COMPRESS:
             default:
                 compressBytes = srcBytes;
@@ -113,4 +145,11 @@ public class DefaultEventHandler implements EventHandler {
         return compressBytes;
     }
 
+    private boolean isBuilderEncodeMode(IdTopicConfig idConfig) {
+        if (idConfig == null || idConfig.getParams() == null) {
+            return false;
+        }
+        return VAL_ENCODE_MODE_BUILDER.equalsIgnoreCase(idConfig.getParams().get(KEY_BODY_ENCODE_MODE));
+    }
+
 }
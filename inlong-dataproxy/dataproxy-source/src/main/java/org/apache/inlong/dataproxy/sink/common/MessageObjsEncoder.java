@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import org.apache.inlong.dataproxy.utils.ReusableByteArrayOutputStream;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MessageObjsEncoder
+ *
+ * Writes the events as the MessageObjs protobuf message through a CodedOutputStream,
+ * without building the intermediate MessageObj objects and without copying the
+ * event bodies into ByteStrings. The output is byte-identical to
+ * MessageObjs.toByteArray() of the same events, so the receivers are unchanged.
+ * It is not thread safe, every instance is used by one sender thread.
+ */
+public class MessageObjsEncoder {
+
+    // MessageObjs fields
+    private static final int FIELD_MSGS = 1;
+    // MessageObj fields
+    private static final int FIELD_MSG_TIME = 1;
+    private static final int FIELD_SOURCE_IP = 2;
+    private static final int FIELD_BODY = 3;
+    private static final int FIELD_PARAMS = 4;
+    // MapFieldEntry fields
+    private static final int FIELD_KEY = 1;
+    private static final int FIELD_VALUE = 2;
+
+    private static final int INIT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 8 * 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    // the serialized protobuf bytes, used when the compressor needs the whole input
+    private final ReusableByteArrayOutputStream encodeBuffer =
+            new ReusableByteArrayOutputStream(INIT_BUFFER_SIZE, MAX_RETAINED_BUFFER_SIZE);
+    // the compressed bytes
+    private final ReusableByteArrayOutputStream compressBuffer =
+            new ReusableByteArrayOutputStream(INIT_BUFFER_SIZE, MAX_RETAINED_BUFFER_SIZE);
+    // the serialized size of every MessageObj, computed before writing
+    private int[] msgSizes = new int[256];
+
+    /**
+     * encode the events and compress the serialized bytes
+     *
+     * @param events          the events to encode
+     * @param compressType    the compress type
+     * @param inlongGroupId   the group id of the events, used to select the zstd dictionary
+     * @param inlongStreamId  the stream id of the events, used to select the zstd dictionary
+     * @return the (compressed) serialized bytes
+     * @throws IOException if encoding or compressing fails
+     */
+    public byte[] encode(List<ProxyEvent> events, INLONG_COMPRESSED_TYPE compressType,
+            String inlongGroupId, String inlongStreamId) throws IOException {
+        int totalSize = computeSizes(events);
+        switch (compressType) {
+            case INLONG_SNAPPY: {
+                // the receivers expect the Snappy block format, which needs the whole input
+                byte[] srcBytes = encodeBuffer.ensureCapacity(totalSize);
+                CodedOutputStream output = CodedOutputStream.newInstance(srcBytes, 0, totalSize);
+                writeMessageObjs(output, events);
+                output.checkNoSpaceLeft();
+                byte[] dstBytes = compressBuffer.ensureCapacity(Snappy.maxCompressedLength(totalSize));
+                int dstLen = Snappy.compress(srcBytes, 0, totalSize, dstBytes, 0);
+                byte[] result = Arrays.copyOf(dstBytes, dstLen);
+                encodeBuffer.reset();
+                compressBuffer.reset();
+                return result;
+            }
+            case INLONG_ZSTD:
+            case INLONG_LZ4: {
+                // the block compressors need the whole input
+                byte[] srcBytes = encodeBuffer.ensureCapacity(totalSize);
+                CodedOutputStream output = CodedOutputStream.newInstance(srcBytes, 0, totalSize);
+                writeMessageObjs(output, events);
+                output.checkNoSpaceLeft();
+                byte[] result = (compressType == INLONG_COMPRESSED_TYPE.INLONG_ZSTD)
+                        ? CompressUtils.zstdCompress(srcBytes, 0, totalSize, inlongGroupId, inlongStreamId)
+                        : CompressUtils.lz4Compress(srcBytes, 0, totalSize);
+                encodeBuffer.reset();
+                return result;
+            }
+            case INLONG_GZ: {
+                if (totalSize == 0) {
+                    // keep the empty content uncompressed as GzipUtils does
+                    return new byte[0];
+                }
+                // the serialized bytes are streamed into the compressor
+                compressBuffer.reset();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressBuffer, STREAM_BUFFER_SIZE)) {
+                    CodedOutputStream output = CodedOutputStream.newInstance(gzip, STREAM_BUFFER_SIZE);
+                    writeMessageObjs(output, events);
+                    output.flush();
+                }
+                byte[] result = compressBuffer.toByteArray();
+                compressBuffer.reset();
+                return result;
+            }
+            case INLONG_NO_COMPRESS:
+            default: {
+                // the exact size is known, write into the result directly
+                byte[] result = new byte[totalSize];
+                CodedOutputStream output = CodedOutputStream.newInstance(result);
+                writeMessageObjs(output, events);
+                output.checkNoSpaceLeft();
+                return result;
+            }
+        }
+    }
+
+    /**
+     * compute the serialized size of every MessageObj and of the MessageObjs
+     */
+    private int computeSizes(List<ProxyEvent> events) {
+        if (msgSizes.length < events.size()) {
+            msgSizes = new int[Math.max(events.size(), msgSizes.length << 1)];
+        }
+        int totalSize = 0;
+        int index = 0;
+        int msgSize;
+        for (ProxyEvent event : events) {
+            msgSize = computeMessageObjSize(event);
+            msgSizes[index++] = msgSize;
+            totalSize += CodedOutputStream.computeTagSize(FIELD_MSGS)
+                    + CodedOutputStream.computeUInt32SizeNoTag(msgSize) + msgSize;
+        }
+        return totalSize;
+    }
+
+    private int computeMessageObjSize(ProxyEvent event) {
+        int size = CodedOutputStream.computeInt64Size(FIELD_MSG_TIME, event.getMsgTime())
+                + CodedOutputStream.computeStringSize(FIELD_SOURCE_IP, event.getSourceIp())
+                + CodedOutputStream.computeByteArraySize(FIELD_BODY, event.getBody());
+        int entrySize;
+        for (Map.Entry<String, String> entry : event.getHeaders().entrySet()) {
+            entrySize = computeMapFieldEntrySize(entry.getKey(), entry.getValue());
+            size += CodedOutputStream.computeTagSize(FIELD_PARAMS)
+                    + CodedOutputStream.computeUInt32SizeNoTag(entrySize) + entrySize;
+        }
+        return size;
+    }
+
+    private int computeMapFieldEntrySize(String key, String value) {
+        return CodedOutputStream.computeStringSize(FIELD_KEY, key)
+                + CodedOutputStream.computeStringSize(FIELD_VALUE, value);
+    }
+
+    /**
+     * write the MessageObjs, the fields are written in the field number order
+     * as the generated code does
+     */
+    private void writeMessageObjs(CodedOutputStream output, List<ProxyEvent> events) throws IOException {
+        int index = 0;
+        for (ProxyEvent event : events) {
+            output.writeTag(FIELD_MSGS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(msgSizes[index++]);
+            output.writeInt64(FIELD_MSG_TIME, event.getMsgTime());
+            output.writeString(FIELD_SOURCE_IP, event.getSourceIp());
+            output.writeByteArray(FIELD_BODY, event.getBody());
+            for (Map.Entry<String, String> entry : event.getHeaders().entrySet()) {
+                output.writeTag(FIELD_PARAMS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(computeMapFieldEntrySize(entry.getKey(), entry.getValue()));
+                output.writeString(FIELD_KEY, entry.getKey());
+                output.writeString(FIELD_VALUE, entry.getValue());
+            }
+        }
+    }
+}
@@ -28,16 +28,21 @@ import org.apache.flume.event.SimpleEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * BatchPackManager
+ *
+ * The open packs are owned by the sink runner thread, which adds the events and
+ * outputs the overtime packs, so they are kept in plain collections. All packs have
+ * the same timeout, so the open packs are queued in creation order and the overtime
+ * output only visits the expired packs at the queue head instead of all open packs.
  */
 public class BatchPackManager {
 
@@ -55,7 +60,12 @@ public class BatchPackManager {
     private final long maxPackCount;
     private final long maxPackSize;
     private final MessageQueueZoneSink mqZoneSink;
-    private final ConcurrentHashMap<String, PackProfile> profileCache = new ConcurrentHashMap<>();
+    // uid -> the open packs of the uid, one pack per dispatch time
+    private final HashMap<String, List<OpenPack>> openPacks = new HashMap<>();
+    // the open packs in creation order, the head is the oldest one
+    private final ArrayDeque<OpenPack> overtimeQueue = new ArrayDeque<>();
+    private int openPackCount = 0;
+    private long openEventCount = 0;
     // flag that manager need to output overtime data.
     private final AtomicBoolean needOutputOvertimeData = new AtomicBoolean(false);
     private final AtomicLong inCounter = new AtomicLong(0);
@@ -82,25 +92,33 @@ public class BatchPackManager {
         // parse
         String eventUid = event.getUid();
         long dispatchTime = event.getMsgTime() - event.getMsgTime() % MINUTE_MS;
-        String dispatchKey = eventUid + "." + dispatchTime;
-        // find dispatch profile
-        PackProfile dispatchProfile = this.profileCache.get(dispatchKey);
-        if (dispatchProfile == null) {
-            dispatchProfile = new BatchPackProfile(eventUid, event.getInlongGroupId(),
-                    event.getInlongStreamId(), dispatchTime);
-            this.profileCache.put(dispatchKey, dispatchProfile);
+        // find the open pack
+        List<OpenPack> uidPacks = this.openPacks.get(eventUid);
+        if (uidPacks == null) {
+            uidPacks = new ArrayList<>(2);
+            this.openPacks.put(eventUid, uidPacks);
         }
-        // add event
-        if (!dispatchProfile.addEvent(event, maxPackCount, maxPackSize)) {
-            BatchPackProfile newDispatchProfile = new BatchPackProfile(eventUid, event.getInlongGroupId(),
-                    event.getInlongStreamId(), dispatchTime);
-            PackProfile oldDispatchProfile = this.profileCache.put(dispatchKey, newDispatchProfile);
-            if (oldDispatchProfile != null) {
-                this.mqZoneSink.acquireAndOfferDispatchedRecord(oldDispatchProfile);
+        OpenPack openPack = null;
+        for (OpenPack item : uidPacks) {
+            if (item.dispatchTime == dispatchTime) {
+                openPack = item;
+                break;
             }
-            this.outCounter.addAndGet(dispatchProfile.getCount());
-            newDispatchProfile.addEvent(event, maxPackCount, maxPackSize);
         }
+        if (openPack == null) {
+            openPack = createOpenPack(eventUid, event, dispatchTime);
+            uidPacks.add(openPack);
+        }
+        // add event
+        if (!openPack.profile.addEvent(event, maxPackCount, maxPackSize)) {
+            // the pack is full, output it and open a new one
+            OpenPack newOpenPack = createOpenPack(eventUid, event, dispatchTime);
+            uidPacks.set(uidPacks.indexOf(openPack), newOpenPack);
+            outputOpenPack(openPack);
+            openPack = newOpenPack;
+            openPack.profile.addEvent(event, maxPackCount, maxPackSize);
+        }
+        this.openEventCount++;
         this.inCounter.incrementAndGet();
     }
 
@@ -163,39 +181,60 @@ public class BatchPackManager {
         if (!needOutputOvertimeData.getAndSet(false)) {
             return;
         }
-        int profileSize = profileCache.size();
+        int profileSize = this.openPackCount;
+        long eventCount = this.openEventCount;
         int dispatchSize = this.mqZoneSink.getDispatchQueueSize();
         long currentTime = System.currentTimeMillis();
         long createThreshold = currentTime - dispatchTimeout;
-        List<String> removeKeys = new ArrayList<>();
-        long eventCount = 0;
-        for (Entry<String, PackProfile> entry : this.profileCache.entrySet()) {
-            PackProfile dispatchProfile = entry.getValue();
-            eventCount += dispatchProfile.getCount();
-            if (!dispatchProfile.isTimeout(createThreshold)) {
-                continue;
+        int outputCount = 0;
+        OpenPack openPack;
+        while ((openPack = this.overtimeQueue.peekFirst()) != null) {
+            // skip the packs already output when they were full
+            if (openPack.profile != null) {
+                if (!openPack.profile.isTimeout(createThreshold)) {
+                    break;
+                }
+                List<OpenPack> uidPacks = this.openPacks.get(openPack.profile.getUid());
+                if (uidPacks != null) {
+                    uidPacks.remove(openPack);
+                    if (uidPacks.isEmpty()) {
+                        this.openPacks.remove(openPack.profile.getUid());
+                    }
+                }
+                outputOpenPack(openPack);
+                outputCount++;
             }
-            removeKeys.add(entry.getKey());
+            this.overtimeQueue.pollFirst();
         }
-        // output
-        removeKeys.forEach((key) -> {
-            PackProfile dispatchProfile = this.profileCache.remove(key);
-            if (dispatchProfile != null) {
-                this.mqZoneSink.acquireAndOfferDispatchedRecord(dispatchProfile);
-                this.outCounter.addAndGet(dispatchProfile.getCount());
-            }
-        });
         long hisInCnt = inCounter.getAndSet(0);
         long hisOutCnt = outCounter.getAndSet(0);
-        if (!removeKeys.isEmpty()) {
+        if (outputCount > 0) {
             logger.info("{} output overtime data, profileCacheSize: before={}, after={},"
                     + " dispatchQueueSize: before={}, after={}, eventCount: {},"
                     + " inCounter: {}, outCounter: {}",
-                    mqZoneSink.getName(), profileSize, profileCache.size(), dispatchSize,
+                    mqZoneSink.getName(), profileSize, this.openPackCount, dispatchSize,
                     this.mqZoneSink.getDispatchQueueSize(), eventCount, hisInCnt, hisOutCnt);
         }
     }
 
+    private OpenPack createOpenPack(String eventUid, ProxyEvent event, long dispatchTime) {
+        OpenPack openPack = new OpenPack(dispatchTime, new BatchPackProfile(eventUid,
+                event.getInlongGroupId(), event.getInlongStreamId(), dispatchTime));
+        this.overtimeQueue.addLast(openPack);
+        this.openPackCount++;
+        return openPack;
+    }
+
+    private void outputOpenPack(OpenPack openPack) {
+        BatchPackProfile profile = openPack.profile;
+        // the queued entry no longer holds the pack
+        openPack.profile = null;
+        this.openPackCount--;
+        this.openEventCount -= profile.getCount();
+        this.outCounter.addAndGet(profile.getCount());
+        this.mqZoneSink.acquireAndOfferDispatchedRecord(profile);
+    }
+
     /**
      * get dispatchTimeout
      * 
@@ -229,4 +268,27 @@ public class BatchPackManager {
     public void setNeedOutputOvertimeData() {
         this.needOutputOvertimeData.getAndSet(true);
     }
+
+    /**
+     * get the count of the open packs
+     *
+     * @return the open pack count
+     */
+    public int getOpenPackCount() {
+        return openPackCount;
+    }
+
+    /**
+     * The open pack of a uid and dispatch time, the profile is cleared when it is output.
+     */
+    private static class OpenPack {
+
+        private final long dispatchTime;
+        private BatchPackProfile profile;
+
+        private OpenPack(long dispatchTime, BatchPackProfile profile) {
+            this.dispatchTime = dispatchTime;
+            this.profile = profile;
+        }
+    }
 }
@@ -17,12 +17,14 @@
 
 package org.apache.inlong.dataproxy.sink.mq;
 
+import org.apache.inlong.common.metric.MetricRegister;
 import org.apache.inlong.common.monitor.LogCounter;
 import org.apache.inlong.dataproxy.config.CommonConfigHolder;
 import org.apache.inlong.dataproxy.config.ConfigManager;
 import org.apache.inlong.dataproxy.config.holder.ConfigUpdateCallback;
 import org.apache.inlong.dataproxy.consts.ConfigConstants;
 import org.apache.inlong.dataproxy.consts.StatConstants;
+import org.apache.inlong.dataproxy.metrics.QueueWaitMetricItem;
 import org.apache.inlong.dataproxy.utils.BufferQueue;
 import org.apache.inlong.sdk.commons.protocol.EventConstants;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
@@ -74,6 +76,8 @@ public class MessageQueueZoneSink extends AbstractSink implements Configurable,
     private ScheduledExecutorService scheduledPool;
 
     private MessageQueueZoneProducer zoneProducer;
+    // the histogram of the dispatch queue wait time
+    private QueueWaitMetricItem queueWaitMetric;
     // configure change notify
     private final ReentrantLock reentrantLock = new ReentrantLock();
     private final Condition condition = reentrantLock.newCondition();
@@ -109,6 +113,9 @@ public class MessageQueueZoneSink extends AbstractSink implements Configurable,
             ConfigManager.getInstance().regMetaConfigChgCallback(this);
             this.context = new MessageQueueZoneSinkContext(this, parentContext, cachedMsgChannel);
             this.context.start();
+            this.queueWaitMetric = new QueueWaitMetricItem(
+                    context.getProxyClusterId(), this.cachedSinkName);
+            MetricRegister.register(this.queueWaitMetric);
             this.dispatchManager = new BatchPackManager(this, parentContext);
             this.scheduledPool = Executors.newScheduledThreadPool(2);
             // dispatch
@@ -130,8 +137,8 @@ public class MessageQueueZoneSink extends AbstractSink implements Configurable,
             // create worker
             MessageQueueZoneWorker zoneWorker;
             for (int i = 0; i < context.getMaxThreads(); i++) {
-                zoneWorker = new MessageQueueZoneWorker(this, i,
-                        context.getProcessInterval(), zoneProducer);
+                zoneWorker = new MessageQueueZoneWorker(this, i, context.getProcessInterval(),
+                        context.getMaxInflightSends(), zoneProducer);
                 zoneWorker.start();
                 this.workers.add(zoneWorker);
             }
@@ -279,10 +286,13 @@ public class MessageQueueZoneSink extends AbstractSink implements Configurable,
 
     public void acquireAndOfferDispatchedRecord(PackProfile record) {
         this.dispatchQueue.acquire(record.getSize());
+        record.markEnqueued();
         this.dispatchQueue.offer(record);
     }
 
     public void offerDispatchRecord(PackProfile record) {
+        record.releaseInflightPermit();
+        record.markEnqueued();
         this.dispatchQueue.offer(record);
     }
 
@@ -290,11 +300,23 @@ public class MessageQueueZoneSink extends AbstractSink implements Configurable,
         return this.dispatchQueue.pollRecord();
     }
 
-    public PackProfile takeDispatchedRecord() {
-        return this.dispatchQueue.takeRecord();
+    /**
+     * poll the dispatched record, wait up to the specified time if no record
+     *
+     * @param waitMs  the wait time in milliseconds
+     * @return the record, null if no record in the wait time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public PackProfile pollDispatchedRecord(long waitMs) throws InterruptedException {
+        PackProfile record = this.dispatchQueue.pollRecord(waitMs, TimeUnit.MILLISECONDS);
+        if (record != null && queueWaitMetric != null) {
+            queueWaitMetric.addWaitTime(System.currentTimeMillis() - record.getEnqueueTime());
+        }
+        return record;
     }
 
     public void releaseAcquiredSizePermit(PackProfile record) {
+        record.releaseInflightPermit();
         this.dispatchQueue.release(record.getSize());
     }
 
@@ -43,6 +43,9 @@ public class MessageQueueZoneSinkContext extends SinkContext {
     public static final String KEY_NODE_ID = "nodeId";
     public static final String PREFIX_PRODUCER = "producer.";
     public static final String KEY_COMPRESS_TYPE = "compressType";
+    // the max count of the sending packs per worker
+    public static final String KEY_MAX_INFLIGHT_SENDS = "maxInflightSendsPerWorker";
+    public static final int DEFAULT_MAX_INFLIGHT_SENDS = 1000;
 
     private final MessageQueueZoneSink mqZoneSink;
     private final String proxyClusterId;
@@ -50,6 +53,7 @@ public class MessageQueueZoneSinkContext extends SinkContext {
     private final Context producerContext;
     //
     private final INLONG_COMPRESSED_TYPE compressType;
+    private final int maxInflightSends;
 
     /**
      * Constructor
@@ -67,6 +71,8 @@ public class MessageQueueZoneSinkContext extends SinkContext {
         // producerContext
         Map<String, String> producerParams = context.getSubProperties(PREFIX_PRODUCER);
         this.producerContext = new Context(producerParams);
+        this.maxInflightSends = Math.max(1,
+                context.getInteger(KEY_MAX_INFLIGHT_SENDS, DEFAULT_MAX_INFLIGHT_SENDS));
     }
 
     /**
@@ -119,6 +125,15 @@ public class MessageQueueZoneSinkContext extends SinkContext {
         return compressType;
     }
 
+    /**
+     * get maxInflightSends
+     *
+     * @return the max count of the sending packs per worker
+     */
+    public int getMaxInflightSends() {
+        return maxInflightSends;
+    }
+
     /**
      * get nodeId
      * 
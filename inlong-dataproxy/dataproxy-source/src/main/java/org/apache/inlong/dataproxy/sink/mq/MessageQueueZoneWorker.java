@@ -23,6 +23,9 @@ import org.apache.flume.lifecycle.LifecycleState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 /**
  * MessageQueueZoneWorker
  */
@@ -35,18 +38,21 @@ public class MessageQueueZoneWorker extends Thread {
     private final long fetchWaitMs;
     private final MessageQueueZoneSink mqZoneSink;
     private final MessageQueueZoneProducer zoneProducer;
-    private LifecycleState status;
+    // the permits of the packs sent but not yet acked
+    private final Semaphore inflightSends;
+    private volatile LifecycleState status;
 
     /**
      * Constructor
      */
     public MessageQueueZoneWorker(MessageQueueZoneSink mqZoneSink, int workerIndex,
-            long fetchWaitMs, MessageQueueZoneProducer zoneProducer) {
+            long fetchWaitMs, int maxInflightSends, MessageQueueZoneProducer zoneProducer) {
         super();
         this.mqZoneSink = mqZoneSink;
         this.workerName = mqZoneSink.getCachedSinkName() + "-worker-" + workerIndex;
         this.fetchWaitMs = fetchWaitMs;
         this.zoneProducer = zoneProducer;
+        this.inflightSends = new Semaphore(maxInflightSends);
         this.status = LifecycleState.IDLE;
     }
 
@@ -75,14 +81,25 @@ public class MessageQueueZoneWorker extends Thread {
     @Override
     public void run() {
         logger.info("{} start message zone worker", this.workerName);
-        PackProfile profile = null;
+        PackProfile profile;
+        boolean acquired;
         while (status != LifecycleState.STOP) {
+            profile = null;
+            acquired = false;
             try {
-                profile = this.mqZoneSink.takeDispatchedRecord();
+                // wait for the in-flight permit and the dispatched record instead of
+                // sleeping when idle, the timeouts only bound the stop detection delay
+                acquired = this.inflightSends.tryAcquire(fetchWaitMs, TimeUnit.MILLISECONDS);
+                if (!acquired) {
+                    continue;
+                }
+                profile = this.mqZoneSink.pollDispatchedRecord(fetchWaitMs);
                 if (profile == null) {
-                    this.sleepOneInterval();
                     continue;
                 }
+                // the permit is released when the pack is completed or resent
+                profile.bindInflightPermit(this.inflightSends);
+                acquired = false;
                 // send
                 this.zoneProducer.send(profile);
             } catch (Throwable e1) {
@@ -92,7 +109,12 @@ public class MessageQueueZoneWorker extends Thread {
                 if (logCounter.shouldPrint()) {
                     logger.error("{} send message failure", workerName, e1);
                 }
+                // back off only on failure
                 this.sleepOneInterval();
+            } finally {
+                if (acquired) {
+                    this.inflightSends.release();
+                }
             }
         }
         logger.info("{} exit message zone worker", this.workerName);
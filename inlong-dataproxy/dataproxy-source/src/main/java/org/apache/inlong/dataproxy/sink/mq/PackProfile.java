@@ -22,6 +22,9 @@ import org.apache.inlong.dataproxy.config.CommonConfigHolder;
 
 import org.apache.flume.Event;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * 
  * DispatchProfile
@@ -38,6 +41,10 @@ public abstract class PackProfile {
     protected final boolean enableRetryAfterFailure;
     protected final int maxRetries;
     protected int retries = 0;
+    // the time put into the dispatch queue
+    private volatile long enqueueTime = 0;
+    // the in-flight send permit of the worker sending the profile
+    private final AtomicReference<Semaphore> inflightPermit = new AtomicReference<>();
     /**
      * Constructor
      *
@@ -127,6 +134,41 @@ public abstract class PackProfile {
         this.size = size;
     }
 
+    /**
+     * mark the time put into the dispatch queue
+     */
+    public void markEnqueued() {
+        this.enqueueTime = System.currentTimeMillis();
+    }
+
+    /**
+     * get enqueueTime
+     *
+     * @return the time put into the dispatch queue
+     */
+    public long getEnqueueTime() {
+        return enqueueTime;
+    }
+
+    /**
+     * bind the in-flight send permit acquired by the sending worker
+     *
+     * @param permit  the permit semaphore
+     */
+    public void bindInflightPermit(Semaphore permit) {
+        this.inflightPermit.set(permit);
+    }
+
+    /**
+     * release the in-flight send permit when the send completes or is requeued
+     */
+    public void releaseInflightPermit() {
+        Semaphore permit = this.inflightPermit.getAndSet(null);
+        if (permit != null) {
+            permit.release();
+        }
+    }
+
     /**
      * isTimeout
      *
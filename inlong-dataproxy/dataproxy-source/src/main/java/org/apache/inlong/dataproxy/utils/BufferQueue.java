@@ -18,6 +18,7 @@
 package org.apache.inlong.dataproxy.utils;
 
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -30,7 +31,6 @@ public class BufferQueue<A> {
     private SizeSemaphore globalTokens = null;
     private final AtomicLong offerCount = new AtomicLong(0);
     private final AtomicLong pollCount = new AtomicLong(0);
-    private final AtomicLong takeCount = new AtomicLong(0);
 
     /**
      * Constructor
@@ -63,16 +63,19 @@ public class BufferQueue<A> {
     }
 
     /**
-     * Take record
-     */
-    public A takeRecord() {
-        try {
-            A record = queue.take();
-            this.takeCount.incrementAndGet();
-            return record;
-        } catch (Throwable e) {
-            return null;
+     * poll record, wait up to the specified time if no record
+     *
+     * @param timeout  the wait time
+     * @param unit     the time unit
+     * @return the record, null if no record in the wait time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public A pollRecord(long timeout, TimeUnit unit) throws InterruptedException {
+        A record = queue.poll(timeout, unit);
+        if (record != null) {
+            this.pollCount.getAndIncrement();
         }
+        return record;
     }
 
     /**
@@ -185,13 +188,4 @@ public class BufferQueue<A> {
     public long getPollCount() {
         return pollCount.getAndSet(0);
     }
-
-    /**
-     * get takeCount
-     *
-     * @return the take count
-     */
-    public long getTakeCount() {
-        return takeCount.getAndSet(0);
-    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.utils;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * ByteArrayOutputStream which exposes and reuses its buffer, the buffer is
+ * shrunk on reset when it grew over the retained capacity.
+ * It is not thread safe, every instance is used by one thread.
+ */
+public class ReusableByteArrayOutputStream extends OutputStream {
+
+    private final int initCapacity;
+    private final int maxRetainedCapacity;
+    private byte[] buf;
+    private int count;
+
+    public ReusableByteArrayOutputStream(int initCapacity, int maxRetainedCapacity) {
+        this.initCapacity = Math.max(initCapacity, 16);
+        this.maxRetainedCapacity = Math.max(maxRetainedCapacity, this.initCapacity);
+        this.buf = new byte[this.initCapacity];
+        this.count = 0;
+    }
+
+    /**
+     * reset the stream for the next use
+     */
+    public void reset() {
+        if (buf.length > maxRetainedCapacity) {
+            buf = new byte[initCapacity];
+        }
+        count = 0;
+    }
+
+    /**
+     * make sure the buffer can hold the specified bytes in total
+     *
+     * @param capacity  the required capacity
+     * @return the buffer
+     */
+    public byte[] ensureCapacity(int capacity) {
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length << 1));
+        }
+        return buf;
+    }
+
+    /**
+     * get the buffer, the valid content is in [0, size())
+     *
+     * @return the buffer
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * copy the valid content out
+     *
+     * @return the content bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+}
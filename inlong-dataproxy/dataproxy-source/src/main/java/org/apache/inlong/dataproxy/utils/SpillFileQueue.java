@@ -0,0 +1,486 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * SpillFileQueue
+ *
+ * A FIFO queue of byte records kept in memory-mapped segment files. Records are
+ * appended to the last segment, a new segment is created when it is full. The read
+ * position is checkpointed when no read record is uncommitted, the segments before
+ * the checkpoint are deleted, and the records after it are read again after restart.
+ */
+public class SpillFileQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillFileQueue.class);
+
+    public static final String SEGMENT_SUFFIX = ".spill";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    // length(4) + crc(4) + spill time(8)
+    private static final int RECORD_HEADER_SIZE = 16;
+    // the cleaner of the mapped buffers since java 9, resolved by reflection
+    // so that no internal api is referenced
+    private static final Object UNSAFE_INSTANCE;
+    private static final Method UNSAFE_INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Throwable e) {
+            // before java 9, the cleaner of the buffer is used
+            invokeCleaner = null;
+        }
+        UNSAFE_INSTANCE = unsafe;
+        UNSAFE_INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final File spillDir;
+    private final int segmentSize;
+    private final long maxSpillSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    // the bytes of the records not committed by readers
+    private final AtomicLong backlogSize = new AtomicLong(0);
+    // write status, guarded by writeLock
+    private final Object writeLock = new Object();
+    private volatile Segment writeSegment;
+    private long nextSegmentId = 0;
+    // read status, guarded by readLock
+    private final Object readLock = new Object();
+    private final Deque<Record> returnedRecords = new ArrayDeque<>();
+    private long readSegmentId = -1;
+    private int readPos = 0;
+    private int inFlightCount = 0;
+    private long checkpointSegmentId = -1;
+    private int checkpointPos = -1;
+    private volatile long lastReadSpillTime = 0;
+
+    /**
+     * Constructor, load the segments left by the last run
+     *
+     * @param spillDir      the directory of the segment files
+     * @param segmentSize   the size of the segment file
+     * @param maxSpillSize  the max bytes of the records not committed
+     * @throws IOException  if the segment files can not be opened
+     */
+    public SpillFileQueue(File spillDir, int segmentSize, long maxSpillSize) throws IOException {
+        this.spillDir = spillDir;
+        this.segmentSize = segmentSize;
+        this.maxSpillSize = maxSpillSize;
+        if (!spillDir.exists() && !spillDir.mkdirs()) {
+            throw new IOException("Create spill directory failure: " + spillDir.getAbsolutePath());
+        }
+        recover();
+    }
+
+    /**
+     * append a record
+     *
+     * @param data       the record content
+     * @param spillTime  the spill time of the record
+     * @return false if the queue is full
+     * @throws IOException  if the segment file can not be created
+     */
+    public boolean append(byte[] data, long spillTime) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + data.length;
+        synchronized (writeLock) {
+            if (backlogSize.get() + recordSize > maxSpillSize) {
+                return false;
+            }
+            Segment segment = writeSegment;
+            if (segment == null || segment.capacity - segment.writePos < recordSize) {
+                segment = createSegment(nextSegmentId++, Math.max(segmentSize, recordSize));
+            }
+            ByteBuffer writeView = segment.writeView;
+            writeView.position(segment.writePos);
+            writeView.putInt(data.length);
+            writeView.putInt(crc32(data));
+            writeView.putLong(spillTime);
+            writeView.put(data);
+            backlogSize.addAndGet(recordSize);
+            segment.writePos += recordSize;
+        }
+        return true;
+    }
+
+    /**
+     * read the next record, the record must be committed or rolled back
+     *
+     * @return the record, null if no record
+     */
+    public Record read() {
+        synchronized (readLock) {
+            Record record = returnedRecords.pollFirst();
+            if (record == null) {
+                record = readNextRecord();
+            }
+            if (record != null) {
+                inFlightCount++;
+                lastReadSpillTime = record.spillTime;
+            }
+            return record;
+        }
+    }
+
+    /**
+     * commit the read record
+     *
+     * @param record  the read record
+     */
+    public void commit(Record record) {
+        synchronized (readLock) {
+            inFlightCount--;
+        }
+        backlogSize.addAndGet(-record.getRecordSize());
+    }
+
+    /**
+     * return the read records, they are read again in the same order
+     *
+     * @param records  the read records in read order
+     */
+    public void rollback(List<Record> records) {
+        synchronized (readLock) {
+            for (int i = records.size() - 1; i >= 0; i--) {
+                returnedRecords.addFirst(records.get(i));
+                inFlightCount--;
+            }
+        }
+    }
+
+    /**
+     * checkpoint the read position and delete the consumed segments
+     */
+    public void checkpoint() {
+        Segment segment = writeSegment;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+        long consumedSegmentId;
+        synchronized (readLock) {
+            if (inFlightCount > 0 || !returnedRecords.isEmpty()
+                    || (checkpointSegmentId == readSegmentId && checkpointPos == readPos)) {
+                return;
+            }
+            try {
+                writeCheckpoint(readSegmentId, readPos);
+            } catch (IOException e) {
+                LOG.warn("Write spill checkpoint failure, directory={}", spillDir.getAbsolutePath(), e);
+                return;
+            }
+            checkpointSegmentId = readSegmentId;
+            checkpointPos = readPos;
+            consumedSegmentId = readSegmentId;
+        }
+        for (Map.Entry<Long, Segment> entry : segments.headMap(consumedSegmentId).entrySet()) {
+            if (entry.getValue() == writeSegment) {
+                continue;
+            }
+            segments.remove(entry.getKey());
+            // the readers are after the checkpoint, no one accesses the mapping any more
+            releaseMapping(entry.getValue().buffer);
+            deleteSegmentFile(entry.getValue().file);
+        }
+    }
+
+    /**
+     * checkpoint and flush the segments
+     */
+    public void close() {
+        checkpoint();
+    }
+
+    /**
+     * whether there are records not committed
+     */
+    public boolean hasBacklog() {
+        return backlogSize.get() > 0;
+    }
+
+    /**
+     * the bytes of the records not committed
+     */
+    public long getBacklogSize() {
+        return backlogSize.get();
+    }
+
+    /**
+     * the count of the segment files
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * the replay lag, the time since the last read record was spilled
+     *
+     * @param currentTime  the current time
+     * @return the lag in milliseconds, 0 if no backlog
+     */
+    public long getReplayLagMs(long currentTime) {
+        if (!hasBacklog() || lastReadSpillTime == 0) {
+            return 0;
+        }
+        return Math.max(0, currentTime - lastReadSpillTime);
+    }
+
+    private Record readNextRecord() {
+        while (true) {
+            Segment segment = segments.get(readSegmentId);
+            if (segment == null) {
+                Long nextSegmentId = segments.higherKey(readSegmentId);
+                if (nextSegmentId == null) {
+                    return null;
+                }
+                readSegmentId = nextSegmentId;
+                readPos = 0;
+                continue;
+            }
+            boolean isWriting = (segment == writeSegment);
+            int limit = isWriting ? segment.writePos : segment.capacity;
+            Record record = readRecord(segment, readPos, limit);
+            if (record != null) {
+                readPos += record.getRecordSize();
+                return record;
+            }
+            if (isWriting) {
+                return null;
+            }
+            // the end of a full segment
+            Long nextSegmentId = segments.higherKey(readSegmentId);
+            if (nextSegmentId == null) {
+                return null;
+            }
+            readSegmentId = nextSegmentId;
+            readPos = 0;
+        }
+    }
+
+    private Record readRecord(Segment segment, int position, int limit) {
+        if (position + RECORD_HEADER_SIZE > limit) {
+            return null;
+        }
+        ByteBuffer readView = segment.buffer.duplicate();
+        readView.position(position);
+        int length = readView.getInt();
+        int checkSum = readView.getInt();
+        long spillTime = readView.getLong();
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > limit) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        readView.get(data);
+        if (crc32(data) != checkSum) {
+            LOG.warn("Found broken spill record, file={}, position={}",
+                    segment.file.getAbsolutePath(), position);
+            return null;
+        }
+        return new Record(data, spillTime);
+    }
+
+    private void recover() throws IOException {
+        File[] files = spillDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        File checkpointFile = new File(spillDir, CHECKPOINT_FILE);
+        if (checkpointFile.exists()) {
+            String[] items = new String(Files.readAllBytes(checkpointFile.toPath()),
+                    StandardCharsets.UTF_8).trim().split(":");
+            checkpointSegmentId = Long.parseLong(items[0]);
+            checkpointPos = Integer.parseInt(items[1]);
+        }
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                long segmentId = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                if (segmentId < checkpointSegmentId) {
+                    // consumed before the restart, the file is deleted before it is mapped
+                    deleteSegmentFile(file);
+                    continue;
+                }
+                segments.put(segmentId, mapSegment(segmentId, file, (int) file.length()));
+            }
+        }
+        if (segments.isEmpty()) {
+            // keep the segment ids increasing, the checkpoint may refer to a deleted segment
+            readSegmentId = checkpointSegmentId;
+            nextSegmentId = checkpointSegmentId + 1;
+            return;
+        }
+        nextSegmentId = segments.lastKey() + 1;
+        readSegmentId = segments.firstKey();
+        readPos = (readSegmentId == checkpointSegmentId) ? checkpointPos : 0;
+        // count the backlog and find the write position of the last segment
+        Segment lastSegment = segments.lastEntry().getValue();
+        for (Segment segment : segments.values()) {
+            int position = (segment.segmentId == readSegmentId) ? readPos : 0;
+            Record record;
+            while ((record = readRecord(segment, position, segment.capacity)) != null) {
+                position += record.getRecordSize();
+                backlogSize.addAndGet(record.getRecordSize());
+            }
+            if (segment == lastSegment) {
+                segment.writePos = position;
+                // clear the broken record left by the last run
+                ByteBuffer writeView = segment.writeView;
+                writeView.position(position);
+                for (int i = 0; i < RECORD_HEADER_SIZE && writeView.hasRemaining(); i++) {
+                    writeView.put((byte) 0);
+                }
+            }
+        }
+        writeSegment = lastSegment;
+        LOG.info("Loaded spill segments, directory={}, segments={}, backlogSize={}",
+                spillDir.getAbsolutePath(), segments.size(), backlogSize.get());
+    }
+
+    private Segment createSegment(long segmentId, int capacity) throws IOException {
+        File file = new File(spillDir, String.format("%020d%s", segmentId, SEGMENT_SUFFIX));
+        Segment segment = mapSegment(segmentId, file, capacity);
+        segments.put(segmentId, segment);
+        writeSegment = segment;
+        return segment;
+    }
+
+    private Segment mapSegment(long segmentId, File file, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            if (raf.length() < capacity) {
+                raf.setLength(capacity);
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(segmentId, file, buffer);
+        }
+    }
+
+    private void deleteSegmentFile(File file) {
+        if (!file.delete()) {
+            LOG.warn("Delete spill segment failure, file={}", file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Release the file mapping at once instead of when the buffer is collected, otherwise
+     * the disk space of a deleted segment is held until then. The buffer must not be
+     * accessed after the call.
+     *
+     * @param buffer  the mapped buffer of the segment
+     */
+    private static void releaseMapping(MappedByteBuffer buffer) {
+        try {
+            if (UNSAFE_INVOKE_CLEANER != null) {
+                UNSAFE_INVOKE_CLEANER.invoke(UNSAFE_INSTANCE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Throwable e) {
+            // the mapping is released when the buffer is collected
+        }
+    }
+
+    private void writeCheckpoint(long segmentId, int position) throws IOException {
+        File tmpFile = new File(spillDir, CHECKPOINT_FILE + ".tmp");
+        Files.write(tmpFile.toPath(), (segmentId + ":" + position).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile.toPath(), new File(spillDir, CHECKPOINT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Segment file
+     */
+    private static class Segment {
+
+        private final long segmentId;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final ByteBuffer writeView;
+        private final int capacity;
+        private volatile int writePos = 0;
+
+        Segment(long segmentId, File file, MappedByteBuffer buffer) {
+            this.segmentId = segmentId;
+            this.file = file;
+            this.buffer = buffer;
+            this.writeView = buffer.duplicate();
+            this.capacity = buffer.capacity();
+        }
+    }
+
+    /**
+     * Record read from the queue
+     */
+    public static class Record {
+
+        private final byte[] data;
+        private final long spillTime;
+
+        Record(byte[] data, long spillTime) {
+            this.data = data;
+            this.spillTime = spillTime;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public long getSpillTime() {
+            return spillTime;
+        }
+
+        public int getRecordSize() {
+            return RECORD_HEADER_SIZE + data.length;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * HybridBufferQueueChannel test
+ */
+public class HybridBufferQueueChannelTest {
+
+    private static final String GROUP_ID = "test_group";
+    private static final String STREAM_ID = "test_stream";
+
+    private File spillDir;
+    private HybridBufferQueueChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        spillDir = Files.createTempDirectory("hybrid-channel-test").toFile();
+        Context context = new Context();
+        // only two events are kept in memory, the others are spilled
+        context.put(BufferQueueChannel.KEY_MAX_BUFFERQUEUE_COUNT, "2");
+        context.put(BufferQueueChannel.KEY_MAX_BUFFERQUEUE_SIZE_KB, "1024");
+        context.put(HybridBufferQueueChannel.KEY_SPILL_DIR, spillDir.getAbsolutePath());
+        context.put(HybridBufferQueueChannel.KEY_SPILL_SEGMENT_SIZE_MB, "1");
+        context.put(HybridBufferQueueChannel.KEY_MAX_SPILL_SIZE_MB, "4");
+        channel = new HybridBufferQueueChannel();
+        channel.setName("hybrid-channel");
+        channel.configure(context);
+        channel.start();
+    }
+
+    @After
+    public void tearDown() {
+        channel.stop();
+        deleteDir(spillDir);
+    }
+
+    @Test
+    public void testSpillAndReadBack() {
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 10; i++) {
+            channel.put(new ProxyEvent(GROUP_ID, STREAM_ID,
+                    ("event-" + i).getBytes(StandardCharsets.UTF_8), i, "127.0.0.1"));
+        }
+        transaction.commit();
+        transaction.close();
+        Assert.assertEquals(2, channel.getBufferQueue().size());
+        Assert.assertTrue(channel.getSpillQueue().hasBacklog());
+        Assert.assertTrue(new File(spillDir, channel.getName()).list().length > 0);
+
+        transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 10; i++) {
+            Event event = channel.take();
+            Assert.assertNotNull(event);
+            Assert.assertEquals("event-" + i, new String(event.getBody(), StandardCharsets.UTF_8));
+            Assert.assertEquals(GROUP_ID, ((ProxyEvent) event).getInlongGroupId());
+            Assert.assertEquals(STREAM_ID, ((ProxyEvent) event).getInlongStreamId());
+        }
+        Assert.assertNull(channel.take());
+        transaction.commit();
+        transaction.close();
+        Assert.assertEquals(0, channel.getBufferQueue().size());
+        Assert.assertEquals(2, channel.getCountSemaphore().availablePermits());
+        Assert.assertFalse(channel.getSpillQueue().hasBacklog());
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDir(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TestQueueWaitMetricItem
+ */
+public class TestQueueWaitMetricItem {
+
+    @Test
+    public void testBucketBounds() {
+        QueueWaitMetricItem item = new QueueWaitMetricItem("cluster", "sink");
+        // the bounds are inclusive
+        item.addWaitTime(1);
+        assertEquals(1, item.waitLe1ms.get());
+        assertEquals(1, item.waitLe1000ms.get());
+        item.addWaitTime(2);
+        assertEquals(1, item.waitLe1ms.get());
+        assertEquals(2, item.waitLe5ms.get());
+        item.addWaitTime(1000);
+        assertEquals(2, item.waitLe500ms.get());
+        assertEquals(3, item.waitLe1000ms.get());
+        assertEquals(3, item.waitCount.get());
+        assertEquals(1003, item.waitSumMs.get());
+    }
+
+    @Test
+    public void testCumulativeBuckets() {
+        QueueWaitMetricItem item = new QueueWaitMetricItem("cluster", "sink");
+        long[] waitTimes = {0, 3, 7, 30, 80, 300, 800, 5000};
+        for (long waitMs : waitTimes) {
+            item.addWaitTime(waitMs);
+        }
+        // each bucket counts the waits not longer than its bound
+        assertEquals(1, item.waitLe1ms.get());
+        assertEquals(2, item.waitLe5ms.get());
+        assertEquals(3, item.waitLe10ms.get());
+        assertEquals(4, item.waitLe50ms.get());
+        assertEquals(5, item.waitLe100ms.get());
+        assertEquals(6, item.waitLe500ms.get());
+        assertEquals(7, item.waitLe1000ms.get());
+        // the waits over the last bound are only counted in the total
+        assertEquals(8, item.waitCount.get());
+        assertEquals(6220, item.waitSumMs.get());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
+import org.apache.inlong.sdk.commons.utils.GzipUtils;
+
+import com.google.protobuf.ByteString;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xerial.snappy.Snappy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MessageObjsEncoder test
+ */
+public class MessageObjsEncoderTest {
+
+    @Test
+    public void testSameBytesAsBuilder() throws Exception {
+        MessageObjsEncoder encoder = new MessageObjsEncoder();
+        List<ProxyEvent> events = buildEvents(50);
+        byte[] expected = buildByBuilder(events);
+        Assert.assertArrayEquals(expected,
+                encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_NO_COMPRESS, "group", "stream"));
+        Assert.assertArrayEquals(expected,
+                Snappy.uncompress(encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_SNAPPY, "group", "stream")));
+        Assert.assertArrayEquals(expected,
+                GzipUtils.decompress(encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_GZ, "group", "stream")));
+        Assert.assertArrayEquals(expected, CompressUtils.zstdDecompress(
+                encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_ZSTD, "group", "stream")));
+        Assert.assertArrayEquals(expected, CompressUtils.lz4Decompress(
+                encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_LZ4, "group", "stream")));
+    }
+
+    @Test
+    public void testReuseAcrossPacks() throws Exception {
+        MessageObjsEncoder encoder = new MessageObjsEncoder();
+        for (int count : new int[]{1000, 3, 300}) {
+            List<ProxyEvent> events = buildEvents(count);
+            byte[] expected = buildByBuilder(events);
+            Assert.assertArrayEquals(expected,
+                    Snappy.uncompress(encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_SNAPPY, "group", "stream")));
+            Assert.assertEquals(count, MessageObjs.parseFrom(
+                    encoder.encode(events, INLONG_COMPRESSED_TYPE.INLONG_NO_COMPRESS, "group", "stream"))
+                    .getMsgsCount());
+        }
+    }
+
+    private List<ProxyEvent> buildEvents(int count) {
+        List<ProxyEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder body = new StringBuilder(512);
+            for (int j = 0; j <= i % 20; j++) {
+                body.append("body-").append(i).append("-").append(j).append("|");
+            }
+            ProxyEvent event = new ProxyEvent("group", "stream",
+                    body.toString().getBytes(StandardCharsets.UTF_8), 1700000000000L + i, "127.0.0." + (i % 256));
+            event.getHeaders().put("key" + (i % 3), "value\u4e2d\u6587" + i);
+            events.add(event);
+        }
+        return events;
+    }
+
+    private byte[] buildByBuilder(List<ProxyEvent> events) {
+        MessageObjs.Builder objs = MessageObjs.newBuilder();
+        for (ProxyEvent event : events) {
+            MessageObj.Builder builder = MessageObj.newBuilder();
+            builder.setMsgTime(event.getMsgTime());
+            builder.setSourceIp(event.getSourceIp());
+            event.getHeaders().forEach((key, value) -> {
+                builder.addParams(MapFieldEntry.newBuilder().setKey(key).setValue(value));
+            });
+            builder.setBody(ByteString.copyFrom(event.getBody()));
+            objs.addMsgs(builder.build());
+        }
+        return objs.build().toByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.mq;
+
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import org.apache.flume.Context;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * BatchPackManager test
+ */
+public class BatchPackManagerTest {
+
+    private final List<PackProfile> dispatched = new ArrayList<>();
+    private BatchPackManager packManager;
+
+    @Before
+    public void setUp() {
+        MessageQueueZoneSink zoneSink = mock(MessageQueueZoneSink.class);
+        doAnswer(invocation -> dispatched.add(invocation.getArgument(0)))
+                .when(zoneSink).acquireAndOfferDispatchedRecord(any());
+        Map<String, String> params = new HashMap<>();
+        params.put(BatchPackManager.KEY_DISPATCH_TIMEOUT, "0");
+        params.put(BatchPackManager.KEY_DISPATCH_MAX_PACKCOUNT, "3");
+        packManager = new BatchPackManager(zoneSink, new Context(params));
+    }
+
+    @Test
+    public void testOutputFullPack() {
+        long msgTime = System.currentTimeMillis();
+        for (int i = 0; i < 7; i++) {
+            packManager.addEvent(buildEvent("stream", msgTime));
+        }
+        Assert.assertEquals(2, dispatched.size());
+        Assert.assertEquals(3, dispatched.get(0).getCount());
+        Assert.assertEquals(3, dispatched.get(1).getCount());
+        Assert.assertEquals(1, packManager.getOpenPackCount());
+        // the full packs are not output again when they time out
+        packManager.setNeedOutputOvertimeData();
+        packManager.outputOvertimeData();
+        Assert.assertEquals(3, dispatched.size());
+        Assert.assertEquals(1, dispatched.get(2).getCount());
+        Assert.assertEquals(0, packManager.getOpenPackCount());
+    }
+
+    @Test
+    public void testOutputOvertimeData() {
+        long msgTime = System.currentTimeMillis();
+        packManager.addEvent(buildEvent("stream1", msgTime));
+        packManager.addEvent(buildEvent("stream2", msgTime));
+        // another dispatch time of the same stream goes to another pack
+        packManager.addEvent(buildEvent("stream1", msgTime - BatchPackManager.MINUTE_MS));
+        packManager.addEvent(buildEvent("stream1", msgTime));
+        Assert.assertEquals(3, packManager.getOpenPackCount());
+        Assert.assertTrue(dispatched.isEmpty());
+        packManager.setNeedOutputOvertimeData();
+        packManager.outputOvertimeData();
+        Assert.assertEquals(3, dispatched.size());
+        Assert.assertEquals("stream1", dispatched.get(0).getInlongStreamId());
+        Assert.assertEquals(2, dispatched.get(0).getCount());
+        Assert.assertEquals("stream2", dispatched.get(1).getInlongStreamId());
+        Assert.assertEquals(1, dispatched.get(2).getCount());
+        Assert.assertEquals(0, packManager.getOpenPackCount());
+        // the streams get new packs after their packs are output
+        packManager.addEvent(buildEvent("stream1", msgTime));
+        Assert.assertEquals(1, packManager.getOpenPackCount());
+    }
+
+    private ProxyEvent buildEvent(String streamId, long msgTime) {
+        return new ProxyEvent("group", streamId,
+                "body".getBytes(StandardCharsets.UTF_8), msgTime, "127.0.0.1");
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.mq;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * MessageQueueZoneWorker in-flight permit test
+ */
+public class MessageQueueZoneWorkerTest {
+
+    private static final long FETCH_WAIT_MS = 10L;
+    private static final long SENT_WAIT_MS = 2000L;
+    private static final long BLOCKED_WAIT_MS = 300L;
+
+    private final BlockingQueue<PackProfile> sent = new LinkedBlockingQueue<>();
+    private final AtomicBoolean failSend = new AtomicBoolean(false);
+    private MessageQueueZoneSink zoneSink;
+    private MessageQueueZoneWorker zoneWorker;
+
+    @Before
+    public void setUp() {
+        zoneSink = new MessageQueueZoneSink();
+        MessageQueueZoneProducer zoneProducer = mock(MessageQueueZoneProducer.class);
+        doAnswer(invocation -> {
+            if (failSend.getAndSet(false)) {
+                throw new RuntimeException("send failure");
+            }
+            return sent.add(invocation.getArgument(0));
+        }).when(zoneProducer).send(any());
+        // only one pack may be in flight
+        zoneWorker = new MessageQueueZoneWorker(zoneSink, 0, FETCH_WAIT_MS, 1, zoneProducer);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        zoneWorker.close();
+        zoneWorker.join(SENT_WAIT_MS);
+    }
+
+    @Test
+    public void testPermitReleasedOnSuccess() throws InterruptedException {
+        PackProfile first = buildProfile();
+        PackProfile second = buildProfile();
+        zoneSink.acquireAndOfferDispatchedRecord(first);
+        zoneSink.acquireAndOfferDispatchedRecord(second);
+        zoneWorker.start();
+        Assert.assertSame(first, sent.poll(SENT_WAIT_MS, TimeUnit.MILLISECONDS));
+        // the permit is held until the first pack completes
+        Assert.assertNull(sent.poll(BLOCKED_WAIT_MS, TimeUnit.MILLISECONDS));
+        zoneSink.releaseAcquiredSizePermit(first);
+        Assert.assertSame(second, sent.poll(SENT_WAIT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPermitReleasedOnFailure() throws InterruptedException {
+        PackProfile profile = buildProfile();
+        zoneSink.acquireAndOfferDispatchedRecord(profile);
+        failSend.set(true);
+        zoneWorker.start();
+        // the failed pack is requeued with its permit released, then resent
+        Assert.assertSame(profile, sent.poll(SENT_WAIT_MS, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(failSend.get());
+    }
+
+    @Test
+    public void testPermitNotReleasedTwice() throws InterruptedException {
+        PackProfile first = buildProfile();
+        PackProfile second = buildProfile();
+        PackProfile third = buildProfile();
+        zoneSink.acquireAndOfferDispatchedRecord(first);
+        zoneWorker.start();
+        Assert.assertSame(first, sent.poll(SENT_WAIT_MS, TimeUnit.MILLISECONDS));
+        zoneSink.releaseAcquiredSizePermit(first);
+        // a repeated completion of the same pack does not add a permit
+        first.releaseInflightPermit();
+        zoneSink.acquireAndOfferDispatchedRecord(second);
+        zoneSink.acquireAndOfferDispatchedRecord(third);
+        Assert.assertSame(second, sent.poll(SENT_WAIT_MS, TimeUnit.MILLISECONDS));
+        Assert.assertNull(sent.poll(BLOCKED_WAIT_MS, TimeUnit.MILLISECONDS));
+        zoneSink.releaseAcquiredSizePermit(second);
+        Assert.assertSame(third, sent.poll(SENT_WAIT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private PackProfile buildProfile() {
+        return new BatchPackProfile("uid", "groupId", "streamId", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.utils;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SpillFileQueue test
+ */
+public class SpillFileQueueTest {
+
+    private File spillDir;
+
+    @Before
+    public void setUp() throws Exception {
+        spillDir = Files.createTempDirectory("spill-queue-test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = spillDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        spillDir.delete();
+    }
+
+    @Test
+    public void testReadInOrderAcrossSegments() throws Exception {
+        SpillFileQueue queue = new SpillFileQueue(spillDir, 256, 1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(queue.append(toBytes("record-" + i), i));
+        }
+        Assert.assertTrue(queue.getSegmentCount() > 1);
+        for (int i = 0; i < 100; i++) {
+            SpillFileQueue.Record record = queue.read();
+            Assert.assertNotNull(record);
+            Assert.assertEquals("record-" + i, toString(record));
+            queue.commit(record);
+        }
+        Assert.assertNull(queue.read());
+        Assert.assertFalse(queue.hasBacklog());
+        // the consumed segments are deleted by the checkpoint
+        queue.checkpoint();
+        Assert.assertEquals(1, queue.getSegmentCount());
+    }
+
+    @Test
+    public void testRollbackReadAgain() throws Exception {
+        SpillFileQueue queue = new SpillFileQueue(spillDir, 1024, 1024 * 1024);
+        for (int i = 0; i < 3; i++) {
+            queue.append(toBytes("record-" + i), i);
+        }
+        List<SpillFileQueue.Record> records = new ArrayList<>();
+        records.add(queue.read());
+        records.add(queue.read());
+        queue.rollback(records);
+        for (int i = 0; i < 3; i++) {
+            SpillFileQueue.Record record = queue.read();
+            Assert.assertEquals("record-" + i, toString(record));
+            queue.commit(record);
+        }
+        Assert.assertFalse(queue.hasBacklog());
+    }
+
+    @Test
+    public void testReplayAfterRestart() throws Exception {
+        SpillFileQueue queue = new SpillFileQueue(spillDir, 256, 1024 * 1024);
+        for (int i = 0; i < 50; i++) {
+            queue.append(toBytes("record-" + i), i);
+        }
+        for (int i = 0; i < 20; i++) {
+            queue.commit(queue.read());
+        }
+        queue.checkpoint();
+        // read but not committed before the restart
+        queue.read();
+        queue.close();
+        SpillFileQueue reloaded = new SpillFileQueue(spillDir, 256, 1024 * 1024);
+        Assert.assertTrue(reloaded.hasBacklog());
+        for (int i = 20; i < 50; i++) {
+            SpillFileQueue.Record record = reloaded.read();
+            Assert.assertEquals("record-" + i, toString(record));
+            reloaded.commit(record);
+        }
+        Assert.assertNull(reloaded.read());
+        // appended records go after the replayed ones
+        reloaded.append(toBytes("record-50"), 50);
+        Assert.assertEquals("record-50", toString(reloaded.read()));
+    }
+
+    @Test
+    public void testRejectWhenFull() throws Exception {
+        SpillFileQueue queue = new SpillFileQueue(spillDir, 1024, 100);
+        Assert.assertTrue(queue.append(new byte[60], 0));
+        Assert.assertFalse(queue.append(new byte[60], 0));
+        queue.commit(queue.read());
+        Assert.assertTrue(queue.append(new byte[60], 0));
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String toString(SpillFileQueue.Record record) {
+        return new String(record.getData(), StandardCharsets.UTF_8);
+    }
+}
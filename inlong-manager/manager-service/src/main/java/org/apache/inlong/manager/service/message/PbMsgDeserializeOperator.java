@@ -26,6 +26,7 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -59,6 +60,12 @@ public class PbMsgDeserializeOperator implements DeserializeOperator {
             case INLONG_COMPRESSED_TYPE.INLONG_SNAPPY_VALUE:
                 values = Utils.snappyDecompress(msgBytes, 0, msgBytes.length);
                 break;
+            case INLONG_COMPRESSED_TYPE.INLONG_ZSTD_VALUE:
+                values = CompressUtils.zstdDecompress(msgBytes);
+                break;
+            case INLONG_COMPRESSED_TYPE.INLONG_LZ4_VALUE:
+                values = CompressUtils.lz4Decompress(msgBytes);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown compress type:" + compressType);
         }
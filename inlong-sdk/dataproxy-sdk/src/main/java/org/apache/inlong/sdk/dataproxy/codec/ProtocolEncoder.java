@@ -397,6 +397,10 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
         return buf;
     }
 
+    /**
+     * compress the body by snappy, the binary protocol only carries a compressed flag
+     * and its decoders take it as snappy, so the other compress types are not supported here
+     */
     private byte[] processCompress(byte[] body) {
         try {
             ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -23,6 +23,7 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePack;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePackHeader;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
 import org.apache.inlong.sdk.commons.utils.GzipUtils;
 
 import com.google.protobuf.ByteString;
@@ -68,6 +69,13 @@ public class EventUtils {
             case INLONG_GZ:
                 compressedBytes = GzipUtils.compress(srcBytes);
                 break;
+            case INLONG_ZSTD:
+                compressedBytes = CompressUtils.zstdCompress(srcBytes, 0, srcBytes.length,
+                        inlongGroupId, inlongStreamId);
+                break;
+            case INLONG_LZ4:
+                compressedBytes = CompressUtils.lz4Compress(srcBytes, 0, srcBytes.length);
+                break;
             case INLONG_NO_COMPRESS:
             default:
                 compressedBytes = srcBytes;
@@ -118,6 +126,12 @@ public class EventUtils {
             case INLONG_GZ:
                 srcBytes = GzipUtils.decompress(compressBytes);
                 break;
+            case INLONG_ZSTD:
+                srcBytes = CompressUtils.zstdDecompress(compressBytes);
+                break;
+            case INLONG_LZ4:
+                srcBytes = CompressUtils.lz4Decompress(compressBytes);
+                break;
             case INLONG_NO_COMPRESS:
             default:
                 srcBytes = compressBytes;
@@ -167,6 +181,15 @@ public class EventUtils {
             case INLONG_GZ:
                 compressBytes = GzipUtils.compress(srcBytes);
                 break;
+            case INLONG_ZSTD:
+                // the events of a cache message belong to the same stream
+                compressBytes = CompressUtils.zstdCompress(srcBytes, 0, srcBytes.length,
+                        events.isEmpty() ? null : events.get(0).getInlongGroupId(),
+                        events.isEmpty() ? null : events.get(0).getInlongStreamId());
+                break;
+            case INLONG_LZ4:
+                compressBytes = CompressUtils.lz4Compress(srcBytes, 0, srcBytes.length);
+                break;
             case INLONG_NO_COMPRESS:
             default:
                 compressBytes = srcBytes;
@@ -196,6 +219,12 @@ public class EventUtils {
             case INLONG_GZ:
                 srcBytes = GzipUtils.decompress(msgBody);
                 break;
+            case INLONG_ZSTD:
+                srcBytes = CompressUtils.zstdDecompress(msgBody);
+                break;
+            case INLONG_LZ4:
+                srcBytes = CompressUtils.lz4Decompress(msgBody);
+                break;
             case INLONG_NO_COMPRESS:
             default:
                 srcBytes = msgBody;
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * CompressUtils
+ *
+ * The codecs of INLONG_ZSTD and INLONG_LZ4.
+ * The INLONG_ZSTD data is a standard zstd frame with the content size, and with
+ * the dictionary id if it is compressed by a dictionary of {@link ZstdDictionaries}.
+ * The INLONG_LZ4 data is a 4-byte raw data length followed by a lz4 block.
+ *
+ * The codecs are only used by the PB message protocol, which carries the compress type.
+ * The v0 binary protocol (ProtocolEncoder, InLongMsg) marks a compressed body with a
+ * single boolean that its decoders take as snappy, so it keeps snappy for wire compatibility.
+ */
+public class CompressUtils {
+
+    public static final int LZ4_HEADER_LEN = 4;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    /**
+     * compress data by zstd, with the dictionary of the inlongGroupId and inlongStreamId if registered
+     *
+     * @param data            the buffer contains the raw data
+     * @param offset          the start position of the raw data
+     * @param length          the length of the raw data
+     * @param inlongGroupId   the group id, nullable
+     * @param inlongStreamId  the stream id, nullable
+     * @return the zstd frame
+     * @throws IOException the exception while compressing
+     */
+    public static byte[] zstdCompress(byte[] data, int offset, int length,
+            String inlongGroupId, String inlongStreamId) throws IOException {
+        byte[] compressed = new byte[(int) Zstd.compressBound(length)];
+        ZstdDictCompress dict = ZstdDictionaries.getCompressDict(inlongGroupId, inlongStreamId);
+        long result;
+        if (dict == null) {
+            result = Zstd.compressByteArray(compressed, 0, compressed.length,
+                    data, offset, length, ZstdDictionaries.ZSTD_COMPRESS_LEVEL);
+        } else {
+            result = Zstd.compressFastDict(compressed, 0, data, offset, length, dict);
+        }
+        if (Zstd.isError(result)) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Failed to compress data by zstd: ")
+                    .append(Zstd.getErrorName(result)).toString());
+        }
+        return Arrays.copyOf(compressed, (int) result);
+    }
+
+    /**
+     * decompress the zstd frame, the dictionary is selected by the dictionary id of the frame
+     *
+     * @param data  the zstd frame
+     * @return the raw data
+     * @throws IOException the exception while decompressing
+     */
+    public static byte[] zstdDecompress(byte[] data) throws IOException {
+        long rawLength = Zstd.decompressedSize(data, 0, data.length);
+        if (rawLength < 0 || rawLength > Integer.MAX_VALUE) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Invalid zstd content size ").append(rawLength).toString());
+        }
+        byte[] rawData = new byte[(int) rawLength];
+        long dictId = Zstd.getDictIdFromFrame(data);
+        long result;
+        if (dictId == 0) {
+            result = Zstd.decompressByteArray(rawData, 0, rawData.length, data, 0, data.length);
+        } else {
+            ZstdDictDecompress dict = ZstdDictionaries.getDecompressDict(dictId);
+            if (dict == null) {
+                throw new IOException(new StringBuilder(128)
+                        .append("The zstd dictionary ").append(dictId)
+                        .append(" is not loaded").toString());
+            }
+            result = Zstd.decompressFastDict(rawData, 0, data, 0, data.length, dict);
+        }
+        if (Zstd.isError(result)) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Failed to decompress data by zstd: ")
+                    .append(Zstd.getErrorName(result)).toString());
+        }
+        if (result != rawLength) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Decompressed length ").append(result)
+                    .append(" not equal to the content size ").append(rawLength).toString());
+        }
+        return rawData;
+    }
+
+    /**
+     * compress data by lz4
+     *
+     * @param data    the buffer contains the raw data
+     * @param offset  the start position of the raw data
+     * @param length  the length of the raw data
+     * @return the raw data length and the lz4 block
+     */
+    public static byte[] lz4Compress(byte[] data, int offset, int length) {
+        LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+        int maxLength = compressor.maxCompressedLength(length);
+        byte[] compressed = new byte[LZ4_HEADER_LEN + maxLength];
+        ByteBuffer.wrap(compressed).putInt(length);
+        int compressedLen = compressor.compress(data, offset, length,
+                compressed, LZ4_HEADER_LEN, maxLength);
+        return Arrays.copyOf(compressed, LZ4_HEADER_LEN + compressedLen);
+    }
+
+    /**
+     * decompress the lz4 data
+     *
+     * @param data  the raw data length and the lz4 block
+     * @return the raw data
+     * @throws IOException the exception while decompressing
+     */
+    public static byte[] lz4Decompress(byte[] data) throws IOException {
+        if (data.length < LZ4_HEADER_LEN) {
+            throw new IOException("Lz4 data is shorter than its header");
+        }
+        int rawLength = ByteBuffer.wrap(data).getInt();
+        if (rawLength < 0) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Invalid lz4 raw data length ").append(rawLength).toString());
+        }
+        byte[] rawData = new byte[rawLength];
+        int readLen;
+        try {
+            readLen = LZ4_FACTORY.fastDecompressor().decompress(data, LZ4_HEADER_LEN, rawData, 0, rawLength);
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to decompress data by lz4", e);
+        }
+        if (readLen != data.length - LZ4_HEADER_LEN) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Lz4 block length ").append(readLen)
+                    .append(" not equal to the data length ")
+                    .append(data.length - LZ4_HEADER_LEN).toString());
+        }
+        return rawData;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import org.apache.inlong.sdk.commons.protocol.InlongId;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ZstdDictionaries
+ *
+ * The trained zstd dictionaries of the inlongGroupId or inlongStreamId.
+ * The compressor selects the dictionary by the uid of the pack, the zstd frame
+ * records the id of the dictionary, so the decompressor selects the dictionary
+ * by the frame only, the producer and the consumers must load the same files.
+ *
+ * The dictionary files are named as {uid}.dict, uid is inlongGroupId.inlongStreamId
+ * or inlongGroupId, they are loaded from the directory specified by the system
+ * property inlong.zstd.dict.dir, or registered by the caller.
+ */
+public class ZstdDictionaries {
+
+    public static final Logger LOG = LoggerFactory.getLogger(ZstdDictionaries.class);
+
+    public static final String KEY_DICT_DIR = "inlong.zstd.dict.dir";
+    public static final String DICT_FILE_SUFFIX = ".dict";
+    // the zstd level, 3 is the default level of zstd
+    public static final int ZSTD_COMPRESS_LEVEL = 3;
+
+    // uid -> compress dictionary
+    private static final ConcurrentHashMap<String, ZstdDictCompress> compressDicts = new ConcurrentHashMap<>();
+    // dictionary id -> decompress dictionary
+    private static final ConcurrentHashMap<Long, ZstdDictDecompress> decompressDicts = new ConcurrentHashMap<>();
+
+    static {
+        String dictDir = System.getProperty(KEY_DICT_DIR);
+        if (StringUtils.isNotBlank(dictDir)) {
+            loadFromDir(new File(dictDir.trim()));
+        }
+    }
+
+    /**
+     * register the dictionary of the inlongGroupId and inlongStreamId
+     *
+     * @param inlongGroupId   the group id
+     * @param inlongStreamId  the stream id, the dictionary is used by the whole group if blank
+     * @param dict            the dictionary trained by zstd
+     * @return the dictionary id
+     */
+    public static long register(String inlongGroupId, String inlongStreamId, byte[] dict) {
+        return register(InlongId.generateUid(inlongGroupId, inlongStreamId), dict);
+    }
+
+    /**
+     * load all the dictionary files in the directory
+     *
+     * @param dictDir  the directory
+     * @return the count of the loaded dictionaries
+     */
+    public static int loadFromDir(File dictDir) {
+        File[] files = dictDir.listFiles((dir, name) -> name.endsWith(DICT_FILE_SUFFIX));
+        if (files == null) {
+            LOG.warn("Zstd dictionary directory {} is not readable", dictDir);
+            return 0;
+        }
+        int count = 0;
+        String uid;
+        for (File file : files) {
+            uid = file.getName().substring(0, file.getName().length() - DICT_FILE_SUFFIX.length());
+            try {
+                long dictId = register(uid, Files.readAllBytes(file.toPath()));
+                LOG.info("Loaded zstd dictionary {} of {} from {}", dictId, uid, file);
+                count++;
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Failed to load zstd dictionary from {}", file, e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * train a dictionary from the sample messages
+     *
+     * @param samples   the sample messages
+     * @param dictSize  the max dictionary size
+     * @return the dictionary
+     */
+    public static byte[] train(List<byte[]> samples, int dictSize) {
+        byte[] dictBuffer = new byte[dictSize];
+        long result = Zstd.trainFromBuffer(samples.toArray(new byte[0][]), dictBuffer);
+        if (Zstd.isError(result)) {
+            throw new IllegalArgumentException(new StringBuilder(128)
+                    .append("Failed to train zstd dictionary: ")
+                    .append(Zstd.getErrorName(result)).toString());
+        }
+        return Arrays.copyOf(dictBuffer, (int) result);
+    }
+
+    /**
+     * get the compress dictionary, the stream dictionary is preferred to the group one
+     *
+     * @param inlongGroupId   the group id
+     * @param inlongStreamId  the stream id
+     * @return the dictionary, null if not registered
+     */
+    public static ZstdDictCompress getCompressDict(String inlongGroupId, String inlongStreamId) {
+        if (compressDicts.isEmpty() || inlongGroupId == null) {
+            return null;
+        }
+        ZstdDictCompress dict = compressDicts.get(InlongId.generateUid(inlongGroupId, inlongStreamId));
+        if (dict == null) {
+            dict = compressDicts.get(inlongGroupId);
+        }
+        return dict;
+    }
+
+    /**
+     * get the decompress dictionary
+     *
+     * @param dictId  the dictionary id recorded in the zstd frame
+     * @return the dictionary, null if not registered
+     */
+    public static ZstdDictDecompress getDecompressDict(long dictId) {
+        return decompressDicts.get(dictId);
+    }
+
+    private static long register(String uid, byte[] dict) {
+        long dictId = Zstd.getDictIdFromDict(dict);
+        if (dictId == 0) {
+            throw new IllegalArgumentException(new StringBuilder(128)
+                    .append("The zstd dictionary of ").append(uid)
+                    .append(" is not a trained dictionary").toString());
+        }
+        decompressDicts.put(dictId, new ZstdDictDecompress(dict));
+        compressDicts.put(uid, new ZstdDictCompress(dict, ZSTD_COMPRESS_LEVEL));
+        return dictId;
+    }
+}
@@ -104,4 +104,27 @@ public class TestEventUtils {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testZstdAndLz4Pack() throws Exception {
+        SdkEvent event = new SdkEvent(INLONG_GROUP_ID, INLONG_STREAM_ID, BODY);
+        event.setSourceIp(SOURCE_IP);
+        List<SdkEvent> eventList = new ArrayList<>();
+        eventList.add(event);
+        for (INLONG_COMPRESSED_TYPE compressedType : new INLONG_COMPRESSED_TYPE[]{
+                INLONG_COMPRESSED_TYPE.INLONG_ZSTD, INLONG_COMPRESSED_TYPE.INLONG_LZ4}) {
+            MessagePack packObj = EventUtils.encodeSdkEvents(INLONG_GROUP_ID, INLONG_STREAM_ID, compressedType,
+                    eventList);
+            MessagePack packObject = MessagePack.parseFrom(packObj.toByteArray());
+            assertEquals(compressedType, packObject.getHeader().getCompressType());
+            List<ProxyEvent> proxyEventList = EventUtils.decodeSdkPack(packObject);
+            assertEquals(1, proxyEventList.size());
+            assertEquals(BODY, new String(proxyEventList.get(0).getBody()));
+            byte[] bodyBytes = EventUtils.encodeCacheMessageBody(compressedType, proxyEventList);
+            List<SortEvent> sortEventList = EventUtils.decodeCacheMessageBody(INLONG_GROUP_ID, INLONG_STREAM_ID,
+                    compressedType, bodyBytes);
+            assertEquals(1, sortEventList.size());
+            assertEquals(BODY, new String(sortEventList.get(0).getBody()));
+        }
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.utils;
+
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.INLONG_COMPRESSED_TYPE;
+
+import com.github.luben.zstd.Zstd;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TestCompressUtils
+ */
+public class TestCompressUtils {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TestCompressUtils.class);
+
+    @Test
+    public void testZstdRoundTrip() throws IOException {
+        byte[] data = buildJsonLogs(0, 500);
+        byte[] compressed = CompressUtils.zstdCompress(data, 0, data.length, null, null);
+        Assert.assertTrue(compressed.length < data.length);
+        Assert.assertEquals(0, Zstd.getDictIdFromFrame(compressed));
+        Assert.assertArrayEquals(data, CompressUtils.zstdDecompress(compressed));
+        // compress a part of the buffer
+        byte[] part = new byte[100];
+        System.arraycopy(data, 10, part, 0, part.length);
+        Assert.assertArrayEquals(part,
+                CompressUtils.zstdDecompress(CompressUtils.zstdCompress(data, 10, 100, null, null)));
+    }
+
+    @Test
+    public void testZstdDictionary() throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            samples.add(buildJsonLog(i));
+        }
+        byte[] dict = ZstdDictionaries.train(samples, 16 * 1024);
+        long dictId = ZstdDictionaries.register("dictGroup", "dictStream", dict);
+        byte[] data = buildJsonLog(5000);
+        byte[] withDict = CompressUtils.zstdCompress(data, 0, data.length, "dictGroup", "dictStream");
+        byte[] withoutDict = CompressUtils.zstdCompress(data, 0, data.length, "otherGroup", "otherStream");
+        Assert.assertEquals(dictId, Zstd.getDictIdFromFrame(withDict));
+        Assert.assertTrue(withDict.length < withoutDict.length);
+        Assert.assertArrayEquals(data, CompressUtils.zstdDecompress(withDict));
+        Assert.assertArrayEquals(data, CompressUtils.zstdDecompress(withoutDict));
+    }
+
+    @Test
+    public void testLz4RoundTrip() throws IOException {
+        byte[] data = buildJsonLogs(0, 500);
+        byte[] compressed = CompressUtils.lz4Compress(data, 0, data.length);
+        Assert.assertTrue(compressed.length < data.length);
+        Assert.assertArrayEquals(data, CompressUtils.lz4Decompress(compressed));
+        Assert.assertArrayEquals(new byte[0],
+                CompressUtils.lz4Decompress(CompressUtils.lz4Compress(new byte[0], 0, 0)));
+        // truncated data
+        byte[] truncated = new byte[compressed.length - 10];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        try {
+            CompressUtils.lz4Decompress(truncated);
+            Assert.fail("truncated lz4 data should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThroughput() throws IOException {
+        byte[] data = buildJsonLogs(0, 5000);
+        for (INLONG_COMPRESSED_TYPE compressType : new INLONG_COMPRESSED_TYPE[]{
+                INLONG_COMPRESSED_TYPE.INLONG_GZ, INLONG_COMPRESSED_TYPE.INLONG_SNAPPY,
+                INLONG_COMPRESSED_TYPE.INLONG_ZSTD, INLONG_COMPRESSED_TYPE.INLONG_LZ4}) {
+            // warm up
+            byte[] compressed = compress(compressType, data);
+            Assert.assertArrayEquals(data, decompress(compressType, compressed));
+            int rounds = 20;
+            long startTime = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                compressed = compress(compressType, data);
+            }
+            long compressNs = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                decompress(compressType, compressed);
+            }
+            long decompressNs = System.nanoTime() - startTime;
+            LOG.info("{}: ratio {}, compress {} MB/s, decompress {} MB/s", compressType,
+                    String.format("%.2f", (double) data.length / compressed.length),
+                    String.format("%.1f", rounds * data.length * 1000.0 / compressNs),
+                    String.format("%.1f", rounds * data.length * 1000.0 / decompressNs));
+        }
+    }
+
+    private byte[] compress(INLONG_COMPRESSED_TYPE compressType, byte[] data) throws IOException {
+        switch (compressType) {
+            case INLONG_GZ:
+                return GzipUtils.compress(data);
+            case INLONG_SNAPPY:
+                return Snappy.compress(data);
+            case INLONG_ZSTD:
+                return CompressUtils.zstdCompress(data, 0, data.length, null, null);
+            case INLONG_LZ4:
+                return CompressUtils.lz4Compress(data, 0, data.length);
+            default:
+                return data;
+        }
+    }
+
+    private byte[] decompress(INLONG_COMPRESSED_TYPE compressType, byte[] data) throws IOException {
+        switch (compressType) {
+            case INLONG_GZ:
+                return GzipUtils.decompress(data);
+            case INLONG_SNAPPY:
+                return Snappy.uncompress(data);
+            case INLONG_ZSTD:
+                return CompressUtils.zstdDecompress(data);
+            case INLONG_LZ4:
+                return CompressUtils.lz4Decompress(data);
+            default:
+                return data;
+        }
+    }
+
+    private byte[] buildJsonLogs(int start, int count) {
+        StringBuilder builder = new StringBuilder(256 * count);
+        for (int i = start; i < start + count; i++) {
+            builder.append(new String(buildJsonLog(i), StandardCharsets.UTF_8)).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] buildJsonLog(int index) {
+        return new StringBuilder(256)
+                .append("{\"time\":\"2023-11-06 10:").append(index % 60).append(':').append(index % 59)
+                .append("\",\"level\":\"").append(index % 7 == 0 ? "WARN" : "INFO")
+                .append("\",\"host\":\"10.0.").append(index % 16).append('.').append(index % 251)
+                .append("\",\"service\":\"order-service\",\"traceId\":\"").append(Integer.toHexString(index * 7919))
+                .append("\",\"userId\":").append(index * 31 % 100000)
+                .append(",\"latencyMs\":").append(index % 997)
+                .append(",\"message\":\"request processed, status=").append(index % 5 == 0 ? 500 : 200)
+                .append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.inlong.sdk.commons.protocol.EventConstants;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
 import org.apache.inlong.sdk.sort.api.ClientContext;
 import org.apache.inlong.sdk.sort.api.Deserializer;
 import org.apache.inlong.sdk.sort.entity.InLongMessage;
@@ -45,6 +46,8 @@ public class MessageDeserializer implements Deserializer {
     private static final int COMPRESS_TYPE_NONE = 0;
     private static final int COMPRESS_TYPE_GZIP = 1;
     private static final int COMPRESS_TYPE_SNAPPY = 2;
+    private static final int COMPRESS_TYPE_ZSTD = 3;
+    private static final int COMPRESS_TYPE_LZ4 = 4;
     private static final String COMPRESS_TYPE_KEY = "compressType";
     private static final String MSG_TIME_KEY = "msgTime";
     private static final String SOURCE_IP_KEY = "sourceIp";
@@ -128,6 +131,16 @@ public class MessageDeserializer implements Deserializer {
                 return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(values), inlongGroupId,
                         inlongStreamId);
             }
+            case COMPRESS_TYPE_ZSTD: {
+                byte[] values = CompressUtils.zstdDecompress(msgBytes);
+                return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(values), inlongGroupId,
+                        inlongStreamId);
+            }
+            case COMPRESS_TYPE_LZ4: {
+                byte[] values = CompressUtils.lz4Decompress(msgBytes);
+                return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(values), inlongGroupId,
+                        inlongStreamId);
+            }
             default:
                 throw new IllegalArgumentException("Unknown compress type:" + compressType);
         }
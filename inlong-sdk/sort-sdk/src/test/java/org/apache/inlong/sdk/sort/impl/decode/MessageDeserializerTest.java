@@ -22,6 +22,7 @@ import org.apache.inlong.common.util.Utils;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
+import org.apache.inlong.sdk.commons.utils.CompressUtils;
 import org.apache.inlong.sdk.sort.api.ClientContext;
 import org.apache.inlong.sdk.sort.entity.CacheZoneCluster;
 import org.apache.inlong.sdk.sort.entity.InLongMessage;
@@ -64,7 +65,7 @@ public class MessageDeserializerTest {
     }
 
     @Test
-    public void testDeserialize() {
+    public void testDeserialize() throws Exception {
         // 1. setUp
         try {
             setUp();
@@ -84,7 +85,13 @@ public class MessageDeserializerTest {
         // 5. testDeserializeVersion1CompressionType2
         testDeserializeVersion1CompressionType2();
 
-        // 6. DeserializeVersion2NoCompress
+        // 6. testDeserializeVersion1CompressionType3
+        testDeserializeVersion1CompressionType3();
+
+        // 7. testDeserializeVersion1CompressionType4
+        testDeserializeVersion1CompressionType4();
+
+        // 8. DeserializeVersion2NoCompress
         testDeserializeVersion2NoCompress();
     }
 
@@ -154,6 +161,36 @@ public class MessageDeserializerTest {
         }
     }
 
+    private void testDeserializeVersion1CompressionType3() throws Exception {
+        // test version == 1
+        prepareTestMessageObjs();
+        // compression zstd
+        headers.put("compressType", "3");
+
+        byte[] srcBytes = messageObjs.toByteArray();
+        byte[] testDataByteArray = CompressUtils.zstdCompress(srcBytes, 0, srcBytes.length, null, null);
+
+        List<InLongMessage> deserialize = messageDeserializer
+                .deserialize(context, inLongTopic, headers, testDataByteArray);
+        Assert.assertEquals(2, deserialize.size());
+        Assert.assertEquals(testData, new String(deserialize.get(0).getBody()));
+    }
+
+    private void testDeserializeVersion1CompressionType4() throws Exception {
+        // test version == 1
+        prepareTestMessageObjs();
+        // compression lz4
+        headers.put("compressType", "4");
+
+        byte[] srcBytes = messageObjs.toByteArray();
+        byte[] testDataByteArray = CompressUtils.lz4Compress(srcBytes, 0, srcBytes.length);
+
+        List<InLongMessage> deserialize = messageDeserializer
+                .deserialize(context, inLongTopic, headers, testDataByteArray);
+        Assert.assertEquals(2, deserialize.size());
+        Assert.assertEquals(testData, new String(deserialize.get(0).getBody()));
+    }
+
     private void testDeserializeVersion2NoCompress() {
         try {
             String groupId = "sort_sdk_test_group_id";
@@ -0,0 +1,56 @@
+#!/bin/bash
+
+#
+# Licensed to the Apache Software Foundation (ASF) under one or more
+# contributor license agreements.  See the NOTICE file distributed with
+# this work for additional information regarding copyright ownership.
+# The ASF licenses this file to You under the Apache License, Version 2.0
+# (the "License"); you may not use this file except in compliance with
+# the License.  You may obtain a copy of the License at
+#
+#    http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+#project directory
+if [ -z "$BASE_DIR" ] ; then
+  PRG="$0"
+
+  # need this for relative symlinks
+  while [ -h "$PRG" ] ; do
+    ls=`ls -ld "$PRG"`
+    link=`expr "$ls" : '.*-> \(.*\)$'`
+    if expr "$link" : '/.*' > /dev/null; then
+      PRG="$link"
+    else
+      PRG="`dirname "$PRG"`/$link"
+    fi
+  done
+  BASE_DIR=`dirname "$PRG"`/..
+
+  # make it fully qualified
+  BASE_DIR=`cd "$BASE_DIR" && pwd`
+  #echo "TubeMQ broker is at $BASE_DIR"
+fi
+source $BASE_DIR/bin/env.sh
+
+AS_USER=`whoami`
+LOG_DIR="$BASE_DIR/logs"
+LOG_FILE="$LOG_DIR/offsetMigrate.log"
+touch $LOG_FILE
+mkdir -p $LOG_DIR
+
+chown -R $AS_USER $LOG_DIR
+
+echo "Starting offset storage migration..."
+
+$JAVA $TOOL_REPAIR_ARGS  org.apache.inlong.tubemq.server.tools.OffsetStorageMigrateAdmin -f $BASE_DIR/conf/broker.ini 2>&1 >>$LOG_FILE
+
+
+
+
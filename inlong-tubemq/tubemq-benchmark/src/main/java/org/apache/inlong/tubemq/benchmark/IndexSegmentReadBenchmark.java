@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.FileSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MmapIndexSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read benchmark of a sealed index segment, channel reads against memory mapped reads.
+ *
+ * Each thread reads the segment sequentially from a random position in units of
+ * readCnt records, each read allocates a heap buffer as the message store does.
+ * Run it with several threads (-t) to compare the concurrent reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexSegmentReadBenchmark {
+
+    private static final int RECORD_COUNT = 700000;
+    private static final int APPEND_RECORD_COUNT = 10000;
+    private static final int READ_AHEAD_SIZE = 128 * 1024;
+
+    @Param({"channel", "mmap"})
+    public String readMode;
+
+    @Param({"1", "100", "8000"})
+    public int readCnt;
+
+    private File storeDir;
+    private Segment segment;
+    private int readSize;
+    private long maxReadPos;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        storeDir = StoreEntries.createTempDir("tubemq-index-segment");
+        File indexFile = new File(storeDir,
+                DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_FILE_SUFFIX));
+        FileSegment writer = new FileSegment(0L, indexFile, true, SegmentType.INDEX);
+        for (int i = 0; i < RECORD_COUNT; i += APPEND_RECORD_COUNT) {
+            writer.append(buildIndexRecords(i, APPEND_RECORD_COUNT), 1L, i + APPEND_RECORD_COUNT);
+        }
+        writer.flush(true);
+        writer.close();
+        if ("mmap".equals(readMode)) {
+            segment = new MmapIndexSegment(0L, indexFile, false, READ_AHEAD_SIZE);
+        } else {
+            segment = new FileSegment(0L, indexFile, false, SegmentType.INDEX);
+        }
+        readSize = readCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        maxReadPos = (long) (RECORD_COUNT - readCnt) * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        segment.close();
+        StoreEntries.deleteDir(storeDir);
+    }
+
+    @Benchmark
+    public int relRead(ReadPosition position) throws IOException {
+        ByteBuffer readBuffer = ByteBuffer.allocate(readSize);
+        segment.getViewRef();
+        try {
+            segment.relRead(readBuffer, position.readPos);
+        } finally {
+            segment.relViewRef();
+        }
+        position.readPos += readSize;
+        if (position.readPos > maxReadPos) {
+            position.readPos = 0L;
+        }
+        return readBuffer.position();
+    }
+
+    /**
+     * The read position of each thread.
+     */
+    @State(Scope.Thread)
+    public static class ReadPosition {
+
+        public long readPos;
+
+        @Setup(Level.Trial)
+        public void setup(IndexSegmentReadBenchmark benchmark) {
+            readPos = ThreadLocalRandom.current().nextInt(RECORD_COUNT - benchmark.readCnt)
+                    * (long) DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        }
+    }
+
+    private static ByteBuffer buildIndexRecords(int startIndex, int count) {
+        ByteBuffer buf = ByteBuffer.allocate(count * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        for (int i = startIndex; i < startIndex + count; i++) {
+            buf.putInt(1);
+            buf.putLong(i * 100L);
+            buf.putInt(100);
+            buf.putInt(0);
+            buf.putLong(i + 1L);
+        }
+        buf.flip();
+        return buf;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
+import org.apache.inlong.tubemq.server.master.MasterConfig;
+import org.apache.inlong.tubemq.server.master.TMaster;
+import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
+import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeType;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * DefaultLoadBalancer benchmark on a synthetic cluster, half of the consumers of each group
+ * hold all the partitions and the other half has just joined.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    private static final int BROKER_COUNT = 10;
+
+    @Param({"10", "100"})
+    public int groupCount;
+
+    @Param({"10", "100"})
+    public int consumerCount;
+
+    @Param({"100", "1000"})
+    public int partitionCount;
+
+    private final DefaultLoadBalancer loadBalancer = new DefaultLoadBalancer();
+    private final StringBuilder strBuffer = new StringBuilder(512);
+    private final Map<String, Map<String, Map<String, Partition>>> clusterState = new HashMap<>();
+    private final Map<String, Map<String, Partition>> topicPartMap = new HashMap<>();
+    private final List<String> groupSet = new ArrayList<>();
+    private ConsumerInfoHolder consumerHolder;
+    private BrokerRunManager brokerRunManager;
+    private MetaDataService metaDataService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the real holders are used, the mocks record every call and would dominate the cost
+        TMaster tMaster = mock(TMaster.class, withSettings().stubOnly());
+        when(tMaster.getMasterConfig()).thenReturn(new MasterConfig());
+        consumerHolder = new ConsumerInfoHolder(tMaster);
+        metaDataService = mock(MetaDataService.class, withSettings().stubOnly());
+        List<BrokerInfo> brokers = new ArrayList<>();
+        for (int i = 0; i < BROKER_COUNT; i++) {
+            brokers.add(new BrokerInfo(i + 1, "127.0.0." + (i + 1), 8123));
+        }
+        for (int g = 0; g < groupCount; g++) {
+            String group = "group-" + g;
+            String topic = "topic-" + g;
+            groupSet.add(group);
+            Map<String, Partition> partMap = new HashMap<>();
+            for (int i = 0; i < partitionCount; i++) {
+                Partition partition = new Partition(brokers.get(i % brokers.size()), topic, i);
+                partMap.put(partition.getPartitionKey(), partition);
+            }
+            topicPartMap.put(topic, partMap);
+            List<Map<String, Partition>> ownedParts = new ArrayList<>();
+            for (int c = 0; c < consumerCount; c++) {
+                String consumerId = group + "-consumer-" + c;
+                consumerHolder.addConsumer(new ConsumerInfo(consumerId, false, group,
+                        Collections.singleton(topic), null, ConsumeType.CONSUME_NORMAL, "",
+                        System.currentTimeMillis(), 1, false, null, "127.0.0.1"),
+                        true, strBuffer, new ProcessResult());
+                if (c < Math.max(1, consumerCount / 2)) {
+                    Map<String, Partition> owned = new HashMap<>();
+                    ownedParts.add(owned);
+                    clusterState.put(consumerId, Collections.singletonMap(topic, owned));
+                }
+            }
+            int index = 0;
+            for (Partition partition : partMap.values()) {
+                ownedParts.get(index++ % ownedParts.size())
+                        .put(partition.getPartitionKey(), partition);
+            }
+        }
+        // the balancer takes the returned partitions away, so a new map is returned on each call
+        brokerRunManager = (BrokerRunManager) Proxy.newProxyInstance(
+                BrokerRunManager.class.getClassLoader(),
+                new Class<?>[]{BrokerRunManager.class}, (proxy, method, args) -> {
+                    if ("getSubTopicMaxBrokerCount".equals(method.getName())) {
+                        return BROKER_COUNT;
+                    }
+                    if (!"getSubBrokerAcceptSubParts".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Map<String, Partition> result = new HashMap<>();
+                    for (Object topic : (Set<?>) args[0]) {
+                        result.putAll(topicPartMap.get(topic));
+                    }
+                    return result;
+                });
+    }
+
+    @Benchmark
+    public Map<String, Map<String, List<Partition>>> balanceCluster() {
+        strBuffer.delete(0, strBuffer.length());
+        return loadBalancer.balanceCluster(clusterState, consumerHolder,
+                brokerRunManager, groupSet, metaDataService, strBuffer);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, List<Partition>>> stickyBalanceCluster() {
+        strBuffer.delete(0, strBuffer.length());
+        return loadBalancer.stickyBalanceCluster(clusterState, consumerHolder,
+                brokerRunManager, groupSet, metaDataService, strBuffer);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * MsgFileStore append and read benchmark, the store files are kept in a temporary directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgFileStoreBenchmark {
+
+    private static final int PARTITION_CNT = 10;
+    private static final int PRELOAD_MSG_COUNT = 20000;
+    private static final int READ_INDEX_SIZE =
+            100 * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    private static final int MAX_TRANSFER_SIZE = 1024 * 1024;
+
+    @Param({"256", "4096"})
+    public int msgSize;
+
+    private final StringBuilder sBuilder = new StringBuilder(512);
+    private final BrokerConfig tubeConfig = new BrokerConfig();
+    private File storeDir;
+    private int appendStoreSeq = 0;
+    private MsgFileStore appendStore;
+    private MsgFileStore readStore;
+    private ByteBuffer dataEntry;
+    private ByteBuffer indexEntry;
+    private ByteBuffer indexReadBuffer;
+    private Set<Integer> filterKeySet;
+    private long readStartOffset;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        storeDir = StoreEntries.createTempDir("tubemq-file-store");
+        long recvTime = System.currentTimeMillis();
+        byte[] payload = StoreEntries.buildPayload(msgSize);
+        dataEntry = StoreEntries.buildDataEntry(payload, 0,
+                StoreEntries.keyCode(0), 0L, recvTime);
+        indexEntry = StoreEntries.buildIndexEntry(dataEntry.limit(), 0,
+                StoreEntries.keyCode(0), recvTime);
+        readStore = new MsgFileStore(mockMessageStore("read-0"),
+                tubeConfig, storeDir.getAbsolutePath(), 0L);
+        for (int i = 0; i < PRELOAD_MSG_COUNT; i++) {
+            int partitionId = i % PARTITION_CNT;
+            int keyCode = StoreEntries.keyCode(i % 4);
+            ByteBuffer itemData = StoreEntries.buildDataEntry(payload,
+                    partitionId, keyCode, i, recvTime);
+            ByteBuffer itemIndex = StoreEntries.buildIndexEntry(itemData.limit(),
+                    partitionId, keyCode, recvTime);
+            readStore.appendMsg(false, recvTime, sBuilder, 1,
+                    itemIndex.limit(), itemIndex, itemData.limit(), itemData,
+                    recvTime, recvTime);
+        }
+        readStore.flushDiskFile(true);
+        filterKeySet = Collections.singleton(StoreEntries.keyCode(1));
+        indexReadBuffer = ByteBuffer.allocate(READ_INDEX_SIZE);
+        // read from the middle of the store, so that the page cache is warmed up by the preload
+        readStartOffset = (PRELOAD_MSG_COUNT / 2) * (long) DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        readStore.close();
+        StoreEntries.deleteDir(storeDir);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupAppendStore() throws IOException {
+        // each iteration appends to a new store, so that the disk usage stays bounded
+        appendStore = new MsgFileStore(mockMessageStore("append-" + appendStoreSeq),
+                tubeConfig, storeDir.getAbsolutePath(), 0L);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownAppendStore() throws IOException {
+        appendStore.close();
+        StoreEntries.deleteDir(new File(storeDir, "append-" + appendStoreSeq++));
+    }
+
+    @Benchmark
+    public long appendMsg() {
+        long currTime = System.currentTimeMillis();
+        sBuilder.delete(0, sBuilder.length());
+        return appendStore.appendMsg(false, currTime, sBuilder, 1,
+                indexEntry.limit(), indexEntry, dataEntry.limit(), dataEntry,
+                currTime, currTime).getF2();
+    }
+
+    @Benchmark
+    public int getMessages(ReadFilter readFilter) throws IOException {
+        Segment indexView = readStore.indexSlice(readStartOffset, READ_INDEX_SIZE);
+        indexReadBuffer.clear();
+        try {
+            indexView.read(indexReadBuffer, readStartOffset);
+        } finally {
+            indexView.relViewRef();
+        }
+        indexReadBuffer.flip();
+        GetMessageResult result = readStore.getMessages(1, 0L, readStartOffset,
+                indexReadBuffer, readFilter.filterConsume, filterKeySet, "bench", MAX_TRANSFER_SIZE, 0L);
+        return result.getTransferedMessageList().size();
+    }
+
+    /**
+     * The filter condition of the read benchmark.
+     */
+    @State(Scope.Thread)
+    public static class ReadFilter {
+
+        @Param({"false", "true"})
+        public boolean filterConsume;
+    }
+
+    private MessageStore mockMessageStore(String storeKey) {
+        // only the flush policy is consulted by the file store, the flush is left to the close
+        MessageStore messageStore = mock(MessageStore.class, withSettings().stubOnly());
+        when(messageStore.getStoreKey()).thenReturn(storeKey);
+        when(messageStore.getMsgStoreStatsHolder()).thenReturn(new MsgStoreStatsHolder());
+        when(messageStore.getUnflushThreshold()).thenReturn(Integer.MAX_VALUE);
+        when(messageStore.getUnflushInterval()).thenReturn(Integer.MAX_VALUE);
+        when(messageStore.getMaxFileValidDurMs()).thenReturn(Long.MAX_VALUE);
+        return messageStore;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MsgMemStore append and read benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgMemStoreBenchmark {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 256 * 1024;
+    private static final int PARTITION_CNT = 10;
+    private static final int PRELOAD_MSG_COUNT = 10000;
+
+    @Param({"256", "4096"})
+    public int msgSize;
+
+    private final MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+    private final AppendResult appendResult = new AppendResult();
+    private MsgMemStore appendStore;
+    private MsgMemStore readStore;
+    private ByteBuffer dataEntry;
+    private ByteBuffer indexEntry;
+    private int keyCode;
+    private Set<Integer> filterKeySet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long recvTime = System.currentTimeMillis();
+        keyCode = StoreEntries.keyCode(0);
+        filterKeySet = Collections.singleton(StoreEntries.keyCode(1));
+        byte[] payload = StoreEntries.buildPayload(msgSize);
+        dataEntry = StoreEntries.buildDataEntry(payload, 0, keyCode, 0L, recvTime);
+        indexEntry = StoreEntries.buildIndexEntry(dataEntry.limit(), 0, keyCode, recvTime);
+        appendStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        // the read store holds the messages of several partitions and filter keys
+        readStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        for (int i = 0; i < PRELOAD_MSG_COUNT; i++) {
+            int partitionId = i % PARTITION_CNT;
+            int itemKeyCode = StoreEntries.keyCode(i % 4);
+            ByteBuffer itemData = StoreEntries.buildDataEntry(payload,
+                    partitionId, itemKeyCode, i, recvTime);
+            ByteBuffer itemIndex = StoreEntries.buildIndexEntry(itemData.limit(),
+                    partitionId, itemKeyCode, recvTime);
+            if (!readStore.appendMsg(statsHolder, partitionId, itemKeyCode,
+                    recvTime, itemIndex, itemData.limit(), itemData, appendResult)) {
+                break;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        appendStore.close();
+        readStore.close();
+    }
+
+    @Benchmark
+    public boolean appendMsg() {
+        if (appendStore.appendMsg(statsHolder, 0, keyCode, System.currentTimeMillis(),
+                indexEntry, dataEntry.limit(), dataEntry, appendResult)) {
+            return true;
+        }
+        // the cache is full, restart from an empty cache as the flush would do
+        appendStore.resetMemStoreStatus(0L, 0L);
+        return appendStore.appendMsg(statsHolder, 0, keyCode, System.currentTimeMillis(),
+                indexEntry, dataEntry.limit(), dataEntry, appendResult);
+    }
+
+    @Benchmark
+    public int getMessages() {
+        GetCacheMsgResult result = readStore.getMessages(0L, 0L,
+                1024 * 1024, 100, 3, false, false, null, 0L);
+        int msgCnt = result.cacheMsgList == null ? 0 : result.cacheMsgList.size();
+        result.release();
+        return msgCnt;
+    }
+
+    @Benchmark
+    public int getMessagesWithFilter() {
+        GetCacheMsgResult result = readStore.getMessages(0L, 0L,
+                1024 * 1024, 100, 3, false, true, filterKeySet, 0L);
+        int msgCnt = result.cacheMsgList == null ? 0 : result.cacheMsgList.size();
+        result.release();
+        return msgCnt;
+    }
+}
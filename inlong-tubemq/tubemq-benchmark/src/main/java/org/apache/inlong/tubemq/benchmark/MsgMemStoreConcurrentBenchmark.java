@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MsgMemStore append benchmark with concurrent producers on one shared store.
+ *
+ * The lockfree mode appends to MsgMemStore, the locked mode appends to a copy of the
+ * MsgMemStore append path before it became lock-free, which serializes the writers on a
+ * ReentrantLock. Run with more threads to compare them under contention, e.g. "-t 8".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class MsgMemStoreConcurrentBenchmark {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 256 * 1024;
+    private static final int PARTITION_CNT = 10;
+
+    @Param({"lockfree", "locked"})
+    public String appendMode;
+
+    @Param({"256", "4096"})
+    public int msgSize;
+
+    private final MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+    private final Object resetLock = new Object();
+    private byte[] payload;
+    private int dataEntryLength;
+    private MsgMemStore lockFreeStore;
+    private LockedMemStore lockedStore;
+
+    /**
+     * The entries of a producer thread, the store writes the offsets into them.
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+
+        private final AppendResult appendResult = new AppendResult();
+        private ByteBuffer dataEntry;
+        private ByteBuffer indexEntry;
+        private int partitionId;
+        private int keyCode;
+
+        @Setup(Level.Trial)
+        public void setup(MsgMemStoreConcurrentBenchmark benchmark) {
+            long recvTime = System.currentTimeMillis();
+            partitionId = (int) (Thread.currentThread().getId() % PARTITION_CNT);
+            keyCode = StoreEntries.keyCode(partitionId);
+            dataEntry = StoreEntries.buildDataEntry(benchmark.payload,
+                    partitionId, keyCode, 0L, recvTime);
+            indexEntry = StoreEntries.buildIndexEntry(dataEntry.limit(),
+                    partitionId, keyCode, recvTime);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        payload = StoreEntries.buildPayload(msgSize);
+        dataEntryLength = DataStoreUtils.STORE_DATA_HEADER_LEN + msgSize;
+        if ("locked".equals(appendMode)) {
+            lockedStore = new LockedMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT);
+        } else {
+            lockFreeStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0L, 0L);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (lockFreeStore != null) {
+            lockFreeStore.close();
+            lockFreeStore = null;
+        }
+        lockedStore = null;
+    }
+
+    @Benchmark
+    public boolean appendMsg(Producer producer) {
+        if (append(producer)) {
+            return true;
+        }
+        // the cache is full, restart from an empty cache as the flush would do
+        resetIfFull();
+        return append(producer);
+    }
+
+    private boolean append(Producer producer) {
+        if (lockedStore != null) {
+            return lockedStore.appendMsg(producer.partitionId, producer.keyCode,
+                    System.currentTimeMillis(), producer.indexEntry,
+                    dataEntryLength, producer.dataEntry, producer.appendResult);
+        }
+        return lockFreeStore.appendMsg(statsHolder, producer.partitionId, producer.keyCode,
+                System.currentTimeMillis(), producer.indexEntry, dataEntryLength,
+                producer.dataEntry, producer.appendResult);
+    }
+
+    private void resetIfFull() {
+        synchronized (resetLock) {
+            if (lockedStore != null) {
+                lockedStore.resetIfFull(dataEntryLength);
+                return;
+            }
+            // the append may have failed on a store another producer was resetting
+            if (lockFreeStore.getCurDataCacheSize() + dataEntryLength <= MAX_CACHE_SIZE
+                    && lockFreeStore.getCurMsgCount() < MAX_MSG_COUNT) {
+                return;
+            }
+            // seal, wait for the reserved writes, then reopen as MessageStore swaps the cache
+            lockFreeStore.seal();
+            lockFreeStore.awaitPublished();
+            lockFreeStore.clear();
+            lockFreeStore.reopen(0L, 0L);
+        }
+    }
+
+    /**
+     * The MsgMemStore append path before it became lock-free: the writers take a lock,
+     * copy their entries into the cache segments and update the query maps in turn.
+     */
+    private static class LockedMemStore {
+
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final Map<Integer, Integer> queuesMap = new HashMap<>(20);
+        private final Map<Integer, Integer> keysMap = new HashMap<>(100);
+        private final ByteBuffer cacheDataSegment;
+        private final ByteBuffer cachedIndexSegment;
+        private final int maxDataCacheSize;
+        private final int maxIndexCacheSize;
+        private final int maxAllowedMsgCount;
+        private int cacheDataOffset = 0;
+        private int cacheIndexOffset = 0;
+        private int curMessageCount = 0;
+        private long leftAppendTime;
+        private long rightAppendTime;
+
+        LockedMemStore(int maxCacheSize, int maxMsgCount) {
+            this.maxDataCacheSize = maxCacheSize;
+            this.maxAllowedMsgCount = maxMsgCount;
+            this.maxIndexCacheSize = maxMsgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            this.cacheDataSegment = ByteBuffer.allocateDirect(this.maxDataCacheSize);
+            this.cachedIndexSegment = ByteBuffer.allocateDirect(this.maxIndexCacheSize);
+        }
+
+        boolean appendMsg(int partitionId, int keyCode, long timeRecv,
+                ByteBuffer indexEntry, int dataEntryLength,
+                ByteBuffer dataEntry, AppendResult appendResult) {
+            this.writeLock.lock();
+            try {
+                if (this.cacheDataOffset + dataEntryLength > this.maxDataCacheSize
+                        || this.curMessageCount + 1 > this.maxAllowedMsgCount
+                        || this.cacheIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize) {
+                    return false;
+                }
+                long indexOffset = this.cacheIndexOffset;
+                long dataOffset = this.cacheDataOffset;
+                indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+                dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+                this.cacheDataSegment.put(dataEntry.array(), 0, dataEntryLength);
+                this.cachedIndexSegment.put(indexEntry.array(), 0, DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                this.cacheDataOffset += dataEntryLength;
+                int indexSizePos = this.cacheIndexOffset;
+                this.cacheIndexOffset += DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                this.queuesMap.put(partitionId, indexSizePos);
+                this.keysMap.put(keyCode, indexSizePos);
+                this.curMessageCount++;
+                this.rightAppendTime = timeRecv;
+                if (indexSizePos == 0) {
+                    this.leftAppendTime = timeRecv;
+                }
+                appendResult.putAppendResult(indexOffset, dataOffset);
+                return true;
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+
+        void resetIfFull(int dataEntryLength) {
+            this.writeLock.lock();
+            try {
+                if (this.cacheDataOffset + dataEntryLength <= this.maxDataCacheSize
+                        && this.curMessageCount < this.maxAllowedMsgCount) {
+                    return;
+                }
+                this.keysMap.clear();
+                this.queuesMap.clear();
+                this.cacheDataOffset = 0;
+                this.cacheIndexOffset = 0;
+                this.curMessageCount = 0;
+                this.cacheDataSegment.clear();
+                this.cachedIndexSegment.clear();
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolEncoder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NettyProtocolEncoder and NettyProtocolDecoder round trip benchmark.
+ *
+ * The copy codec is the baseline, it is the codec used before the zero copy one:
+ * the encoder copies all the data into one buffer, and the decoder merges the
+ * remained bytes with each read and copies every item into a heap buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RpcCodecBenchmark {
+
+    @Param({"128", "4096", "65536"})
+    public int itemSize;
+
+    @Param({"1", "8"})
+    public int itemCount;
+
+    // the size of the reads the frame is split into, 0 to deliver the frame in one read
+    @Param({"0", "1460"})
+    public int readSize;
+
+    @Param({"copy", "zerocopy"})
+    public String codec;
+
+    private EmbeddedChannel encodeChannel;
+    private EmbeddedChannel decodeChannel;
+    private List<ByteBuffer> dataLst;
+    private int serialNo = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("copy".equals(codec)) {
+            encodeChannel = new EmbeddedChannel(new CopyEncoder());
+            decodeChannel = new EmbeddedChannel(new CopyDecoder());
+        } else {
+            encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+            decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        }
+        dataLst = new ArrayList<>(itemCount);
+        byte[] content = StoreEntries.buildPayload(itemSize);
+        for (int i = 0; i < itemCount; i++) {
+            dataLst.add(ByteBuffer.wrap(content));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encodeChannel.finishAndReleaseAll();
+        decodeChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int roundTrip() {
+        encodeChannel.writeOutbound(new RpcDataPack(serialNo++, dataLst));
+        ByteBuf frame;
+        while ((frame = encodeChannel.readOutbound()) != null) {
+            if (readSize <= 0) {
+                decodeChannel.writeInbound(frame);
+            } else {
+                while (frame.readableBytes() > readSize) {
+                    decodeChannel.writeInbound(frame.readRetainedSlice(readSize));
+                }
+                decodeChannel.writeInbound(frame);
+            }
+        }
+        RpcDataPack dataPack = decodeChannel.readInbound();
+        int itemCnt = dataPack.getDataLst().size();
+        dataPack.releaseData();
+        return itemCnt;
+    }
+
+    // the copying encoder, writes the whole frame into one pooled buffer
+    private static class CopyEncoder extends MessageToMessageEncoder<RpcDataPack> {
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, RpcDataPack dataPack, List<Object> out) {
+            int totalLen = 12;
+            for (ByteBuffer entry : dataPack.getDataLst()) {
+                totalLen += 4 + entry.limit();
+            }
+            ByteBuf buf = NettyBufferPool.getAllocator().directBuffer(totalLen);
+            buf.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+            buf.writeInt(dataPack.getSerialNo());
+            buf.writeInt(dataPack.getDataLst().size());
+            for (ByteBuffer entry : dataPack.getDataLst()) {
+                ByteBuffer body = entry.duplicate();
+                body.rewind();
+                buf.writeInt(body.limit());
+                buf.writeBytes(body);
+            }
+            out.add(buf);
+        }
+    }
+
+    // the copying decoder, merges the remained bytes with each read and copies every item
+    private static class CopyDecoder extends MessageToMessageDecoder<ByteBuf> {
+
+        private ByteBuf remained;
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf input, List<Object> out) {
+            ByteBuf buffer = input;
+            if (remained != null) {
+                buffer = NettyBufferPool.getAllocator()
+                        .directBuffer(remained.readableBytes() + input.readableBytes());
+                buffer.writeBytes(remained);
+                buffer.writeBytes(input);
+                remained.release();
+                remained = null;
+            }
+            while (buffer.readableBytes() >= 12) {
+                buffer.markReaderIndex();
+                buffer.readInt();
+                int serialNo = buffer.readInt();
+                int listSize = buffer.readInt();
+                RpcDataPack dataPack = new RpcDataPack(serialNo, new ArrayList<>(listSize));
+                for (int i = 0; i < listSize; i++) {
+                    if (buffer.readableBytes() < 4) {
+                        dataPack = null;
+                        break;
+                    }
+                    int length = buffer.readInt();
+                    if (buffer.readableBytes() < length) {
+                        dataPack = null;
+                        break;
+                    }
+                    ByteBuffer bb = ByteBuffer.allocate(length);
+                    buffer.readBytes(bb);
+                    bb.flip();
+                    dataPack.getDataLst().add(bb);
+                }
+                if (dataPack == null) {
+                    buffer.resetReaderIndex();
+                    break;
+                }
+                out.add(dataPack);
+            }
+            if (buffer.isReadable()) {
+                remained = NettyBufferPool.getAllocator().directBuffer(buffer.readableBytes());
+                remained.writeBytes(buffer);
+            }
+            if (buffer != input) {
+                buffer.release();
+            }
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+            if (remained != null) {
+                remained.release();
+                remained = null;
+            }
+            super.handlerRemoved(ctx);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Builds the stored message entries in the layout written by the broker MessageStore.
+ */
+final class StoreEntries {
+
+    private StoreEntries() {
+    }
+
+    /**
+     * Build a stored data entry.
+     *
+     * @param payload       the message payload
+     * @param partitionId   the partition id
+     * @param keyCode       the filter item hash code
+     * @param messageId     the message id
+     * @param recvTime      the received timestamp
+     * @return the data entry ready to be read
+     */
+    static ByteBuffer buildDataEntry(byte[] payload, int partitionId,
+            int keyCode, long messageId, long recvTime) {
+        ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + payload.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payload.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(CheckSum.crc32(payload));
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(recvTime);
+        dataBuffer.putInt(0);
+        dataBuffer.putInt(keyCode);
+        dataBuffer.putLong(messageId);
+        dataBuffer.putInt(0);
+        dataBuffer.put(payload);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    /**
+     * Build a stored index entry.
+     *
+     * @param dataEntryLen  the length of the indexed data entry
+     * @param partitionId   the partition id
+     * @param keyCode       the filter item hash code
+     * @param recvTime      the received timestamp
+     * @return the index entry ready to be read
+     */
+    static ByteBuffer buildIndexEntry(int dataEntryLen,
+            int partitionId, int keyCode, long recvTime) {
+        ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(dataEntryLen);
+        indexBuffer.putInt(keyCode);
+        indexBuffer.putLong(recvTime);
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+
+    /**
+     * Build a random payload, so that the content is not trivially compressible.
+     *
+     * @param size   the payload size
+     * @return the payload
+     */
+    static byte[] buildPayload(int size) {
+        byte[] payload = new byte[size];
+        new Random(size).nextBytes(payload);
+        return payload;
+    }
+
+    static int keyCode(int index) {
+        return ("filter-key-" + index).hashCode();
+    }
+
+    static File createTempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    static void deleteDir(File dir) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteDir(child);
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmark;
+
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataStoreUtils.getTransferMsg benchmark, converts a stored data entry to the protobuf message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferMsgBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    public int msgSize;
+
+    @Param({"false", "true"})
+    public boolean directBuffer;
+
+    private final HashMap<String, TrafficInfo> countMap = new HashMap<>();
+    private final StringBuilder sBuilder = new StringBuilder(512);
+    private ByteBuffer dataEntry;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ByteBuffer heapEntry = StoreEntries.buildDataEntry(
+                StoreEntries.buildPayload(msgSize), 0, 0, 1L, System.currentTimeMillis());
+        if (directBuffer) {
+            // the file store reads the data entries into pooled direct buffers
+            dataEntry = ByteBuffer.allocateDirect(heapEntry.limit());
+            dataEntry.put(heapEntry);
+            dataEntry.flip();
+        } else {
+            dataEntry = heapEntry;
+        }
+    }
+
+    @Benchmark
+    public ClientBroker.TransferedMessage getTransferMsg() {
+        return DataStoreUtils.getTransferMsg(dataEntry,
+                dataEntry.limit(), countMap, "bench", sBuilder);
+    }
+}
@@ -60,6 +60,16 @@ public class ConsumerConfig extends TubeClientConfig {
     private long pullProtectConfirmTimeoutMs =
             TClientConstants.CFG_DEFAULT_PULL_PROTECT_CONFIRM_WAIT_PERIOD_MS;
     private boolean pullConfirmInLocal = false;
+    // whether to ask the broker to send stored message frames by zero-copy transfer
+    private boolean enableZeroCopyFetch = false;
+    // max time the broker holds a fetch request when there is no new data, 0 disables
+    private long fetchMaxWaitMs = TClientConstants.CFG_DEFAULT_FETCH_MAX_WAIT_MS;
+    // the threads to call the push listeners apart from the fetch threads, 0 disables the prefetch
+    private int pushConsumeThreadCnt = 0;
+    // max fetched batches buffered for the push consume threads
+    private int pushPrefetchBufferSize = TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_BUFFER_SIZE;
+    // max concurrent fetch requests to one broker, 0 means no limit
+    private int pushMaxInflightPerBroker = 0;
 
     public ConsumerConfig(String masterAddrInfo, String consumerGroup) {
         this(new MasterInfo(masterAddrInfo), consumerGroup);
@@ -231,6 +241,68 @@ public class ConsumerConfig extends TubeClientConfig {
         this.pullConfirmInLocal = pullConfirmInLocal;
     }
 
+    public boolean isEnableZeroCopyFetch() {
+        return enableZeroCopyFetch;
+    }
+
+    public void setEnableZeroCopyFetch(boolean enableZeroCopyFetch) {
+        this.enableZeroCopyFetch = enableZeroCopyFetch;
+    }
+
+    public long getFetchMaxWaitMs() {
+        return fetchMaxWaitMs;
+    }
+
+    // setFetchMaxWaitMs() use note:
+    // if it is set to a positive value, the broker holds the fetch request until new messages
+    // arrive or the wait time expires, instead of replying NOT_FOUND immediately; the value
+    // is capped by half of the rpc timeout and by the broker's maxFetchWaitMs setting
+    public void setFetchMaxWaitMs(long fetchMaxWaitMs) {
+        this.fetchMaxWaitMs = Math.max(0L, fetchMaxWaitMs);
+    }
+
+    // the max wait time carried by the fetch requests of both the server-balance and the
+    // client-balance consumers, half of the rpc timeout is left for transferring the response
+    public int getFetchRequestMaxWaitMs() {
+        return (int) Math.min(this.fetchMaxWaitMs, getRpcTimeoutMs() / 2);
+    }
+
+    public int getPushConsumeThreadCnt() {
+        return pushConsumeThreadCnt;
+    }
+
+    // setPushConsumeThreadCnt() use note:
+    // if it is set to a positive value, the fetch threads only fetch messages and buffer the
+    // fetched batches, the listeners are called by the consume threads; a partition is not
+    // fetched again until its buffered batch is consumed, so the delivery semantics are unchanged
+    public void setPushConsumeThreadCnt(int pushConsumeThreadCnt) {
+        this.pushConsumeThreadCnt = Math.max(0, pushConsumeThreadCnt);
+    }
+
+    public boolean isPushPrefetchEnable() {
+        return pushConsumeThreadCnt > 0;
+    }
+
+    public int getPushPrefetchBufferSize() {
+        return pushPrefetchBufferSize;
+    }
+
+    public void setPushPrefetchBufferSize(int pushPrefetchBufferSize) {
+        if (pushPrefetchBufferSize <= 0) {
+            this.pushPrefetchBufferSize = TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_BUFFER_SIZE;
+        } else {
+            this.pushPrefetchBufferSize = pushPrefetchBufferSize;
+        }
+    }
+
+    public int getPushMaxInflightPerBroker() {
+        return pushMaxInflightPerBroker;
+    }
+
+    public void setPushMaxInflightPerBroker(int pushMaxInflightPerBroker) {
+        this.pushMaxInflightPerBroker = Math.max(0, pushMaxInflightPerBroker);
+    }
+
     public long getPullProtectConfirmTimeoutMs() {
         return pullProtectConfirmTimeoutMs;
     }
@@ -282,6 +354,11 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append(",\"pullConfirmWaitPeriodMs\":").append(this.pullRebConfirmWaitPeriodMs)
                 .append(",\"pullProtectConfirmTimeoutPeriodMs\":").append(this.pullProtectConfirmTimeoutMs)
                 .append(",\"pullConfirmInLocal\":").append(this.pullConfirmInLocal)
+                .append(",\"enableZeroCopyFetch\":").append(this.enableZeroCopyFetch)
+                .append(",\"fetchMaxWaitMs\":").append(this.fetchMaxWaitMs)
+                .append(",\"pushConsumeThreadCnt\":").append(this.pushConsumeThreadCnt)
+                .append(",\"pushPrefetchBufferSize\":").append(this.pushPrefetchBufferSize)
+                .append(",\"pushMaxInflightPerBroker\":").append(this.pushMaxInflightPerBroker)
                 .append(",\"maxSubInfoReportIntvlTimes\":").append(this.maxSubInfoReportIntvlTimes)
                 .append(",\"partMetaInfoCheckPeriodMs\":").append(this.partMetaInfoCheckPeriodMs)
                 .append(",\"ClientConfig\":").append(toJsonString())
@@ -21,6 +21,7 @@ import org.apache.inlong.tubemq.client.common.StatsConfig;
 import org.apache.inlong.tubemq.client.common.StatsLevel;
 import org.apache.inlong.tubemq.client.common.TClientConstants;
 import org.apache.inlong.tubemq.corebase.cluster.MasterInfo;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
@@ -96,6 +97,18 @@ public class TubeClientConfig {
     private String usrPassWord = "";
     // TLS configuration.
     private TLSConfig tlsConfig = new TLSConfig();
+    // Linger time of the async sent messages accumulated per partition, 0 disables batching.
+    private long batchLingerMs = TClientConstants.CFG_DEFAULT_BATCH_LINGER_MS;
+    // Max message count of a batched send request.
+    private int batchMaxMsgCount = TClientConstants.CFG_DEFAULT_BATCH_MAX_MSG_COUNT;
+    // Max total data size of a batched send request.
+    private int batchMaxDataSize = TClientConstants.CFG_DEFAULT_BATCH_MAX_DATA_SIZE;
+    // Compression codec of the sent message body.
+    private CompressCodec compressCodec = CompressCodec.NONE;
+    // Min message data size to be compressed.
+    private int compressMinDataSize = TClientConstants.CFG_DEFAULT_COMPRESS_MIN_DATA_SIZE;
+    // Decay time of the broker latency for partition routing, 0 routes in round-robin.
+    private long routeLatencyDecayMs = TClientConstants.CFG_DEFAULT_ROUTE_LATENCY_DECAY_MS;
 
     public TubeClientConfig(String masterAddrInfo) {
         this(new MasterInfo(masterAddrInfo));
@@ -369,6 +382,76 @@ public class TubeClientConfig {
         this.sessionMaxAllowedDelayedMsgCount = sessionMaxAllowedDelayedMsgCount;
     }
 
+    public long getBatchLingerMs() {
+        return batchLingerMs;
+    }
+
+    /**
+     * Set the linger time of async sent messages, the messages sent asynchronously
+     * are accumulated per partition and sent in one request when the linger time
+     * expires or the batch is full; a value of 0 sends each message immediately.
+     *
+     * @param batchLingerMs   the linger time in milliseconds
+     */
+    public void setBatchLingerMs(long batchLingerMs) {
+        this.batchLingerMs = Math.max(0, batchLingerMs);
+    }
+
+    public int getBatchMaxMsgCount() {
+        return batchMaxMsgCount;
+    }
+
+    public void setBatchMaxMsgCount(int batchMaxMsgCount) {
+        this.batchMaxMsgCount = Math.max(1, batchMaxMsgCount);
+    }
+
+    public int getBatchMaxDataSize() {
+        return batchMaxDataSize;
+    }
+
+    public void setBatchMaxDataSize(int batchMaxDataSize) {
+        this.batchMaxDataSize = Math.max(1, batchMaxDataSize);
+    }
+
+    public CompressCodec getCompressCodec() {
+        return compressCodec;
+    }
+
+    /**
+     * Set the compression codec of the sent message body, the messages are
+     * decompressed by the consumers, so enable it only after all the consumers
+     * of the topic support compression.
+     *
+     * @param compressCodec   the compression codec, null means none
+     */
+    public void setCompressCodec(CompressCodec compressCodec) {
+        this.compressCodec = (compressCodec == null) ? CompressCodec.NONE : compressCodec;
+    }
+
+    public int getCompressMinDataSize() {
+        return compressMinDataSize;
+    }
+
+    public void setCompressMinDataSize(int compressMinDataSize) {
+        this.compressMinDataSize = Math.max(0, compressMinDataSize);
+    }
+
+    public long getRouteLatencyDecayMs() {
+        return routeLatencyDecayMs;
+    }
+
+    /**
+     * Set the decay time of the broker latency, a positive value routes the sent
+     * messages by the send latency and the in-flight requests of the brokers, the
+     * latency of a broker that sped up again decays to the new value in this time;
+     * a value of 0 routes the messages in round-robin.
+     *
+     * @param routeLatencyDecayMs   the decay time in milliseconds
+     */
+    public void setRouteLatencyDecayMs(long routeLatencyDecayMs) {
+        this.routeLatencyDecayMs = Math.max(0, routeLatencyDecayMs);
+    }
+
     /**
      * Set authenticate information
      *
@@ -551,6 +634,24 @@ public class TubeClientConfig {
         if (sessionMaxAllowedDelayedMsgCount != that.sessionMaxAllowedDelayedMsgCount) {
             return false;
         }
+        if (batchLingerMs != that.batchLingerMs) {
+            return false;
+        }
+        if (batchMaxMsgCount != that.batchMaxMsgCount) {
+            return false;
+        }
+        if (batchMaxDataSize != that.batchMaxDataSize) {
+            return false;
+        }
+        if (compressCodec != that.compressCodec) {
+            return false;
+        }
+        if (compressMinDataSize != that.compressMinDataSize) {
+            return false;
+        }
+        if (routeLatencyDecayMs != that.routeLatencyDecayMs) {
+            return false;
+        }
         if (enableUserAuthentic != that.enableUserAuthentic) {
             return false;
         }
@@ -613,6 +714,12 @@ public class TubeClientConfig {
                 .append(",\"linkMaxAllowedDelayedMsgCount\":").append(this.linkMaxAllowedDelayedMsgCount)
                 .append(",\"sessionMaxAllowedDelayedMsgCount\":").append(this.sessionMaxAllowedDelayedMsgCount)
                 .append(",\"unAvailableFbdDurationMs\":").append(this.unAvailableFbdDurationMs)
+                .append(",\"batchLingerMs\":").append(this.batchLingerMs)
+                .append(",\"batchMaxMsgCount\":").append(this.batchMaxMsgCount)
+                .append(",\"batchMaxDataSize\":").append(this.batchMaxDataSize)
+                .append(",\"compressCodec\":\"").append(this.compressCodec.getName())
+                .append("\",\"compressMinDataSize\":").append(this.compressMinDataSize)
+                .append(",\"routeLatencyDecayMs\":").append(this.routeLatencyDecayMs)
                 .append(",\"enableUserAuthentic\":").append(this.enableUserAuthentic)
                 .append(",").append(this.statsConfig.toString())
                 .append(",\"usrName\":\"").append(this.usrName)
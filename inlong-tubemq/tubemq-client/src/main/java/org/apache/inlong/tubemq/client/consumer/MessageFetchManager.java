@@ -25,11 +25,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Fetch messages with multiple threads.
+ *
+ * If the prefetch is enabled, the fetch threads only fetch messages and put the fetched
+ * batches into a bounded buffer, the consume threads take them out and call the listeners.
+ * A partition keeps selected until its batch is consumed, so each partition buffers at most
+ * one batch and is not fetched again before that, the fetch threads wait when the buffer is full.
  */
 public class MessageFetchManager {
 
@@ -45,11 +54,23 @@ public class MessageFetchManager {
     // 1: Started
     private AtomicInteger managerStatus = new AtomicInteger(-1);
     private Thread[] fetchWorkerPool;
+    private Thread[] consumeWorkerPool;
+    // the fetched batches waiting for the consume threads, null if the prefetch is disabled
+    private final BlockingQueue<FetchContext> prefetchQueue;
+    // brokerId -- the permits of the concurrent fetch requests
+    private final ConcurrentHashMap<Integer, Semaphore> brokerInflightMap =
+            new ConcurrentHashMap<>();
 
     public MessageFetchManager(final ConsumerConfig consumerConfig,
             final SimplePushMessageConsumer pushConsumer) {
         this.consumerConfig = consumerConfig;
         this.pushConsumer = pushConsumer;
+        if (consumerConfig.isPushPrefetchEnable()) {
+            this.prefetchQueue =
+                    new ArrayBlockingQueue<>(consumerConfig.getPushPrefetchBufferSize());
+        } else {
+            this.prefetchQueue = null;
+        }
     }
 
     /**
@@ -82,6 +103,21 @@ public class MessageFetchManager {
                     .append("-").append(i).toString());
             sBuilder.delete(0, sBuilder.length());
         }
+        if (this.prefetchQueue != null) {
+            this.consumeWorkerPool =
+                    new Thread[this.consumerConfig.getPushConsumeThreadCnt()];
+            for (int i = 0; i < this.consumeWorkerPool.length; i++) {
+                this.consumeWorkerPool[i] = new Thread(new ConsumeTaskWorker());
+                this.fetchWorkerStatusMap.put(this.consumeWorkerPool[i].getId(), -1);
+                this.consumeWorkerPool[i].setName(sBuilder.append("Consume_Worker_")
+                        .append(this.consumerConfig.getConsumerGroup())
+                        .append("-").append(i).toString());
+                sBuilder.delete(0, sBuilder.length());
+            }
+            for (final Thread thread : this.consumeWorkerPool) {
+                thread.start();
+            }
+        }
         for (final Thread thread : this.fetchWorkerPool) {
             thread.start();
         }
@@ -97,6 +133,15 @@ public class MessageFetchManager {
         return this.managerStatus.get() == 0;
     }
 
+    /**
+     * Get the count of the fetched batches waiting to be consumed.
+     *
+     * @return the buffered batch count
+     */
+    public int getPrefetchBufferedCount() {
+        return this.prefetchQueue == null ? 0 : this.prefetchQueue.size();
+    }
+
     /**
      * Stop fetch worker threads
      *
@@ -127,17 +172,14 @@ public class MessageFetchManager {
         }
         logger.info("[STOP_FetchWorker] Wait all fetch workers exist:");
         if (waitAllFetchRequestHolds(this.consumerConfig.getPushListenerWaitPeriodMs())) {
-            for (final Thread thread : this.fetchWorkerPool) {
-                if (thread != null) {
-                    thread.interrupt();
-                }
-            }
-            for (final Thread thread : this.fetchWorkerPool) {
-                if (thread != null) {
-                    thread.join();
-                    logger.info(sBuilder.append("[STOP_FetchWorker]").append(thread).toString());
-                    sBuilder.delete(0, sBuilder.length());
-                }
+            interruptAndJoin(this.fetchWorkerPool, sBuilder);
+            interruptAndJoin(this.consumeWorkerPool, sBuilder);
+        }
+        if (this.prefetchQueue != null) {
+            // the buffered batches are not consumed, roll them back to be fetched again
+            FetchContext taskContext;
+            while ((taskContext = this.prefetchQueue.poll()) != null) {
+                this.pushConsumer.releaseRequest(taskContext, false);
             }
         }
         this.pushConsumer
@@ -146,6 +188,77 @@ public class MessageFetchManager {
         logger.info("[STOP_FetchWorker] All fetch workers are stopped.");
     }
 
+    private void interruptAndJoin(Thread[] workerPool,
+            StringBuilder sBuilder) throws InterruptedException {
+        if (workerPool == null) {
+            return;
+        }
+        for (final Thread thread : workerPool) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        for (final Thread thread : workerPool) {
+            if (thread != null) {
+                thread.join();
+                logger.info(sBuilder.append("[STOP_FetchWorker]").append(thread).toString());
+                sBuilder.delete(0, sBuilder.length());
+            }
+        }
+    }
+
+    /**
+     * Fetch messages of the selected partition and put the fetched batch into the buffer.
+     *
+     * @param partSelectResult  the selected partition
+     * @param sBuilder          a string builder
+     */
+    private void prefetchRequest(PartitionSelectResult partSelectResult, StringBuilder sBuilder) {
+        Partition partition = partSelectResult.getPartition();
+        Semaphore inflightPermits = null;
+        if (this.consumerConfig.getPushMaxInflightPerBroker() > 0) {
+            inflightPermits = brokerInflightMap.computeIfAbsent(
+                    partition.getBrokerId(),
+                    k -> new Semaphore(this.consumerConfig.getPushMaxInflightPerBroker()));
+            try {
+                while (!inflightPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    if (isShutdown()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                //
+            }
+            if (isShutdown()) {
+                this.pushConsumer.getBaseConsumer().pushReqReleasePartition(
+                        partition.getPartitionKey(), partSelectResult.getUsedToken(),
+                        partSelectResult.isLastPackConsumed());
+                return;
+            }
+        }
+        FetchContext taskContext;
+        try {
+            taskContext = this.pushConsumer.fetchRequest(partSelectResult, sBuilder);
+        } finally {
+            if (inflightPermits != null) {
+                inflightPermits.release();
+            }
+        }
+        if (taskContext == null) {
+            return;
+        }
+        try {
+            while (!this.prefetchQueue.offer(taskContext, 100, TimeUnit.MILLISECONDS)) {
+                if (isShutdown()) {
+                    this.pushConsumer.releaseRequest(taskContext, false);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            this.pushConsumer.releaseRequest(taskContext, false);
+        }
+    }
+
     private boolean waitAllFetchRequestHolds(long waitTimeInMills) {
         boolean haveProcessingThread = false;
         long startWaitTime = System.currentTimeMillis();
@@ -223,11 +336,47 @@ public class MessageFetchManager {
                 }
                 fetchWorkerStatusMap.put(curThreadId, 2);
                 if (partSelectResult != null) {
-                    MessageFetchManager.this.pushConsumer.processRequest(
-                            partSelectResult, sBuilder);
+                    if (prefetchQueue == null) {
+                        MessageFetchManager.this.pushConsumer.processRequest(
+                                partSelectResult, sBuilder);
+                    } else {
+                        prefetchRequest(partSelectResult, sBuilder);
+                    }
                 }
             }
             fetchWorkerStatusMap.remove(curThreadId);
         }
     }
+
+    private class ConsumeTaskWorker implements Runnable {
+
+        @Override
+        public void run() {
+            StringBuilder sBuilder = new StringBuilder(256);
+            final Long curThreadId = Thread.currentThread().getId();
+            fetchWorkerStatusMap.put(curThreadId, 0);
+            while (!isShutdown()) {
+                FetchContext taskContext;
+                try {
+                    taskContext = prefetchQueue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (taskContext == null) {
+                    continue;
+                }
+                fetchWorkerStatusMap.put(curThreadId, 2);
+                try {
+                    MessageFetchManager.this.pushConsumer.consumeRequest(taskContext, sBuilder);
+                } catch (Throwable e) {
+                    logger.warn(sBuilder.append("Consume worker ")
+                            .append(Thread.currentThread().getName())
+                            .append(" throw error").toString(), e);
+                    sBuilder.delete(0, sBuilder.length());
+                }
+                fetchWorkerStatusMap.put(curThreadId, 0);
+            }
+            fetchWorkerStatusMap.remove(curThreadId);
+        }
+    }
 }
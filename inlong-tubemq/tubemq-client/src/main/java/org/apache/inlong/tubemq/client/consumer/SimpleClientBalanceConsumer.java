@@ -738,6 +738,10 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                     // Convert the message payload data
                     List<Message> tmpMessageList =
                             DataConverterUtil.convertMessage(topic, msgRspB2C.getMessagesList());
+                    if (msgRspB2C.hasRawMsgData()) {
+                        tmpMessageList.addAll(
+                                DataConverterUtil.convertRawMessage(topic, msgRspB2C.getRawMsgData()));
+                    }
                     boolean isEscLimit =
                             (msgRspB2C.hasEscFlowCtrl() && msgRspB2C.getEscFlowCtrl());
                     // Filter the message based on its content
@@ -832,7 +836,10 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has already held the request, fetch again directly
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0
+                                    : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
@@ -1584,6 +1591,10 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        builder.setSupportRawData(this.consumerConfig.isEnableZeroCopyFetch());
+        if (this.consumerConfig.getFetchRequestMaxWaitMs() > 0) {
+            builder.setMaxWaitMs(this.consumerConfig.getFetchRequestMaxWaitMs());
+        }
         return builder.build();
     }
 
@@ -179,7 +179,20 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
      * @param sBuilder         a string builder
      */
     protected void processRequest(PartitionSelectResult partSelectResult, final StringBuilder sBuilder) {
-        final long startTime = System.currentTimeMillis();
+        FetchContext taskContext = fetchRequest(partSelectResult, sBuilder);
+        if (taskContext != null) {
+            consumeRequest(taskContext, sBuilder);
+        }
+    }
+
+    /**
+     * Fetch messages of the selected partition.
+     *
+     * @param partSelectResult partition select result
+     * @param sBuilder         a string builder
+     * @return the fetched task context, or null if the fetch failed and the partition is released
+     */
+    protected FetchContext fetchRequest(PartitionSelectResult partSelectResult, final StringBuilder sBuilder) {
         FetchContext taskContext =
                 baseConsumer.fetchMessage(partSelectResult, sBuilder);
         if (!taskContext.isSuccess()) {
@@ -189,8 +202,19 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
                         .append(taskContext.getErrMsg()).toString());
                 sBuilder.delete(0, sBuilder.length());
             }
-            return;
+            return null;
         }
+        return taskContext;
+    }
+
+    /**
+     * Call the listener with the fetched messages and release the partition.
+     *
+     * @param taskContext  the fetched task context
+     * @param sBuilder     a string builder
+     */
+    protected void consumeRequest(FetchContext taskContext, final StringBuilder sBuilder) {
+        final long startTime = System.currentTimeMillis();
         boolean isConsumed = false;
         if (!isShutdown()) {
             if (taskContext.getMessageList() == null
@@ -213,10 +237,7 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
                 }
             }
         }
-        baseConsumer.rmtDataCache.succRspRelease(taskContext.getPartition().getPartitionKey(),
-                taskContext.getPartition().getTopic(), taskContext.getUsedToken(),
-                isConsumed, isFilterConsume(taskContext.getPartition().getTopic()),
-                taskContext.getCurrOffset(), taskContext.getMaxOffset());
+        releaseRequest(taskContext, isConsumed);
 
         // Warning if the process time is too long
         long cost = System.currentTimeMillis() - startTime;
@@ -224,12 +245,26 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             logger.info(sBuilder.append("Consuming Partition; current processing thread ")
                     .append(Thread.currentThread().getName())
                     .append("-->Process[")
-                    .append(partSelectResult.getPartition().toString())
+                    .append(taskContext.getPartition().toString())
                     .append("] cost:").append(cost).append(" Ms").toString());
             sBuilder.delete(0, sBuilder.length());
         }
     }
 
+    /**
+     * Release the partition of a fetched task context.
+     *
+     * @param taskContext  the fetched task context
+     * @param isConsumed   whether the fetched messages are consumed,
+     *                     if false they will be fetched again
+     */
+    protected void releaseRequest(FetchContext taskContext, boolean isConsumed) {
+        baseConsumer.rmtDataCache.succRspRelease(taskContext.getPartition().getPartitionKey(),
+                taskContext.getPartition().getTopic(), taskContext.getUsedToken(),
+                isConsumed, isFilterConsume(taskContext.getPartition().getTopic()),
+                taskContext.getCurrOffset(), taskContext.getMaxOffset());
+    }
+
     private boolean notifyListener(final FetchContext request,
             final TopicProcessor topicProcessor,
             final StringBuilder sBuilder) throws Exception {
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A partition router driven by the send latency of the brokers.
+ *
+ * Each broker keeps a peak EWMA of the send latency and the count of in-flight requests,
+ * the router picks two random partitions and routes the message to the one whose broker
+ * has the lower cost, the latency multiplied by the in-flight count. The EWMA jumps to
+ * a latency peak at once and decays with the configured time constant, so a slow broker
+ * is avoided immediately and takes back its share smoothly after it speeds up again.
+ */
+public class LatencyAwarePartitionRouter implements PartitionRouter {
+
+    private final long decayNanos;
+    private final ConcurrentHashMap<Integer, BrokerLoad> brokerLoads =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Initial a latency aware router
+     *
+     * @param decayMs   the time constant of the latency decay in milliseconds
+     */
+    public LatencyAwarePartitionRouter(long decayMs) {
+        this.decayNanos = Math.max(1L, decayMs) * 1000000L;
+    }
+
+    @Override
+    public Partition getPartition(final Message message,
+            final List<Partition> partitions) throws TubeClientException {
+        if (partitions == null || partitions.isEmpty()) {
+            throw new TubeClientException(new StringBuilder(512)
+                    .append("No available partition for topic: ")
+                    .append(message.getTopic()).toString());
+        }
+        int partSize = partitions.size();
+        if (partSize == 1) {
+            return partitions.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // pick two different partitions, the delayed partitions are taken only if no other left
+        int firstIndex = random.nextInt(partSize);
+        Partition first = partitions.get(firstIndex);
+        Partition second = partitions.get(
+                (firstIndex + 1 + random.nextInt(partSize - 1)) % partSize);
+        long curTime = System.currentTimeMillis();
+        boolean firstUsable = isUsable(first, curTime);
+        boolean secondUsable = isUsable(second, curTime);
+        if (firstUsable != secondUsable) {
+            return firstUsable ? first : second;
+        }
+        if (!firstUsable) {
+            for (int i = 1; i < partSize; i++) {
+                Partition partition = partitions.get((firstIndex + i) % partSize);
+                if (isUsable(partition, curTime)) {
+                    return partition;
+                }
+            }
+            return first;
+        }
+        long curNanos = System.nanoTime();
+        return getCost(second.getBrokerId(), curNanos) < getCost(first.getBrokerId(), curNanos)
+                ? second
+                : first;
+    }
+
+    /**
+     * Book a request sent to the broker
+     *
+     * @param brokerId   the broker id
+     * @return the booked request, to be completed by addReceiveStatistic()
+     */
+    public InFlightRequest addSendStatistic(int brokerId) {
+        BrokerLoad brokerLoad = getBrokerLoad(brokerId);
+        brokerLoad.inFlight.incrementAndGet();
+        return new InFlightRequest(brokerLoad);
+    }
+
+    /**
+     * Book the response of a request sent to the broker, a failed request
+     * is booked with the time elapsed until the failure. The request is booked
+     * only once, the later completions of the same request are ignored.
+     *
+     * @param request     the request booked by addSendStatistic()
+     * @param latencyMs   the latency of the request in milliseconds
+     */
+    public void addReceiveStatistic(InFlightRequest request, long latencyMs) {
+        if (!request.completed.compareAndSet(false, true)) {
+            return;
+        }
+        request.brokerLoad.inFlight.decrementAndGet();
+        request.brokerLoad.update(Math.max(0L, latencyMs), System.nanoTime(), decayNanos);
+    }
+
+    /**
+     * Get the routing cost of the broker
+     *
+     * @param brokerId   the broker id
+     * @param curNanos   the current nano time
+     * @return the cost, the lower the better
+     */
+    double getCost(int brokerId, long curNanos) {
+        BrokerLoad brokerLoad = brokerLoads.get(brokerId);
+        if (brokerLoad == null) {
+            return 1.0;
+        }
+        return (brokerLoad.getLatency(curNanos, decayNanos) + 1.0)
+                * (brokerLoad.inFlight.get() + 1);
+    }
+
+    private boolean isUsable(Partition partition, long curTime) {
+        return partition != null && partition.getDelayTimeStamp() < curTime;
+    }
+
+    private BrokerLoad getBrokerLoad(int brokerId) {
+        BrokerLoad brokerLoad = brokerLoads.get(brokerId);
+        if (brokerLoad == null) {
+            BrokerLoad tmpLoad = new BrokerLoad();
+            brokerLoad = brokerLoads.putIfAbsent(brokerId, tmpLoad);
+            if (brokerLoad == null) {
+                brokerLoad = tmpLoad;
+            }
+        }
+        return brokerLoad;
+    }
+
+    /**
+     * A request in flight to a broker.
+     */
+    public static class InFlightRequest {
+
+        private final BrokerLoad brokerLoad;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        private InFlightRequest(BrokerLoad brokerLoad) {
+            this.brokerLoad = brokerLoad;
+        }
+    }
+
+    private static class BrokerLoad {
+
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private volatile double latency = 0.0;
+        private volatile long lastUpdateNanos = System.nanoTime();
+
+        private synchronized void update(double sample, long curNanos, long decayNanos) {
+            double curLatency = getLatency(curNanos, decayNanos);
+            if (sample > curLatency) {
+                // follow the peak at once
+                latency = sample;
+            } else {
+                double weight = Math.exp(-Math.max(0L, curNanos - lastUpdateNanos)
+                        / (double) decayNanos);
+                latency = curLatency * weight + sample * (1.0 - weight);
+            }
+            lastUpdateNanos = curNanos;
+        }
+
+        // the latency decays while the broker receives no response, so that
+        // an avoided broker is probed again after it recovered
+        private double getLatency(long curNanos, long decayNanos) {
+            long idleNanos = curNanos - lastUpdateNanos;
+            if (idleNanos <= decayNanos) {
+                return latency;
+            }
+            return latency * Math.exp(-(idleNanos - decayNanos) / (double) decayNanos);
+        }
+    }
+}
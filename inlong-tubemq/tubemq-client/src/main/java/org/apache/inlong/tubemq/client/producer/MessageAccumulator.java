@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accumulate the async sent messages per partition, the accumulated messages are
+ * handed over to the sender in one batch when the batch is full or its linger time expires.
+ */
+public class MessageAccumulator {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MessageAccumulator.class);
+    private final long lingerMs;
+    private final int maxMsgCount;
+    private final int maxDataSize;
+    private final BatchSender batchSender;
+    private final ConcurrentHashMap<Partition, PartitionBatch> batchMap =
+            new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lingerService;
+    private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+
+    /**
+     * Initial an accumulator object
+     *
+     * @param producerId    the producer id, used in the linger thread name
+     * @param lingerMs      the max time a message waits for its batch
+     * @param maxMsgCount   the max message count of a batch
+     * @param maxDataSize   the max total data size of a batch
+     * @param batchSender   the sender of the ready batches
+     */
+    public MessageAccumulator(final String producerId, long lingerMs,
+            int maxMsgCount, int maxDataSize, BatchSender batchSender) {
+        this.lingerMs = lingerMs;
+        this.maxMsgCount = maxMsgCount;
+        this.maxDataSize = maxDataSize;
+        this.batchSender = batchSender;
+        this.lingerService =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(256)
+                                .append("Producer-Batch-Linger-Thread-")
+                                .append(producerId).toString());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        long checkPeriodMs = Math.max(1L, lingerMs / 2);
+        this.lingerService.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    sendBatches(false);
+                } catch (Throwable e) {
+                    logger.warn("[Batch Send] send linger expired batches failure", e);
+                }
+            }
+        }, checkPeriodMs, checkPeriodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append a message to the batch of its partition.
+     *
+     * @param partition   the partition the message sent to
+     * @param message     the message
+     * @param dataSize    the data size of the message
+     * @param cb          the callback of the message
+     * @return            whether the message is accepted
+     */
+    public boolean append(Partition partition, Message message,
+            int dataSize, MessageSentCallback cb) {
+        if (isShutdown.get()) {
+            return false;
+        }
+        List<PendingMessage> fullBatch = null;
+        List<PendingMessage> readyBatch = null;
+        PartitionBatch batch = batchMap.get(partition);
+        if (batch == null) {
+            PartitionBatch newBatch = new PartitionBatch();
+            batch = batchMap.putIfAbsent(partition, newBatch);
+            if (batch == null) {
+                batch = newBatch;
+            }
+        }
+        synchronized (batch) {
+            if (!batch.isEmpty() && batch.dataSize + dataSize > maxDataSize) {
+                fullBatch = batch.drain();
+            }
+            batch.add(new PendingMessage(message, dataSize, cb));
+            if (batch.messages.size() >= maxMsgCount || batch.dataSize >= maxDataSize) {
+                readyBatch = batch.drain();
+            }
+        }
+        if (fullBatch != null) {
+            batchSender.sendBatch(partition, fullBatch);
+        }
+        if (readyBatch != null) {
+            batchSender.sendBatch(partition, readyBatch);
+        }
+        return true;
+    }
+
+    /**
+     * Send all the accumulated messages, and stop accepting messages.
+     */
+    public void shutdown() {
+        if (isShutdown.compareAndSet(false, true)) {
+            lingerService.shutdownNow();
+            sendBatches(true);
+        }
+    }
+
+    /**
+     * Get the count of accumulated messages not sent yet.
+     *
+     * @return  the pending message count
+     */
+    public int getPendingMsgCount() {
+        int count = 0;
+        for (PartitionBatch batch : batchMap.values()) {
+            synchronized (batch) {
+                count += batch.messages.size();
+            }
+        }
+        return count;
+    }
+
+    private void sendBatches(boolean force) {
+        long curTime = System.currentTimeMillis();
+        for (Map.Entry<Partition, PartitionBatch> entry : batchMap.entrySet()) {
+            List<PendingMessage> readyBatch = null;
+            PartitionBatch batch = entry.getValue();
+            synchronized (batch) {
+                if (!batch.isEmpty()
+                        && (force || curTime - batch.firstAppendTime >= lingerMs)) {
+                    readyBatch = batch.drain();
+                }
+            }
+            if (readyBatch != null) {
+                batchSender.sendBatch(entry.getKey(), readyBatch);
+            }
+        }
+    }
+
+    /**
+     * The sender of the ready batches.
+     */
+    public interface BatchSender {
+
+        void sendBatch(Partition partition, List<PendingMessage> batch);
+    }
+
+    /**
+     * A message waiting in the batch.
+     */
+    public static class PendingMessage {
+
+        private final Message message;
+        private final int dataSize;
+        private final MessageSentCallback callback;
+
+        public PendingMessage(Message message, int dataSize, MessageSentCallback callback) {
+            this.message = message;
+            this.dataSize = dataSize;
+            this.callback = callback;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        public int getDataSize() {
+            return dataSize;
+        }
+
+        public MessageSentCallback getCallback() {
+            return callback;
+        }
+    }
+
+    private static class PartitionBatch {
+
+        private List<PendingMessage> messages = new ArrayList<>();
+        private int dataSize = 0;
+        private long firstAppendTime = 0L;
+
+        boolean isEmpty() {
+            return messages.isEmpty();
+        }
+
+        void add(PendingMessage pendingMessage) {
+            if (messages.isEmpty()) {
+                firstAppendTime = System.currentTimeMillis();
+            }
+            messages.add(pendingMessage);
+            dataSize += pendingMessage.getDataSize();
+        }
+
+        List<PendingMessage> drain() {
+            List<PendingMessage> drained = messages;
+            messages = new ArrayList<>();
+            dataSize = 0;
+            return drained;
+        }
+    }
+}
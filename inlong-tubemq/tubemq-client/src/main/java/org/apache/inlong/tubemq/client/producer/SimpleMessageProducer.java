@@ -26,10 +26,13 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
@@ -42,8 +45,12 @@ import org.apache.commons.codec.binary.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,9 +71,15 @@ public class SimpleMessageProducer implements MessageProducer {
     private final RpcServiceFactory rpcServiceFactory;
     private final ProducerManager producerManager;
     private final PartitionRouter partitionRouter;
+    // the router fed by the send statistics, null if routing in round-robin
+    private final LatencyAwarePartitionRouter latencyRouter;
     private final DefaultBrokerRcvQltyStats brokerRcvQltyStats;
     private final RpcConfig rpcConfig = new RpcConfig();
     private final AtomicBoolean isShutDown = new AtomicBoolean(false);
+    // the accumulator of async sent messages, null if batching disabled
+    private final MessageAccumulator msgAccumulator;
+    // the brokers not supporting the batched send request
+    private final Set<Integer> unBatchableBrokers = ConcurrentHashMap.newKeySet();
 
     /**
      * Initial a producer object
@@ -88,7 +101,14 @@ public class SimpleMessageProducer implements MessageProducer {
         this.rpcServiceFactory = this.sessionFactory.getRpcServiceFactory();
         this.producerManager = this.sessionFactory.getProducerManager();
         this.brokerRcvQltyStats = sessionFactory.getBrokerRcvQltyStats();
-        this.partitionRouter = new RoundRobinPartitionRouter();
+        if (tubeClientConfig.getRouteLatencyDecayMs() > 0) {
+            this.latencyRouter = new LatencyAwarePartitionRouter(
+                    tubeClientConfig.getRouteLatencyDecayMs());
+            this.partitionRouter = this.latencyRouter;
+        } else {
+            this.latencyRouter = null;
+            this.partitionRouter = new RoundRobinPartitionRouter();
+        }
         this.rpcConfig.put(RpcConstants.CONNECT_TIMEOUT, 3000);
         this.rpcConfig.put(RpcConstants.REQUEST_TIMEOUT,
                 tubeClientConfig.getRpcTimeoutMs());
@@ -104,6 +124,23 @@ public class SimpleMessageProducer implements MessageProducer {
                 tubeClientConfig.getRpcNettyWorkMemorySize());
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
                 tubeClientConfig.getRpcRspCallBackThreadCnt());
+        if (tubeClientConfig.getBatchLingerMs() > 0) {
+            this.msgAccumulator = new MessageAccumulator(
+                    this.producerManager.getProducerId(),
+                    tubeClientConfig.getBatchLingerMs(),
+                    tubeClientConfig.getBatchMaxMsgCount(),
+                    tubeClientConfig.getBatchMaxDataSize(),
+                    new MessageAccumulator.BatchSender() {
+
+                        @Override
+                        public void sendBatch(Partition partition,
+                                List<MessageAccumulator.PendingMessage> batch) {
+                            sendBatchAsync(partition, batch);
+                        }
+                    });
+        } else {
+            this.msgAccumulator = null;
+        }
     }
 
     /**
@@ -200,6 +237,9 @@ public class SimpleMessageProducer implements MessageProducer {
             return;
         }
         if (this.isShutDown.compareAndSet(false, true)) {
+            if (this.msgAccumulator != null) {
+                this.msgAccumulator.shutdown();
+            }
             this.producerManager.removeTopic(publishTopicMap.keySet());
             this.publishTopicMap.clear();
             this.sessionFactory.removeClient(this);
@@ -215,16 +255,21 @@ public class SimpleMessageProducer implements MessageProducer {
             return result;
         }
         Partition partition = this.selectPartition(message, BrokerWriteService.class);
+        return sendMessageSync(partition, message);
+    }
+
+    private MessageSentResult sendMessageSync(final Partition partition,
+            final Message message) throws TubeClientException {
         int brokerId = partition.getBrokerId();
         long startTime = System.currentTimeMillis();
+        final LatencyAwarePartitionRouter.InFlightRequest inFlight = addSendStatistic(brokerId);
         try {
-            this.brokerRcvQltyStats.addSendStatistic(brokerId);
             ClientBroker.SendMessageResponseB2P response =
                     getBrokerService(partition.getBroker()).sendMessageP2B(
                             createSendMessageRequest(partition, message),
                             AddressUtils.getLocalAddress(), producerConfig.isTlsEnable());
             rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, response.getSuccess());
+            addReceiveStatistic(brokerId, inFlight, response.getSuccess(), startTime);
             if (!response.getSuccess()
                     && response.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
                 rpcServiceFactory.addUnavailableBroker(brokerId);
@@ -238,7 +283,7 @@ public class SimpleMessageProducer implements MessageProducer {
             producerManager.getClientMetrics().bookFailRpcCall(
                     TErrCodeConstants.UNSPECIFIED_ABNORMAL);
             partition.increRetries(1);
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            addReceiveStatistic(brokerId, inFlight, false, startTime);
             throw new TubeClientException("Send message failed", e);
         }
     }
@@ -253,10 +298,19 @@ public class SimpleMessageProducer implements MessageProducer {
         }
         final Partition partition =
                 this.selectPartition(message, BrokerWriteService.AsyncService.class);
+        if (this.msgAccumulator != null
+                && this.msgAccumulator.append(partition, message, getMsgSize(message), cb)) {
+            return;
+        }
+        sendMessageAsync(partition, message, cb);
+    }
+
+    private void sendMessageAsync(final Partition partition,
+            final Message message, final MessageSentCallback cb) {
         final int brokerId = partition.getBrokerId();
         long startTime = System.currentTimeMillis();
+        final LatencyAwarePartitionRouter.InFlightRequest inFlight = addSendStatistic(brokerId);
         try {
-            this.brokerRcvQltyStats.addSendStatistic(brokerId);
             getAsyncBrokerService(partition.getBroker()).sendMessageP2B(
                     createSendMessageRequest(partition, message),
                     AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
@@ -274,8 +328,8 @@ public class SimpleMessageProducer implements MessageProducer {
                                             System.currentTimeMillis() - startTime,
                                             message, partition, responseB2P);
                             partition.resetRetries();
-                            brokerRcvQltyStats.addReceiveStatistic(brokerId,
-                                    responseB2P.getSuccess());
+                            addReceiveStatistic(brokerId, inFlight,
+                                    responseB2P.getSuccess(), startTime);
                             if (!responseB2P.getSuccess()
                                     && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
                                 rpcServiceFactory.addUnavailableBroker(brokerId);
@@ -288,7 +342,7 @@ public class SimpleMessageProducer implements MessageProducer {
                             producerManager.getClientMetrics().bookFailRpcCall(
                                     TErrCodeConstants.UNSPECIFIED_ABNORMAL);
                             partition.increRetries(1);
-                            brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                            addReceiveStatistic(brokerId, inFlight, false, startTime);
                             cb.onException(error);
                         }
                     });
@@ -299,11 +353,282 @@ public class SimpleMessageProducer implements MessageProducer {
             }
             // if failed,increment the counter
             partition.increRetries(1);
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            addReceiveStatistic(brokerId, inFlight, false, startTime);
             cb.onException(e);
         }
     }
 
+    /**
+     * Send messages synchronously, the messages sent to the same partition are
+     * packed into batched requests.
+     *
+     * @param messages    the messages to send
+     * @return            the send results in the order of the messages
+     * @throws TubeClientException   no partition available for the messages
+     * @throws InterruptedException  the thread is interrupted
+     */
+    @Override
+    public List<MessageSentResult> sendMessages(final List<Message> messages)
+            throws TubeClientException, InterruptedException {
+        if (messages == null || messages.isEmpty()) {
+            throw new TubeClientException("Illegal parameter: messages is null or empty!");
+        }
+        MessageSentResult[] results = new MessageSentResult[messages.size()];
+        Map<Partition, List<Integer>> partMsgIndexes = new LinkedHashMap<>();
+        for (int index = 0; index < messages.size(); index++) {
+            Message message = messages.get(index);
+            MessageSentResult result = checkMessageAndStatus(message);
+            if (!result.isSuccess()) {
+                results[index] = result;
+                continue;
+            }
+            Partition partition = this.selectPartition(message, BrokerWriteService.class);
+            partMsgIndexes.computeIfAbsent(partition, k -> new ArrayList<>()).add(index);
+        }
+        for (Map.Entry<Partition, List<Integer>> entry : partMsgIndexes.entrySet()) {
+            for (List<Integer> batchIndexes : splitBatches(messages, entry.getValue())) {
+                List<Message> batchMsgs = new ArrayList<>(batchIndexes.size());
+                for (Integer index : batchIndexes) {
+                    batchMsgs.add(messages.get(index));
+                }
+                List<MessageSentResult> batchResults =
+                        sendBatchSync(entry.getKey(), batchMsgs);
+                for (int i = 0; i < batchIndexes.size(); i++) {
+                    results[batchIndexes.get(i)] = batchResults.get(i);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Send messages asynchronously, the callback is invoked once per message.
+     *
+     * @param messages    the messages to send
+     * @param cb          the callback of each message
+     * @throws TubeClientException   no partition available for the messages
+     * @throws InterruptedException  the thread is interrupted
+     */
+    @Override
+    public void sendMessages(final List<Message> messages, final MessageSentCallback cb)
+            throws TubeClientException, InterruptedException {
+        if (messages == null || messages.isEmpty()) {
+            throw new TubeClientException("Illegal parameter: messages is null or empty!");
+        }
+        if (this.msgAccumulator != null) {
+            for (Message message : messages) {
+                sendMessage(message, cb);
+            }
+            return;
+        }
+        Map<Partition, List<Integer>> partMsgIndexes = new LinkedHashMap<>();
+        for (int index = 0; index < messages.size(); index++) {
+            Message message = messages.get(index);
+            MessageSentResult result = checkMessageAndStatus(message);
+            if (!result.isSuccess()) {
+                cb.onMessageSent(result);
+                continue;
+            }
+            Partition partition =
+                    this.selectPartition(message, BrokerWriteService.AsyncService.class);
+            partMsgIndexes.computeIfAbsent(partition, k -> new ArrayList<>()).add(index);
+        }
+        for (Map.Entry<Partition, List<Integer>> entry : partMsgIndexes.entrySet()) {
+            for (List<Integer> batchIndexes : splitBatches(messages, entry.getValue())) {
+                List<MessageAccumulator.PendingMessage> batch =
+                        new ArrayList<>(batchIndexes.size());
+                for (Integer index : batchIndexes) {
+                    Message message = messages.get(index);
+                    batch.add(new MessageAccumulator.PendingMessage(
+                            message, getMsgSize(message), cb));
+                }
+                sendBatchAsync(entry.getKey(), batch);
+            }
+        }
+    }
+
+    private List<List<Integer>> splitBatches(List<Message> messages, List<Integer> indexes) {
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> curBatch = new ArrayList<>();
+        int curDataSize = 0;
+        for (Integer index : indexes) {
+            int msgSize = getMsgSize(messages.get(index));
+            if (!curBatch.isEmpty()
+                    && (curBatch.size() >= producerConfig.getBatchMaxMsgCount()
+                            || curDataSize + msgSize > producerConfig.getBatchMaxDataSize())) {
+                batches.add(curBatch);
+                curBatch = new ArrayList<>();
+                curDataSize = 0;
+            }
+            curBatch.add(index);
+            curDataSize += msgSize;
+        }
+        if (!curBatch.isEmpty()) {
+            batches.add(curBatch);
+        }
+        return batches;
+    }
+
+    private List<MessageSentResult> sendBatchSync(final Partition partition,
+            final List<Message> batchMsgs) {
+        List<MessageSentResult> results = new ArrayList<>(batchMsgs.size());
+        if (batchMsgs.size() == 1 || unBatchableBrokers.contains(partition.getBrokerId())) {
+            for (Message message : batchMsgs) {
+                results.add(sendMessageWithResult(partition, message));
+            }
+            return results;
+        }
+        int brokerId = partition.getBrokerId();
+        long startTime = System.currentTimeMillis();
+        ClientBroker.SendMessageResponseB2P response;
+        final LatencyAwarePartitionRouter.InFlightRequest inFlight = addSendStatistic(brokerId);
+        try {
+            response = getBrokerService(partition.getBroker()).sendMessageP2B(
+                    createSendMessageRequest(partition, batchMsgs),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable());
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            addReceiveStatistic(brokerId, inFlight, response.getSuccess(), startTime);
+            if (!response.getSuccess()
+                    && response.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                rpcServiceFactory.addUnavailableBroker(brokerId);
+            }
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            producerManager.getClientMetrics().bookFailRpcCall(
+                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+            partition.increRetries(1);
+            addReceiveStatistic(brokerId, inFlight, false, startTime);
+            for (Message message : batchMsgs) {
+                results.add(new MessageSentResult(false,
+                        TErrCodeConstants.UNSPECIFIED_ABNORMAL,
+                        "Send message failed: " + e.getMessage(),
+                        message, TBaseConstants.META_VALUE_UNDEFINED, partition));
+            }
+            return results;
+        }
+        results.addAll(buildBatchSentResults(
+                System.currentTimeMillis() - startTime, batchMsgs, partition, response));
+        // resend the left messages one by one if the broker not support batch
+        for (int index = results.size(); index < batchMsgs.size(); index++) {
+            results.add(sendMessageWithResult(partition, batchMsgs.get(index)));
+        }
+        return results;
+    }
+
+    private MessageSentResult sendMessageWithResult(Partition partition, Message message) {
+        try {
+            return sendMessageSync(partition, message);
+        } catch (TubeClientException e) {
+            return new MessageSentResult(false,
+                    TErrCodeConstants.UNSPECIFIED_ABNORMAL,
+                    "Send message failed: " + (e.getCause() != null
+                            ? e.getCause().getMessage()
+                            : e.getMessage()),
+                    message, TBaseConstants.META_VALUE_UNDEFINED, partition);
+        }
+    }
+
+    private void sendBatchAsync(final Partition partition,
+            final List<MessageAccumulator.PendingMessage> batch) {
+        if (batch.size() == 1 || unBatchableBrokers.contains(partition.getBrokerId())) {
+            for (MessageAccumulator.PendingMessage pendingMsg : batch) {
+                sendMessageAsync(partition, pendingMsg.getMessage(), pendingMsg.getCallback());
+            }
+            return;
+        }
+        final List<Message> batchMsgs = new ArrayList<>(batch.size());
+        for (MessageAccumulator.PendingMessage pendingMsg : batch) {
+            batchMsgs.add(pendingMsg.getMessage());
+        }
+        final int brokerId = partition.getBrokerId();
+        long startTime = System.currentTimeMillis();
+        final LatencyAwarePartitionRouter.InFlightRequest inFlight = addSendStatistic(brokerId);
+        try {
+            getAsyncBrokerService(partition.getBroker()).sendMessageP2B(
+                    createSendMessageRequest(partition, batchMsgs),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
+                    new Callback() {
+
+                        @Override
+                        public void handleResult(Object result) {
+                            if (!(result instanceof ClientBroker.SendMessageResponseB2P)) {
+                                return;
+                            }
+                            final ClientBroker.SendMessageResponseB2P responseB2P =
+                                    (ClientBroker.SendMessageResponseB2P) result;
+                            final List<MessageSentResult> results =
+                                    SimpleMessageProducer.this.buildBatchSentResults(
+                                            System.currentTimeMillis() - startTime,
+                                            batchMsgs, partition, responseB2P);
+                            partition.resetRetries();
+                            addReceiveStatistic(brokerId, inFlight,
+                                    responseB2P.getSuccess(), startTime);
+                            if (!responseB2P.getSuccess()
+                                    && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                                rpcServiceFactory.addUnavailableBroker(brokerId);
+                            }
+                            for (int index = 0; index < batch.size(); index++) {
+                                MessageAccumulator.PendingMessage pendingMsg = batch.get(index);
+                                if (index < results.size()) {
+                                    pendingMsg.getCallback().onMessageSent(results.get(index));
+                                } else {
+                                    // resend the left messages if the broker not support batch
+                                    sendMessageAsync(partition,
+                                            pendingMsg.getMessage(), pendingMsg.getCallback());
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void handleError(Throwable error) {
+                            producerManager.getClientMetrics().bookFailRpcCall(
+                                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+                            partition.increRetries(1);
+                            addReceiveStatistic(brokerId, inFlight, false, startTime);
+                            for (MessageAccumulator.PendingMessage pendingMsg : batch) {
+                                pendingMsg.getCallback().onException(error);
+                            }
+                        }
+                    });
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            partition.increRetries(1);
+            addReceiveStatistic(brokerId, inFlight, false, startTime);
+            for (MessageAccumulator.PendingMessage pendingMsg : batch) {
+                pendingMsg.getCallback().onException(e);
+            }
+        }
+    }
+
+    private LatencyAwarePartitionRouter.InFlightRequest addSendStatistic(int brokerId) {
+        this.brokerRcvQltyStats.addSendStatistic(brokerId);
+        if (this.latencyRouter != null) {
+            return this.latencyRouter.addSendStatistic(brokerId);
+        }
+        return null;
+    }
+
+    private void addReceiveStatistic(int brokerId,
+            LatencyAwarePartitionRouter.InFlightRequest inFlight,
+            boolean isSuccess, long startTime) {
+        this.brokerRcvQltyStats.addReceiveStatistic(brokerId, isSuccess);
+        if (inFlight != null) {
+            this.latencyRouter.addReceiveStatistic(inFlight,
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private int getMsgSize(final Message message) {
+        return TStringUtils.isBlank(message.getAttribute())
+                ? message.getData().length
+                : (message.getData().length + message.getAttribute().length());
+    }
+
     private MessageSentResult checkMessageAndStatus(final Message message) {
         if (message == null) {
             return new MessageSentResult(message, false,
@@ -331,9 +656,7 @@ public class SimpleMessageProducer implements MessageProducer {
                             .append(" not publish, make sure the topic exist or acceptPublish and try later!")
                             .toString());
         }
-        int msgSize = TStringUtils.isBlank(message.getAttribute())
-                ? message.getData().length
-                : (message.getData().length + message.getAttribute().length());
+        int msgSize = getMsgSize(message);
         if (msgSize > producerManager.getMaxMsgSize(message.getTopic())) {
             return new MessageSentResult(message, false,
                     TErrCodeConstants.PARAMETER_MSG_OVER_MAX_LENGTH,
@@ -357,8 +680,9 @@ public class SimpleMessageProducer implements MessageProducer {
         builder.setClientId(this.producerManager.getProducerId());
         builder.setTopicName(partition.getTopic());
         builder.setPartitionId(partition.getPartitionId());
-        builder.setData(ByteString.copyFrom(encodePayload(message)));
-        builder.setFlag(MessageFlagUtils.getFlag(message));
+        Tuple2<Integer, byte[]> encodedMsg = encodeMessage(message);
+        builder.setData(ByteString.copyFrom(encodedMsg.getF1()));
+        builder.setFlag(encodedMsg.getF0());
         builder.setSentAddr(this.producerManager.getProducerAddrId());
         builder.setCheckSum(-1);
         if (TStringUtils.isNotBlank(message.getMsgType())) {
@@ -371,6 +695,57 @@ public class SimpleMessageProducer implements MessageProducer {
         return builder.build();
     }
 
+    private ClientBroker.SendMessageRequestP2B createSendMessageRequest(Partition partition,
+            List<Message> messages) {
+        // the first message is carried in the legacy fields, so that the brokers
+        // not supporting batch can still store it
+        ClientBroker.SendMessageRequestP2B.Builder builder =
+                createSendMessageRequest(partition, messages.get(0)).toBuilder();
+        for (int index = 1; index < messages.size(); index++) {
+            Message message = messages.get(index);
+            ClientBroker.BatchedMessage.Builder msgBuilder =
+                    ClientBroker.BatchedMessage.newBuilder();
+            Tuple2<Integer, byte[]> encodedMsg = encodeMessage(message);
+            msgBuilder.setData(ByteString.copyFrom(encodedMsg.getF1()));
+            msgBuilder.setFlag(encodedMsg.getF0());
+            msgBuilder.setCheckSum(-1);
+            if (TStringUtils.isNotBlank(message.getMsgType())) {
+                msgBuilder.setMsgType(message.getMsgType());
+            }
+            if (TStringUtils.isNotBlank(message.getMsgTime())) {
+                msgBuilder.setMsgTime(message.getMsgTime());
+            }
+            builder.addBatchedMsgs(msgBuilder.build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Encode the message payload and flag, the message body is compressed
+     * if the compression is enabled and the compressed data is smaller.
+     *
+     * @param message   the message to be sent
+     * @return          the message flag and the encoded payload
+     */
+    private Tuple2<Integer, byte[]> encodeMessage(final Message message) {
+        int flag = MessageFlagUtils.getFlag(message);
+        byte[] payload = encodePayload(message);
+        final CompressCodec codec = producerConfig.getCompressCodec();
+        if (codec != CompressCodec.NONE
+                && message.getData().length >= producerConfig.getCompressMinDataSize()) {
+            try {
+                byte[] compressed = CompressUtils.compressPayload(codec, flag, payload);
+                if (compressed != null) {
+                    flag = MessageFlagUtils.setCompressCodecId(flag, codec.getId());
+                    payload = compressed;
+                }
+            } catch (IOException e) {
+                logger.debug("[Producer] compress message failure, send it uncompressed!", e);
+            }
+        }
+        return new Tuple2<>(flag, payload);
+    }
+
     private byte[] encodePayload(final Message message) {
         final byte[] payload = message.getData();
         final String attribute = message.getAttribute();
@@ -410,6 +785,57 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    /**
+     * Build the results of a batched request in the order of the messages.
+     *
+     * If the broker does not support the batched request, only the first message
+     * is stored, then only the first result is returned and the broker is recorded
+     * to send messages one by one later.
+     */
+    private List<MessageSentResult> buildBatchSentResults(final long dltTime,
+            final List<Message> messages,
+            final Partition partition,
+            final ClientBroker.SendMessageResponseB2P response) {
+        List<MessageSentResult> results = new ArrayList<>(messages.size());
+        if (response.getErrCode() != TErrCodeConstants.SUCCESS) {
+            for (Message message : messages) {
+                producerManager.getClientMetrics().bookFailRpcCall(response.getErrCode());
+                results.add(new MessageSentResult(false, response.getErrCode(),
+                        response.getErrMsg(), message,
+                        TBaseConstants.META_VALUE_UNDEFINED, partition));
+            }
+            return results;
+        }
+        if (response.getSentItemsCount() == 0) {
+            if (unBatchableBrokers.add(partition.getBrokerId())) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Batch Send] broker ").append(partition.getBroker())
+                        .append(" not support batched send request, send messages one by one!")
+                        .toString());
+            }
+            results.add(buildMsgSentResult(dltTime, messages.get(0), partition, response));
+            return results;
+        }
+        for (int index = 0; index < messages.size(); index++) {
+            Message message = messages.get(index);
+            ClientBroker.MessageSentItem sentItem = response.getSentItems(index);
+            if (sentItem.getSuccess()) {
+                producerManager.getClientMetrics().bookSuccSendMsg(dltTime,
+                        message.getTopic(), partition.getPartitionKey(), message.getData().length);
+                results.add(new MessageSentResult(true,
+                        sentItem.getErrCode(), "Ok!",
+                        message, sentItem.getMessageId(), partition,
+                        sentItem.getAppendTime(), sentItem.getAppendOffset()));
+            } else {
+                producerManager.getClientMetrics().bookFailRpcCall(sentItem.getErrCode());
+                results.add(new MessageSentResult(false, sentItem.getErrCode(),
+                        sentItem.getErrMsg(), message,
+                        TBaseConstants.META_VALUE_UNDEFINED, partition));
+            }
+        }
+        return results;
+    }
+
     private Partition selectPartition(final Message message,
             Class clazz) throws TubeClientException {
         String topic = message.getTopic();
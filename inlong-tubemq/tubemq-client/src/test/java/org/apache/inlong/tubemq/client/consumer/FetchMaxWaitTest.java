@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import org.apache.inlong.tubemq.client.config.ConsumerConfig;
+import org.apache.inlong.tubemq.client.config.TubeClientConfig;
+import org.apache.inlong.tubemq.client.factory.TubeBaseSessionFactory;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corerpc.client.ClientFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test the max wait time carried by the fetch requests of the consumers.
+ */
+public class FetchMaxWaitTest {
+
+    @Test
+    public void testFetchRequestMaxWait() throws Exception {
+        TubeBaseSessionFactory factory = new TubeBaseSessionFactory(
+                mock(ClientFactory.class), new TubeClientConfig("127.0.0.1:18080"));
+        Partition partition = new Partition(
+                new BrokerInfo(1, "127.0.0.1", 8123), "test", 1);
+        try {
+            ConsumerConfig consumerConfig = new ConsumerConfig("127.0.0.1:18080", "test");
+            consumerConfig.setRpcTimeoutMs(8000L);
+            // use reflection to get the base consumer of the pull consumer
+            Field field = SimplePullMessageConsumer.class.getDeclaredField("baseConsumer");
+            field.setAccessible(true);
+            BaseMessageConsumer pullConsumer =
+                    (BaseMessageConsumer) field.get(factory.createPullConsumer(consumerConfig));
+            SimpleClientBalanceConsumer balanceConsumer =
+                    (SimpleClientBalanceConsumer) factory.createBalanceConsumer(consumerConfig);
+            // disabled by default
+            Assert.assertFalse(pullConsumer.createBrokerGetMessageRequest(partition, true).hasMaxWaitMs());
+            Assert.assertFalse(balanceConsumer.createBrokerGetMessageRequest(partition, true).hasMaxWaitMs());
+            // both consumers carry the max wait time, capped by half of the rpc timeout
+            consumerConfig.setFetchMaxWaitMs(3000L);
+            ClientBroker.GetMessageRequestC2B request =
+                    balanceConsumer.createBrokerGetMessageRequest(partition, true);
+            Assert.assertEquals(3000, request.getMaxWaitMs());
+            Assert.assertEquals(3000, pullConsumer.createBrokerGetMessageRequest(partition, true).getMaxWaitMs());
+            consumerConfig.setFetchMaxWaitMs(10000L);
+            request = balanceConsumer.createBrokerGetMessageRequest(partition, true);
+            Assert.assertEquals(4000, request.getMaxWaitMs());
+            Assert.assertEquals(4000, pullConsumer.createBrokerGetMessageRequest(partition, true).getMaxWaitMs());
+        } finally {
+            factory.shutdown();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import org.apache.inlong.tubemq.client.config.ConsumerConfig;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MessageFetchManager prefetch test.
+ */
+public class MessageFetchManagerPrefetchTest {
+
+    @Test
+    public void prefetchWithBackpressure() throws Exception {
+        ConsumerConfig config = new ConsumerConfig("127.0.0.1:18080", "test");
+        config.setPushFetchThreadCnt(1);
+        config.setPushConsumeThreadCnt(1);
+        config.setPushPrefetchBufferSize(1);
+        config.setPushMaxInflightPerBroker(1);
+        BaseMessageConsumer baseConsumer = mock(BaseMessageConsumer.class);
+        SimplePushMessageConsumer pushConsumer = mock(SimplePushMessageConsumer.class);
+        when(pushConsumer.getBaseConsumer()).thenReturn(baseConsumer);
+        final BrokerInfo broker = new BrokerInfo(1, "127.0.0.1", 8123);
+        final AtomicInteger selectCnt = new AtomicInteger(0);
+        when(baseConsumer.pushSelectPartition()).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            int index = selectCnt.getAndIncrement();
+            return new PartitionSelectResult(
+                    new Partition(broker, "topic", index % 4), index, true);
+        });
+        final AtomicInteger fetchCnt = new AtomicInteger(0);
+        when(pushConsumer.fetchRequest(any(), any())).thenAnswer(invocation -> {
+            fetchCnt.incrementAndGet();
+            return new FetchContext(invocation.getArgument(0));
+        });
+        // a slow listener blocks the consume thread
+        final CountDownLatch listenerLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            listenerLatch.await();
+            return null;
+        }).when(pushConsumer).consumeRequest(any(), any());
+        MessageFetchManager fetchManager = new MessageFetchManager(config, pushConsumer);
+        fetchManager.startFetchWorkers();
+        // one batch is consuming, one is buffered and one waits for the buffer
+        long startTime = System.currentTimeMillis();
+        while (fetchCnt.get() < 3 && System.currentTimeMillis() - startTime < 5000) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(300);
+        Assert.assertEquals(3, fetchCnt.get());
+        Assert.assertEquals(1, fetchManager.getPrefetchBufferedCount());
+        // the fetch resumes after the listener returns
+        listenerLatch.countDown();
+        verify(pushConsumer, timeout(5000).atLeast(10)).consumeRequest(any(), any());
+        fetchManager.stopFetchWorkers(true);
+        fetchManager.stopFetchWorkers(false);
+        Assert.assertTrue(fetchManager.isShutdown());
+        Assert.assertEquals(0, fetchManager.getPrefetchBufferedCount());
+    }
+}
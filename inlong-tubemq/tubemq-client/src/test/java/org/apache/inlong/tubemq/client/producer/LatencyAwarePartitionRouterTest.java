@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LatencyAwarePartitionRouter test.
+ */
+public class LatencyAwarePartitionRouterTest {
+
+    private final Message message = new Message("test", new byte[]{1, 2, 3});
+
+    @Test(expected = TubeClientException.class)
+    public void testGetPartitionInvalidInput() throws TubeClientException {
+        new LatencyAwarePartitionRouter(1000).getPartition(message, new ArrayList<>());
+    }
+
+    @Test
+    public void testAvoidSlowBroker() throws TubeClientException {
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(10000);
+        List<Partition> partitions = buildPartitions();
+        router.addReceiveStatistic(router.addSendStatistic(1), 1);
+        router.addReceiveStatistic(router.addSendStatistic(2), 100);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(1, router.getPartition(message, partitions).getBrokerId());
+        }
+    }
+
+    @Test
+    public void testAvoidLoadedBroker() throws TubeClientException {
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(10000);
+        List<Partition> partitions = buildPartitions();
+        router.addReceiveStatistic(router.addSendStatistic(2), 5);
+        for (int i = 0; i < 10; i++) {
+            router.addSendStatistic(1);
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(2, router.getPartition(message, partitions).getBrokerId());
+        }
+    }
+
+    @Test
+    public void testSmoothRecovery() {
+        long decayMs = 10000;
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(decayMs);
+        router.addReceiveStatistic(router.addSendStatistic(1), 100);
+        double slowCost = router.getCost(1, System.nanoTime());
+        // a fast response right after the slow one moves the latency only slightly
+        router.addReceiveStatistic(router.addSendStatistic(1), 1);
+        long curNanos = System.nanoTime();
+        double cost = router.getCost(1, curNanos);
+        Assert.assertTrue(cost > slowCost / 2);
+        // the latency decays while the broker is idle
+        long decayNanos = decayMs * 1000000L;
+        Assert.assertTrue(router.getCost(1, curNanos + 5 * decayNanos) < cost / 10);
+        // the peak is followed at once
+        router.addReceiveStatistic(router.addSendStatistic(1), 500);
+        Assert.assertTrue(router.getCost(1, System.nanoTime()) > 500);
+    }
+
+    @Test
+    public void testCompleteRequestOnce() {
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(10000);
+        LatencyAwarePartitionRouter.InFlightRequest request1 = router.addSendStatistic(1);
+        router.addSendStatistic(1);
+        long curNanos = System.nanoTime();
+        double loadedCost = router.getCost(1, curNanos);
+        // the failure paths may complete a request again, only the first completion counts
+        router.addReceiveStatistic(request1, 0);
+        double cost = router.getCost(1, curNanos);
+        Assert.assertEquals(loadedCost * 2 / 3, cost, 0.001);
+        router.addReceiveStatistic(request1, 0);
+        Assert.assertEquals(cost, router.getCost(1, curNanos), 0.001);
+    }
+
+    private List<Partition> buildPartitions() {
+        List<Partition> partitions = new ArrayList<>();
+        partitions.add(new Partition(new BrokerInfo("1:127.0.0.1:8123"), "test", 0));
+        partitions.add(new Partition(new BrokerInfo("2:127.0.0.2:8123"), "test", 0));
+        return partitions;
+    }
+}
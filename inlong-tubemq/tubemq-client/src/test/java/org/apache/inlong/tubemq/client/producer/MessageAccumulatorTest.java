@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class MessageAccumulatorTest {
+
+    private final Partition partition =
+            new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+    private final List<List<MessageAccumulator.PendingMessage>> sentBatches =
+            new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testSendOnMaxMsgCount() {
+        MessageAccumulator accumulator = new MessageAccumulator("test",
+                60000L, 3, 1024, (part, batch) -> sentBatches.add(batch));
+        for (int i = 0; i < 7; i++) {
+            Assert.assertTrue(accumulator.append(partition, buildMessage(10), 10, null));
+        }
+        Assert.assertEquals(2, sentBatches.size());
+        Assert.assertEquals(3, sentBatches.get(0).size());
+        Assert.assertEquals(3, sentBatches.get(1).size());
+        Assert.assertEquals(1, accumulator.getPendingMsgCount());
+        accumulator.shutdown();
+        Assert.assertEquals(3, sentBatches.size());
+        Assert.assertEquals(0, accumulator.getPendingMsgCount());
+        Assert.assertFalse(accumulator.append(partition, buildMessage(10), 10, null));
+    }
+
+    @Test
+    public void testSendOnMaxDataSize() {
+        MessageAccumulator accumulator = new MessageAccumulator("test",
+                60000L, 100, 100, (part, batch) -> sentBatches.add(batch));
+        accumulator.append(partition, buildMessage(60), 60, null);
+        // the batch would overflow, so the accumulated batch is sent first
+        accumulator.append(partition, buildMessage(60), 60, null);
+        Assert.assertEquals(1, sentBatches.size());
+        Assert.assertEquals(1, sentBatches.get(0).size());
+        // the batch is full after appended
+        accumulator.append(partition, buildMessage(40), 40, null);
+        Assert.assertEquals(2, sentBatches.size());
+        Assert.assertEquals(2, sentBatches.get(1).size());
+        accumulator.shutdown();
+    }
+
+    @Test
+    public void testSendOnLingerExpired() throws InterruptedException {
+        MessageAccumulator accumulator = new MessageAccumulator("test",
+                20L, 100, 1024, (part, batch) -> sentBatches.add(batch));
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Message message = buildMessage(10);
+            messages.add(message);
+            accumulator.append(partition, message, 10, null);
+        }
+        long startTime = System.currentTimeMillis();
+        while (sentBatches.isEmpty() && System.currentTimeMillis() - startTime < 5000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, sentBatches.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Assert.assertSame(messages.get(i), sentBatches.get(0).get(i).getMessage());
+        }
+        accumulator.shutdown();
+    }
+
+    private Message buildMessage(int dataSize) {
+        return new Message("test", new byte[dataSize]);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.compress;
+
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+
+/**
+ * The compression codec of message payload, the codec id is carried
+ * in the message flag.
+ */
+public enum CompressCodec {
+
+    /**
+     * Not compressed.
+     * */
+    NONE(0, "none"),
+    /**
+     * Snappy compression.
+     * */
+    SNAPPY(1, "snappy"),
+    /**
+     * LZ4 block compression.
+     * */
+    LZ4(2, "lz4"),
+    /**
+     * ZSTD compression.
+     * */
+    ZSTD(3, "zstd");
+
+    private final int id;
+    private final String name;
+
+    CompressCodec(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public static CompressCodec valueOf(int id) {
+        for (CompressCodec codec : CompressCodec.values()) {
+            if (codec.getId() == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException(new StringBuilder(128)
+                .append("Unsupported compression codec id ").append(id).toString());
+    }
+
+    /**
+     * Get the codec by name, the name is case-insensitive.
+     *
+     * @param name    the codec name, blank means none
+     * @return        the codec
+     */
+    public static CompressCodec forName(String name) {
+        if (TStringUtils.isBlank(name)) {
+            return NONE;
+        }
+        for (CompressCodec codec : CompressCodec.values()) {
+            if (codec.getName().equalsIgnoreCase(name.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException(new StringBuilder(128)
+                .append("Unsupported compression codec ").append(name)
+                .append(", allowed values are none, snappy, lz4 and zstd").toString());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
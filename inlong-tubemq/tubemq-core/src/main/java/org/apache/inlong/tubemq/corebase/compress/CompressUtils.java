@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.compress;
+
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Factory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compress and decompress the message payload.
+ *
+ * The compressed payload starts with a 4-byte raw data length, followed by
+ * the data compressed by the codec, so the decompressed buffer can be
+ * allocated in advance and the raw size is known without decompressing.
+ *
+ * Only the message body is compressed, the attribute part of the encoded
+ * payload is kept as is, so the broker can still read the message attributes.
+ */
+public class CompressUtils {
+
+    public static final int COMPRESS_HEADER_LEN = 4;
+    // the zstd level, 3 is the default level of zstd
+    private static final int ZSTD_COMPRESS_LEVEL = 3;
+
+    /**
+     * Compress data by codec.
+     *
+     * @param codec     the compression codec, must not be NONE
+     * @param data      the raw data
+     * @return          the compressed data with raw length header
+     * @throws IOException  the exception while compressing
+     */
+    public static byte[] compress(CompressCodec codec, byte[] data) throws IOException {
+        byte[] compressed;
+        switch (codec) {
+            case SNAPPY:
+                compressed = Snappy.compress(data);
+                break;
+            case LZ4:
+                compressed = LZ4Factory.fastestInstance().fastCompressor().compress(data);
+                break;
+            case ZSTD:
+                compressed = Zstd.compress(data, ZSTD_COMPRESS_LEVEL);
+                break;
+            default:
+                throw new IOException(new StringBuilder(128)
+                        .append("Unsupported compression codec ").append(codec).toString());
+        }
+        return ByteBuffer.allocate(COMPRESS_HEADER_LEN + compressed.length)
+                .putInt(data.length).put(compressed).array();
+    }
+
+    /**
+     * Decompress data by codec.
+     *
+     * @param codec     the compression codec, must not be NONE
+     * @param data      the buffer contains the compressed data
+     * @param offset    the start position of the compressed data
+     * @param length    the length of the compressed data
+     * @return          the raw data
+     * @throws IOException  the exception while decompressing
+     */
+    public static byte[] decompress(CompressCodec codec,
+            byte[] data, int offset, int length) throws IOException {
+        final int rawLength = getRawLength(data, offset, length);
+        final int srcOffset = offset + COMPRESS_HEADER_LEN;
+        final int srcLength = length - COMPRESS_HEADER_LEN;
+        final byte[] rawData = new byte[rawLength];
+        int decompressedLen;
+        switch (codec) {
+            case SNAPPY:
+                decompressedLen = Snappy.uncompress(data, srcOffset, srcLength, rawData, 0);
+                break;
+            case LZ4:
+                // the safe decompressor never reads beyond the compressed data
+                decompressedLen = LZ4Factory.fastestInstance().safeDecompressor()
+                        .decompress(data, srcOffset, srcLength, rawData, 0, rawLength);
+                break;
+            case ZSTD:
+                decompressedLen = (int) Zstd.decompressByteArray(rawData, 0, rawLength,
+                        data, srcOffset, srcLength);
+                break;
+            default:
+                throw new IOException(new StringBuilder(128)
+                        .append("Unsupported compression codec ").append(codec).toString());
+        }
+        if (decompressedLen != rawLength) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Decompressed length ").append(decompressedLen)
+                    .append(" not equal to the raw length ").append(rawLength).toString());
+        }
+        return rawData;
+    }
+
+    /**
+     * Get the raw data length of the compressed data.
+     *
+     * @param data      the buffer contains the compressed data
+     * @param offset    the start position of the compressed data
+     * @param length    the length of the compressed data
+     * @return          the raw data length, not larger than the max message size
+     * @throws IOException  the compressed data is invalid
+     */
+    public static int getRawLength(byte[] data, int offset, int length) throws IOException {
+        return getRawLength(ByteBuffer.wrap(data), offset, length);
+    }
+
+    private static int getRawLength(ByteBuffer data, int index, int length) throws IOException {
+        if (length < COMPRESS_HEADER_LEN) {
+            throw new IOException("Compressed data is shorter than its header");
+        }
+        int rawLength = data.getInt(index);
+        if (rawLength < 0
+                || rawLength > TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Invalid raw data length ").append(rawLength).toString());
+        }
+        return rawLength;
+    }
+
+    /**
+     * Compress the body of an encoded message payload, the attribute part is kept.
+     *
+     * @param codec     the compression codec, must not be NONE
+     * @param flag      the message flag
+     * @param payload   the encoded payload, [attrLen][attribute][body] or [body]
+     * @return          the payload with compressed body, null if the compressed
+     *                  payload is not smaller than the original one
+     * @throws IOException  the exception while compressing
+     */
+    public static byte[] compressPayload(CompressCodec codec,
+            int flag, byte[] payload) throws IOException {
+        final int bodyPos = getBodyPos(flag, payload, 0, payload.length);
+        final byte[] body = new byte[payload.length - bodyPos];
+        System.arraycopy(payload, bodyPos, body, 0, body.length);
+        final byte[] compressed = compress(codec, body);
+        if (bodyPos + compressed.length >= payload.length) {
+            return null;
+        }
+        final byte[] result = new byte[bodyPos + compressed.length];
+        System.arraycopy(payload, 0, result, 0, bodyPos);
+        System.arraycopy(compressed, 0, result, bodyPos, compressed.length);
+        return result;
+    }
+
+    /**
+     * Get the raw size of a payload whose body is compressed.
+     *
+     * @param flag      the message flag
+     * @param payload   the stored payload
+     * @param offset    the start position of the payload
+     * @param length    the payload length
+     * @return          the payload size before compression
+     * @throws IOException  the payload is invalid
+     */
+    public static int getRawPayloadSize(int flag,
+            byte[] payload, int offset, int length) throws IOException {
+        return getRawPayloadSize(flag, ByteBuffer.wrap(payload, offset, length));
+    }
+
+    /**
+     * Get the raw size of a payload whose body is compressed, the payload is
+     * read in place and the buffer position is not changed.
+     *
+     * @param flag      the message flag
+     * @param payload   the buffer whose remaining bytes are the stored payload
+     * @return          the payload size before compression
+     * @throws IOException  the payload is invalid
+     */
+    public static int getRawPayloadSize(int flag, ByteBuffer payload) throws IOException {
+        final int bodyPos = getBodyPos(flag, payload);
+        return bodyPos + getRawLength(payload,
+                payload.position() + bodyPos, payload.remaining() - bodyPos);
+    }
+
+    private static int getBodyPos(int flag,
+            byte[] payload, int offset, int length) throws IOException {
+        return getBodyPos(flag, ByteBuffer.wrap(payload, offset, length));
+    }
+
+    private static int getBodyPos(int flag, ByteBuffer payload) throws IOException {
+        if (!MessageFlagUtils.hasAttribute(flag)) {
+            return 0;
+        }
+        final int length = payload.remaining();
+        if (length < 4) {
+            throw new IOException("Payload is shorter than its attribute header");
+        }
+        final int attrLen = payload.getInt(payload.position());
+        if (attrLen < 0 || attrLen > length - 4) {
+            throw new IOException(new StringBuilder(128)
+                    .append("Invalid attribute length ").append(attrLen).toString());
+        }
+        return 4 + attrLen;
+    }
+}
@@ -25,8 +25,13 @@ import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -41,6 +46,16 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DataConverterUtil {
 
+    // the stored message frame layout, see the broker's DataStoreUtils
+    private static final int RAW_DATA_PREFIX_LEN = 48;
+    private static final int RAW_DATA_HEADER_LEN = RAW_DATA_PREFIX_LEN + 4;
+    private static final int RAW_HEADER_POS_LENGTH = 0;
+    private static final int RAW_HEADER_POS_DATATYPE = 4;
+    private static final int RAW_HEADER_POS_CHECKSUM = 8;
+    private static final int RAW_HEADER_POS_MSGID = 40;
+    private static final int RAW_HEADER_POS_MSGFLAG = 48;
+    private static final int RAW_DATA_TOKEN_BEGIN_VALUE = 0x2C998B8;
+
     /**
      * convert string info to @link SubscribeInfo
      *
@@ -212,45 +227,99 @@ public class DataConverterUtil {
         }
         List<Message> messageList = new ArrayList<>(transferedMessageList.size());
         for (ClientBroker.TransferedMessage trsMessage : transferedMessageList) {
-            final int flag = trsMessage.getFlag();
-            int dataCheckSum = trsMessage.getCheckSum();
-            final ByteBuffer payloadData = ByteBuffer.allocate(trsMessage.getPayLoadData().size());
-            payloadData.put(trsMessage.getPayLoadData().toByteArray());
-            payloadData.flip();
-            int payloadDataLen = payloadData.array().length;
-            int currentChecksum = CheckSum.crc32(payloadData.array());
-            if (dataCheckSum != currentChecksum) {
-                continue;
+            final byte[] payloadData = trsMessage.getPayLoadData().toByteArray();
+            Message message = buildMessage(topicName, trsMessage.getMessageId(),
+                    trsMessage.getFlag(), trsMessage.getCheckSum(),
+                    payloadData, 0, payloadData.length);
+            if (message != null) {
+                messageList.add(message);
             }
-            int readPos = 0;
-            String attribute = null;
-            if (MessageFlagUtils.hasAttribute(flag)) {
-                if (payloadDataLen < 4) {
-                    continue;
-                }
-                final int attrLen = payloadData.getInt(0);
-                payloadDataLen -= 4;
-                readPos += 4;
-                if (attrLen > payloadDataLen) {
-                    continue;
-                }
-                if (attrLen > 0) {
-                    final byte[] attrData = new byte[attrLen];
-                    System.arraycopy(payloadData.array(), readPos, attrData, 0, attrLen);
-                    try {
-                        attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
-                    } catch (final UnsupportedEncodingException e) {
-                        throw new RuntimeException(e);
-                    }
-                    readPos += attrLen;
-                    payloadDataLen -= attrLen;
-                }
+        }
+        return messageList;
+    }
+
+    /**
+     * convert the stored message frames sent by zero-copy transfer to messages
+     *
+     * @param topicName    the topic name of the messages
+     * @param rawMsgData   the continuous stored message frames
+     * @return the message list, the frames failed to be verified are skipped
+     */
+    public static List<Message> convertRawMessage(final String topicName,
+            ByteString rawMsgData) {
+        List<Message> messageList = new ArrayList<>();
+        if (rawMsgData == null || rawMsgData.isEmpty()) {
+            return messageList;
+        }
+        final byte[] rawData = rawMsgData.toByteArray();
+        final ByteBuffer rawBuffer = ByteBuffer.wrap(rawData);
+        int framePos = 0;
+        while (rawData.length - framePos >= RAW_DATA_HEADER_LEN) {
+            final int msgLen = rawBuffer.getInt(framePos + RAW_HEADER_POS_LENGTH);
+            final int msgToken = rawBuffer.getInt(framePos + RAW_HEADER_POS_DATATYPE);
+            final int payloadLen = msgLen - RAW_DATA_PREFIX_LEN;
+            if (msgToken != RAW_DATA_TOKEN_BEGIN_VALUE
+                    || payloadLen <= 0
+                    || payloadLen > rawData.length - framePos - RAW_DATA_HEADER_LEN) {
+                break;
+            }
+            Message message = buildMessage(topicName,
+                    rawBuffer.getLong(framePos + RAW_HEADER_POS_MSGID),
+                    rawBuffer.getInt(framePos + RAW_HEADER_POS_MSGFLAG),
+                    rawBuffer.getInt(framePos + RAW_HEADER_POS_CHECKSUM),
+                    rawData, framePos + RAW_DATA_HEADER_LEN, payloadLen);
+            if (message != null) {
+                messageList.add(message);
             }
-            final byte[] payload = new byte[payloadDataLen];
-            System.arraycopy(payloadData.array(), readPos, payload, 0, payloadDataLen);
-            messageList.add(new MessageExt(trsMessage.getMessageId(), topicName, payload, attribute, flag));
+            framePos += RAW_DATA_HEADER_LEN + payloadLen;
         }
         return messageList;
     }
 
+    private static Message buildMessage(final String topicName, long messageId,
+            int flag, int dataCheckSum, byte[] data, int offset, int length) {
+        if (dataCheckSum != CheckSum.crc32(data, offset, length)) {
+            return null;
+        }
+        int readPos = offset;
+        int payloadDataLen = length;
+        String attribute = null;
+        if (MessageFlagUtils.hasAttribute(flag)) {
+            if (payloadDataLen < 4) {
+                return null;
+            }
+            final int attrLen = ByteBuffer.wrap(data, readPos, 4).getInt();
+            payloadDataLen -= 4;
+            readPos += 4;
+            if (attrLen > payloadDataLen) {
+                return null;
+            }
+            if (attrLen > 0) {
+                try {
+                    attribute = new String(data, readPos, attrLen,
+                            TBaseConstants.META_DEFAULT_CHARSET_NAME);
+                } catch (final UnsupportedEncodingException e) {
+                    throw new RuntimeException(e);
+                }
+                readPos += attrLen;
+                payloadDataLen -= attrLen;
+            }
+        }
+        final byte[] payload;
+        if (MessageFlagUtils.isCompressed(flag)) {
+            try {
+                payload = CompressUtils.decompress(
+                        CompressCodec.valueOf(MessageFlagUtils.getCompressCodecId(flag)),
+                        data, readPos, payloadDataLen);
+            } catch (final IOException | RuntimeException e) {
+                return null;
+            }
+            flag = MessageFlagUtils.setCompressCodecId(flag, CompressCodec.NONE.getId());
+        } else {
+            payload = new byte[payloadDataLen];
+            System.arraycopy(data, readPos, payload, 0, payloadDataLen);
+        }
+        return new MessageExt(messageId, topicName, payload, attribute, flag);
+    }
+
 }
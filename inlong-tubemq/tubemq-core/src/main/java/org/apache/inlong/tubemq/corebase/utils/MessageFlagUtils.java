@@ -21,6 +21,10 @@ import org.apache.inlong.tubemq.corebase.Message;
 
 public class MessageFlagUtils {
 
+    // bit 1 ~ bit 3 of the flag carry the compression codec id of the message body
+    private static final int COMPRESS_CODEC_SHIFT = 1;
+    private static final int COMPRESS_CODEC_MASK = 0x7;
+
     public static int getFlag(final Message message) {
         int flag = 0;
         if (message != null && message.getAttribute() != null) {
@@ -33,4 +37,17 @@ public class MessageFlagUtils {
         return (flag & 0x1) == 1;
     }
 
+    public static int getCompressCodecId(final int flag) {
+        return (flag >>> COMPRESS_CODEC_SHIFT) & COMPRESS_CODEC_MASK;
+    }
+
+    public static boolean isCompressed(final int flag) {
+        return getCompressCodecId(flag) != 0;
+    }
+
+    public static int setCompressCodecId(final int flag, final int codecId) {
+        return (flag & ~(COMPRESS_CODEC_MASK << COMPRESS_CODEC_SHIFT))
+                | ((codecId & COMPRESS_CODEC_MASK) << COMPRESS_CODEC_SHIFT);
+    }
+
 }
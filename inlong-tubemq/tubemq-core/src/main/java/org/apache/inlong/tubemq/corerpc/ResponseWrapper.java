@@ -38,6 +38,7 @@ public class ResponseWrapper implements Serializable {
     private Object responseData;
     private String errMsg;
     private String stackTrace;
+    private transient RpcRegionAttachment regionAttachment;
 
     /**
      *  Initial a response wrapper object
@@ -198,4 +199,12 @@ public class ResponseWrapper implements Serializable {
         this.stackTrace = stackTrace;
     }
 
+    public RpcRegionAttachment getRegionAttachment() {
+        return regionAttachment;
+    }
+
+    public void setRegionAttachment(RpcRegionAttachment regionAttachment) {
+        this.regionAttachment = regionAttachment;
+    }
+
 }
@@ -17,13 +17,20 @@
 
 package org.apache.inlong.tubemq.corerpc;
 
+import io.netty.util.ReferenceCounted;
+
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 public class RpcDataPack {
 
     private int serialNo;
     private List<ByteBuffer> dataLst;
+    // the data regions sent after dataLst without copying
+    private List<RpcDataRegion> regionLst;
+    // the received buffers backing dataLst, released after the data is parsed
+    private List<ReferenceCounted> dataHolders;
 
     public RpcDataPack() {
 
@@ -50,4 +57,57 @@ public class RpcDataPack {
         this.dataLst = dataLst;
     }
 
+    /**
+     * Add a received data buffer which is a view of a reference counted buffer.
+     *
+     * @param data     the data view
+     * @param holder   the buffer holding the data, released by releaseData()
+     */
+    public void addData(ByteBuffer data, ReferenceCounted holder) {
+        this.dataLst.add(data);
+        if (holder != null) {
+            if (this.dataHolders == null) {
+                this.dataHolders = new ArrayList<>(4);
+            }
+            this.dataHolders.add(holder);
+        }
+    }
+
+    /**
+     * Release the received buffers backing the data list,
+     * the data views must not be accessed after the release.
+     */
+    public void releaseData() {
+        if (dataHolders != null) {
+            for (ReferenceCounted holder : dataHolders) {
+                holder.release();
+            }
+            dataHolders = null;
+        }
+    }
+
+    public List<RpcDataRegion> getRegionLst() {
+        return regionLst;
+    }
+
+    public void setRegionLst(List<RpcDataRegion> regionLst) {
+        this.regionLst = regionLst;
+    }
+
+    public boolean hasDataRegion() {
+        return (regionLst != null && !regionLst.isEmpty());
+    }
+
+    /**
+     * Release the data regions that have not been handed to the transport.
+     */
+    public void releaseRegions() {
+        if (regionLst != null) {
+            for (RpcDataRegion region : regionLst) {
+                region.release();
+            }
+            regionLst = null;
+        }
+    }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A region of data, such as a range of a store file, that is written to the
+ * remote peer straight from its source without being copied into the heap.
+ */
+public interface RpcDataRegion {
+
+    /**
+     * Get the total bytes of this region.
+     *
+     * @return    the region size
+     */
+    long size();
+
+    /**
+     * Transfer the region content to the target channel.
+     *
+     * @param target      the target channel
+     * @param position    the relative position within the region
+     * @return            the bytes transferred
+     * @throws IOException    the exception during transfer
+     */
+    long transferTo(WritableByteChannel target, long position) throws IOException;
+
+    /**
+     * Release the resources held by this region.
+     */
+    void release();
+}
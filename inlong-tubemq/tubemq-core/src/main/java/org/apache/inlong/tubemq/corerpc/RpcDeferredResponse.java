@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+/**
+ * The deferred response of the current RPC call.
+ *
+ * A service method calls {@link #defer()} to hold the request, its return value is
+ * ignored and the response is written when {@link #complete(Object)} is called, so the
+ * service thread is released while the request is pending, e.g. the long-polling fetch.
+ */
+public class RpcDeferredResponse {
+
+    private static final ThreadLocal<RpcDeferredResponse> CURRENT_DEFERRED =
+            new ThreadLocal<>();
+    private ResponseWriter writer;
+    private Object result;
+    private RpcRegionAttachment attachment;
+    private boolean completed = false;
+    private boolean written = false;
+
+    private RpcDeferredResponse() {
+
+    }
+
+    /**
+     * Defer the response of the RPC call being processed by the current thread.
+     *
+     * @return    the deferred response
+     */
+    public static RpcDeferredResponse defer() {
+        RpcDeferredResponse deferred = new RpcDeferredResponse();
+        CURRENT_DEFERRED.set(deferred);
+        return deferred;
+    }
+
+    /**
+     * Remove and return the deferred response of the current thread.
+     *
+     * @return    the deferred response, or null if not deferred
+     */
+    public static RpcDeferredResponse detach() {
+        RpcDeferredResponse deferred = CURRENT_DEFERRED.get();
+        if (deferred != null) {
+            CURRENT_DEFERRED.remove();
+        }
+        return deferred;
+    }
+
+    /**
+     * Complete the response with the result, the data regions attached by the
+     * current thread are sent with the result.
+     *
+     * @param result    the result of the RPC call
+     * @return          whether completed by this call, false if completed before
+     */
+    public boolean complete(Object result) {
+        RpcRegionAttachment curAttachment = RpcRegionAttachment.detach();
+        ResponseWriter curWriter;
+        synchronized (this) {
+            if (this.completed) {
+                if (curAttachment != null) {
+                    curAttachment.release();
+                }
+                return false;
+            }
+            this.completed = true;
+            this.result = result;
+            this.attachment = curAttachment;
+            curWriter = this.writer;
+            if (curWriter == null) {
+                return true;
+            }
+            this.written = true;
+        }
+        curWriter.write(result, curAttachment);
+        return true;
+    }
+
+    /**
+     * Bind the response writer, called by the rpc layer after the service method
+     * returns; the response is written at once if it has been completed.
+     *
+     * @param responseWriter    the writer to send the response
+     */
+    public void bindWriter(ResponseWriter responseWriter) {
+        synchronized (this) {
+            this.writer = responseWriter;
+            if (!this.completed || this.written) {
+                return;
+            }
+            this.written = true;
+        }
+        responseWriter.write(this.result, this.attachment);
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    public interface ResponseWriter {
+
+        void write(Object result, RpcRegionAttachment attachment);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+import java.util.List;
+
+/**
+ * The data regions attached to the response of the current RPC call.
+ *
+ * The regions are appended to the end of the encoded response as the content of
+ * a length-delimited protobuf field, so the peer parses them as an ordinary
+ * bytes field while the server streams them without copying.
+ */
+public class RpcRegionAttachment {
+
+    private static final ThreadLocal<RpcRegionAttachment> CURRENT_ATTACHMENT =
+            new ThreadLocal<>();
+    private final int fieldNumber;
+    private final List<RpcDataRegion> regionLst;
+    private final long totalSize;
+
+    private RpcRegionAttachment(int fieldNumber, List<RpcDataRegion> regionLst) {
+        long tmpSize = 0L;
+        for (RpcDataRegion region : regionLst) {
+            tmpSize += region.size();
+        }
+        this.fieldNumber = fieldNumber;
+        this.regionLst = regionLst;
+        this.totalSize = tmpSize;
+    }
+
+    /**
+     * Attach data regions to the response being built by the current thread.
+     *
+     * @param fieldNumber   the bytes field number of the response message
+     * @param regionLst     the data regions
+     */
+    public static void attach(int fieldNumber, List<RpcDataRegion> regionLst) {
+        RpcRegionAttachment befAttachment = CURRENT_ATTACHMENT.get();
+        if (befAttachment != null) {
+            befAttachment.release();
+        }
+        if (regionLst == null || regionLst.isEmpty()) {
+            CURRENT_ATTACHMENT.remove();
+            return;
+        }
+        CURRENT_ATTACHMENT.set(new RpcRegionAttachment(fieldNumber, regionLst));
+    }
+
+    /**
+     * Remove and return the attachment of the current thread.
+     *
+     * @return    the attachment, or null if not attached
+     */
+    public static RpcRegionAttachment detach() {
+        RpcRegionAttachment attachment = CURRENT_ATTACHMENT.get();
+        if (attachment != null) {
+            CURRENT_ATTACHMENT.remove();
+        }
+        return attachment;
+    }
+
+    public int getFieldNumber() {
+        return fieldNumber;
+    }
+
+    public List<RpcDataRegion> getRegionLst() {
+        return regionLst;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void release() {
+        for (RpcDataRegion region : regionLst) {
+            region.release();
+        }
+    }
+}
@@ -37,6 +37,7 @@ public class RcpService4BenchmarkClient {
     private final SimpleService simpleService;
     private int threadNum = 10;
     private int invokeTimes = 1000000;
+    private String echoMessage = "This is a test.";
 
     /**
      * Initial a benchmark client
@@ -64,8 +65,32 @@ public class RcpService4BenchmarkClient {
                 rpcServiceFactory.getService(SimpleService.class, brokerInfo, config);
     }
 
+    /**
+     * Initial a benchmark client with the echo message size
+     *
+     * @param targetHost    the target host
+     * @param targetPort    the target port
+     * @param threadNum     the thread count
+     * @param invokeTimes   the invoke count
+     * @param messageSize   the echo message size in bytes
+     */
+    public RcpService4BenchmarkClient(String targetHost, int targetPort, int threadNum,
+            int invokeTimes, int messageSize) {
+        this(targetHost, targetPort, threadNum, invokeTimes);
+        StringBuilder sBuilder = new StringBuilder(messageSize);
+        while (sBuilder.length() < messageSize) {
+            sBuilder.append((char) ('a' + sBuilder.length() % 26));
+        }
+        this.echoMessage = sBuilder.toString();
+    }
+
     public static void main(String[] args) throws Exception {
-        new RcpService4BenchmarkClient("127.0.0.1", 8088, 10, 100000).start();
+        if (args.length > 0) {
+            new RcpService4BenchmarkClient("127.0.0.1", 8088, 10, 100000,
+                    Integer.parseInt(args[0])).start();
+        } else {
+            new RcpService4BenchmarkClient("127.0.0.1", 8088, 10, 100000).start();
+        }
     }
 
     /**
@@ -81,7 +106,7 @@ public class RcpService4BenchmarkClient {
                 public void run() {
                     long startTime = System.currentTimeMillis();
                     for (int j = 0; j < invokeTimes; j++) {
-                        simpleService.echo("This is a test.");
+                        simpleService.echo(echoMessage);
                     }
                     System.out.println(Thread.currentThread().getName() + " execute " + invokeTimes);
                     long endTime = System.currentTimeMillis() - startTime;
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The process wide pool of size-classed, reference counted buffers.
+ *
+ * The rpc channels and the message store read and write paths allocate their
+ * transient buffers from this pool instead of the heap, the pool is Netty's
+ * arena based {@link PooledByteBufAllocator}, which keeps direct memory in
+ * per-thread caches and size classes, so the buffers must be released by the caller.
+ */
+public class NettyBufferPool {
+
+    // the metric item names
+    public static final String METRIC_USED_DIRECT_MEMORY = "used_direct_memory";
+    public static final String METRIC_USED_HEAP_MEMORY = "used_heap_memory";
+    public static final String METRIC_DIRECT_ARENAS = "direct_arenas";
+    public static final String METRIC_THREAD_CACHES = "thread_local_caches";
+    public static final String METRIC_CHUNK_SIZE = "chunk_size";
+    public static final String METRIC_ACTIVE_ALLOCATIONS = "active_allocations";
+    public static final String METRIC_ACTIVE_BYTES = "active_bytes";
+    public static final String METRIC_BUFFERS_ACQUIRED = "buffers_acquired";
+    public static final String METRIC_BUFFERS_RELEASED = "buffers_released";
+    public static final String METRIC_BUFFERS_OUTSTANDING = "buffers_outstanding";
+    public static final String METRIC_LEAKS_DETECTED = "leaks_detected";
+
+    private static final PooledByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+    private static final AtomicBoolean LEAK_COUNTER_INSTALLED = new AtomicBoolean(false);
+    private static final LongAdder acquiredCnt = new LongAdder();
+    private static final LongAdder releasedCnt = new LongAdder();
+    private static final LongAdder leakCnt = new LongAdder();
+
+    private NettyBufferPool() {
+    }
+
+    /**
+     * Install the leak detector factory which counts the reported buffer leaks.
+     *
+     * Netty creates the buffer leak detector when the buffer classes are loaded,
+     * so this method takes effect only if called at the beginning of the process.
+     */
+    public static void installLeakCounter() {
+        if (!LEAK_COUNTER_INSTALLED.compareAndSet(false, true)) {
+            return;
+        }
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(
+                new CountingLeakDetectorFactory());
+    }
+
+    public static ByteBufAllocator getAllocator() {
+        return ALLOCATOR;
+    }
+
+    /**
+     * Acquire a pooled direct buffer, the caller must release it by
+     * {@link #releaseBuffer(ByteBuf)}.
+     *
+     * @param capacity   the initial capacity of the buffer
+     * @return           the allocated buffer
+     */
+    public static ByteBuf acquireBuffer(int capacity) {
+        ByteBuf buf = ALLOCATOR.directBuffer(capacity);
+        acquiredCnt.increment();
+        return buf;
+    }
+
+    /**
+     * Release a buffer acquired by {@link #acquireBuffer(int)}.
+     *
+     * @param buf   the buffer to release, null is ignored
+     */
+    public static void releaseBuffer(ByteBuf buf) {
+        if (buf == null) {
+            return;
+        }
+        if (buf.release()) {
+            releasedCnt.increment();
+        }
+    }
+
+    public static long getLeakCount() {
+        return leakCnt.sum();
+    }
+
+    public static long getOutstandingCount() {
+        return acquiredCnt.sum() - releasedCnt.sum();
+    }
+
+    /**
+     * Get the occupancy and leak statistics of the pool.
+     *
+     * @param metricValues   the map to fill the metric values
+     */
+    public static void getValue(Map<String, Long> metricValues) {
+        PooledByteBufAllocatorMetric metric = ALLOCATOR.metric();
+        long activeAllocs = 0L;
+        long activeBytes = 0L;
+        List<PoolArenaMetric> arenas = metric.directArenas();
+        for (PoolArenaMetric arena : arenas) {
+            activeAllocs += arena.numActiveAllocations();
+            activeBytes += arena.numActiveBytes();
+        }
+        metricValues.put(METRIC_USED_DIRECT_MEMORY, metric.usedDirectMemory());
+        metricValues.put(METRIC_USED_HEAP_MEMORY, metric.usedHeapMemory());
+        metricValues.put(METRIC_DIRECT_ARENAS, (long) metric.numDirectArenas());
+        metricValues.put(METRIC_THREAD_CACHES, (long) metric.numThreadLocalCaches());
+        metricValues.put(METRIC_CHUNK_SIZE, (long) metric.chunkSize());
+        metricValues.put(METRIC_ACTIVE_ALLOCATIONS, activeAllocs);
+        metricValues.put(METRIC_ACTIVE_BYTES, activeBytes);
+        long acquired = acquiredCnt.sum();
+        long released = releasedCnt.sum();
+        metricValues.put(METRIC_BUFFERS_ACQUIRED, acquired);
+        metricValues.put(METRIC_BUFFERS_RELEASED, released);
+        metricValues.put(METRIC_BUFFERS_OUTSTANDING, acquired - released);
+        metricValues.put(METRIC_LEAKS_DETECTED, leakCnt.sum());
+    }
+
+    private static class CountingLeakDetectorFactory extends ResourceLeakDetectorFactory {
+
+        // the only abstract factory method, all the other variants delegate to it
+        @Override
+        @SuppressWarnings("deprecation")
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource,
+                int samplingInterval, long maxActive) {
+            return new CountingLeakDetector<>(resource, samplingInterval);
+        }
+    }
+
+    private static class CountingLeakDetector<T> extends ResourceLeakDetector<T> {
+
+        public CountingLeakDetector(Class<?> resourceType, int samplingInterval) {
+            super(resourceType, samplingInterval);
+        }
+
+        @Override
+        protected boolean needReport() {
+            // count the leaks even if the error log is disabled
+            return true;
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            leakCnt.increment();
+            super.reportTracedLeak(resourceType, records);
+        }
+
+        @Override
+        protected void reportUntracedLeak(String resourceType) {
+            leakCnt.increment();
+            super.reportUntracedLeak(resourceType);
+        }
+    }
+}
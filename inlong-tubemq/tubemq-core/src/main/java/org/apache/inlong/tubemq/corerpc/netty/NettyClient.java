@@ -361,8 +361,11 @@ public class NettyClient implements Client {
                             NettyClient.this.close();
                         }
                         callback.handleResult(responseWrapper);
+                    } finally {
+                        dataPack.releaseData();
                     }
                 } else {
+                    dataPack.releaseData();
                     if (logger.isDebugEnabled()) {
                         logger.debug("Missing previous call info, maybe it has been timeout.");
                     }
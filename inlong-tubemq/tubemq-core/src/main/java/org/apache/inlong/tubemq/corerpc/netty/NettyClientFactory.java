@@ -208,6 +208,7 @@ public class NettyClientFactory implements ClientFactory {
         Bootstrap clientBootstrap = new Bootstrap();
         clientBootstrap.group(eventLoopGroup);
         clientBootstrap.channel(EventLoopUtil.getClientSocketChannelClass(eventLoopGroup));
+        clientBootstrap.option(ChannelOption.ALLOCATOR, NettyBufferPool.getAllocator());
         clientBootstrap.option(ChannelOption.TCP_NODELAY, true);
         clientBootstrap.option(ChannelOption.SO_REUSEADDR, true);
         clientBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
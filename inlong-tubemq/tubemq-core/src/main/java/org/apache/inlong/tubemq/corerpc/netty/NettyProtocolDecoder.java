@@ -22,7 +22,6 @@ import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -30,7 +29,6 @@ import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -50,77 +48,114 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
     private static AtomicLong lastSizeTime = new AtomicLong(0);
     private boolean packHeaderRead = false;
     private int listSize;
-    private List<RpcDataPack> rpcDataPackList = new ArrayList<>();
     private RpcDataPack dataPack;
-    private ByteBuf lastByteBuf;
+    // the partial frame header or length field left by the last read
+    private ByteBuf fieldBuf;
+    // the data item spanning several reads, filled up to its max capacity before it is added to the pack
+    private ByteBuf pendingItem;
 
     @Override
-    protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-        buffer = convertToNewBuf(buffer);
-        while (buffer.readableBytes() > 0) {
+    protected void decode(ChannelHandlerContext ctx, ByteBuf input, List<Object> out) throws Exception {
+        // the items fully contained in the input are added to the pack as retained
+        // slices of the input, the pack owner releases them by RpcDataPack.releaseData()
+        while (input.isReadable()) {
+            if (pendingItem != null) {
+                pendingItem.writeBytes(input,
+                        Math.min(pendingItem.maxWritableBytes(), input.readableBytes()));
+                if (pendingItem.maxWritableBytes() > 0) {
+                    break;
+                }
+                ByteBuf item = pendingItem;
+                pendingItem = null;
+                addItem(item, out);
+                continue;
+            }
             if (!packHeaderRead) {
-                if (buffer.readableBytes() < 12) {
-                    saveRemainedByteBuf(buffer);
+                ByteBuf header = readField(input, 12);
+                if (header == null) {
                     break;
                 }
-                int frameToken = buffer.readInt();
+                int frameToken = header.readInt();
+                int serialNo = header.readInt();
+                int tmpListSize = header.readInt();
                 filterIllegalPkgToken(frameToken, RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, ctx.channel());
-                int serialNo = buffer.readInt();
-                int tmpListSize = buffer.readInt();
                 filterIllegalPackageSize(true, tmpListSize,
                         RpcConstants.MAX_FRAME_MAX_LIST_SIZE, ctx.channel());
                 this.listSize = tmpListSize;
                 this.dataPack = new RpcDataPack(serialNo, new ArrayList<>(this.listSize));
                 this.packHeaderRead = true;
+                if (this.listSize == 0) {
+                    completePack(out);
+                }
+                continue;
             }
             // get PackBody
-            if (buffer.readableBytes() < 4) {
-                saveRemainedByteBuf(buffer);
+            ByteBuf lengthField = readField(input, 4);
+            if (lengthField == null) {
                 break;
             }
-            buffer.markReaderIndex();
-            int length = buffer.readInt();
-            if (buffer.readableBytes() < length) {
-                buffer.resetReaderIndex();
-                saveRemainedByteBuf(buffer);
-                break;
-            }
-            ByteBuffer bb = ByteBuffer.allocate(length);
-            buffer.readBytes(bb);
-            bb.flip();
-            dataPack.getDataLst().add(bb);
-            if (dataPack.getDataLst().size() == listSize) {
-                packHeaderRead = false;
-                rpcDataPackList.add(dataPack);
+            int length = lengthField.readInt();
+            filterIllegalPackageSize(false, length, RpcConstants.MAX_FRAME_ITEM_SIZE, ctx.channel());
+            if (input.readableBytes() >= length) {
+                addItem(input.readRetainedSlice(length), out);
+            } else {
+                // the buffer grows with the received bytes up to the item length
+                pendingItem = NettyBufferPool.getAllocator()
+                        .directBuffer(input.readableBytes(), length);
             }
         }
-        if (rpcDataPackList.size() > 0) {
-            out.addAll(rpcDataPackList);
-            rpcDataPackList.clear();
-        }
     }
 
-    private void saveRemainedByteBuf(ByteBuf byteBuf) {
-        if (byteBuf != null && byteBuf.readableBytes() > 0) {
-            lastByteBuf = Unpooled.copiedBuffer(byteBuf);
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (fieldBuf != null) {
+            ReferenceCountUtil.release(fieldBuf);
+            fieldBuf = null;
         }
+        if (pendingItem != null) {
+            ReferenceCountUtil.release(pendingItem);
+            pendingItem = null;
+        }
+        if (dataPack != null) {
+            dataPack.releaseData();
+            dataPack = null;
+        }
+        super.handlerRemoved(ctx);
     }
 
-    private ByteBuf convertToNewBuf(ByteBuf byteBuf) {
-        ByteBuf newByteBuf = byteBuf;
-        int totalReadBytes = byteBuf.readableBytes();
-        if (lastByteBuf != null) {
-            try {
-                totalReadBytes += lastByteBuf.readableBytes();
-                newByteBuf = Unpooled.buffer(totalReadBytes);
-                newByteBuf.writeBytes(lastByteBuf);
-                newByteBuf.writeBytes(byteBuf);
-            } finally {
-                ReferenceCountUtil.release(lastByteBuf);
+    /**
+     * Read a fixed size field, the partial content is kept until the next read.
+     *
+     * @param input   the received buffer
+     * @param size    the field size
+     * @return the buffer to read the field from, or null if the field is incomplete
+     */
+    private ByteBuf readField(ByteBuf input, int size) {
+        if (fieldBuf == null || !fieldBuf.isReadable()) {
+            if (input.readableBytes() >= size) {
+                return input;
             }
-            lastByteBuf = null;
+            if (fieldBuf == null) {
+                fieldBuf = NettyBufferPool.getAllocator().heapBuffer(12, 12);
+            }
+            fieldBuf.clear();
+        }
+        fieldBuf.writeBytes(input,
+                Math.min(size - fieldBuf.readableBytes(), input.readableBytes()));
+        return fieldBuf.readableBytes() < size ? null : fieldBuf;
+    }
+
+    private void addItem(ByteBuf item, List<Object> out) {
+        dataPack.addData(item.nioBuffer(), item);
+        if (dataPack.getDataLst().size() == listSize) {
+            completePack(out);
         }
-        return newByteBuf;
+    }
+
+    private void completePack(List<Object> out) {
+        out.add(dataPack);
+        dataPack = null;
+        packHeaderRead = false;
     }
 
     private void filterIllegalPkgToken(int inParamValue, int allowTokenVal,
@@ -19,63 +19,95 @@ package org.apache.inlong.tubemq.corerpc.netty;
 
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.RpcDataRegion;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
 public class NettyProtocolEncoder extends MessageToMessageEncoder<RpcDataPack> {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyProtocolEncoder.class);
+    // data buffers not smaller than this are wrapped instead of copied
+    static final int WRAP_THRESHOLD_BYTES = 1024;
 
     @Override
     protected void encode(ChannelHandlerContext chx, RpcDataPack msg, List<Object> out) {
         RpcDataPack dataPack = msg;
-        try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
-            byteOut.write(getPackHeader(dataPack).array());
-            List<ByteBuffer> origs = dataPack.getDataLst();
-            Iterator<ByteBuffer> iter = origs.iterator();
-            while (iter.hasNext()) {
-                ByteBuffer entry = iter.next();
-                byteOut.write(getLengthHeader(entry).array());
-                byteOut.write(getLengthBody(entry));
+        List<ByteBuffer> origs = dataPack.getDataLst();
+        // the frame header, the length fields and the small data buffers are
+        // written once into a pooled buffer, the large data buffers are appended
+        // as composite components so that their content is never copied
+        int copyLen = 12;
+        int wrapCnt = 0;
+        for (ByteBuffer entry : origs) {
+            copyLen += 4;
+            if (entry.limit() < WRAP_THRESHOLD_BYTES) {
+                copyLen += entry.limit();
+            } else {
+                wrapCnt++;
             }
-            byte[] body = byteOut.toByteArray();
-            ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(body.length);
-            buf.writeBytes(body);
-            out.add(buf);
-        } catch (IOException e) {
+        }
+        ByteBufAllocator allocator = NettyBufferPool.getAllocator();
+        ByteBuf buf = allocator.directBuffer(copyLen);
+        CompositeByteBuf frame = null;
+        try {
+            buf.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+            buf.writeInt(dataPack.getSerialNo());
+            int listSize = origs.size();
+            if (dataPack.hasDataRegion()) {
+                listSize += dataPack.getRegionLst().size();
+            }
+            buf.writeInt(listSize);
+            if (wrapCnt > 0) {
+                frame = allocator.compositeDirectBuffer(2 * wrapCnt + 1);
+            }
+            int sliceStart = 0;
+            for (ByteBuffer entry : origs) {
+                ByteBuffer body = entry.duplicate();
+                body.rewind();
+                buf.writeInt(body.limit());
+                if (body.limit() < WRAP_THRESHOLD_BYTES) {
+                    buf.writeBytes(body);
+                } else {
+                    frame.addComponent(true,
+                            buf.retainedSlice(sliceStart, buf.writerIndex() - sliceStart));
+                    frame.addComponent(true, Unpooled.wrappedBuffer(body));
+                    sliceStart = buf.writerIndex();
+                }
+            }
+            if (frame != null) {
+                if (buf.writerIndex() > sliceStart) {
+                    frame.addComponent(true,
+                            buf.retainedSlice(sliceStart, buf.writerIndex() - sliceStart));
+                }
+                buf.release();
+            }
+        } catch (RuntimeException e) {
+            if (frame != null) {
+                frame.release();
+            }
+            buf.release();
+            dataPack.releaseRegions();
             logger.error("encode has exception ", e);
+            return;
+        }
+        out.add(frame == null ? buf : frame);
+        if (dataPack.hasDataRegion()) {
+            for (RpcDataRegion region : dataPack.getRegionLst()) {
+                ByteBuf lenBuf = allocator.directBuffer(4);
+                lenBuf.writeInt((int) region.size());
+                out.add(lenBuf);
+                out.add(new NettyDataRegion(region));
+            }
         }
-    }
-
-    private ByteBuffer getPackHeader(RpcDataPack dataPack) {
-        ByteBuffer header = ByteBuffer.allocate(12);
-        header.putInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
-        header.putInt(dataPack.getSerialNo());
-        header.putInt(dataPack.getDataLst().size());
-        header.flip();
-        return header;
-    }
-
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-        ByteBuffer header = ByteBuffer.allocate(4);
-        header.putInt(buf.limit());
-        header.flip();
-        return header;
-    }
-
-    private byte[] getLengthBody(ByteBuffer buf) {
-        return Arrays.copyOf(buf.array(), buf.limit());
     }
 }
@@ -21,10 +21,13 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
 import org.apache.inlong.tubemq.corerpc.RequestWrapper;
 import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.RpcRegionAttachment;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.server.RequestContext;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -68,6 +71,7 @@ public class NettyRequestContext implements RequestContext {
     public void write(ResponseWrapper response) throws Exception {
         RpcDataPack dataPack;
         if ((System.currentTimeMillis() - receiveTime) >= request.getTimeout()) {
+            releaseRegionAttachment(response);
             if (logger.isDebugEnabled()) {
                 logger.debug(new StringBuilder(512)
                         .append("Timeout,so give up send response to client.RequestId:")
@@ -80,6 +84,9 @@ public class NettyRequestContext implements RequestContext {
             return;
         }
         dataPack = new RpcDataPack(response.getSerialNo(), prepareResponse(response));
+        if (response.getRegionAttachment() != null) {
+            dataPack.setRegionLst(response.getRegionAttachment().getRegionLst());
+        }
         ChannelFuture wf = ctx.channel().writeAndFlush(dataPack);
         wf.addListener(new ChannelFutureListener() {
 
@@ -123,6 +130,10 @@ public class NettyRequestContext implements RequestContext {
                 rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.SUCCESS);
                 rpcBuilder.setProtocolVer(response.getProtocolVersion());
                 rpcBuilder.build().writeDelimitedTo(out);
+                if (response.getRegionAttachment() != null
+                        && writeRegionResponseBody(response, out)) {
+                    return buf.getBufferList();
+                }
                 RPCProtos.RspResponseBody.Builder dataBuilder =
                         RPCProtos.RspResponseBody.newBuilder();
                 dataBuilder.setMethod(response.getMethodId());
@@ -140,6 +151,7 @@ public class NettyRequestContext implements RequestContext {
                 }
                 dataBuilder.build().writeDelimitedTo(out);
             } else {
+                releaseRegionAttachment(response);
                 rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.ERROR);
                 rpcBuilder.setProtocolVer(response.getProtocolVersion());
                 rpcBuilder.build().writeDelimitedTo(out);
@@ -150,6 +162,7 @@ public class NettyRequestContext implements RequestContext {
                 b.build().writeDelimitedTo(out);
             }
         } catch (IOException e) {
+            releaseRegionAttachment(response);
             logger.warn(new StringBuilder(512)
                     .append("Exception while creating response ")
                     .append(e).toString());
@@ -157,6 +170,50 @@ public class NettyRequestContext implements RequestContext {
         return buf.getBufferList();
     }
 
+    /**
+     * Write the response body whose last bytes field content is carried by the
+     * attached data regions, only the field's tag and length are written here.
+     *
+     * @param response    the response with region attachment
+     * @param out         the output stream
+     * @return            whether the response body is written
+     */
+    private boolean writeRegionResponseBody(ResponseWrapper response,
+            DataOutputStream out) throws IOException {
+        RpcRegionAttachment attachment = response.getRegionAttachment();
+        byte[] rspData;
+        try {
+            rspData = PbEnDecoder.pbEncode(response.getResponseData());
+        } catch (Throwable ee) {
+            releaseRegionAttachment(response);
+            return false;
+        }
+        int regionSize = (int) attachment.getTotalSize();
+        int dataSize = rspData.length
+                + CodedOutputStream.computeTagSize(attachment.getFieldNumber())
+                + CodedOutputStream.computeUInt32SizeNoTag(regionSize) + regionSize;
+        int bodySize = CodedOutputStream.computeInt32Size(1, response.getMethodId())
+                + CodedOutputStream.computeTagSize(2)
+                + CodedOutputStream.computeUInt32SizeNoTag(dataSize) + dataSize;
+        CodedOutputStream codedOut = CodedOutputStream.newInstance(out);
+        codedOut.writeUInt32NoTag(bodySize);
+        codedOut.writeInt32(1, response.getMethodId());
+        codedOut.writeTag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        codedOut.writeUInt32NoTag(dataSize);
+        codedOut.writeRawBytes(rspData);
+        codedOut.writeTag(attachment.getFieldNumber(), WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        codedOut.writeUInt32NoTag(regionSize);
+        codedOut.flush();
+        return true;
+    }
+
+    private void releaseRegionAttachment(ResponseWrapper response) {
+        if (response.getRegionAttachment() != null) {
+            response.getRegionAttachment().release();
+            response.setRegionAttachment(null);
+        }
+    }
+
     @Override
     public long getReceiveTime() {
         return this.receiveTime;
@@ -132,6 +132,8 @@ public class NettyRpcServer implements ServiceRpcServer {
         bootstrap.channel(EventLoopUtil.getServerSocketChannelClass(workerGroup));
         EventLoopUtil.enableTriggeredMode(bootstrap);
         bootstrap.group(acceptorGroup, workerGroup);
+        bootstrap.option(ChannelOption.ALLOCATOR, NettyBufferPool.getAllocator());
+        bootstrap.childOption(ChannelOption.ALLOCATOR, NettyBufferPool.getAllocator());
         bootstrap.childOption(ChannelOption.TCP_NODELAY,
                 conf.getBoolean(RpcConstants.TCP_NODELAY, true));
         bootstrap.childOption(ChannelOption.SO_REUSEADDR,
@@ -329,6 +331,9 @@ public class NettyRpcServer implements ServiceRpcServer {
                     channel.writeAndFlush(dataPack);
                 }
                 return;
+            } finally {
+                // the request content has been copied out by the parser
+                dataPack.releaseData();
             }
             try {
                 RequestWrapper requestWrapper =
@@ -21,6 +21,8 @@ import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corerpc.RequestWrapper;
 import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDeferredResponse;
+import org.apache.inlong.tubemq.corerpc.RpcRegionAttachment;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.ServiceStoppingException;
 import org.apache.inlong.tubemq.corerpc.exception.StandbyException;
@@ -149,11 +151,28 @@ public class RpcProtocol implements Protocol {
             }
             Object result =
                     method.invoke(processor, requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            RpcDeferredResponse deferred = RpcDeferredResponse.detach();
+            if (deferred != null) {
+                // the response is written when the service completes it
+                RpcRegionAttachment attachment = RpcRegionAttachment.detach();
+                if (attachment != null) {
+                    attachment.release();
+                }
+                deferred.bindWriter((deferredResult, deferredAttachment) -> writeDeferredResponse(
+                        context, requestWrapper, deferredResult, deferredAttachment));
+                return;
+            }
             responseWrapper =
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
+            responseWrapper.setRegionAttachment(RpcRegionAttachment.detach());
         } catch (Throwable e2) {
+            RpcDeferredResponse.detach();
+            RpcRegionAttachment attachment = RpcRegionAttachment.detach();
+            if (attachment != null) {
+                attachment.release();
+            }
             String errorClass = null;
             String errorInfo = null;
             if (e2.getCause() != null && e2.getCause() instanceof StandbyException) {
@@ -177,4 +196,18 @@ public class RpcProtocol implements Protocol {
         }
     }
 
+    private void writeDeferredResponse(RequestContext context, RequestWrapper requestWrapper,
+            Object result, RpcRegionAttachment attachment) {
+        ResponseWrapper responseWrapper =
+                new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
+                        requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
+                        RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
+        responseWrapper.setRegionAttachment(attachment);
+        try {
+            context.write(responseWrapper);
+        } catch (Exception e) {
+            logger.error("Write deferred response error!", e);
+        }
+    }
+
 }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.compress;
+
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CompressUtilsTest {
+
+    @Test
+    public void testCompressRoundTrip() throws Exception {
+        byte[] data = buildData(4096);
+        for (CompressCodec codec : CompressCodec.values()) {
+            if (codec == CompressCodec.NONE) {
+                continue;
+            }
+            byte[] compressed = CompressUtils.compress(codec, data);
+            Assert.assertTrue(compressed.length < data.length);
+            Assert.assertEquals(data.length,
+                    CompressUtils.getRawLength(compressed, 0, compressed.length));
+            Assert.assertArrayEquals(codec.getName(), data,
+                    CompressUtils.decompress(codec, compressed, 0, compressed.length));
+        }
+    }
+
+    @Test
+    public void testDecompressInvalidData() throws Exception {
+        byte[] compressed = CompressUtils.compress(CompressCodec.LZ4, buildData(4096));
+        // the raw length exceeds the max message size
+        ByteBuffer.wrap(compressed).putInt(TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT + 1);
+        for (CompressCodec codec : CompressCodec.values()) {
+            if (codec == CompressCodec.NONE) {
+                continue;
+            }
+            try {
+                CompressUtils.decompress(codec, compressed, 0, compressed.length);
+                Assert.fail("oversized raw length should be rejected by " + codec.getName());
+            } catch (IOException e) {
+                // expected
+            }
+        }
+        // the truncated lz4 data is rejected instead of read beyond its end
+        compressed = CompressUtils.compress(CompressCodec.LZ4, buildData(4096));
+        try {
+            CompressUtils.decompress(CompressCodec.LZ4, compressed, 0, compressed.length / 2);
+            Assert.fail("truncated lz4 data should be rejected");
+        } catch (IOException | RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompressPayloadKeepAttribute() throws Exception {
+        byte[] attr = "msgtime=202310150000".getBytes(StandardCharsets.UTF_8);
+        byte[] body = buildData(2048);
+        byte[] payload = ByteBuffer.allocate(4 + attr.length + body.length)
+                .putInt(attr.length).put(attr).put(body).array();
+        byte[] compressed = CompressUtils.compressPayload(CompressCodec.ZSTD, 1, payload);
+        Assert.assertNotNull(compressed);
+        Assert.assertArrayEquals(Arrays.copyOfRange(payload, 0, 4 + attr.length),
+                Arrays.copyOfRange(compressed, 0, 4 + attr.length));
+        Assert.assertEquals(payload.length,
+                CompressUtils.getRawPayloadSize(1, compressed, 0, compressed.length));
+        ByteBuffer readOnlyPayload = ByteBuffer.wrap(compressed).asReadOnlyBuffer();
+        Assert.assertEquals(payload.length,
+                CompressUtils.getRawPayloadSize(1, readOnlyPayload));
+        Assert.assertEquals(0, readOnlyPayload.position());
+        // incompressible data is not compressed
+        byte[] smallPayload = "a".getBytes(StandardCharsets.UTF_8);
+        Assert.assertNull(CompressUtils.compressPayload(CompressCodec.SNAPPY, 0, smallPayload));
+    }
+
+    @Test
+    public void testCodecFlag() {
+        int flag = MessageFlagUtils.setCompressCodecId(1, CompressCodec.ZSTD.getId());
+        Assert.assertTrue(MessageFlagUtils.hasAttribute(flag));
+        Assert.assertTrue(MessageFlagUtils.isCompressed(flag));
+        Assert.assertEquals(CompressCodec.ZSTD,
+                CompressCodec.valueOf(MessageFlagUtils.getCompressCodecId(flag)));
+        flag = MessageFlagUtils.setCompressCodecId(flag, CompressCodec.NONE.getId());
+        Assert.assertEquals(1, flag);
+        Assert.assertEquals(CompressCodec.LZ4, CompressCodec.forName(" LZ4 "));
+        Assert.assertEquals(CompressCodec.NONE, CompressCodec.forName(""));
+    }
+
+    private byte[] buildData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + (i % 7));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RpcDeferredResponseTest {
+
+    @Test
+    public void testCompleteAfterBind() {
+        RpcDeferredResponse deferred = RpcDeferredResponse.defer();
+        Assert.assertSame(deferred, RpcDeferredResponse.detach());
+        Assert.assertNull(RpcDeferredResponse.detach());
+        List<Object> results = new ArrayList<>();
+        deferred.bindWriter((result, attachment) -> results.add(result));
+        Assert.assertTrue(results.isEmpty());
+        Assert.assertTrue(deferred.complete("first"));
+        Assert.assertFalse(deferred.complete("second"));
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals("first", results.get(0));
+    }
+
+    @Test
+    public void testCompleteBeforeBind() {
+        RpcDeferredResponse deferred = RpcDeferredResponse.defer();
+        RpcDeferredResponse.detach();
+        Assert.assertTrue(deferred.complete("result"));
+        Assert.assertTrue(deferred.isCompleted());
+        List<Object> results = new ArrayList<>();
+        deferred.bindWriter((result, attachment) -> results.add(result));
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals("result", results.get(0));
+    }
+}
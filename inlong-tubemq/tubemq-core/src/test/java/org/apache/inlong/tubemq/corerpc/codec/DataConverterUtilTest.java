@@ -17,19 +17,30 @@
 
 package org.apache.inlong.tubemq.corerpc.codec;
 
+import org.apache.inlong.tubemq.corebase.Message;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 
+import com.google.protobuf.ByteString;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -76,4 +87,62 @@ public class DataConverterUtilTest {
 
     }
 
+    @Test
+    public void testConvertRawMessage() {
+        byte[] payload1 = "message-1".getBytes();
+        byte[] payload2 = "message-22".getBytes();
+        ByteBuffer rawBuffer = ByteBuffer.allocate(
+                2 * 52 + payload1.length + payload2.length + 52 + payload1.length);
+        putStoreFrame(rawBuffer, 1L, payload1, CheckSum.crc32(payload1));
+        putStoreFrame(rawBuffer, 2L, payload2, 0);
+        putStoreFrame(rawBuffer, 3L, payload1, CheckSum.crc32(payload1));
+        rawBuffer.flip();
+        List<Message> messages =
+                DataConverterUtil.convertRawMessage("tube", ByteString.copyFrom(rawBuffer.duplicate()));
+        // the frame with wrong checksum is skipped
+        assertEquals(2, messages.size());
+        assertEquals("tube", messages.get(0).getTopic());
+        assertEquals("message-1", new String(messages.get(0).getData()));
+        assertEquals("message-1", new String(messages.get(1).getData()));
+        // truncated frame is ignored
+        rawBuffer.limit(rawBuffer.limit() - 1);
+        messages = DataConverterUtil.convertRawMessage("tube", ByteString.copyFrom(rawBuffer.duplicate()));
+        assertEquals(1, messages.size());
+    }
+
+    @Test
+    public void testConvertCompressedMessage() throws Exception {
+        byte[] attr = "k1=v1".getBytes();
+        byte[] body = new byte[1024];
+        Arrays.fill(body, (byte) 'a');
+        ByteBuffer payload = ByteBuffer.allocate(4 + attr.length + body.length);
+        payload.putInt(attr.length).put(attr).put(body);
+        int flag = MessageFlagUtils.setCompressCodecId(1, CompressCodec.LZ4.getId());
+        byte[] compressed = CompressUtils.compressPayload(CompressCodec.LZ4, flag, payload.array());
+        ClientBroker.TransferedMessage trsMessage = ClientBroker.TransferedMessage.newBuilder()
+                .setMessageId(1L).setFlag(flag)
+                .setCheckSum(CheckSum.crc32(compressed))
+                .setPayLoadData(ByteString.copyFrom(compressed)).build();
+        List<Message> messages = DataConverterUtil.convertMessage("tube",
+                Collections.singletonList(trsMessage));
+        assertEquals(1, messages.size());
+        assertEquals("k1=v1", messages.get(0).getAttribute());
+        assertArrayEquals(body, messages.get(0).getData());
+        assertEquals(1, messages.get(0).getFlag());
+    }
+
+    private void putStoreFrame(ByteBuffer buffer, long msgId, byte[] payload, int checkSum) {
+        buffer.putInt(48 + payload.length);
+        buffer.putInt(0x2C998B8);
+        buffer.putInt(checkSum);
+        buffer.putInt(0);
+        buffer.putLong(0L);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(0);
+        buffer.putInt(0);
+        buffer.putLong(msgId);
+        buffer.putInt(0);
+        buffer.put(payload);
+    }
+
 }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * NettyBufferPool test.
+ */
+public class NettyBufferPoolTest {
+
+    @Test
+    public void acquireAndRelease() {
+        long outstanding = NettyBufferPool.getOutstandingCount();
+        ByteBuf buf = NettyBufferPool.acquireBuffer(1024);
+        Assert.assertTrue(buf.isDirect());
+        Assert.assertTrue(buf.capacity() >= 1024);
+        Assert.assertEquals(outstanding + 1, NettyBufferPool.getOutstandingCount());
+        Map<String, Long> metricValues = new LinkedHashMap<>();
+        NettyBufferPool.getValue(metricValues);
+        Assert.assertTrue(metricValues.get(NettyBufferPool.METRIC_ACTIVE_ALLOCATIONS) > 0);
+        Assert.assertTrue(metricValues.get(NettyBufferPool.METRIC_USED_DIRECT_MEMORY) > 0);
+        NettyBufferPool.releaseBuffer(buf);
+        Assert.assertEquals(outstanding, NettyBufferPool.getOutstandingCount());
+        // the released buffer and null are ignored
+        NettyBufferPool.releaseBuffer(null);
+        Assert.assertEquals(outstanding, NettyBufferPool.getOutstandingCount());
+        metricValues.clear();
+        NettyBufferPool.getValue(metricValues);
+        Assert.assertEquals(outstanding,
+                metricValues.get(NettyBufferPool.METRIC_BUFFERS_OUTSTANDING).longValue());
+        Assert.assertEquals(0L,
+                metricValues.get(NettyBufferPool.METRIC_LEAKS_DETECTED).longValue());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NettyProtocolDecoder test.
+ */
+public class NettyProtocolDecoderTest {
+
+    @Test
+    public void decodeWholeFrame() {
+        List<ByteBuffer> dataList = buildDataList();
+        ByteBuf frame = encodeFrame(new RpcDataPack(789, dataList));
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolDecoder());
+        channel.writeInbound(frame);
+        RpcDataPack dataPack = channel.readInbound();
+        verifyDataPack(789, dataList, dataPack);
+        Assert.assertNull(channel.readInbound());
+        channel.finish();
+    }
+
+    @Test
+    public void decodeSplitFrames() {
+        List<ByteBuffer> dataList = buildDataList();
+        ByteBuf frames = NettyBufferPool.getAllocator().directBuffer();
+        for (int i = 0; i < 3; i++) {
+            ByteBuf frame = encodeFrame(new RpcDataPack(i, dataList));
+            frames.writeBytes(frame);
+            frame.release();
+        }
+        // feed the frames in small pieces, so that the headers, the length
+        // fields and the data items all span several reads
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolDecoder());
+        while (frames.isReadable()) {
+            channel.writeInbound(frames.readRetainedSlice(Math.min(7, frames.readableBytes())));
+        }
+        frames.release();
+        for (int i = 0; i < 3; i++) {
+            RpcDataPack dataPack = channel.readInbound();
+            verifyDataPack(i, dataList, dataPack);
+        }
+        Assert.assertNull(channel.readInbound());
+        channel.finish();
+    }
+
+    @Test
+    public void rejectOversizedItem() {
+        ByteBuf frame = NettyBufferPool.getAllocator().heapBuffer(20);
+        frame.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+        frame.writeInt(1);
+        frame.writeInt(1);
+        frame.writeInt(RpcConstants.MAX_FRAME_ITEM_SIZE + 1);
+        frame.writeInt(0);
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolDecoder());
+        try {
+            channel.writeInbound(frame);
+            Assert.fail("the oversized item should be rejected");
+        } catch (DecoderException e) {
+            Assert.assertTrue(e.getCause() instanceof UnknownProtocolException);
+        }
+        channel.finish();
+    }
+
+    @Test
+    public void encodeWrapsLargeData() {
+        List<ByteBuffer> dataList = buildDataList();
+        List<Object> out = new ArrayList<>();
+        new NettyProtocolEncoder().encode(null, new RpcDataPack(1, dataList), out);
+        Assert.assertEquals(1, out.size());
+        Assert.assertTrue(out.get(0) instanceof CompositeByteBuf);
+        ByteBuf frame = (ByteBuf) out.get(0);
+        int expectLen = 12;
+        for (ByteBuffer data : dataList) {
+            expectLen += 4 + data.limit();
+        }
+        Assert.assertEquals(expectLen, frame.readableBytes());
+        frame.release();
+    }
+
+    private List<ByteBuffer> buildDataList() {
+        List<ByteBuffer> dataList = new ArrayList<>();
+        dataList.add(ByteBuffer.wrap("header".getBytes()));
+        byte[] largeData = new byte[3 * NettyProtocolEncoder.WRAP_THRESHOLD_BYTES];
+        for (int i = 0; i < largeData.length; i++) {
+            largeData[i] = (byte) i;
+        }
+        dataList.add(ByteBuffer.wrap(largeData));
+        dataList.add(ByteBuffer.allocate(0));
+        dataList.add(ByteBuffer.wrap("tail".getBytes()));
+        return dataList;
+    }
+
+    private ByteBuf encodeFrame(RpcDataPack dataPack) {
+        List<Object> out = new ArrayList<>();
+        new NettyProtocolEncoder().encode(null, dataPack, out);
+        Assert.assertEquals(1, out.size());
+        return (ByteBuf) out.get(0);
+    }
+
+    private void verifyDataPack(int serialNo, List<ByteBuffer> expected, RpcDataPack dataPack) {
+        Assert.assertNotNull(dataPack);
+        Assert.assertEquals(serialNo, dataPack.getSerialNo());
+        Assert.assertEquals(expected.size(), dataPack.getDataLst().size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).duplicate().rewind(),
+                    dataPack.getDataLst().get(i));
+        }
+        dataPack.releaseData();
+    }
+}
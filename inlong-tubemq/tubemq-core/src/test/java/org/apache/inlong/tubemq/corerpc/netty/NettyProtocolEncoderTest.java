@@ -18,15 +18,22 @@
 package org.apache.inlong.tubemq.corerpc.netty;
 
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.RpcDataRegion;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * NettyProtocolEncoder test.
@@ -58,4 +65,57 @@ public class NettyProtocolEncoderTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void encodeWithDataRegion() throws Exception {
+        NettyProtocolEncoder nettyProtocolEncoder = new NettyProtocolEncoder();
+        final byte[] regionData = "region-data".getBytes();
+        final AtomicBoolean released = new AtomicBoolean(false);
+        RpcDataRegion region = new RpcDataRegion() {
+
+            @Override
+            public long size() {
+                return regionData.length;
+            }
+
+            @Override
+            public long transferTo(WritableByteChannel target, long position) throws IOException {
+                return target.write(ByteBuffer.wrap(regionData,
+                        (int) position, regionData.length - (int) position));
+            }
+
+            @Override
+            public void release() {
+                released.set(true);
+            }
+        };
+        List<ByteBuffer> dataList = new LinkedList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes()));
+        RpcDataPack obj = new RpcDataPack(456, dataList);
+        List<RpcDataRegion> regionList = new ArrayList<>();
+        regionList.add(region);
+        obj.setRegionLst(regionList);
+        List<Object> out = new ArrayList<>();
+        nettyProtocolEncoder.encode(null, obj, out);
+        Assert.assertEquals(3, out.size());
+        // the list size in header counts the data regions
+        ByteBuf buf = (ByteBuf) out.get(0);
+        buf.readInt();
+        Assert.assertEquals(456, buf.readInt());
+        Assert.assertEquals(2, buf.readInt());
+        buf.release();
+        ByteBuf lenBuf = (ByteBuf) out.get(1);
+        Assert.assertEquals(regionData.length, lenBuf.readInt());
+        lenBuf.release();
+        // the region content is transferred by the file region
+        FileRegion fileRegion = (FileRegion) out.get(2);
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(byteOut);
+        while (fileRegion.transferred() < fileRegion.count()) {
+            fileRegion.transferTo(channel, fileRegion.transferred());
+        }
+        Assert.assertArrayEquals(regionData, byteOut.toByteArray());
+        fileRegion.release();
+        Assert.assertTrue(released.get());
+    }
 }
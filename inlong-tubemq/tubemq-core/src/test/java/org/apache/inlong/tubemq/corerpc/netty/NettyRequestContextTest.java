@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
+import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDataRegion;
+import org.apache.inlong.tubemq.corerpc.RpcRegionAttachment;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NettyRequestContext test.
+ */
+public class NettyRequestContextTest {
+
+    @Test
+    public void prepareResponseWithRegions() throws Exception {
+        ClientBroker.GetMessageResponseB2C rspB2C =
+                ClientBroker.GetMessageResponseB2C.newBuilder()
+                        .setSuccess(true).setErrCode(200).setErrMsg("OK!")
+                        .setCurrOffset(100L).build();
+        final byte[] regionData1 = "region-1".getBytes();
+        final byte[] regionData2 = "region-22".getBytes();
+        List<RpcDataRegion> regionList = new ArrayList<>();
+        regionList.add(new BytesRegion(regionData1));
+        regionList.add(new BytesRegion(regionData2));
+        ResponseWrapper response = new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
+                10, RpcConstants.RPC_SERVICE_TYPE_BROKER_READ_SERVICE, 3, 2, rspB2C);
+        RpcRegionAttachment.attach(
+                ClientBroker.GetMessageResponseB2C.RAWMSGDATA_FIELD_NUMBER, regionList);
+        response.setRegionAttachment(RpcRegionAttachment.detach());
+        NettyRequestContext context = new NettyRequestContext(null, null, 0L);
+        List<ByteBuffer> buffers = new ArrayList<>(context.prepareResponse(response));
+        Assert.assertNotNull(response.getRegionAttachment());
+        // the peer receives the regions just after the encoded buffers
+        buffers.add(ByteBuffer.wrap(regionData1));
+        buffers.add(ByteBuffer.wrap(regionData2));
+        ByteBufferInputStream in = new ByteBufferInputStream(buffers);
+        RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
+        RPCProtos.ResponseHeader rspHeader = RPCProtos.ResponseHeader.parseDelimitedFrom(in);
+        Assert.assertEquals(RPCProtos.ResponseHeader.Status.SUCCESS, rspHeader.getStatus());
+        RPCProtos.RspResponseBody rspBody = RPCProtos.RspResponseBody.parseDelimitedFrom(in);
+        Assert.assertEquals(2, rspBody.getMethod());
+        ClientBroker.GetMessageResponseB2C result =
+                ClientBroker.GetMessageResponseB2C.parseFrom(rspBody.getData());
+        Assert.assertEquals(100L, result.getCurrOffset());
+        Assert.assertEquals("OK!", result.getErrMsg());
+        Assert.assertEquals("region-1region-22", result.getRawMsgData().toStringUtf8());
+    }
+
+    private static class BytesRegion implements RpcDataRegion {
+
+        private final byte[] data;
+
+        BytesRegion(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public long transferTo(WritableByteChannel target, long position) throws IOException {
+            return target.write(ByteBuffer.wrap(data, (int) position, data.length - (int) position));
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+}
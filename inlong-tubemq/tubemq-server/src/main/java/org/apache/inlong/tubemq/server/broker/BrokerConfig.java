@@ -18,6 +18,8 @@
 package org.apache.inlong.tubemq.server.broker;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MixedUtils;
@@ -36,6 +38,10 @@ import org.ini4j.Profile.Section;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
 import static java.lang.Math.abs;
 
 /**
@@ -129,6 +135,50 @@ public class BrokerConfig extends AbstractFileConfig {
             TServerConstants.CFG_DEFAULT_GROUP_OFFSET_SCAN_DUR;
     // whether to enable the memory cache storage, the default is true, open the memory cache
     private boolean enableMemStore = true;
+    // whether to send file data to consumers by zero-copy transfer if the consumer supports it
+    private boolean enableZeroCopyRead = true;
+    // the default compression codec of the messages not compressed by producers
+    private CompressCodec defCompressCodec = CompressCodec.NONE;
+    // the compression codecs of specified topics, configured as "topicA:lz4;topicB:zstd"
+    private Map<String, CompressCodec> topicCompressCodecs = new HashMap<>();
+    // the min message size to be compressed by broker
+    private int compressMinDataSize = 256;
+    // the max time to hold a fetch request without new data, 0 disables the long polling
+    private long maxFetchWaitMs = 5000L;
+    // whether to read the index segments through memory mapped files
+    private boolean enableIndexMmap = false;
+    // the read-ahead size of the memory mapped index segments, 0 disables the read-ahead
+    private int indexReadAheadSize = 128 * 1024;
+    // the window to coalesce the threshold triggered file flushes on a disk, 0 flushes inline
+    private long flushGroupCommitWindowMs = 10L;
+    // the storage of the consume group offsets, "zk" or "file"
+    private String offsetStorageType = "zk";
+    // the directory of the file offset storage, default <primaryPath>/.offsets
+    private String offsetStorePath = "";
+    // the period to replicate the changed group offsets snapshots of the file storage to ZooKeeper
+    private long offsetZkSyncPeriodMs = 60000L;
+    // the max fetched bytes per second of the broker, 0 means no limit
+    private long brokerFetchRateLimit = 0L;
+    // the max fetched bytes per second of each topic, 0 means no limit
+    private long topicFetchRateLimit = 0L;
+    // the max fetched bytes per second of each consume group, 0 means no limit
+    private long groupFetchRateLimit = 0L;
+    // the fetch rate limits of specified groups, configured as "groupA:1048576;groupB:2097152"
+    private Map<String, Long> groupFetchRateLimits = new HashMap<>();
+    // the burst size of the fetch rate limits, in milliseconds of the rate
+    private long fetchRateBurstMs = 1000L;
+    // whether to offload the aged segments to the tiered object store
+    private boolean tieredStoreEnable = false;
+    // the root directory of the local file system object store
+    private String tieredStorePath = "";
+    // the max time the segments are kept on the local disk before offloaded
+    private long tieredLocalRetentionMs = 6 * 3600 * 1000L;
+    // the directory of the cached remote segments, default <primaryPath>/.tiered-cache
+    private String tieredCachePath = "";
+    // the max total size of the cached remote segments
+    private long tieredCacheSize = 1024 * 1024 * 1024L;
+    // the max count of stores loaded and recovered in parallel at startup
+    private int storeRecoveryThreads = Runtime.getRuntime().availableProcessors() + 1;
 
     public BrokerConfig() {
         super();
@@ -138,6 +188,98 @@ public class BrokerConfig extends AbstractFileConfig {
         return enableMemStore;
     }
 
+    public boolean isEnableZeroCopyRead() {
+        return enableZeroCopyRead;
+    }
+
+    public CompressCodec getDefCompressCodec() {
+        return defCompressCodec;
+    }
+
+    public Map<String, CompressCodec> getTopicCompressCodecs() {
+        return topicCompressCodecs;
+    }
+
+    public int getCompressMinDataSize() {
+        return compressMinDataSize;
+    }
+
+    public long getMaxFetchWaitMs() {
+        return maxFetchWaitMs;
+    }
+
+    public boolean isEnableIndexMmap() {
+        return enableIndexMmap;
+    }
+
+    public int getIndexReadAheadSize() {
+        return indexReadAheadSize;
+    }
+
+    public long getFlushGroupCommitWindowMs() {
+        return flushGroupCommitWindowMs;
+    }
+
+    public boolean isFileOffsetStorage() {
+        return "file".equals(offsetStorageType);
+    }
+
+    public String getOffsetStorageType() {
+        return offsetStorageType;
+    }
+
+    public String getOffsetStorePath() {
+        return offsetStorePath;
+    }
+
+    public long getOffsetZkSyncPeriodMs() {
+        return offsetZkSyncPeriodMs;
+    }
+
+    public long getBrokerFetchRateLimit() {
+        return brokerFetchRateLimit;
+    }
+
+    public long getTopicFetchRateLimit() {
+        return topicFetchRateLimit;
+    }
+
+    public long getGroupFetchRateLimit() {
+        return groupFetchRateLimit;
+    }
+
+    public Map<String, Long> getGroupFetchRateLimits() {
+        return groupFetchRateLimits;
+    }
+
+    public long getFetchRateBurstMs() {
+        return fetchRateBurstMs;
+    }
+
+    public boolean isTieredStoreEnable() {
+        return tieredStoreEnable;
+    }
+
+    public String getTieredStorePath() {
+        return tieredStorePath;
+    }
+
+    public long getTieredLocalRetentionMs() {
+        return tieredLocalRetentionMs;
+    }
+
+    public String getTieredCachePath() {
+        return tieredCachePath;
+    }
+
+    public long getTieredCacheSize() {
+        return tieredCacheSize;
+    }
+
+    public int getStoreRecoveryThreads() {
+        return storeRecoveryThreads;
+    }
+
     public boolean isUpdateConsumerOffsets() {
         return this.updateConsumerOffsets;
     }
@@ -403,6 +545,142 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("enableMemStore"))) {
             this.enableMemStore = this.getBoolean(brokerSect, "enableMemStore");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableZeroCopyRead"))) {
+            this.enableZeroCopyRead = this.getBoolean(brokerSect, "enableZeroCopyRead");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("defCompressCodec"))) {
+            this.defCompressCodec = CompressCodec.forName(brokerSect.get("defCompressCodec"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("topicCompressCodecs"))) {
+            this.topicCompressCodecs =
+                    parseTopicCompressCodecs(brokerSect.get("topicCompressCodecs"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("compressMinDataSize"))) {
+            this.compressMinDataSize = Math.max(0, getInt(brokerSect, "compressMinDataSize"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("maxFetchWaitMs"))) {
+            this.maxFetchWaitMs = Math.max(0, getLong(brokerSect, "maxFetchWaitMs"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableIndexMmap"))) {
+            this.enableIndexMmap = this.getBoolean(brokerSect, "enableIndexMmap");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("indexReadAheadSize"))) {
+            this.indexReadAheadSize = Math.max(0, getInt(brokerSect, "indexReadAheadSize"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("flushGroupCommitWindowMs"))) {
+            this.flushGroupCommitWindowMs =
+                    MixedUtils.mid(getLong(brokerSect, "flushGroupCommitWindowMs"), 0L, 1000L);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetStorageType"))) {
+            this.offsetStorageType = brokerSect.get("offsetStorageType").trim().toLowerCase();
+            if (!"zk".equals(this.offsetStorageType)
+                    && !"file".equals(this.offsetStorageType)) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("Illegal offsetStorageType value ").append(this.offsetStorageType)
+                        .append(" in ").append(SECT_TOKEN_BROKER)
+                        .append(" section, the allowed values are zk or file!").toString());
+            }
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetStorePath"))) {
+            this.offsetStorePath = brokerSect.get("offsetStorePath").trim();
+        } else {
+            this.offsetStorePath = new StringBuilder(256)
+                    .append(this.primaryPath).append(File.separator).append(".offsets").toString();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("offsetZkSyncPeriodMs"))) {
+            this.offsetZkSyncPeriodMs =
+                    Math.max(1000L, getLong(brokerSect, "offsetZkSyncPeriodMs"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("brokerFetchRateLimit"))) {
+            this.brokerFetchRateLimit = Math.max(0L, getLong(brokerSect, "brokerFetchRateLimit"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("topicFetchRateLimit"))) {
+            this.topicFetchRateLimit = Math.max(0L, getLong(brokerSect, "topicFetchRateLimit"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("groupFetchRateLimit"))) {
+            this.groupFetchRateLimit = Math.max(0L, getLong(brokerSect, "groupFetchRateLimit"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("groupFetchRateLimits"))) {
+            this.groupFetchRateLimits =
+                    parseGroupFetchRateLimits(brokerSect.get("groupFetchRateLimits"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("fetchRateBurstMs"))) {
+            this.fetchRateBurstMs =
+                    MixedUtils.mid(getLong(brokerSect, "fetchRateBurstMs"), 10L, 60000L);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredStoreEnable"))) {
+            this.tieredStoreEnable = this.getBoolean(brokerSect, "tieredStoreEnable");
+        }
+        if (this.tieredStoreEnable) {
+            if (TStringUtils.isBlank(brokerSect.get("tieredStorePath"))) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("Require tieredStorePath not Blank in ").append(SECT_TOKEN_BROKER)
+                        .append(" section while tieredStoreEnable is true!").toString());
+            }
+            this.tieredStorePath = brokerSect.get("tieredStorePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredLocalRetentionMs"))) {
+            this.tieredLocalRetentionMs =
+                    Math.max(60000L, getLong(brokerSect, "tieredLocalRetentionMs"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredCachePath"))) {
+            this.tieredCachePath = brokerSect.get("tieredCachePath").trim();
+        } else {
+            this.tieredCachePath = new StringBuilder(256)
+                    .append(this.primaryPath).append(File.separator).append(".tiered-cache").toString();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredCacheSize"))) {
+            this.tieredCacheSize =
+                    Math.max(64 * 1024 * 1024L, getLong(brokerSect, "tieredCacheSize"));
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("storeRecoveryThreads"))) {
+            this.storeRecoveryThreads =
+                    MixedUtils.mid(getInt(brokerSect, "storeRecoveryThreads"), 1, 256);
+        }
+    }
+
+    private Map<String, Long> parseGroupFetchRateLimits(String strGroupLimits) {
+        Map<String, Long> groupLimits = new HashMap<>();
+        for (String strGroupLimit : strGroupLimits.split(TokenConstants.LOG_SEG_SEP)) {
+            if (TStringUtils.isBlank(strGroupLimit)) {
+                continue;
+            }
+            String[] strItems = strGroupLimit.trim().split(TokenConstants.ATTR_SEP);
+            long rateLimit = -1L;
+            if (strItems.length == 2 && TStringUtils.isNotBlank(strItems[0])) {
+                try {
+                    rateLimit = Long.parseLong(strItems[1].trim());
+                } catch (NumberFormatException e) {
+                    //
+                }
+            }
+            if (rateLimit < 0) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("Illegal groupFetchRateLimits value ").append(strGroupLimits)
+                        .append(" in ").append(SECT_TOKEN_BROKER)
+                        .append(" section, the format is groupA:1048576;groupB:2097152!").toString());
+            }
+            groupLimits.put(strItems[0].trim(), rateLimit);
+        }
+        return groupLimits;
+    }
+
+    private Map<String, CompressCodec> parseTopicCompressCodecs(String strTopicCodecs) {
+        Map<String, CompressCodec> topicCodecs = new HashMap<>();
+        for (String strTopicCodec : strTopicCodecs.split(TokenConstants.LOG_SEG_SEP)) {
+            if (TStringUtils.isBlank(strTopicCodec)) {
+                continue;
+            }
+            String[] strItems = strTopicCodec.trim().split(TokenConstants.ATTR_SEP);
+            if (strItems.length != 2 || TStringUtils.isBlank(strItems[0])) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("Illegal topicCompressCodecs value ").append(strTopicCodecs)
+                        .append(" in ").append(SECT_TOKEN_BROKER)
+                        .append(" section, the format is topicA:lz4;topicB:zstd!").toString());
+            }
+            topicCodecs.put(strItems[0].trim(), CompressCodec.forName(strItems[1]));
+        }
+        return topicCodecs;
     }
 
     public long getLogClearupDurationMs() {
@@ -22,13 +22,17 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
+import org.apache.inlong.tubemq.corebase.compress.CompressUtils;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchedMessage;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.MessageSentItem;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageRequestP2B;
@@ -39,15 +43,21 @@ import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
 import org.apache.inlong.tubemq.corebase.utils.DateTimeConvertUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDeferredResponse;
+import org.apache.inlong.tubemq.corerpc.RpcRegionAttachment;
 import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
 import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
 import org.apache.inlong.tubemq.server.Server;
+import org.apache.inlong.tubemq.server.broker.flowctrl.FetchRateLimiter;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.BatchAppendItem;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
@@ -119,6 +129,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             new ConsumerTimeoutListener();
     // status of broker service.
     private AtomicBoolean started = new AtomicBoolean(false);
+    // rate limiter of the fetch requests.
+    private final FetchRateLimiter fetchRateLimiter;
 
     public BrokerServiceServer(final TubeBroker tubeBroker,
             final BrokerConfig tubeConfig) {
@@ -134,6 +146,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         this.putCounterGroup = new TrafficStatsService("PutCounterGroup", "Producer", 60 * 1000);
         this.getCounterGroup = new TrafficStatsService("GetCounterGroup", "Consumer", 60 * 1000);
         this.heartbeatManager = new HeartbeatManager();
+        this.fetchRateLimiter = new FetchRateLimiter(tubeConfig);
         this.brokerRowLock =
                 new RowLock("Broker-RowLock", this.tubeConfig.getRowLockWaitDurMs());
         heartbeatManager.regConsumerCheckBusiness(
@@ -239,6 +252,10 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         return consumerRegisterMap;
     }
 
+    public FetchRateLimiter getFetchRateLimiter() {
+        return fetchRateLimiter;
+    }
+
     /**
      * Get consumer's info by store key.
      *
@@ -279,6 +296,31 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     public GetMessageResponseB2C getMessagesC2B(GetMessageRequestC2B request,
             final String rmtAddress,
             boolean overtls) throws Throwable {
+        long fetchDeadline = 0L;
+        if (request.hasMaxWaitMs()
+                && request.getMaxWaitMs() > 0
+                && tubeConfig.getMaxFetchWaitMs() > 0) {
+            fetchDeadline = System.currentTimeMillis()
+                    + Math.min(request.getMaxWaitMs(), tubeConfig.getMaxFetchWaitMs());
+        }
+        return processGetMessages(request, rmtAddress, overtls, fetchDeadline, null);
+    }
+
+    /**
+     * Process consumer's getMessageRequest, the request is held if there is no new data
+     * and the fetch deadline has not expired.
+     *
+     * @param request          the request
+     * @param rmtAddress       the remote node address
+     * @param overtls          whether over TLS
+     * @param fetchDeadline    the deadline to hold the request, 0 if not allowed
+     * @param deferred         the deferred response if the request has been held
+     * @return                 the response message, null if the request is held
+     * @throws Throwable       the exception during processing
+     */
+    private GetMessageResponseB2C processGetMessages(final GetMessageRequestC2B request,
+            final String rmtAddress, final boolean overtls,
+            final long fetchDeadline, final RpcDeferredResponse deferred) throws Throwable {
         final long startTime = System.currentTimeMillis();
         final GetMessageResponseB2C.Builder builder =
                 GetMessageResponseB2C.newBuilder();
@@ -320,6 +362,10 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         final String topicName = (String) result.getRetData();
         final int partitionId = request.getPartitionId();
         boolean isEscFlowCtrl = request.hasEscFlowCtrl() && request.getEscFlowCtrl();
+        // zero-copy transfer is unavailable over TLS, the data must be encrypted in user space
+        boolean isZeroCopyRead = !overtls
+                && tubeConfig.isEnableZeroCopyRead()
+                && request.hasSupportRawData() && request.getSupportRawData();
         String partStr = getPartStr(groupName, topicName, partitionId);
         String consumerId = null;
         ConsumerNodeInfo consumerNodeInfo = consumerRegisterMap.get(partStr);
@@ -371,13 +417,15 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         // query data from store manager.
         boolean isGetStore = false;
         MessageStore dataStore = null;
+        GetMessageResult msgResult = null;
         try {
             dataStore = this.storeManager.getOrCreateMessageStore(topicName, partitionId);
             isGetStore = true;
-            GetMessageResult msgResult =
+            msgResult =
                     getMessages(dataStore, consumerNodeInfo, groupName, topicName, partitionId,
                             request.getLastPackConsumed(), request.getManualCommitOffset(),
-                            clientId, this.tubeConfig.getHostName(), rmtAddrInfo, isEscFlowCtrl, strBuffer);
+                            clientId, this.tubeConfig.getHostName(), rmtAddrInfo,
+                            isEscFlowCtrl, isZeroCopyRead, strBuffer);
             if (msgResult.isSuccess) {
                 long endTime = System.currentTimeMillis();
                 consumerNodeInfo.setLastProcInfo(endTime,
@@ -394,14 +442,34 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 builder.addAllMessages(msgResult.transferedMessageList);
                 builder.setMaxOffset(msgResult.getMaxOffset());
                 BrokerSrvStatsHolder.updGetMsgLatency(endTime - startTime);
-                return builder.build();
+                GetMessageResponseB2C response = builder.build();
+                if (!msgResult.dataRegionList.isEmpty()) {
+                    // the stored data is appended to the response by the rpc layer,
+                    // which releases the regions after they are sent
+                    RpcRegionAttachment.attach(GetMessageResponseB2C.RAWMSGDATA_FIELD_NUMBER,
+                            msgResult.dataRegionList);
+                }
+                return response;
             } else {
+                // the regions read before the failure are not sent
+                msgResult.releaseDataRegions();
+                if (msgResult.getRetCode() == TErrCodeConstants.NOT_FOUND
+                        && msgResult.reqOffset >= dataStore.getIndexMaxOffset()) {
+                    if (holdFetchRequest(request, rmtAddress, overtls, dataStore,
+                            topicName, partitionId, msgResult.reqOffset, fetchDeadline, deferred)) {
+                        return null;
+                    }
+                    builder.setLongPolled(deferred != null);
+                }
                 builder.setErrCode(msgResult.getRetCode());
                 builder.setErrMsg(msgResult.getErrInfo());
                 builder.setMinLimitTime((int) msgResult.waitTime);
                 return builder.build();
             }
         } catch (Throwable ee) {
+            if (msgResult != null) {
+                msgResult.releaseDataRegions();
+            }
             strBuffer.delete(0, strBuffer.length());
             builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
             if (isGetStore) {
@@ -421,6 +489,58 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Hold the fetch request in the pending fetch manager, the request is re-executed
+     * when new messages arrive in the partition or the deadline expires.
+     *
+     * @param request          the request
+     * @param rmtAddress       the remote node address
+     * @param overtls          whether over TLS
+     * @param dataStore        the message store of the partition
+     * @param topicName        the topic name
+     * @param partitionId      the partition id
+     * @param reqOffset        the request offset that found no new messages
+     * @param fetchDeadline    the deadline to hold the request
+     * @param deferred         the deferred response if the request has been held
+     * @return                 whether the request is held
+     */
+    private boolean holdFetchRequest(final GetMessageRequestC2B request,
+            final String rmtAddress, final boolean overtls,
+            final MessageStore dataStore, String topicName, int partitionId,
+            long reqOffset, final long fetchDeadline, RpcDeferredResponse deferred) {
+        long waitMs = fetchDeadline - System.currentTimeMillis();
+        if (fetchDeadline <= 0 || waitMs <= 0) {
+            return false;
+        }
+        final RpcDeferredResponse deferredRsp =
+                (deferred == null) ? RpcDeferredResponse.defer() : deferred;
+        boolean isHeld = storeManager.getPendingFetchManager().holdFetch(
+                topicName, partitionId, reqOffset, dataStore::getIndexMaxOffset, waitMs, () -> {
+                    GetMessageResponseB2C response;
+                    try {
+                        response = processGetMessages(request,
+                                rmtAddress, overtls, fetchDeadline, deferredRsp);
+                    } catch (Throwable ex) {
+                        RpcRegionAttachment attachment = RpcRegionAttachment.detach();
+                        if (attachment != null) {
+                            attachment.release();
+                        }
+                        logger.warn("[GetMessage] process held fetch request failure", ex);
+                        response = GetMessageResponseB2C.newBuilder()
+                                .setSuccess(false)
+                                .setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR)
+                                .setErrMsg("Process held fetch request failure!").build();
+                    }
+                    if (response != null) {
+                        deferredRsp.complete(response);
+                    }
+                });
+        if (!isHeld && deferred == null) {
+            RpcDeferredResponse.detach();
+        }
+        return isHeld;
+    }
+
     /**
      * Query offset, then read data.
      *
@@ -435,6 +555,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
      * @param brokerAddr              the broker ip
      * @param rmtAddrInfo             the remote address
      * @param isEscFlowCtrl           whether escape flow control
+     * @param isZeroCopyRead          whether read file data as zero-copy regions
      * @param sb                      the string buffer
      * @return    the query result
      * @throws IOException the exception during processing
@@ -445,7 +566,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             final int partitionId, final boolean lastConsumed,
             final boolean isManualCommitOffset, final String sentAddr,
             final String brokerAddr, final String rmtAddrInfo,
-            boolean isEscFlowCtrl, final StringBuilder sb) throws IOException {
+            boolean isEscFlowCtrl, boolean isZeroCopyRead,
+            final StringBuilder sb) throws IOException {
         long requestOffset =
                 offsetManager.getOffset(msgStore, group, topic,
                         partitionId, isManualCommitOffset, lastConsumed, sb);
@@ -467,20 +589,40 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                         requestOffset, 0, "RpcServer consume speed limit!");
             }
         }
+        if (fetchRateLimiter.isEnabled()) {
+            long waitMs = fetchRateLimiter.checkAllowed(group, topic);
+            if (waitMs > 0) {
+                // the wait time is returned as the min limit time, the client retries after it
+                if (consumerNodeInfo.isSupportLimit()) {
+                    return new GetMessageResult(false, TErrCodeConstants.SERVER_CONSUME_SPEED_LIMIT,
+                            requestOffset, 0, waitMs, "RpcServer fetch rate limit!");
+                } else {
+                    return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
+                            requestOffset, 0, waitMs, "RpcServer fetch rate limit!");
+                }
+            }
+        }
+        GetMessageResult msgQueryResult = null;
         try {
             String baseKey = sb.append(topic).append("#").append(brokerAddr)
                     .append("#").append(sentAddr).append("#").append(rmtAddrInfo)
                     .append("#").append(group).append("#").append(partitionId).toString();
             sb.delete(0, sb.length());
-            GetMessageResult msgQueryResult =
+            msgQueryResult =
                     msgStore.getMessages(reqSwitch, requestOffset,
-                            partitionId, consumerNodeInfo, baseKey, msgDataSizeLimit, 0);
+                            partitionId, consumerNodeInfo, baseKey, msgDataSizeLimit, 0, isZeroCopyRead);
             offsetManager.bookOffset(group, topic, partitionId,
                     msgQueryResult.lastReadOffset, isManualCommitOffset,
-                    msgQueryResult.transferedMessageList.isEmpty(), sb);
+                    !msgQueryResult.hasMessages(), sb);
+            if (fetchRateLimiter.isEnabled()) {
+                fetchRateLimiter.consume(group, topic, msgQueryResult.totalMsgSize);
+            }
             msgQueryResult.setWaitTime(maxDataOffset - msgQueryResult.lastRdDataOffset);
             return msgQueryResult;
         } catch (Throwable e1) {
+            if (msgQueryResult != null) {
+                msgQueryResult.releaseDataRegions();
+            }
             sb.delete(0, sb.length());
             logger.warn(sb.append("[Store Manager] get message failure, requestOffset=")
                     .append(requestOffset).append(",group=").append(group).append(",topic=").append(topic)
@@ -626,6 +768,10 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             return builder.build();
         }
         final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
+        if (request.getBatchedMsgsCount() > 0) {
+            return sendBatchMessages(request, rmtAddress, certifiedInfo,
+                    topicMetadata, startTime, strBuffer, builder);
+        }
         final String topicName = topicMetadata.getTopic();
         String msgType = null;
         int msgTypeCode = -1;
@@ -633,8 +779,9 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             msgType = request.getMsgType().trim();
             msgTypeCode = msgType.hashCode();
         }
-        final byte[] msgData = request.getData().toByteArray();
-        final int dataLength = msgData.length;
+        // read the message data in place instead of copying it out of the request
+        final ByteBuffer msgData = request.getData().asReadOnlyByteBuffer();
+        final int dataLength = msgData.remaining();
         if (dataLength <= 0) {
             builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
             builder.setErrMsg("data length is zero!");
@@ -662,12 +809,17 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             builder.setErrMsg(result.getErrMsg());
             return builder.build();
         }
+        final Tuple2<Integer, ByteBuffer> storeMsg =
+                compressMsgData(topicMetadata, request.getFlag(), msgData);
+        final ByteBuffer storeData = storeMsg.getF1();
+        final int storeCheckSum = (storeData == msgData) ? checkSum : CheckSum.crc32(storeData);
         try {
             final MessageStore store =
                     this.storeManager.getOrCreateMessageStore(topicName, partitionId);
             final AppendResult appendResult = new AppendResult();
-            if (store.appendMsg(appendResult, dataLength, checkSum, msgData,
-                    msgTypeCode, request.getFlag(), partitionId, request.getSentAddr())) {
+            if (store.appendMsg(appendResult, storeCheckSum, storeData,
+                    msgTypeCode, storeMsg.getF0(), partitionId, request.getSentAddr())) {
+                addMsgCompressStats(store, storeMsg.getF0(), storeData);
                 String baseKey = strBuffer.append(topicName)
                         .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
                         .append("#").append(tubeConfig.getHostName())
@@ -706,6 +858,220 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Compress the message data by the compression codec of the topic, the messages
+     * already compressed by producer or smaller than the threshold are kept as is.
+     *
+     * The message data is copied to a heap array only if it is to be compressed.
+     *
+     * @param topicMetadata   the topic metadata
+     * @param msgFlag         the message flag
+     * @param msgData         the buffer whose remaining bytes are the message data
+     * @return                the message flag and data to be stored, the data is
+     *                        msgData itself if it is not compressed
+     */
+    private Tuple2<Integer, ByteBuffer> compressMsgData(TopicMetadata topicMetadata,
+            int msgFlag, ByteBuffer msgData) {
+        final CompressCodec codec = topicMetadata.getCompressCodec();
+        if (codec == CompressCodec.NONE
+                || MessageFlagUtils.isCompressed(msgFlag)
+                || msgData.remaining() < tubeConfig.getCompressMinDataSize()) {
+            return new Tuple2<>(msgFlag, msgData);
+        }
+        try {
+            final byte[] rawData = new byte[msgData.remaining()];
+            msgData.duplicate().get(rawData);
+            byte[] compressed = CompressUtils.compressPayload(codec, msgFlag, rawData);
+            if (compressed != null) {
+                return new Tuple2<>(MessageFlagUtils.setCompressCodecId(
+                        msgFlag, codec.getId()), ByteBuffer.wrap(compressed));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Compress message failed, store it uncompressed", e);
+        }
+        return new Tuple2<>(msgFlag, msgData);
+    }
+
+    /**
+     * Add the compression statistics of the stored message.
+     *
+     * @param store      the message store
+     * @param msgFlag    the stored message flag
+     * @param msgData    the buffer whose remaining bytes are the stored message data
+     */
+    private void addMsgCompressStats(MessageStore store, int msgFlag, ByteBuffer msgData) {
+        if (!MessageFlagUtils.isCompressed(msgFlag)) {
+            return;
+        }
+        try {
+            store.getMsgStoreStatsHolder().addMsgCompressStats(
+                    CompressUtils.getRawPayloadSize(msgFlag, msgData), msgData.remaining());
+        } catch (IOException e) {
+            // the data compressed by producer is invalid, skip its statistics
+        }
+    }
+
+    /**
+     * Handle producer's batched sendMessage request.
+     *
+     * The messages are checked one by one, the valid messages are appended to store in
+     * one batch, and the result of each message is returned in sentItems in request order.
+     *
+     * @param request         the request
+     * @param rmtAddress      the remote ip
+     * @param certifiedInfo   the certified information of the producer
+     * @param topicMetadata   the topic metadata
+     * @param startTime       the start time of the request
+     * @param strBuffer       the string buffer
+     * @param builder         the response builder
+     * @return                the response
+     */
+    private SendMessageResponseB2P sendBatchMessages(SendMessageRequestP2B request,
+            String rmtAddress, CertifiedInfo certifiedInfo,
+            TopicMetadata topicMetadata, long startTime,
+            StringBuilder strBuffer, SendMessageResponseB2P.Builder builder) {
+        final String topicName = topicMetadata.getTopic();
+        final int partitionId = request.getPartitionId();
+        // the first message is carried in the legacy fields of the request
+        List<BatchedMessage> batchedMsgs =
+                new ArrayList<>(request.getBatchedMsgsCount() + 1);
+        BatchedMessage.Builder firstBuilder = BatchedMessage.newBuilder();
+        firstBuilder.setData(request.getData());
+        firstBuilder.setFlag(request.getFlag());
+        firstBuilder.setCheckSum(request.getCheckSum());
+        if (request.hasMsgType()) {
+            firstBuilder.setMsgType(request.getMsgType());
+        }
+        if (request.hasMsgTime()) {
+            firstBuilder.setMsgTime(request.getMsgTime());
+        }
+        batchedMsgs.add(firstBuilder.build());
+        batchedMsgs.addAll(request.getBatchedMsgsList());
+        // check messages
+        ProcessResult result = new ProcessResult();
+        MessageSentItem[] sentItems = new MessageSentItem[batchedMsgs.size()];
+        List<Integer> validIndexes = new ArrayList<>(batchedMsgs.size());
+        List<BatchAppendItem> appendItems = new ArrayList<>(batchedMsgs.size());
+        for (int index = 0; index < batchedMsgs.size(); index++) {
+            BatchedMessage batchedMsg = batchedMsgs.get(index);
+            String msgType = null;
+            int msgTypeCode = -1;
+            if (TStringUtils.isNotBlank(batchedMsg.getMsgType())) {
+                msgType = batchedMsg.getMsgType().trim();
+                msgTypeCode = msgType.hashCode();
+            }
+            final ByteBuffer msgData = batchedMsg.getData().asReadOnlyByteBuffer();
+            if (msgData.remaining() <= 0) {
+                sentItems[index] = buildFailureSentItem(
+                        TErrCodeConstants.BAD_REQUEST, "data length is zero!");
+                continue;
+            }
+            if (msgData.remaining() > topicMetadata.getMaxMsgSize()) {
+                sentItems[index] = buildFailureSentItem(TErrCodeConstants.BAD_REQUEST,
+                        strBuffer.append("data length over max length, allowed max length is ")
+                                .append(topicMetadata.getMaxMsgSize())
+                                .append(", data length is ").append(msgData.remaining()).toString());
+                strBuffer.delete(0, strBuffer.length());
+                continue;
+            }
+            int checkSum = CheckSum.crc32(msgData);
+            if (batchedMsg.getCheckSum() != -1 && checkSum != batchedMsg.getCheckSum()) {
+                sentItems[index] = buildFailureSentItem(TErrCodeConstants.FORBIDDEN,
+                        strBuffer.append("Checksum msg data failure: ")
+                                .append(batchedMsg.getCheckSum()).append(" of ").append(topicName)
+                                .append(" not equal to the data's checksum of ")
+                                .append(checkSum).toString());
+                strBuffer.delete(0, strBuffer.length());
+                continue;
+            }
+            if (!serverAuthHandler.validProduceAuthorizeInfo(
+                    certifiedInfo.getUserName(), topicName, msgType, rmtAddress, result)) {
+                sentItems[index] = buildFailureSentItem(result.getErrCode(), result.getErrMsg());
+                continue;
+            }
+            final Tuple2<Integer, ByteBuffer> storeMsg =
+                    compressMsgData(topicMetadata, batchedMsg.getFlag(), msgData);
+            final ByteBuffer storeData = storeMsg.getF1();
+            validIndexes.add(index);
+            appendItems.add(new BatchAppendItem(storeData,
+                    (storeData == msgData) ? checkSum : CheckSum.crc32(storeData),
+                    msgTypeCode, storeMsg.getF0()));
+        }
+        // append valid messages to store
+        int appendCnt = 0;
+        MessageStore store = null;
+        if (!appendItems.isEmpty()) {
+            try {
+                store = this.storeManager.getOrCreateMessageStore(topicName, partitionId);
+                appendCnt = store.appendMsgs(appendItems, partitionId, request.getSentAddr());
+            } catch (final Throwable ex) {
+                logger.error("Put batch messages failed ", ex);
+                builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+                builder.setErrMsg(strBuffer.append("Put message failed from ")
+                        .append(tubeConfig.getHostName()).append(" ")
+                        .append((ex.getMessage() != null ? ex.getMessage() : " ")).toString());
+                return builder.build();
+            }
+        }
+        for (int itemIdx = 0; itemIdx < appendItems.size(); itemIdx++) {
+            int index = validIndexes.get(itemIdx);
+            if (itemIdx >= appendCnt) {
+                sentItems[index] = buildFailureSentItem(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW,
+                        strBuffer.append("Put message failed from ")
+                                .append(tubeConfig.getHostName())
+                                .append(", server receive message overflow!").toString());
+                strBuffer.delete(0, strBuffer.length());
+                continue;
+            }
+            BatchedMessage batchedMsg = batchedMsgs.get(index);
+            BatchAppendItem appendItem = appendItems.get(itemIdx);
+            AppendResult appendResult = appendItem.getAppendResult();
+            int dataLength = batchedMsg.getData().size();
+            addMsgCompressStats(store, appendItem.getMsgFlag(), appendItem.getData());
+            String baseKey = strBuffer.append(topicName)
+                    .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
+                    .append("#").append(tubeConfig.getHostName())
+                    .append("#").append(partitionId)
+                    .append("#").append(batchedMsg.getMsgTime()).toString();
+            strBuffer.delete(0, strBuffer.length());
+            putCounterGroup.add(baseKey, 1L, dataLength);
+            AuditUtils.addProduceRecord(topicName,
+                    batchedMsg.getMsgType(), batchedMsg.getMsgTime(), 1, dataLength);
+            MessageSentItem.Builder itemBuilder = MessageSentItem.newBuilder();
+            itemBuilder.setSuccess(true);
+            itemBuilder.setErrCode(TErrCodeConstants.SUCCESS);
+            itemBuilder.setErrMsg("Ok");
+            itemBuilder.setMessageId(appendResult.getMsgId());
+            itemBuilder.setAppendTime(appendResult.getAppendTime());
+            itemBuilder.setAppendOffset(appendResult.getAppendIndexOffset());
+            sentItems[index] = itemBuilder.build();
+        }
+        // the request is processed, the top fields mirror the first message's result
+        builder.setSuccess(true);
+        builder.setRequireAuth(certifiedInfo.isReAuth());
+        builder.setErrCode(TErrCodeConstants.SUCCESS);
+        builder.setErrMsg("Ok");
+        MessageSentItem firstItem = sentItems[0];
+        if (firstItem.getSuccess()) {
+            builder.setMessageId(firstItem.getMessageId());
+            builder.setAppendTime(firstItem.getAppendTime());
+            builder.setAppendOffset(firstItem.getAppendOffset());
+        }
+        for (MessageSentItem sentItem : sentItems) {
+            builder.addSentItems(sentItem);
+        }
+        BrokerSrvStatsHolder.updSendMsgLatency(System.currentTimeMillis() - startTime);
+        return builder.build();
+    }
+
+    private MessageSentItem buildFailureSentItem(int errCode, String errMsg) {
+        MessageSentItem.Builder itemBuilder = MessageSentItem.newBuilder();
+        itemBuilder.setSuccess(false);
+        itemBuilder.setErrCode(errCode);
+        itemBuilder.setErrMsg(errMsg);
+        return itemBuilder.build();
+    }
+
     /**
      * append group current offset to storage
      *
@@ -1054,6 +1420,9 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             }
             heartbeatManager.unRegConsumerNode(
                     getHeartbeatNodeId(clientId, partStr));
+            // wake the fetch the consumer left held and drop the partition's queue
+            storeManager.getPendingFetchManager()
+                    .removePartition(topicName, request.getPartitionId());
         } catch (Exception e) {
             strBuffer.delete(0, strBuffer.length());
             String message = strBuffer.append("Unregister consumer:")
@@ -1338,6 +1707,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                         long updatedOffset =
                                 offsetManager.commitOffset(groupTopicPart[0],
                                         groupTopicPart[1], Integer.parseInt(groupTopicPart[2]), false);
+                        storeManager.getPendingFetchManager().removePartition(
+                                groupTopicPart[1], Integer.parseInt(groupTopicPart[2]));
                         logger.info(strBuffer.append("[Consumer-Partition Timeout]")
                                 .append(nodeId).append(",updatedOffset=")
                                 .append(updatedOffset).toString());
@@ -128,7 +128,8 @@ public class TubeBroker implements Stoppable {
         this.tubeConfig = tubeConfig;
         this.brokerId = generateBrokerClientId();
         BrokerJMXHolder.registerMXBean();
-        this.metadataManager = new BrokerMetadataManager();
+        this.metadataManager = new BrokerMetadataManager(
+                tubeConfig.getDefCompressCodec(), tubeConfig.getTopicCompressCodecs());
         this.offsetManager = new DefaultOffsetManager(tubeConfig);
         this.storeManager = new MessageStoreManager(this, tubeConfig);
         this.serverAuthHandler = new SimpleCertificateBrokerHandler(this);
@@ -381,13 +382,24 @@ public class TubeBroker implements Stoppable {
                     .append(",curMaxMsgSize=").append(ClusterConfigHolder.getMaxMsgSize())
                     .append(",brokerDefaultConfInfo=")
                     .append(response.getBrokerDefaultConfInfo())
+                    .append(",confDelta=").append(response.getConfDelta())
                     .append(",brokerTopicSetConfList=")
-                    .append(response.getBrokerTopicSetConfInfoList()).toString());
+                    .append(response.getBrokerTopicSetConfInfoList())
+                    .append(",deltaRemovedTopics=")
+                    .append(response.getDeltaRemovedTopicsList()).toString());
             strBuff.delete(0, strBuff.length());
-            metadataManager
-                    .updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
-                            response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
-                            response.getBrokerTopicSetConfInfoList(), false, strBuff);
+            if (response.getConfDelta()) {
+                metadataManager
+                        .updateBrokerTopicConfigDelta(response.getCurBrokerConfId(),
+                                response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
+                                response.getBrokerTopicSetConfInfoList(),
+                                response.getDeltaRemovedTopicsList(), strBuff);
+            } else {
+                metadataManager
+                        .updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
+                                response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
+                                response.getBrokerTopicSetConfInfoList(), false, strBuff);
+            }
         }
         // update auth info
         if (response.hasBrokerAuthorizedInfo()) {
@@ -579,6 +591,8 @@ public class TubeBroker implements Stoppable {
         builder.setQryPriorityId(flowCtrlRuleHandler.getQryPriorityId());
         builder.setTakeConfInfo(false);
         builder.setTakeRemovedTopicInfo(false);
+        // ask for the full configure if the last merged delta diverged
+        builder.setSupportConfDelta(metadataManager.isConfSynchronized());
         List<String> removedTopics = this.metadataManager.getHardRemovedTopics();
         if (!removedTopics.isEmpty()) {
             builder.setTakeRemovedTopicInfo(true);
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.flowctrl;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The broker side rate limiter of the fetch requests.
+ *
+ * The fetched bytes are limited by hierarchical token buckets of the broker, the topics
+ * and the consume groups, a request is served only if all of its buckets have tokens,
+ * otherwise the longest wait time is returned to the consumer as the retry-after hint.
+ */
+public class FetchRateLimiter {
+
+    private final long burstMs;
+    private final TokenBucket brokerBucket;
+    private final long topicRateLimit;
+    private final long groupRateLimit;
+    private final Map<String, Long> groupRateLimits;
+    private final ConcurrentHashMap<String, TokenBucket> topicBuckets =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> groupBuckets =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ThrottleStats> groupStats =
+            new ConcurrentHashMap<>();
+
+    public FetchRateLimiter(BrokerConfig brokerConfig) {
+        this(brokerConfig.getBrokerFetchRateLimit(), brokerConfig.getTopicFetchRateLimit(),
+                brokerConfig.getGroupFetchRateLimit(), brokerConfig.getGroupFetchRateLimits(),
+                brokerConfig.getFetchRateBurstMs());
+    }
+
+    /**
+     * Initial a fetch rate limiter
+     *
+     * @param brokerRateLimit    the bytes per second of the broker, 0 means no limit
+     * @param topicRateLimit     the bytes per second of each topic, 0 means no limit
+     * @param groupRateLimit     the bytes per second of each group, 0 means no limit
+     * @param groupRateLimits    the bytes per second of the specified groups
+     * @param burstMs            the burst size of the buckets in milliseconds of the rate
+     */
+    public FetchRateLimiter(long brokerRateLimit, long topicRateLimit,
+            long groupRateLimit, Map<String, Long> groupRateLimits, long burstMs) {
+        this.burstMs = Math.max(1L, burstMs);
+        this.brokerBucket = brokerRateLimit > 0 ? newBucket(brokerRateLimit) : null;
+        this.topicRateLimit = topicRateLimit;
+        this.groupRateLimit = groupRateLimit;
+        this.groupRateLimits = (groupRateLimits == null)
+                ? new HashMap<>()
+                : new HashMap<>(groupRateLimits);
+    }
+
+    public boolean isEnabled() {
+        return brokerBucket != null
+                || topicRateLimit > 0
+                || groupRateLimit > 0
+                || !groupRateLimits.isEmpty();
+    }
+
+    /**
+     * Check whether a fetch request of the group and topic is allowed.
+     *
+     * @param group   the consume group name
+     * @param topic   the topic name
+     * @return 0 if allowed, otherwise the milliseconds to wait before the next fetch
+     */
+    public long checkAllowed(String group, String topic) {
+        long nowNanos = System.nanoTime();
+        long waitMs = 0;
+        if (brokerBucket != null) {
+            waitMs = brokerBucket.getWaitMs(nowNanos);
+        }
+        TokenBucket bucket = getTopicBucket(topic);
+        if (bucket != null) {
+            waitMs = Math.max(waitMs, bucket.getWaitMs(nowNanos));
+        }
+        bucket = getGroupBucket(group);
+        if (bucket != null) {
+            waitMs = Math.max(waitMs, bucket.getWaitMs(nowNanos));
+        }
+        if (waitMs > 0) {
+            ThrottleStats stats = getGroupStats(group);
+            stats.throttledCnt.increment();
+            stats.throttledWaitMs.add(waitMs);
+        }
+        return waitMs;
+    }
+
+    /**
+     * Charge the fetched bytes to the buckets of the group and topic.
+     *
+     * @param group       the consume group name
+     * @param topic       the topic name
+     * @param dataSize    the fetched bytes
+     */
+    public void consume(String group, String topic, long dataSize) {
+        if (dataSize <= 0) {
+            return;
+        }
+        long nowNanos = System.nanoTime();
+        if (brokerBucket != null) {
+            brokerBucket.consume(dataSize, nowNanos);
+        }
+        TokenBucket bucket = getTopicBucket(topic);
+        if (bucket != null) {
+            bucket.consume(dataSize, nowNanos);
+        }
+        bucket = getGroupBucket(group);
+        if (bucket != null) {
+            bucket.consume(dataSize, nowNanos);
+        }
+        getGroupStats(group).passedBytes.add(dataSize);
+    }
+
+    /**
+     * Get the throttle statistics of the consume groups.
+     *
+     * @param statsMap   the statistics map, group -- (metric name -- value)
+     */
+    public void getGroupStats(Map<String, Map<String, Long>> statsMap) {
+        for (Map.Entry<String, ThrottleStats> entry : groupStats.entrySet()) {
+            Map<String, Long> itemMap = new LinkedHashMap<>();
+            itemMap.put("fetch_throttled_cnt", entry.getValue().throttledCnt.sum());
+            itemMap.put("fetch_throttled_wait_ms", entry.getValue().throttledWaitMs.sum());
+            itemMap.put("fetch_passed_bytes", entry.getValue().passedBytes.sum());
+            statsMap.put(entry.getKey(), itemMap);
+        }
+    }
+
+    private TokenBucket getTopicBucket(String topic) {
+        if (topicRateLimit <= 0) {
+            return null;
+        }
+        return topicBuckets.computeIfAbsent(topic, k -> newBucket(topicRateLimit));
+    }
+
+    private TokenBucket getGroupBucket(String group) {
+        Long rateLimit = groupRateLimits.get(group);
+        if (rateLimit == null) {
+            rateLimit = groupRateLimit;
+        }
+        if (rateLimit <= 0) {
+            return null;
+        }
+        final long bucketRate = rateLimit;
+        return groupBuckets.computeIfAbsent(group, k -> newBucket(bucketRate));
+    }
+
+    private ThrottleStats getGroupStats(String group) {
+        return groupStats.computeIfAbsent(group, k -> new ThrottleStats());
+    }
+
+    private TokenBucket newBucket(long ratePerSec) {
+        return new TokenBucket(ratePerSec, ratePerSec * burstMs / 1000L);
+    }
+
+    private static class ThrottleStats {
+
+        private final LongAdder throttledCnt = new LongAdder();
+        private final LongAdder throttledWaitMs = new LongAdder();
+        private final LongAdder passedBytes = new LongAdder();
+    }
+}
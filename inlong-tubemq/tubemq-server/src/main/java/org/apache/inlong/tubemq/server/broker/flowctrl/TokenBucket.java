@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.flowctrl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock free token bucket.
+ *
+ * The bucket keeps only the time at which it is empty, the tokens at a moment are
+ * (now - emptyTime) * rate capped by the burst size, so the refill needs no timer.
+ * The consumed tokens are charged after the data is read, the bucket may go into debt
+ * and the requests are rejected until the debt is paid back.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final long ratePerSec;
+    private final long burstNanos;
+    private final AtomicLong emptyTime;
+
+    /**
+     * Initial a token bucket
+     *
+     * @param ratePerSec   the tokens added per second
+     * @param burstSize    the max tokens kept in the bucket
+     */
+    public TokenBucket(long ratePerSec, long burstSize) {
+        this(ratePerSec, burstSize, System.nanoTime());
+    }
+
+    TokenBucket(long ratePerSec, long burstSize, long nowNanos) {
+        if (ratePerSec <= 0) {
+            throw new IllegalArgumentException("ratePerSec must be positive!");
+        }
+        this.ratePerSec = ratePerSec;
+        this.burstNanos = toNanos(Math.max(1L, burstSize));
+        this.emptyTime = new AtomicLong(nowNanos - this.burstNanos);
+    }
+
+    public long getRatePerSec() {
+        return ratePerSec;
+    }
+
+    /**
+     * Get the time to wait until the bucket has tokens.
+     *
+     * @param nowNanos   the current time in nanoseconds
+     * @return 0 if there are tokens, otherwise the wait time in milliseconds
+     */
+    public long getWaitMs(long nowNanos) {
+        long waitNanos = emptyTime.get() - nowNanos;
+        if (waitNanos < 0) {
+            return 0;
+        }
+        return Math.max(1L, (waitNanos + 999_999L) / 1_000_000L);
+    }
+
+    /**
+     * Take tokens out of the bucket, the bucket goes into debt if there are not enough tokens.
+     *
+     * @param tokens     the tokens to take
+     * @param nowNanos   the current time in nanoseconds
+     */
+    public void consume(long tokens, long nowNanos) {
+        if (tokens <= 0) {
+            return;
+        }
+        long costNanos = toNanos(tokens);
+        long curEmptyTime;
+        long newEmptyTime;
+        do {
+            curEmptyTime = emptyTime.get();
+            // the tokens over the burst size are dropped
+            newEmptyTime = Math.max(curEmptyTime, nowNanos - burstNanos) + costNanos;
+        } while (!emptyTime.compareAndSet(curEmptyTime, newEmptyTime));
+    }
+
+    private long toNanos(long tokens) {
+        if (tokens > Long.MAX_VALUE / NANOS_PER_SECOND) {
+            return tokens / ratePerSec * NANOS_PER_SECOND;
+        }
+        return tokens * NANOS_PER_SECOND / ratePerSec;
+    }
+}
@@ -17,10 +17,13 @@
 
 package org.apache.inlong.tubemq.server.broker.metadata;
 
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
 import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.TStatusConstants;
+import org.apache.inlong.tubemq.server.common.utils.ConfCheckSumUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +32,7 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -51,6 +55,8 @@ public class BrokerMetadataManager implements MetadataManager {
     private int brokerConfCheckSumId = 0;
     // broker's metadata Id.
     private long brokerMetadataConfId = 0;
+    // whether the configure is synchronized with Master, false if a merged delta diverged
+    private volatile boolean isConfSynchronized = true;
     // broker's metadata in String format.
     private String brokerDefMetaConfInfo = "";
     // broker's topic's config list.
@@ -70,8 +76,19 @@ public class BrokerMetadataManager implements MetadataManager {
             new ConcurrentHashMap<>();
     private long lastRptBrokerMetaConfId = 0;
 
+    // the default compression codec of topics
+    private final CompressCodec defCompressCodec;
+    // the compression codecs of specified topics
+    private final Map<String/* topic */, CompressCodec> topicCompressCodecs;
+
     public BrokerMetadataManager() {
+        this(CompressCodec.NONE, new HashMap<>());
+    }
 
+    public BrokerMetadataManager(CompressCodec defCompressCodec,
+            Map<String, CompressCodec> topicCompressCodecs) {
+        this.defCompressCodec = defCompressCodec;
+        this.topicCompressCodecs = topicCompressCodecs;
     }
 
     @Override
@@ -89,6 +106,11 @@ public class BrokerMetadataManager implements MetadataManager {
         return brokerMetadataConfId;
     }
 
+    @Override
+    public boolean isConfSynchronized() {
+        return isConfSynchronized;
+    }
+
     @Override
     public String getBrokerDefMetaConfInfo() {
         return brokerDefMetaConfInfo;
@@ -234,6 +256,7 @@ public class BrokerMetadataManager implements MetadataManager {
                     .append(this.brokerMetadataConfId).append("received newBrokerMetaConfId is ")
                     .append(newBrokerMetaConfId).toString());
             sb.delete(0, sb.length());
+            this.isConfSynchronized = true;
             return;
         }
         if (TStringUtils.isBlank(newBrokerDefMetaConfInfo)) {
@@ -244,6 +267,7 @@ public class BrokerMetadataManager implements MetadataManager {
         this.brokerDefMetaConfInfo = newBrokerDefMetaConfInfo;
         this.brokerMetadataConfId = newBrokerMetaConfId;
         this.brokerConfCheckSumId = newConfCheckSumId;
+        this.isConfSynchronized = true;
         if (newTopicMetaConfInfoLst == null || newTopicMetaConfInfoLst.isEmpty()) {
             logger.error("[Metadata Manage] received broker topic info is Blank, not update");
             return;
@@ -258,6 +282,7 @@ public class BrokerMetadataManager implements MetadataManager {
                 continue;
             }
             TopicMetadata topicMetadata = new TopicMetadata(brokerDefMetadata, strTopicConfInfo);
+            topicMetadata.setCompressCodec(getTopicCompressCodec(topicMetadata.getTopic()));
             if (!topicMetadata.isValidTopic()) {
                 tmpInvalidTopicMap.put(topicMetadata.getTopic(),
                         topicMetadata.getStatusId());
@@ -280,6 +305,65 @@ public class BrokerMetadataManager implements MetadataManager {
         this.propertyChangeSupport.firePropertyChange("unflushInterval", null, null);
     }
 
+    /**
+     * Apply the topic configure changes pushed by Master to the current topic
+     * configure, then update the broker's metadata with the merged configure.
+     *
+     * The merged configure is applied only if its check-sum equals the pushed one,
+     * otherwise the configure is marked as not synchronized, so that the next
+     * heartbeat asks Master for the full configure.
+     *
+     * @param newBrokerMetaConfId       the new broker meta configure id
+     * @param newConfCheckSumId         the new configure checksum id
+     * @param newBrokerDefMetaConfInfo  the new broker default meta configures
+     * @param updTopicMetaConfInfoLst   the added or modified topic meta configure list
+     * @param rmvTopicNames             the topics no longer configured
+     * @param sb                        string buffer
+     * @return                          whether the merged configure is applied
+     */
+    @Override
+    public boolean updateBrokerTopicConfigDelta(long newBrokerMetaConfId,
+            int newConfCheckSumId,
+            String newBrokerDefMetaConfInfo,
+            List<String> updTopicMetaConfInfoLst,
+            List<String> rmvTopicNames,
+            final StringBuilder sb) {
+        Map<String/* topic */, String> mergedConfInfoMap = new HashMap<>();
+        for (String strTopicConfInfo : this.topicMetaConfInfoLst) {
+            if (!TStringUtils.isBlank(strTopicConfInfo)) {
+                mergedConfInfoMap.put(getConfTopicName(strTopicConfInfo), strTopicConfInfo);
+            }
+        }
+        if (rmvTopicNames != null) {
+            for (String topicName : rmvTopicNames) {
+                mergedConfInfoMap.remove(topicName);
+            }
+        }
+        if (updTopicMetaConfInfoLst != null) {
+            for (String strTopicConfInfo : updTopicMetaConfInfoLst) {
+                if (!TStringUtils.isBlank(strTopicConfInfo)) {
+                    mergedConfInfoMap.put(getConfTopicName(strTopicConfInfo), strTopicConfInfo);
+                }
+            }
+        }
+        if (TStringUtils.isBlank(newBrokerDefMetaConfInfo)
+                || ConfCheckSumUtils.calcBrokerConfCheckSum(newBrokerDefMetaConfInfo,
+                        mergedConfInfoMap.values()) != newConfCheckSumId) {
+            this.isConfSynchronized = false;
+            logger.warn(sb
+                    .append("[Metadata Manage] merged topic configure mismatch checksum, ")
+                    .append("request the full configure! curBrokerConfId is ")
+                    .append(this.brokerMetadataConfId).append(", received newBrokerMetaConfId is ")
+                    .append(newBrokerMetaConfId).append(", newConfCheckSumId is ")
+                    .append(newConfCheckSumId).toString());
+            sb.delete(0, sb.length());
+            return false;
+        }
+        updateBrokerTopicConfigMap(newBrokerMetaConfId, newConfCheckSumId,
+                newBrokerDefMetaConfInfo, new ArrayList<>(mergedConfInfoMap.values()), false, sb);
+        return true;
+    }
+
     /**
      * Update will be deleted topics info. These params are got from Master Service.
      *
@@ -304,6 +388,7 @@ public class BrokerMetadataManager implements MetadataManager {
                     }
                     TopicMetadata topicMetadata =
                             new TopicMetadata(brokerDefMetadata, tmpTopicMetaConfInfo);
+                    topicMetadata.setCompressCodec(getTopicCompressCodec(topicMetadata.getTopic()));
                     if (topicMetadata.getStatusId() > TStatusConstants.STATUS_TOPIC_SOFT_DELETE) {
                         removedTopicConfigMap.putIfAbsent(topicMetadata.getTopic(), topicMetadata);
                         needProcess = true;
@@ -343,6 +428,11 @@ public class BrokerMetadataManager implements MetadataManager {
         return needProcess;
     }
 
+    private String getConfTopicName(String strTopicConfInfo) {
+        int index = strTopicConfInfo.indexOf(TokenConstants.ATTR_SEP);
+        return index < 0 ? strTopicConfInfo : strTopicConfInfo.substring(0, index);
+    }
+
     @Override
     public void addPropertyChangeListener(final String propertyName,
             final PropertyChangeListener listener) {
@@ -374,4 +464,13 @@ public class BrokerMetadataManager implements MetadataManager {
         newTopics.add(TServerConstants.OFFSET_HISTORY_NAME);
         topicConfigMap.put(TServerConstants.OFFSET_HISTORY_NAME, topicMetadata);
     }
+
+    private CompressCodec getTopicCompressCodec(String topic) {
+        // the offset history topic is read by broker itself, keep it uncompressed
+        if (TServerConstants.OFFSET_HISTORY_NAME.equals(topic)) {
+            return CompressCodec.NONE;
+        }
+        CompressCodec codec = topicCompressCodecs.get(topic);
+        return codec == null ? defCompressCodec : codec;
+    }
 }
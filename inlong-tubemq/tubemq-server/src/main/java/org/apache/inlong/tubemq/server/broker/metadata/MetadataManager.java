@@ -37,6 +37,13 @@ public interface MetadataManager {
             boolean isForce,
             StringBuilder sb);
 
+    boolean updateBrokerTopicConfigDelta(long newBrokerMetaConfId,
+            int newConfCheckSumId,
+            String newBrokerDefMetaConfInfo,
+            List<String> updTopicMetaConfInfoLst,
+            List<String> rmvTopicNames,
+            StringBuilder sb);
+
     boolean updateBrokerRemoveTopicMap(boolean isTakeRemoveTopics,
             List<String> rmvTopicMetaConfInfoLst,
             StringBuilder sb);
@@ -58,6 +65,8 @@ public interface MetadataManager {
 
     long getBrokerMetadataConfId();
 
+    boolean isConfSynchronized();
+
     int getBrokerConfCheckSumId();
 
     String getBrokerDefMetaConfInfo();
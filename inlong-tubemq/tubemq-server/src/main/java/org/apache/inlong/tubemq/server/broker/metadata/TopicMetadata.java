@@ -19,6 +19,7 @@ package org.apache.inlong.tubemq.server.broker.metadata;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.compress.CompressCodec;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.server.common.TStatusConstants;
@@ -67,6 +68,8 @@ public class TopicMetadata {
     private int maxMsgSize = TBaseConstants.META_VALUE_UNDEFINED;
     // the allowed min memory cache size
     private int minMemCacheSize = TBaseConstants.META_VALUE_UNDEFINED;
+    // the compression codec applied by broker to the uncompressed messages
+    private CompressCodec compressCodec = CompressCodec.NONE;
 
     /**
      * Build TopicMetadata from brokerDefMetadata(default config) and topicMetaConfInfo(custom config).
@@ -217,7 +220,7 @@ public class TopicMetadata {
 
     @Override
     public TopicMetadata clone() {
-        return new TopicMetadata(this.topic, this.unflushThreshold,
+        TopicMetadata topicMetadata = new TopicMetadata(this.topic, this.unflushThreshold,
                 this.unflushInterval, this.unflushDataHold,
                 this.dataPath, this.deleteWhen, this.deletePolicy,
                 this.numPartitions, this.acceptPublish,
@@ -225,6 +228,8 @@ public class TopicMetadata {
                 this.numTopicStores, this.memCacheMsgSize,
                 this.memCacheMsgCnt, this.memCacheFlushIntvl,
                 this.maxMsgSize, this.minMemCacheSize);
+        topicMetadata.setCompressCodec(this.compressCodec);
+        return topicMetadata;
     }
 
     public boolean isAcceptPublish() {
@@ -361,6 +366,14 @@ public class TopicMetadata {
         return minMemCacheSize;
     }
 
+    public CompressCodec getCompressCodec() {
+        return compressCodec;
+    }
+
+    public void setCompressCodec(CompressCodec compressCodec) {
+        this.compressCodec = compressCodec;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -382,6 +395,7 @@ public class TopicMetadata {
         result = prime * result + this.memCacheFlushIntvl;
         result = prime * result + this.maxMsgSize;
         result = prime * result + this.minMemCacheSize;
+        result = prime * result + this.compressCodec.getId();
         return result;
     }
 
@@ -465,6 +479,9 @@ public class TopicMetadata {
         if (this.minMemCacheSize != other.minMemCacheSize) {
             return false;
         }
+        if (this.compressCodec != other.compressCodec) {
+            return false;
+        }
 
         return true;
     }
@@ -506,6 +523,7 @@ public class TopicMetadata {
                 .append(", memCacheFlushIntvl=").append(this.memCacheFlushIntvl)
                 .append(", maxMsgSize=").append(this.maxMsgSize)
                 .append(", minMemCacheSize=").append(this.minMemCacheSize)
+                .append(", compressCodec=").append(this.compressCodec.getName())
                 .append("]").toString();
     }
 }
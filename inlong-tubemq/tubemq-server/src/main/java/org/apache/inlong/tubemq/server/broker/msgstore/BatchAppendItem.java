@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message of the batch appended to the message store.
+ */
+public class BatchAppendItem {
+
+    // the message data, read in place when the stored entry is built
+    private final ByteBuffer data;
+    private final int dataCheckSum;
+    private final int msgTypeCode;
+    private final int msgFlag;
+    private final AppendResult appendResult = new AppendResult();
+    // the stored entries built by the message store
+    private ByteBuf dataEntryBuf;
+    private ByteBuffer dataEntry;
+    private ByteBuffer indexEntry;
+
+    public BatchAppendItem(byte[] data, int dataCheckSum,
+            int msgTypeCode, int msgFlag) {
+        this(ByteBuffer.wrap(data), dataCheckSum, msgTypeCode, msgFlag);
+    }
+
+    public BatchAppendItem(ByteBuffer data, int dataCheckSum,
+            int msgTypeCode, int msgFlag) {
+        this.data = data;
+        this.dataCheckSum = dataCheckSum;
+        this.msgTypeCode = msgTypeCode;
+        this.msgFlag = msgFlag;
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    public int getDataCheckSum() {
+        return dataCheckSum;
+    }
+
+    public int getMsgTypeCode() {
+        return msgTypeCode;
+    }
+
+    public int getMsgFlag() {
+        return msgFlag;
+    }
+
+    public AppendResult getAppendResult() {
+        return appendResult;
+    }
+
+    public ByteBuffer getDataEntry() {
+        return dataEntry;
+    }
+
+    public ByteBuffer getIndexEntry() {
+        return indexEntry;
+    }
+
+    public void setStoreEntries(ByteBuffer dataEntry, ByteBuffer indexEntry) {
+        setStoreEntries(null, dataEntry, indexEntry);
+    }
+
+    public void setStoreEntries(ByteBuf dataEntryBuf,
+            ByteBuffer dataEntry, ByteBuffer indexEntry) {
+        this.dataEntryBuf = dataEntryBuf;
+        this.dataEntry = dataEntry;
+        this.indexEntry = indexEntry;
+    }
+
+    /**
+     * Release the pooled buffer of the data entry after the message is stored.
+     */
+    public void releaseStoreEntries() {
+        if (dataEntryBuf != null) {
+            NettyBufferPool.releaseBuffer(dataEntryBuf);
+            dataEntryBuf = null;
+            dataEntry = null;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.corebase.metric.impl.ESTHistogram;
+import org.apache.inlong.tubemq.corebase.metric.impl.LongStatsCounter;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The file flush scheduler of message stores, grouped by the disk device of stores.
+ *
+ * Each disk has its own flush worker, so a slow disk does not delay the flushes of
+ * the other disks. The worker flushes its stores by the timer as before, and the
+ * flushes triggered by the unflushed thresholds of stores are requested to the worker,
+ * which waits the group commit window and then flushes all requested stores together.
+ * Each store still syncs its own segment files, the window batches the flushes of a
+ * store in time, so the repeated threshold triggers within a window cost one fsync
+ * per store instead of one per append.
+ */
+public class DiskFlushScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskFlushScheduler.class);
+    private final BrokerConfig tubeConfig;
+    // disk key to flush worker
+    private final ConcurrentHashMap<String, DiskFlushWorker> diskWorkers =
+            new ConcurrentHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public DiskFlushScheduler(BrokerConfig tubeConfig) {
+        this.tubeConfig = tubeConfig;
+    }
+
+    /**
+     * Get the disk key of the directory, the stores with the same key share a flush worker.
+     *
+     * @param dir   the store directory
+     * @return      the file store description of the directory, or the path if unknown
+     */
+    public static String getDiskKey(File dir) {
+        File curDir = dir.getAbsoluteFile();
+        while (curDir != null && !curDir.exists()) {
+            curDir = curDir.getParentFile();
+        }
+        if (curDir != null) {
+            try {
+                FileStore fileStore = Files.getFileStore(curDir.toPath());
+                return fileStore.toString();
+            } catch (IOException e) {
+                //
+            }
+        }
+        return dir.getAbsolutePath();
+    }
+
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        for (DiskFlushWorker worker : diskWorkers.values()) {
+            worker.start();
+        }
+    }
+
+    public void close() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        // wake up and wait the workers, not interrupt them since
+        // the interrupted file channels would be closed.
+        for (DiskFlushWorker worker : diskWorkers.values()) {
+            worker.wakeup();
+        }
+        for (DiskFlushWorker worker : diskWorkers.values()) {
+            worker.join();
+        }
+    }
+
+    public boolean isGroupCommit() {
+        return tubeConfig.getFlushGroupCommitWindowMs() > 0
+                && started.get() && !stopped.get();
+    }
+
+    public void register(MessageStore msgStore) {
+        getOrCreateWorker(msgStore.getDiskKey()).stores.add(msgStore);
+    }
+
+    public void unregister(MessageStore msgStore) {
+        DiskFlushWorker worker = diskWorkers.get(msgStore.getDiskKey());
+        if (worker != null) {
+            worker.stores.remove(msgStore);
+        }
+    }
+
+    /**
+     * Request the disk worker of the store to flush the store's unflushed data.
+     *
+     * @param msgStore   the message store to flush
+     * @return           whether the request is accepted, false if the scheduler is not running
+     */
+    public boolean requestFlush(MessageStore msgStore) {
+        if (!started.get() || stopped.get()) {
+            return false;
+        }
+        getOrCreateWorker(msgStore.getDiskKey()).requestFlush(msgStore);
+        return true;
+    }
+
+    /**
+     * Get the flush statistics of each disk.
+     *
+     * @param diskStatsMap  the statistics of disks, the key is the disk key
+     * @param resetValue    whether to reset the statistics
+     */
+    public void getDiskStats(Map<String, Map<String, Long>> diskStatsMap, boolean resetValue) {
+        for (Map.Entry<String, DiskFlushWorker> entry : diskWorkers.entrySet()) {
+            Map<String, Long> statsMap = new LinkedHashMap<>();
+            entry.getValue().getStats(statsMap, resetValue);
+            diskStatsMap.put(entry.getKey(), statsMap);
+        }
+    }
+
+    private DiskFlushWorker getOrCreateWorker(String diskKey) {
+        DiskFlushWorker worker = diskWorkers.get(diskKey);
+        if (worker == null) {
+            DiskFlushWorker tmpWorker = new DiskFlushWorker(diskKey, diskWorkers.size());
+            worker = diskWorkers.putIfAbsent(diskKey, tmpWorker);
+            if (worker == null) {
+                worker = tmpWorker;
+                if (started.get() && !stopped.get()) {
+                    worker.start();
+                }
+            }
+        }
+        return worker;
+    }
+
+    private class DiskFlushWorker implements Runnable {
+
+        private final String diskKey;
+        private final Thread workThread;
+        private final AtomicBoolean workStarted = new AtomicBoolean(false);
+        private final Set<MessageStore> stores = ConcurrentHashMap.newKeySet();
+        private final ConcurrentLinkedQueue<MessageStore> flushRequests =
+                new ConcurrentLinkedQueue<>();
+        // the flush statistics of the disk
+        private final ESTHistogram flushDltStats =
+                new ESTHistogram("disk_flush_dlt", null);
+        private final LongStatsCounter requestCnt =
+                new LongStatsCounter("disk_flush_requests", null);
+        private final LongStatsCounter groupCommitCnt =
+                new LongStatsCounter("disk_group_commits", null);
+        private final LongStatsCounter timerFlushCnt =
+                new LongStatsCounter("disk_timer_flushes", null);
+
+        public DiskFlushWorker(String diskKey, int index) {
+            this.diskKey = diskKey;
+            this.workThread = new Thread(this, "Broker Log Disk Flush Thread-" + index);
+            this.workThread.setDaemon(true);
+        }
+
+        public void start() {
+            if (workStarted.compareAndSet(false, true)) {
+                logger.info(new StringBuilder(512)
+                        .append("[Flush Scheduler] Start flush worker for disk ")
+                        .append(diskKey).toString());
+                workThread.start();
+            }
+        }
+
+        public void wakeup() {
+            LockSupport.unpark(workThread);
+        }
+
+        public void join() {
+            if (!workStarted.get()) {
+                return;
+            }
+            try {
+                workThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public void requestFlush(MessageStore msgStore) {
+            requestCnt.incValue();
+            flushRequests.offer(msgStore);
+            LockSupport.unpark(workThread);
+        }
+
+        public void getStats(Map<String, Long> statsMap, boolean resetValue) {
+            if (resetValue) {
+                flushDltStats.snapShort(statsMap, false);
+                statsMap.put(requestCnt.getFullName(), requestCnt.getAndResetValue());
+                statsMap.put(groupCommitCnt.getFullName(), groupCommitCnt.getAndResetValue());
+                statsMap.put(timerFlushCnt.getFullName(), timerFlushCnt.getAndResetValue());
+            } else {
+                flushDltStats.getValue(statsMap, false);
+                statsMap.put(requestCnt.getFullName(), requestCnt.getValue());
+                statsMap.put(groupCommitCnt.getFullName(), groupCommitCnt.getValue());
+                statsMap.put(timerFlushCnt.getFullName(), timerFlushCnt.getValue());
+            }
+            statsMap.put("disk_store_count", (long) stores.size());
+        }
+
+        @Override
+        public void run() {
+            long lastTimerFlushTime = System.currentTimeMillis();
+            while (!stopped.get()) {
+                long timerDurMs = tubeConfig.getLogFlushDiskDurMs();
+                long waitMs = timerDurMs - (System.currentTimeMillis() - lastTimerFlushTime);
+                if (flushRequests.isEmpty() && waitMs > 0) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitMs));
+                }
+                if (stopped.get()) {
+                    break;
+                }
+                if (!flushRequests.isEmpty()) {
+                    // wait the window to collect the requests of the other stores
+                    waitGroupCommitWindow();
+                    Set<MessageStore> flushGroup = new LinkedHashSet<>();
+                    MessageStore msgStore;
+                    while ((msgStore = flushRequests.poll()) != null) {
+                        flushGroup.add(msgStore);
+                    }
+                    groupCommitCnt.incValue();
+                    for (MessageStore groupStore : flushGroup) {
+                        flushStore(groupStore, true);
+                    }
+                }
+                if (System.currentTimeMillis() - lastTimerFlushTime >= timerDurMs) {
+                    timerFlushCnt.incValue();
+                    for (MessageStore timerStore : stores) {
+                        flushStore(timerStore, false);
+                    }
+                    lastTimerFlushTime = System.currentTimeMillis();
+                }
+            }
+        }
+
+        private void waitGroupCommitWindow() {
+            long windowMs = tubeConfig.getFlushGroupCommitWindowMs();
+            if (windowMs <= 0) {
+                return;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+            long leftNs;
+            while (!stopped.get() && (leftNs = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, leftNs);
+            }
+        }
+
+        private void flushStore(MessageStore msgStore, boolean ignoreInterval) {
+            if (msgStore.isClosed()) {
+                stores.remove(msgStore);
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            try {
+                if (msgStore.flushFile(ignoreInterval)) {
+                    flushDltStats.update(System.currentTimeMillis() - startTime);
+                }
+            } catch (Throwable e) {
+                if (!msgStore.isClosed()) {
+                    logger.error(new StringBuilder(512)
+                            .append("[Flush Scheduler] Try to flush ")
+                            .append(msgStore.getStoreKey())
+                            .append("'s file-store failed : ").toString(), e);
+                }
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.MixedUtils;
 import org.apache.inlong.tubemq.corebase.utils.ThreadUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
@@ -30,6 +31,7 @@ import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
@@ -37,15 +39,18 @@ import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 import org.apache.inlong.tubemq.server.common.utils.IdWorker;
 
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -74,12 +79,17 @@ public class MessageStore implements Closeable {
     private final String storeKey;
     private final BrokerConfig tubeConfig;
     private final String primStorePath;
+    // the disk of the store, the stores on the same disk share a flush worker
+    private final String diskKey;
     private final AtomicLong lastMemFlushTime = new AtomicLong(0);
     private final MessageStoreManager msgStoreMgr;
     private final MsgStoreStatsHolder msgStoreStatsHolder = new MsgStoreStatsHolder();
     private final MsgFileStore msgFileStore;
+    // guards the swap of the write caches against the readers, the appenders do not take it
     private final ReentrantReadWriteLock writeCacheMutex = new ReentrantReadWriteLock();
-    private final Condition flushWriteCacheCondition = writeCacheMutex.writeLock().newCondition();
+    // the appenders finding the write cache full wait here for the caches swapped
+    private final ReentrantLock cacheSwapMutex = new ReentrantLock();
+    private final Condition flushWriteCacheCondition = cacheSwapMutex.newCondition();
     private final AtomicBoolean isFlushOngoing = new AtomicBoolean(false);
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final AtomicBoolean closed = new AtomicBoolean(false);
@@ -103,8 +113,8 @@ public class MessageStore implements Closeable {
             new AtomicInteger(this.fileMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
     private final AtomicInteger fileLowReqMaxFilterIndexReadSize =
             new AtomicInteger(this.fileLowReqMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
-    private MsgMemStore msgMemStore;
-    private MsgMemStore msgMemStoreBeingFlush;
+    private volatile MsgMemStore msgMemStore;
+    private volatile MsgMemStore msgMemStoreBeingFlush;
 
     /**
      * MessageStore, initial message store block
@@ -144,6 +154,7 @@ public class MessageStore implements Closeable {
         this.storeKey = topicMetadata.getTopic() + "-" + this.storeId;
         this.idWorker = new IdWorker(0);
         this.primStorePath = this.tubeConfig.getPrimaryPath();
+        this.diskKey = DiskFlushScheduler.getDiskKey(new File(this.primStorePath));
         this.partitionNum = topicMetadata.getNumPartitions();
         this.unflushInterval.set(topicMetadata.getUnflushInterval());
         this.maxFileValidDurMs.set(parseDeletePolicy(topicMetadata.getDeletePolicy()));
@@ -170,6 +181,7 @@ public class MessageStore implements Closeable {
                     this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset());
             this.lastMemFlushTime.set(System.currentTimeMillis());
         }
+        this.msgStoreMgr.getDiskFlushScheduler().register(this);
     }
 
     /**
@@ -189,6 +201,29 @@ public class MessageStore implements Closeable {
             int partitionId, ConsumerNodeInfo consumerNodeInfo,
             String statsKeyBase, int msgSizeLimit,
             long reqRcvTime) throws IOException {
+        return getMessages(reqSwitch, requestOffset, partitionId,
+                consumerNodeInfo, statsKeyBase, msgSizeLimit, reqRcvTime, false);
+    }
+
+    /**
+     * Get message from message store. Support the given offset, filter.
+     *
+     * @param reqSwitch            read message from where
+     * @param requestOffset        the request offset to read
+     * @param partitionId          the partitionId for reading messages
+     * @param consumerNodeInfo     the consumer object
+     * @param statsKeyBase        the statistical key prefix
+     * @param msgSizeLimit         the max read size
+     * @param reqRcvTime           the timestamp of the record to be checked
+     * @param zeroCopyRead         whether to return the file data as regions
+     *                             instead of reading them into the heap
+     * @return                     read result
+     * @throws IOException         the exception during processing
+     */
+    public GetMessageResult getMessages(int reqSwitch, long requestOffset,
+            int partitionId, ConsumerNodeInfo consumerNodeInfo,
+            String statsKeyBase, int msgSizeLimit,
+            long reqRcvTime, boolean zeroCopyRead) throws IOException {
         // #lizard forgives
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
@@ -246,17 +281,21 @@ public class MessageStore implements Closeable {
                                 new HashMap<>();
                         List<ClientBroker.TransferedMessage> transferedMessageList =
                                 new ArrayList<>();
-                        if (!memMsgRlt.cacheMsgList.isEmpty()) {
-                            final StringBuilder strBuffer = new StringBuilder(512);
-                            for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
-                                ClientBroker.TransferedMessage transferedMessage =
-                                        DataStoreUtils.getTransferMsg(dataBuffer,
-                                                dataBuffer.array().length,
-                                                countMap, statsKeyBase, strBuffer);
-                                if (transferedMessage != null) {
-                                    transferedMessageList.add(transferedMessage);
+                        try {
+                            if (!memMsgRlt.cacheMsgList.isEmpty()) {
+                                final StringBuilder strBuffer = new StringBuilder(512);
+                                for (ByteBuffer dataBuffer : memMsgRlt.cacheMsgList) {
+                                    ClientBroker.TransferedMessage transferedMessage =
+                                            DataStoreUtils.getTransferMsg(dataBuffer,
+                                                    dataBuffer.remaining(),
+                                                    countMap, statsKeyBase, strBuffer);
+                                    if (transferedMessage != null) {
+                                        transferedMessageList.add(transferedMessage);
+                                    }
                                 }
                             }
+                        } finally {
+                            memMsgRlt.release();
                         }
                         GetMessageResult getResult =
                                 new GetMessageResult(true, 0, memMsgRlt.errInfo, requestOffset,
@@ -273,6 +312,15 @@ public class MessageStore implements Closeable {
         }
         // before read from file, adjust request's offset.
         long reqNewOffset = Math.max(requestOffset, this.msgFileStore.getIndexMinOffset());
+        if (reqRcvTime != 0) {
+            // skip the records appended before the request time by the time index
+            reqNewOffset = Math.max(reqNewOffset,
+                    this.msgFileStore.getIndexOffsetBeforeTime(reqRcvTime));
+        }
+        if (consumerNodeInfo.isFilterConsume()) {
+            reqNewOffset = this.msgFileStore.skipUnmatchedIndexBlocks(reqNewOffset,
+                    consumerNodeInfo.getFilterCondCodeSet(), msgStoreStatsHolder);
+        }
         if (reqSwitch <= 1 && reqNewOffset >= getFileIndexMaxOffset()) {
             return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
                     reqNewOffset, 0, "current offset is exceed max file offset");
@@ -280,7 +328,6 @@ public class MessageStore implements Closeable {
         maxIndexReadLength = consumerNodeInfo.isFilterConsume()
                 ? fileMaxFilterIndexReadSize.get()
                 : fileMaxIndexReadSize.get();
-        final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadLength);
         Segment indexRecordView =
                 this.msgFileStore.indexSlice(reqNewOffset, maxIndexReadLength);
         if (indexRecordView == null) {
@@ -292,20 +339,38 @@ public class MessageStore implements Closeable {
                         reqNewOffset, 0, "current offset is exceed max offset!");
             }
         }
-        indexRecordView.read(indexBuffer, reqNewOffset);
-        indexBuffer.flip();
-        indexRecordView.relViewRef();
-        if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset() >= this.tubeConfig
-                .getDoubleDefaultDeduceReadSize())
-                && msgSizeLimit > this.maxAllowRdSize) {
-            msgSizeLimit = this.maxAllowRdSize;
-        }
-        GetMessageResult retResult =
-                msgFileStore.getMessages(partitionId,
+        // the index records are read into a pooled direct buffer
+        final ByteBuf indexBuf = NettyBufferPool.acquireBuffer(maxIndexReadLength);
+        GetMessageResult retResult;
+        try {
+            final ByteBuffer indexBuffer = indexBuf.nioBuffer(0, maxIndexReadLength);
+            try {
+                indexRecordView.read(indexBuffer, reqNewOffset);
+            } finally {
+                indexRecordView.relViewRef();
+            }
+            indexBuffer.flip();
+            if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset() >= this.tubeConfig
+                    .getDoubleDefaultDeduceReadSize())
+                    && msgSizeLimit > this.maxAllowRdSize) {
+                msgSizeLimit = this.maxAllowRdSize;
+            }
+            if (zeroCopyRead) {
+                retResult = msgFileStore.getMessageRegions(partitionId,
                         consumerNodeInfo.getLastDataRdOffset(), reqNewOffset,
                         indexBuffer, consumerNodeInfo.isFilterConsume(),
                         consumerNodeInfo.getFilterCondCodeSet(),
                         statsKeyBase, msgSizeLimit, reqRcvTime);
+            } else {
+                retResult = msgFileStore.getMessages(partitionId,
+                        consumerNodeInfo.getLastDataRdOffset(), reqNewOffset,
+                        indexBuffer, consumerNodeInfo.isFilterConsume(),
+                        consumerNodeInfo.getFilterCondCodeSet(),
+                        statsKeyBase, msgSizeLimit, reqRcvTime);
+            }
+        } finally {
+            NettyBufferPool.releaseBuffer(indexBuf);
+        }
         if (reqSwitch <= 1) {
             retResult.setMaxOffset(getFileIndexMaxOffset());
         } else {
@@ -375,6 +440,29 @@ public class MessageStore implements Closeable {
                 System.currentTimeMillis(), 3, 1);
     }
 
+    /**
+     * Append msg to store, the message data is copied from the buffer into
+     * the stored entry directly, without an intermediate heap array.
+     *
+     * @param appendResult    the append result
+     * @param dataCheckSum    the check sum of message data
+     * @param data            the buffer whose remaining bytes are the message data
+     * @param msgTypeCode     the filter item hash code
+     * @param msgFlag         the message flag
+     * @param partitionId     the partitionId for append messages
+     * @param sentAddr        the address to send the message to
+     *
+     * @return                the process result
+     * @throws IOException    the exception during processing
+     */
+    public boolean appendMsg(AppendResult appendResult, int dataCheckSum,
+            ByteBuffer data, int msgTypeCode, int msgFlag,
+            int partitionId, int sentAddr) throws IOException {
+        return appendMsgData(appendResult, dataCheckSum, data,
+                msgTypeCode, msgFlag, partitionId, sentAddr,
+                System.currentTimeMillis(), 3, 1);
+    }
+
     /**
      * Append msg to store.
      *
@@ -399,50 +487,50 @@ public class MessageStore implements Closeable {
             int partitionId, int sentAddr,
             long receivedTime, int count,
             long waitRetryMs) throws IOException {
+        return appendMsgData(appendResult, dataCheckSum,
+                ByteBuffer.wrap(data, 0, dataLength), msgTypeCode, msgFlag,
+                partitionId, sentAddr, receivedTime, count, waitRetryMs);
+    }
+
+    private boolean appendMsgData(AppendResult appendResult, int dataCheckSum,
+            ByteBuffer data, int msgTypeCode, int msgFlag,
+            int partitionId, int sentAddr, long receivedTime,
+            int count, long waitRetryMs) throws IOException {
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
                     .append("[Data Store] Closed MessageStore for storeKey ")
                     .append(this.storeKey).toString());
         }
         long messageId = this.idWorker.nextId();
-        // build data buffer
-        int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength;
-        final ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
-        dataBuffer.putInt(dataCheckSum);
-        dataBuffer.putInt(partitionId);
-        dataBuffer.putLong(-1L);
-        dataBuffer.putLong(receivedTime);
-        dataBuffer.putInt(sentAddr);
-        dataBuffer.putInt(msgTypeCode);
-        dataBuffer.putLong(messageId);
-        dataBuffer.putInt(msgFlag);
-        dataBuffer.put(data);
-        dataBuffer.flip();
-        // build index buffer
-        final ByteBuffer indexBuffer =
-                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-        indexBuffer.putInt(partitionId);
-        indexBuffer.putLong(-1L);
-        indexBuffer.putInt(msgBufLen);
-        indexBuffer.putInt(msgTypeCode);
-        indexBuffer.putLong(receivedTime);
-        indexBuffer.flip();
-        appendResult.putReceivedInfo(messageId, receivedTime);
+        int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + data.remaining();
+        // the data entry is built in a pooled direct buffer, released after being copied
+        final ByteBuf dataEntryBuf = NettyBufferPool.acquireBuffer(msgBufLen);
+        try {
+            final ByteBuffer dataBuffer = buildDataEntry(dataEntryBuf, messageId,
+                    dataCheckSum, data, msgTypeCode, msgFlag, partitionId, sentAddr, receivedTime);
+            final ByteBuffer indexBuffer =
+                    buildIndexEntry(msgBufLen, msgTypeCode, partitionId, receivedTime);
+            appendResult.putReceivedInfo(messageId, receivedTime);
+            return appendStoreEntries(appendResult, partitionId, msgTypeCode,
+                    receivedTime, indexBuffer, msgBufLen, dataBuffer, count, waitRetryMs);
+        } finally {
+            NettyBufferPool.releaseBuffer(dataEntryBuf);
+        }
+    }
+
+    /**
+     * Append the stored entries of a message to the memory cache or the file store.
+     */
+    private boolean appendStoreEntries(AppendResult appendResult, int partitionId,
+            int msgTypeCode, long receivedTime, ByteBuffer indexBuffer,
+            int msgBufLen, ByteBuffer dataBuffer, int count,
+            long waitRetryMs) throws IOException {
         boolean appendSuss = true;
         long startTime = System.currentTimeMillis();
         if (this.tubeConfig.isEnableMemStore()) {
             do {
-                this.writeCacheMutex.readLock().lock();
-                try {
-                    appendSuss = this.msgMemStore.appendMsg(msgStoreStatsHolder,
-                            partitionId, msgTypeCode, receivedTime, indexBuffer,
-                            msgBufLen, dataBuffer, appendResult);
-                } finally {
-                    this.writeCacheMutex.readLock().unlock();
-                }
-                if (appendSuss) {
+                if (appendWriteCache(partitionId, msgTypeCode, receivedTime,
+                        indexBuffer, msgBufLen, dataBuffer, appendResult)) {
                     msgStoreStatsHolder.addMsgWriteSuccess(msgBufLen,
                             System.currentTimeMillis() - startTime);
                     return true;
@@ -451,6 +539,7 @@ public class MessageStore implements Closeable {
                         receivedTime, indexBuffer, msgBufLen, dataBuffer, appendResult)) {
                     msgStoreStatsHolder.addMsgWriteSuccess(msgBufLen,
                             System.currentTimeMillis() - startTime);
+                    notifyMsgArrived(partitionId);
                     return true;
                 }
                 ThreadUtils.sleep(waitRetryMs);
@@ -468,6 +557,7 @@ public class MessageStore implements Closeable {
             if (appendRet.getF0()) {
                 msgStoreStatsHolder.addMsgWriteSuccess(msgBufLen,
                         System.currentTimeMillis() - startTime);
+                notifyMsgArrived(partitionId);
             } else {
                 msgStoreStatsHolder.addMsgWriteFailure();
             }
@@ -475,6 +565,187 @@ public class MessageStore implements Closeable {
         }
     }
 
+    /**
+     * Append a batch of messages to store in order.
+     *
+     * If the memory cache has enough space, the whole batch is appended with one
+     * space reservation, otherwise the cache is flushed and the left messages are
+     * appended to the new cache.
+     *
+     * @param items           the messages to append
+     * @param partitionId     the partitionId for append messages
+     * @param sentAddr        the address to send the message to
+     *
+     * @return                the count of the appended messages, the left messages
+     *                        are failed for the store overflow
+     * @throws IOException    the exception during processing
+     */
+    public int appendMsgs(List<BatchAppendItem> items,
+            int partitionId, int sentAddr) throws IOException {
+        if (this.closed.get()) {
+            throw new IllegalStateException(new StringBuilder(512)
+                    .append("[Data Store] Closed MessageStore for storeKey ")
+                    .append(this.storeKey).toString());
+        }
+        long receivedTime = System.currentTimeMillis();
+        try {
+            for (BatchAppendItem item : items) {
+                long messageId = this.idWorker.nextId();
+                int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + item.getData().remaining();
+                ByteBuf dataEntryBuf = NettyBufferPool.acquireBuffer(msgBufLen);
+                item.setStoreEntries(dataEntryBuf,
+                        buildDataEntry(dataEntryBuf, messageId, item.getDataCheckSum(),
+                                item.getData(), item.getMsgTypeCode(), item.getMsgFlag(),
+                                partitionId, sentAddr, receivedTime),
+                        buildIndexEntry(msgBufLen, item.getMsgTypeCode(),
+                                partitionId, receivedTime));
+                item.getAppendResult().putReceivedInfo(messageId, receivedTime);
+            }
+            return appendStoreEntries(items, partitionId, receivedTime);
+        } finally {
+            for (BatchAppendItem item : items) {
+                item.releaseStoreEntries();
+            }
+        }
+    }
+
+    /**
+     * Append the stored entries of a batch to the memory cache or the file store.
+     */
+    private int appendStoreEntries(List<BatchAppendItem> items,
+            int partitionId, long receivedTime) throws IOException {
+        int appendCnt = 0;
+        long startTime = System.currentTimeMillis();
+        if (this.tubeConfig.isEnableMemStore()) {
+            int count = 3;
+            do {
+                appendCnt += appendWriteCache(partitionId, receivedTime, items, appendCnt);
+                if (appendCnt >= items.size()) {
+                    break;
+                }
+                appendCnt += triggerFlushAndAddMsgs(partitionId, receivedTime, items, appendCnt);
+                if (appendCnt >= items.size()) {
+                    break;
+                }
+                ThreadUtils.sleep(1);
+            } while (count-- >= 0);
+        } else {
+            StringBuilder strBuffer =
+                    new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
+            for (BatchAppendItem item : items) {
+                Tuple3<Boolean, Long, Long> appendRet =
+                        this.msgFileStore.appendMsg(false, startTime, strBuffer, 1,
+                                DataStoreUtils.STORE_INDEX_HEAD_LEN, item.getIndexEntry(),
+                                item.getDataEntry().limit(), item.getDataEntry(),
+                                receivedTime, receivedTime);
+                item.getAppendResult().putAppendResult(appendRet.getF1(), appendRet.getF2());
+                if (!appendRet.getF0()) {
+                    break;
+                }
+                appendCnt++;
+            }
+        }
+        long writeDlt = System.currentTimeMillis() - startTime;
+        for (int index = 0; index < items.size(); index++) {
+            if (index < appendCnt) {
+                msgStoreStatsHolder.addMsgWriteSuccess(
+                        items.get(index).getDataEntry().limit(), writeDlt);
+            } else {
+                msgStoreStatsHolder.addMsgWriteFailure();
+            }
+        }
+        if (appendCnt > 0) {
+            notifyMsgArrived(partitionId);
+        }
+        return appendCnt;
+    }
+
+    /**
+     * Append a message to the write cache without locking, the append is retried on
+     * the new cache if the current one has been sealed by a concurrent swap.
+     *
+     * @return    whether appended, false if the write cache is full
+     */
+    private boolean appendWriteCache(int partitionId, int keyCode,
+            long receivedTime, ByteBuffer indexEntry, int dataLength,
+            ByteBuffer dataEntry, AppendResult appendResult) {
+        MsgMemStore curStore = this.msgMemStore;
+        while (!curStore.appendMsg(msgStoreStatsHolder, partitionId, keyCode,
+                receivedTime, indexEntry, dataLength, dataEntry, appendResult)) {
+            if (!curStore.isSealed()) {
+                return false;
+            }
+            curStore = waitWriteCacheSwapped(curStore);
+        }
+        notifyMsgArrived(partitionId, curStore.pollLaggedPartitions());
+        return true;
+    }
+
+    /**
+     * Append the left messages of a batch to the write cache without locking, the append
+     * is retried on the new cache if the current one has been sealed by a concurrent swap.
+     *
+     * @return    the count of messages appended, 0 if the write cache is full
+     */
+    private int appendWriteCache(int partitionId, long receivedTime,
+            List<BatchAppendItem> items, int startIndex) {
+        MsgMemStore curStore = this.msgMemStore;
+        int appendCnt;
+        while ((appendCnt = curStore.appendMsgs(msgStoreStatsHolder,
+                partitionId, receivedTime, items, startIndex)) == 0) {
+            if (!curStore.isSealed()) {
+                return 0;
+            }
+            curStore = waitWriteCacheSwapped(curStore);
+        }
+        notifyMsgArrived(partitionId, curStore.pollLaggedPartitions());
+        return appendCnt;
+    }
+
+    /**
+     * Wait for the sealed write cache replaced, the swap installs the new cache
+     * right after sealing the current one.
+     *
+     * @param sealedStore    the sealed write cache
+     * @return               the new write cache
+     */
+    private MsgMemStore waitWriteCacheSwapped(MsgMemStore sealedStore) {
+        MsgMemStore curStore;
+        while ((curStore = this.msgMemStore) == sealedStore) {
+            Thread.yield();
+        }
+        return curStore;
+    }
+
+    /**
+     * Wake the fetch requests waiting for new messages of the partition.
+     *
+     * @param partitionId    the partition appended messages
+     */
+    private void notifyMsgArrived(int partitionId) {
+        this.msgStoreMgr.getPendingFetchManager()
+                .notifyMsgArrived(this.topicMetadata.getTopic(), partitionId);
+    }
+
+    /**
+     * Wake the fetches of the appended partition, and of the partitions whose messages
+     * were published by this append since their writers returned before being visible.
+     *
+     * @param partitionId         the partitionId of the appended messages
+     * @param laggedPartitions    the lagged partitions published, may be null
+     */
+    private void notifyMsgArrived(int partitionId, Set<Integer> laggedPartitions) {
+        notifyMsgArrived(partitionId);
+        if (laggedPartitions == null) {
+            return;
+        }
+        for (Integer laggedPartitionId : laggedPartitions) {
+            if (laggedPartitionId != partitionId) {
+                notifyMsgArrived(laggedPartitionId);
+            }
+        }
+    }
+
     public void getMsgStoreStatsInfo(boolean needRefresh, StringBuilder strBuff) {
         msgStoreStatsHolder.getMsgStoreStatsInfo(needRefresh, strBuff);
     }
@@ -483,6 +754,18 @@ public class MessageStore implements Closeable {
         return this.msgStoreStatsHolder;
     }
 
+    public boolean isCleanRecovered() {
+        return this.msgFileStore.isCleanRecovered();
+    }
+
+    public long getRecoveryTimeMs() {
+        return this.msgFileStore.getRecoveryTimeMs();
+    }
+
+    public TieredStorage getTieredStorage() {
+        return this.msgStoreMgr.getTieredStorage();
+    }
+
     /**
      * Execute cleanup policy.
      *
@@ -549,6 +832,40 @@ public class MessageStore implements Closeable {
         msgFileStore.flushDiskFile();
     }
 
+    /**
+     * Flush file store to disk.
+     *
+     * @param ignoreInterval   whether to flush without waiting the unflush interval
+     * @return                 whether the data is flushed
+     * @throws IOException     the exception during processing
+     */
+    public boolean flushFile(boolean ignoreInterval) throws IOException {
+        if (this.closed.get()) {
+            throw new IllegalStateException(new StringBuilder(512)
+                    .append("[Data Store] Closed MessageStore for storeKey ")
+                    .append(this.storeKey).toString());
+        }
+        return msgFileStore.flushDiskFile(ignoreInterval);
+    }
+
+    /**
+     * Whether the threshold triggered file flushes are coalesced by the flush scheduler.
+     *
+     * @return  true if the group commit is enabled
+     */
+    public boolean isFlushGroupCommit() {
+        return this.msgStoreMgr.getDiskFlushScheduler().isGroupCommit();
+    }
+
+    /**
+     * Request the flush scheduler to flush this store with the other stores on the disk.
+     *
+     * @return  whether the request is accepted
+     */
+    public boolean requestGroupFlush() {
+        return this.msgStoreMgr.getDiskFlushScheduler().requestFlush(this);
+    }
+
     /**
      * Flush memory store to file.
      *
@@ -582,6 +899,7 @@ public class MessageStore implements Closeable {
                 this.msgMemStoreBeingFlush.close();
                 this.executor.shutdown();
             }
+            this.msgStoreMgr.getDiskFlushScheduler().unregister(this);
             this.msgFileStore.close();
             logger.info(strBuffer.append("[Data Store] Message store stopped")
                     .append(this.storeKey).toString());
@@ -596,6 +914,14 @@ public class MessageStore implements Closeable {
         return this.storeId;
     }
 
+    public String getDiskKey() {
+        return this.diskKey;
+    }
+
+    public boolean isClosed() {
+        return this.closed.get();
+    }
+
     public String getStoreKey() {
         return this.storeKey;
     }
@@ -637,12 +963,7 @@ public class MessageStore implements Closeable {
     public long getIndexMaxOffset() {
         long lastOffset = 0L;
         if (tubeConfig.isEnableMemStore()) {
-            this.writeCacheMutex.readLock().lock();
-            try {
-                lastOffset = this.msgMemStore.getIndexLastWritePos();
-            } finally {
-                this.writeCacheMutex.readLock().unlock();
-            }
+            lastOffset = this.msgMemStore.getIndexLastWritePos();
         } else {
             lastOffset = msgFileStore.getIndexMaxOffset();
         }
@@ -666,12 +987,7 @@ public class MessageStore implements Closeable {
     public long getDataMaxOffset() {
         long lastOffset = 0L;
         if (tubeConfig.isEnableMemStore()) {
-            this.writeCacheMutex.readLock().lock();
-            try {
-                lastOffset = this.msgMemStore.getDataLastWritePos();
-            } finally {
-                this.writeCacheMutex.readLock().unlock();
-            }
+            lastOffset = this.msgMemStore.getDataLastWritePos();
         } else {
             lastOffset = this.msgFileStore.getDataMaxOffset();
         }
@@ -785,54 +1101,126 @@ public class MessageStore implements Closeable {
             long receivedTime, ByteBuffer indexEntry,
             int dataLength, ByteBuffer dataEntry,
             AppendResult appendResult) throws IOException {
-        long startTime;
-        writeCacheMutex.writeLock().lock();
         try {
-            if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
-                this.executor.execute(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        try {
-                            final StringBuilder strBuffer = new StringBuilder(512);
-                            flush(strBuffer);
-                        } catch (Throwable e) {
-                            logger.error("[Data Store] Error during flush", e);
-                        } finally {
-                            if (isTimeTrigger) {
-                                msgStoreStatsHolder.addCacheTimeoutFlush();
-                            }
-                        }
-                    }
-                });
-            } else {
-                msgStoreStatsHolder.addCachePending();
-            }
-            startTime = System.currentTimeMillis();
-            while (hasFlushBeenTriggered.get()) {
-                flushWriteCacheCondition.awaitNanos(FLUSH_CONDITION_WAIT_DLT_NS);
-                if (System.currentTimeMillis() - startTime > 2000) {
-                    logger.warn(new StringBuilder(512)
-                            .append("[Data Store] StoreKey=").append(storeKey)
-                            .append(" Wait Cache flush write too long! wait time is ")
-                            .append(System.currentTimeMillis() - startTime).toString());
-                    break;
-                }
-            }
-            if (needAdd) {
-                return msgMemStore.appendMsg(msgStoreStatsHolder, partitionId, keyCode,
-                        receivedTime, indexEntry, dataLength, dataEntry, appendResult);
-            }
+            triggerFlushAndWait(isTimeTrigger);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException(new StringBuilder(512)
                     .append("[Data Store] StoreKey=").append(storeKey)
                     .append(" Interrupted when triggerFlushAndAddMsg process for storekey ")
                     .append(storeKey).toString());
+        }
+        return needAdd && appendWriteCache(partitionId, keyCode,
+                receivedTime, indexEntry, dataLength, dataEntry, appendResult);
+    }
+
+    /**
+     * Trigger flush, then append the left messages of a batch to the new cache.
+     *
+     * @param partitionId       the partitionId for append messages
+     * @param receivedTime      the received time of messages
+     * @param items             the messages with stored entries built
+     * @param startIndex        the index of the first message to append
+     *
+     * @return                  the count of messages appended
+     * @throws IOException      the exception during processing
+     */
+    private int triggerFlushAndAddMsgs(int partitionId, long receivedTime,
+            List<BatchAppendItem> items, int startIndex) throws IOException {
+        try {
+            triggerFlushAndWait(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(new StringBuilder(512)
+                    .append("[Data Store] StoreKey=").append(storeKey)
+                    .append(" Interrupted when triggerFlushAndAddMsgs process for storekey ")
+                    .append(storeKey).toString());
+        }
+        return appendWriteCache(partitionId, receivedTime, items, startIndex);
+    }
+
+    /**
+     * Trigger flush and wait for the write cache swapped, only the appenders finding
+     * the write cache full and the timer wait here.
+     *
+     * @param isTimeTrigger     whether is timer trigger
+     * @throws InterruptedException   the thread is interrupted while waiting
+     */
+    private void triggerFlushAndWait(boolean isTimeTrigger) throws InterruptedException {
+        cacheSwapMutex.lock();
+        try {
+            triggerFlushAndAwaitSwap(isTimeTrigger);
         } finally {
-            writeCacheMutex.writeLock().unlock();
+            cacheSwapMutex.unlock();
+        }
+    }
+
+    private void triggerFlushAndAwaitSwap(boolean isTimeTrigger) throws InterruptedException {
+        if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        final StringBuilder strBuffer = new StringBuilder(512);
+                        flush(strBuffer);
+                    } catch (Throwable e) {
+                        logger.error("[Data Store] Error during flush", e);
+                    } finally {
+                        if (isTimeTrigger) {
+                            msgStoreStatsHolder.addCacheTimeoutFlush();
+                        }
+                    }
+                }
+            });
+        } else {
+            msgStoreStatsHolder.addCachePending();
+        }
+        long startTime = System.currentTimeMillis();
+        while (hasFlushBeenTriggered.get()) {
+            flushWriteCacheCondition.awaitNanos(FLUSH_CONDITION_WAIT_DLT_NS);
+            if (System.currentTimeMillis() - startTime > 2000) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Data Store] StoreKey=").append(storeKey)
+                        .append(" Wait Cache flush write too long! wait time is ")
+                        .append(System.currentTimeMillis() - startTime).toString());
+                break;
+            }
         }
-        return false;
+    }
+
+    private static ByteBuffer buildDataEntry(ByteBuf entryBuf, long messageId,
+            int dataCheckSum, ByteBuffer data, int msgTypeCode, int msgFlag,
+            int partitionId, int sentAddr, long receivedTime) {
+        final int dataLength = data.remaining();
+        final ByteBuffer dataBuffer = entryBuf.nioBuffer(0,
+                DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(dataCheckSum);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(receivedTime);
+        dataBuffer.putInt(sentAddr);
+        dataBuffer.putInt(msgTypeCode);
+        dataBuffer.putLong(messageId);
+        dataBuffer.putInt(msgFlag);
+        dataBuffer.put(data.duplicate());
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    private static ByteBuffer buildIndexEntry(int msgBufLen, int msgTypeCode,
+            int partitionId, long receivedTime) {
+        final ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(msgBufLen);
+        indexBuffer.putInt(msgTypeCode);
+        indexBuffer.putLong(receivedTime);
+        indexBuffer.flip();
+        return indexBuffer;
     }
 
     private void flush(StringBuilder strBuffer) throws IOException {
@@ -868,31 +1256,45 @@ public class MessageStore implements Closeable {
         }
     }
 
+    /**
+     * Swap the write caches and flush the swapped out one.
+     *
+     * The appenders take no lock, the current cache is sealed so that they retry on the
+     * new cache installed right after, and the sealed cache is flushed once the writes
+     * reserved before the seal are published. The lock only keeps the readers off the
+     * caches while the spare cache is cleared and the caches swapped.
+     */
     private void swapWriteCache(final StringBuilder strBuffer) throws Throwable {
-        long lastDataPos;
-        long lastIndexPos;
-        MsgMemStore tmpStore = null;
+        MsgMemStore sealedStore;
+        MsgMemStore tmpStore = msgMemStoreBeingFlush;
+        MsgMemStore newStore = tmpStore;
         boolean isRealloc = false;
+        if (tmpStore.getMaxAllowedMsgCount() != writeCacheMaxCnt
+                || tmpStore.getMaxDataCacheSize() != writeCacheMaxSize) {
+            isRealloc = true;
+            newStore = new MsgMemStore(writeCacheMaxSize, writeCacheMaxCnt, -1L, -1L);
+        }
         writeCacheMutex.writeLock().lock();
         try {
-            lastDataPos = msgMemStore.getDataLastWritePos();
-            lastIndexPos = msgMemStore.getIndexLastWritePos();
-            tmpStore = msgMemStoreBeingFlush;
-            msgMemStoreBeingFlush = msgMemStore;
-            if (tmpStore.getMaxAllowedMsgCount() == writeCacheMaxCnt
-                    && tmpStore.getMaxDataCacheSize() == writeCacheMaxSize) {
-                msgMemStore = tmpStore;
-                msgMemStore.resetMemStoreStatus(lastDataPos, lastIndexPos);
-            } else {
-                isRealloc = true;
-                msgMemStore = new MsgMemStore(writeCacheMaxSize,
-                        writeCacheMaxCnt, lastDataPos, lastIndexPos);
+            if (!isRealloc) {
+                newStore.clear();
             }
-            hasFlushBeenTriggered.set(false);
-            flushWriteCacheCondition.signalAll();
+            sealedStore = msgMemStore;
+            sealedStore.seal();
+            // the reservations of the sealed cache are final, the new cache continues them
+            newStore.reopen(sealedStore.getDataReservedPos(), sealedStore.getIndexReservedPos());
+            msgMemStoreBeingFlush = sealedStore;
+            msgMemStore = newStore;
         } finally {
             isFlushOngoing.set(true);
             writeCacheMutex.writeLock().unlock();
+        }
+        cacheSwapMutex.lock();
+        try {
+            hasFlushBeenTriggered.set(false);
+            flushWriteCacheCondition.signalAll();
+        } finally {
+            cacheSwapMutex.unlock();
             if (isRealloc) {
                 tmpStore.close();
                 msgStoreStatsHolder.addCacheReAlloc();
@@ -903,6 +1305,7 @@ public class MessageStore implements Closeable {
                 strBuffer.delete(0, strBuffer.length());
             }
         }
-        msgMemStoreBeingFlush.batchFlush(msgFileStore, strBuffer);
+        sealedStore.awaitPublished();
+        sealedStore.batchFlush(msgFileStore, strBuffer);
     }
 }
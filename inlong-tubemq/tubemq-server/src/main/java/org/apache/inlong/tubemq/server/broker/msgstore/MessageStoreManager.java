@@ -27,6 +27,7 @@ import org.apache.inlong.tubemq.server.broker.exception.StartupException;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetCsmRecord;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetHistoryInfo;
@@ -44,17 +45,18 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -78,14 +80,20 @@ public class MessageStoreManager implements StoreService {
     private final AtomicBoolean stopped = new AtomicBoolean(false);
     // data expire operation scheduler.
     private final ScheduledExecutorService logClearScheduler;
-    // flush operation scheduler.
-    private final ScheduledExecutorService unFlushDiskScheduler;
+    // flush operation scheduler, one flush worker per disk.
+    private final DiskFlushScheduler diskFlushScheduler;
     // message on memory sink to disk operation scheduler.
     private final ScheduledExecutorService unFlushMemScheduler;
     // max transfer size.
     private final int maxMsgTransferSize;
     // the status that is deleting topic.
     private final AtomicBoolean isRemovingTopic = new AtomicBoolean(false);
+    // the fetch requests waiting for new messages.
+    private final PendingFetchManager pendingFetchManager;
+    // the tiered storage of the offloaded segments, null if not enabled.
+    private final TieredStorage tieredStorage;
+    // the time cost to load all stores at startup.
+    private volatile long storesLoadTimeMs = 0L;
 
     /**
      * Initial the message-store manager.
@@ -103,6 +111,8 @@ public class MessageStoreManager implements StoreService {
         this.isRemovingTopic.set(false);
         this.maxMsgTransferSize =
                 Math.min(tubeConfig.getTransferSize(), DataStoreUtils.MAX_MSG_TRANSFER_SIZE);
+        this.pendingFetchManager =
+                new PendingFetchManager(tubeConfig.getTcpReadServiceThread());
         this.metadataManager.addPropertyChangeListener("topicConfigMap", new PropertyChangeListener() {
 
             @Override
@@ -121,14 +131,10 @@ public class MessageStoreManager implements StoreService {
                         return new Thread(r, "Broker Log Clear Thread");
                     }
                 });
-        this.unFlushDiskScheduler =
-                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-
-                    @Override
-                    public Thread newThread(Runnable r) {
-                        return new Thread(r, "Broker Log Disk Flush Thread");
-                    }
-                });
+        this.diskFlushScheduler = new DiskFlushScheduler(tubeConfig);
+        this.tieredStorage = tubeConfig.isTieredStoreEnable()
+                ? new TieredStorage(tubeConfig)
+                : null;
         this.unFlushMemScheduler =
                 Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
 
@@ -155,10 +161,7 @@ public class MessageStoreManager implements StoreService {
                 tubeConfig.getLogClearupDurationMs(),
                 TimeUnit.MILLISECONDS);
 
-        this.unFlushDiskScheduler.scheduleWithFixedDelay(new DiskUnFlushRunner(),
-                tubeConfig.getLogFlushDiskDurMs(),
-                tubeConfig.getLogFlushDiskDurMs(),
-                TimeUnit.MILLISECONDS);
+        this.diskFlushScheduler.start();
 
         this.unFlushMemScheduler.scheduleWithFixedDelay(new MemUnFlushRunner(),
                 tubeConfig.getLogFlushMemDurMs(),
@@ -174,8 +177,9 @@ public class MessageStoreManager implements StoreService {
         }
         if (this.stopped.compareAndSet(false, true)) {
             logger.info("[Store Manager] begin close store manager......");
+            this.pendingFetchManager.close();
             this.logClearScheduler.shutdownNow();
-            this.unFlushDiskScheduler.shutdownNow();
+            this.diskFlushScheduler.close();
             this.unFlushMemScheduler.shutdownNow();
             for (Map.Entry<String, ConcurrentHashMap<Integer, MessageStore>> entry : this.dataStores.entrySet()) {
                 if (entry.getValue() != null) {
@@ -194,6 +198,9 @@ public class MessageStoreManager implements StoreService {
                 }
             }
             this.dataStores.clear();
+            if (this.tieredStorage != null) {
+                this.tieredStorage.close();
+            }
             logger.info("[Store Manager] Store Manager stopped!");
         }
     }
@@ -257,6 +264,11 @@ public class MessageStoreManager implements StoreService {
                         logger.info("[Remove Topic] remove topic files : {}", storeDir);
                         try {
                             delTopicFiles(storeDir);
+                            if (this.tieredStorage != null) {
+                                this.tieredStorage.deleteStoreObjects(
+                                        sBuilder.append(tmpTopic).append("-").append(storeId).toString());
+                                sBuilder.delete(0, sBuilder.length());
+                            }
                         } catch (Throwable e) {
                             logger.error("[Remove Topic] remove topic files error : ", e);
                         }
@@ -397,6 +409,18 @@ public class MessageStoreManager implements StoreService {
         return maxMsgTransferSize;
     }
 
+    public PendingFetchManager getPendingFetchManager() {
+        return pendingFetchManager;
+    }
+
+    public DiskFlushScheduler getDiskFlushScheduler() {
+        return diskFlushScheduler;
+    }
+
+    public TieredStorage getTieredStorage() {
+        return tieredStorage;
+    }
+
     public Map<String, ConcurrentHashMap<Integer, MessageStore>> getMessageStores() {
         return Collections.unmodifiableMap(this.dataStores);
     }
@@ -546,7 +570,8 @@ public class MessageStoreManager implements StoreService {
         final long start = System.currentTimeMillis();
         final AtomicInteger errCnt = new AtomicInteger(0);
         final AtomicInteger finishCnt = new AtomicInteger(0);
-        List<Callable<MessageStore>> tasks = new ArrayList<>();
+        // the load tasks grouped by the disk of stores
+        Map<String, List<Callable<MessageStore>>> diskTasks = new LinkedHashMap<>();
         for (final File dir : this.getLogDirSet(tubeConfig)) {
             if (dir == null) {
                 continue;
@@ -555,11 +580,18 @@ public class MessageStoreManager implements StoreService {
             if (ls == null) {
                 continue;
             }
+            final String diskKey = DiskFlushScheduler.getDiskKey(dir);
+            List<Callable<MessageStore>> tasks = diskTasks.get(diskKey);
+            if (tasks == null) {
+                tasks = new ArrayList<>();
+                diskTasks.put(diskKey, tasks);
+            }
             for (final File subDir : ls) {
                 if (subDir == null) {
                     continue;
                 }
-                if (!subDir.isDirectory()) {
+                // the hidden directories, such as the file offset storage, are not topic stores
+                if (!subDir.isDirectory() || subDir.getName().startsWith(".")) {
                     continue;
                 }
                 final String name = subDir.getName();
@@ -624,38 +656,106 @@ public class MessageStoreManager implements StoreService {
                 });
             }
         }
-        this.loadStoresInParallel(tasks);
-        tasks.clear();
+        this.loadStoresInParallel(diskTasks, tubeConfig.getStoreRecoveryThreads());
+        diskTasks.clear();
         if (errCnt.get() > 0) {
             throw new RuntimeException(
                     "[Store Manager] failure to load message stores, please check load logger and fix first!");
         }
-        logger.info(sBuilder.append("[Store Manager] End to load message stores in ")
-                .append((System.currentTimeMillis() - start) / 1000).append(" secs").toString());
+        this.storesLoadTimeMs = System.currentTimeMillis() - start;
+        logger.info(sBuilder.append("[Store Manager] End to load ").append(finishCnt.get())
+                .append(" message stores in ").append(this.storesLoadTimeMs / 1000)
+                .append(" secs, ").append(getSlowestRecoveredStores(10)).toString());
     }
 
     /**
-     * Load stores in parallel.
+     * Load stores in parallel by a bounded pool, the tasks of different disks are
+     * interleaved so that all disks are busy from the beginning.
      *
-     * @param tasks                    the load tasks
+     * @param diskTasks                the load tasks of each disk
+     * @param threadCnt                the max count of parallel tasks
      * @throws InterruptedException    the exception during processing
      */
-    private void loadStoresInParallel(List<Callable<MessageStore>> tasks) throws InterruptedException {
-        ExecutorService executor =
-                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() + 1);
-        CompletionService<MessageStore> completionService =
-                new ExecutorCompletionService<>(executor);
-        for (Callable<MessageStore> task : tasks) {
-            completionService.submit(task);
-        }
-        for (int i = 0; i < tasks.size(); i++) {
-            try {
-                completionService.take().get();
-            } catch (Throwable e) {
-                //
-            }
-        }
-        executor.shutdown();
+    private void loadStoresInParallel(Map<String, List<Callable<MessageStore>>> diskTasks,
+            int threadCnt) throws InterruptedException {
+        List<Callable<MessageStore>> tasks = new ArrayList<>();
+        List<Iterator<Callable<MessageStore>>> diskIts = new ArrayList<>();
+        for (List<Callable<MessageStore>> taskList : diskTasks.values()) {
+            diskIts.add(taskList.iterator());
+        }
+        boolean hasMore = true;
+        while (hasMore) {
+            hasMore = false;
+            for (Iterator<Callable<MessageStore>> it : diskIts) {
+                if (it.hasNext()) {
+                    tasks.add(it.next());
+                    hasMore = true;
+                }
+            }
+        }
+        ForkJoinPool executor = new ForkJoinPool(threadCnt);
+        try {
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String getSlowestRecoveredStores(int topCnt) {
+        List<MessageStore> stores = new ArrayList<>();
+        int cleanCnt = 0;
+        for (ConcurrentHashMap<Integer, MessageStore> topicStores : dataStores.values()) {
+            for (MessageStore msgStore : topicStores.values()) {
+                stores.add(msgStore);
+                if (msgStore.isCleanRecovered()) {
+                    cleanCnt++;
+                }
+            }
+        }
+        stores.sort(new Comparator<MessageStore>() {
+
+            @Override
+            public int compare(MessageStore o1, MessageStore o2) {
+                return Long.compare(o2.getRecoveryTimeMs(), o1.getRecoveryTimeMs());
+            }
+        });
+        StringBuilder sBuilder = new StringBuilder(512)
+                .append(cleanCnt).append(" stores shut down cleanly, the slowest stores are [");
+        for (int i = 0; i < Math.min(topCnt, stores.size()); i++) {
+            if (i > 0) {
+                sBuilder.append(", ");
+            }
+            sBuilder.append(stores.get(i).getStoreKey()).append(":")
+                    .append(stores.get(i).getRecoveryTimeMs()).append("ms");
+        }
+        return sBuilder.append("]").toString();
+    }
+
+    /**
+     * Get the recovery statistics of the stores loaded at startup.
+     *
+     * @param statsMap  the statistics
+     */
+    public void getStoreRecoveryStats(Map<String, Long> statsMap) {
+        long storeCnt = 0;
+        long cleanCnt = 0;
+        long totalTimeMs = 0;
+        long maxTimeMs = 0;
+        for (ConcurrentHashMap<Integer, MessageStore> topicStores : dataStores.values()) {
+            for (MessageStore msgStore : topicStores.values()) {
+                storeCnt++;
+                if (msgStore.isCleanRecovered()) {
+                    cleanCnt++;
+                }
+                totalTimeMs += msgStore.getRecoveryTimeMs();
+                maxTimeMs = Math.max(maxTimeMs, msgStore.getRecoveryTimeMs());
+            }
+        }
+        statsMap.put("stores_load_time_ms", this.storesLoadTimeMs);
+        statsMap.put("store_count", storeCnt);
+        statsMap.put("clean_store_count", cleanCnt);
+        statsMap.put("total_store_recovery_ms", totalTimeMs);
+        statsMap.put("max_store_recovery_ms", maxTimeMs);
     }
 
     private void delTopicFiles(String filepath) throws IOException {
@@ -787,36 +887,6 @@ public class MessageStoreManager implements StoreService {
         }
     }
 
-    private class DiskUnFlushRunner implements Runnable {
-
-        public DiskUnFlushRunner() {
-            //
-        }
-
-        @Override
-        public void run() {
-            StringBuilder sBuilder = new StringBuilder(256);
-            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
-                if (storeMap == null || storeMap.isEmpty()) {
-                    continue;
-                }
-                for (MessageStore msgStore : storeMap.values()) {
-                    if (msgStore == null) {
-                        continue;
-                    }
-                    try {
-                        msgStore.flushFile();
-                    } catch (final Throwable e) {
-                        logger.error(sBuilder.append("[Store Manager] Try to flush ")
-                                .append(msgStore.getStoreKey())
-                                .append("'s file-store failed : ").toString(), e);
-                        sBuilder.delete(0, sBuilder.length());
-                    }
-                }
-            }
-        }
-    }
-
     private class MemUnFlushRunner implements Runnable {
 
         public MemUnFlushRunner() {
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Hold the fetch requests that found no new data of their partitions.
+ *
+ * The held fetch is re-executed when new messages are appended to its partition,
+ * or when its max wait time expires in the timer wheel, whichever comes first.
+ */
+public class PendingFetchManager {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(PendingFetchManager.class);
+    // the held fetches of each partition
+    private final ConcurrentHashMap<String/* topic:partitionId */, Queue<PendingFetch>> pendingFetches =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCnt = new AtomicInteger(0);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final HashedWheelTimer timer;
+    private final ExecutorService executor;
+
+    /**
+     * Initial the pending fetch manager.
+     *
+     * @param threadCnt    the thread count to re-execute the triggered fetches
+     */
+    public PendingFetchManager(int threadCnt) {
+        this.timer = new HashedWheelTimer(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Broker Pending Fetch Timer");
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        final AtomicInteger threadIndex = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threadCnt), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Broker Pending Fetch Thread-" + threadIndex.incrementAndGet());
+            }
+        });
+    }
+
+    /**
+     * Hold a fetch until new messages arrive in the partition or the wait time expires.
+     *
+     * @param topic             the topic name
+     * @param partitionId       the partition id
+     * @param reqOffset         the request offset that found no new messages
+     * @param maxOffsetGetter   the getter of the current max offset of the partition
+     * @param waitMs            the max wait time in milliseconds
+     * @param fetchTask         the task to re-execute the fetch
+     * @return                  whether the fetch is held
+     */
+    public boolean holdFetch(String topic, int partitionId,
+            long reqOffset, LongSupplier maxOffsetGetter,
+            long waitMs, Runnable fetchTask) {
+        if (this.closed.get() || waitMs <= 0) {
+            return false;
+        }
+        final PendingFetch pendingFetch =
+                new PendingFetch(getPartitionKey(topic, partitionId), fetchTask);
+        pendingCnt.incrementAndGet();
+        // add under the map lock of the key, so that an emptied queue is not removed
+        // from the map between getting and adding to it
+        pendingFetches.compute(pendingFetch.partitionKey, (key, fetchQueue) -> {
+            if (fetchQueue == null) {
+                fetchQueue = new ConcurrentLinkedQueue<>();
+            }
+            fetchQueue.add(pendingFetch);
+            return fetchQueue;
+        });
+        try {
+            pendingFetch.timeout = timer.newTimeout(
+                    timeout -> trigger(pendingFetch), waitMs, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // the timer has been stopped by close(), re-execute the fetch at once
+            trigger(pendingFetch);
+            return true;
+        }
+        if (pendingFetch.triggered.get()) {
+            pendingFetch.timeout.cancel();
+        } else if (maxOffsetGetter.getAsLong() > reqOffset) {
+            // the messages appended after the store read but before the fetch
+            // was queued did not wake it, re-execute the fetch at once
+            trigger(pendingFetch);
+        }
+        return true;
+    }
+
+    /**
+     * Wake the fetches held on the partition, called after messages are appended.
+     *
+     * @param topic          the topic name
+     * @param partitionId    the partition id
+     */
+    public void notifyMsgArrived(String topic, int partitionId) {
+        if (pendingCnt.get() <= 0) {
+            return;
+        }
+        Queue<PendingFetch> fetchQueue =
+                pendingFetches.get(getPartitionKey(topic, partitionId));
+        if (fetchQueue == null) {
+            return;
+        }
+        PendingFetch pendingFetch;
+        while ((pendingFetch = fetchQueue.poll()) != null) {
+            trigger(pendingFetch);
+        }
+    }
+
+    /**
+     * Wake the fetches held on the partition and remove its queue, called when a
+     * consumer leaves the partition, so that the queues of the partitions no longer
+     * consumed do not stay in the map.
+     *
+     * @param topic          the topic name
+     * @param partitionId    the partition id
+     */
+    public void removePartition(String topic, int partitionId) {
+        String partitionKey = getPartitionKey(topic, partitionId);
+        Queue<PendingFetch> fetchQueue = pendingFetches.get(partitionKey);
+        if (fetchQueue == null) {
+            return;
+        }
+        PendingFetch pendingFetch;
+        while ((pendingFetch = fetchQueue.poll()) != null) {
+            trigger(pendingFetch);
+        }
+        removeIfEmpty(partitionKey);
+    }
+
+    public int getPendingCount() {
+        return pendingCnt.get();
+    }
+
+    public int getPartitionCount() {
+        return pendingFetches.size();
+    }
+
+    /**
+     * Close the manager, the held fetches are re-executed at once.
+     */
+    public void close() {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+        this.timer.stop();
+        for (Map.Entry<String, Queue<PendingFetch>> entry : pendingFetches.entrySet()) {
+            PendingFetch pendingFetch;
+            while ((pendingFetch = entry.getValue().poll()) != null) {
+                trigger(pendingFetch);
+            }
+        }
+        this.executor.shutdown();
+    }
+
+    private void trigger(PendingFetch pendingFetch) {
+        if (!pendingFetch.triggered.compareAndSet(false, true)) {
+            return;
+        }
+        pendingCnt.decrementAndGet();
+        Timeout timeout = pendingFetch.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        Queue<PendingFetch> fetchQueue = pendingFetches.get(pendingFetch.partitionKey);
+        if (fetchQueue != null) {
+            fetchQueue.remove(pendingFetch);
+            removeIfEmpty(pendingFetch.partitionKey);
+        }
+        try {
+            executor.execute(() -> runFetchTask(pendingFetch.fetchTask));
+        } catch (RejectedExecutionException e) {
+            runFetchTask(pendingFetch.fetchTask);
+        }
+    }
+
+    private void removeIfEmpty(String partitionKey) {
+        pendingFetches.computeIfPresent(partitionKey,
+                (key, fetchQueue) -> fetchQueue.isEmpty() ? null : fetchQueue);
+    }
+
+    private void runFetchTask(Runnable fetchTask) {
+        try {
+            fetchTask.run();
+        } catch (Throwable e) {
+            logger.warn("[Pending Fetch] re-execute fetch failure", e);
+        }
+    }
+
+    private String getPartitionKey(String topic, int partitionId) {
+        return topic + TokenConstants.ATTR_SEP + partitionId;
+    }
+
+    private static class PendingFetch {
+
+        private final String partitionKey;
+        private final Runnable fetchTask;
+        private final AtomicBoolean triggered = new AtomicBoolean(false);
+        private volatile Timeout timeout;
+
+        PendingFetch(String partitionKey, Runnable fetchTask) {
+            this.partitionKey = partitionKey;
+            this.fetchTask = fetchTask;
+        }
+    }
+}
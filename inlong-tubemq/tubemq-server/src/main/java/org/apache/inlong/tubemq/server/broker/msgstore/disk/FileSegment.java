@@ -31,6 +31,8 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -49,6 +51,10 @@ public class FileSegment implements Segment {
     private final AtomicLong cachedSize;
     private final AtomicLong flushedSize;
     private final SegmentType segmentType;
+    // the sparse time index of the index segment, null for the data segment
+    private final SegmentTimeIndex timeIndex;
+    // the key filter of the index segment, null for the data segment
+    private final SegmentKeyFilter keyFilter;
     private volatile boolean mutable = false;
     private long expiredTime = 0;
     private final AtomicBoolean expired = new AtomicBoolean(false);
@@ -134,6 +140,13 @@ public class FileSegment implements Segment {
             }
         }
         if (this.segmentType == SegmentType.INDEX) {
+            this.timeIndex = new SegmentTimeIndex(getSummaryFile(this.file,
+                    DataStoreUtils.TIME_INDEX_FILE_SUFFIX), this.mutable, this.cachedSize.get());
+            this.keyFilter = new SegmentKeyFilter(getSummaryFile(this.file,
+                    DataStoreUtils.KEY_FILTER_FILE_SUFFIX), this.mutable, this.cachedSize.get());
+            if (this.mutable) {
+                recoverIndexSummaries();
+            }
             if (this.cachedSize.get() == 0) {
                 if (this.mutable) {
                     this.leftAppendTime.set(System.currentTimeMillis());
@@ -144,12 +157,19 @@ public class FileSegment implements Segment {
                 this.rightAppendTime.set(getRecordTime(this.start
                         + this.cachedSize.get() - DataStoreUtils.STORE_INDEX_HEAD_LEN));
             }
+        } else {
+            this.timeIndex = null;
+            this.keyFilter = null;
         }
     }
 
     @Override
     public void close() {
         if (this.closed.compareAndSet(false, true)) {
+            if (this.timeIndex != null) {
+                this.timeIndex.close();
+                this.keyFilter.close();
+            }
             try {
                 if (this.channel.isOpen()) {
                     if (this.mutable) {
@@ -173,6 +193,10 @@ public class FileSegment implements Segment {
     @Override
     public void deleteFile() {
         this.closed.set(true);
+        if (this.timeIndex != null) {
+            this.timeIndex.deleteFile();
+            this.keyFilter.deleteFile();
+        }
         try {
             if (this.channel.isOpen()) {
                 if (this.mutable) {
@@ -226,12 +250,18 @@ public class FileSegment implements Segment {
             throw new UnsupportedOperationException("[File Store] Segment is closed!");
         }
         final long offset = this.cachedSize.get();
+        final ByteBuffer recordView = (this.timeIndex == null) ? null : buf.duplicate();
+        if (this.keyFilter != null) {
+            // the filter is updated before the records are visible to the readers
+            this.keyFilter.addRecords(recordView, offset);
+        }
         int sizeInBytes = 0;
         while (buf.hasRemaining()) {
             sizeInBytes += this.channel.write(buf);
         }
         this.cachedSize.addAndGet(sizeInBytes);
         if (segmentType == SegmentType.INDEX) {
+            this.timeIndex.addRecords(recordView, offset);
             this.rightAppendTime.set(rightTime);
             if (offset == 0) {
                 this.leftAppendTime.set(leftTime);
@@ -251,6 +281,10 @@ public class FileSegment implements Segment {
     @Override
     public long flush(boolean force) throws IOException {
         this.channel.force(force);
+        if (force && this.timeIndex != null) {
+            this.timeIndex.flush();
+            this.keyFilter.flush();
+        }
         this.flushedSize.set(this.cachedSize.get());
         return this.start + this.flushedSize.get();
     }
@@ -279,6 +313,14 @@ public class FileSegment implements Segment {
                         && offset <= this.start + this.getCachedSize() - 1);
     }
 
+    /**
+     * Add reference to this FileSegment.
+     */
+    @Override
+    public void getViewRef() {
+
+    }
+
     /**
      * Release reference to this FileSegment.
      * File's channel will be closed when the reference decreased to 0.
@@ -321,6 +363,10 @@ public class FileSegment implements Segment {
     @Override
     public void setMutable(boolean mutable) {
         this.mutable = mutable;
+        if (!mutable && this.timeIndex != null) {
+            this.timeIndex.seal();
+            this.keyFilter.seal();
+        }
     }
 
     @Override
@@ -393,6 +439,25 @@ public class FileSegment implements Segment {
         }
     }
 
+    @Override
+    public long transferTo(long absOffset, long count,
+            WritableByteChannel target) throws IOException {
+        long startPos = absOffset - start;
+        if (this.closed.get()) {
+            throw new IOException(new StringBuilder(512)
+                    .append("[File Store] Segment closed, file=")
+                    .append(this.file.getAbsoluteFile()).toString());
+        }
+        if (startPos < 0 || startPos + count > this.cachedSize.get()) {
+            throw new IOException(new StringBuilder(512)
+                    .append("[File Store] Transfer range out of segment, file=")
+                    .append(this.file.getAbsoluteFile()).append(", position=")
+                    .append(startPos).append(", count=").append(count)
+                    .append(", size=").append(this.cachedSize.get()).toString());
+        }
+        return this.channel.transferTo(startPos, count, target);
+    }
+
     /**
      * read index record's append time.
      * @param reqOffset request offset.
@@ -413,6 +478,69 @@ public class FileSegment implements Segment {
         return readUnit.getLong(DataStoreUtils.INDEX_POS_TIME_RECV);
     }
 
+    @Override
+    public long[] getTimeIndexRange(long timestamp) {
+        if (this.timeIndex == null) {
+            return null;
+        }
+        return this.timeIndex.lookup(timestamp, this.cachedSize.get());
+    }
+
+    @Override
+    public long getKeyFilterBlockEnd(long relPos, Set<Integer> filterKeySet) {
+        if (this.keyFilter == null) {
+            return -1L;
+        }
+        return this.keyFilter.getUnmatchedBlockEnd(
+                relPos, this.flushedSize.get(), filterKeySet);
+    }
+
+    /**
+     * Rebuild the time index entries and the key filters of the records after
+     * the last consistent ones, they may be lost if the broker was not shut down normally.
+     *
+     * @throws IOException   exception while reading the index file
+     */
+    private void recoverIndexSummaries() throws IOException {
+        final long validSize = this.cachedSize.get();
+        final long timeIndexPos = Math.max(0L, this.timeIndex.getLastEntryPosition());
+        final long keyFilterPos = (this.keyFilter.getRebuildPosition() < 0)
+                ? validSize
+                : this.keyFilter.getRebuildPosition();
+        long readPos = Math.min(timeIndexPos, keyFilterPos);
+        final ByteBuffer readBuffer = ByteBuffer.allocate(
+                SegmentTimeIndex.RECORD_INTERVAL * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        while (readPos < validSize) {
+            readBuffer.clear();
+            if (validSize - readPos < readBuffer.capacity()) {
+                readBuffer.limit((int) (validSize - readPos));
+            }
+            relRead(readBuffer, readPos);
+            readBuffer.flip();
+            if (readBuffer.remaining() < DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+                break;
+            }
+            this.timeIndex.addRecords(readBuffer, readPos);
+            if (readPos + readBuffer.remaining() > keyFilterPos) {
+                // only the records after the consistent filters are added again
+                ByteBuffer filterView = readBuffer.duplicate();
+                long skipSize = Math.max(0L, keyFilterPos - readPos);
+                filterView.position((int) skipSize);
+                this.keyFilter.addRecords(filterView, readPos + skipSize);
+            }
+            readPos += readBuffer.remaining();
+        }
+    }
+
+    private static File getSummaryFile(File indexFile, String fileSuffix) {
+        String fileName = indexFile.getName();
+        if (fileName.endsWith(DataStoreUtils.INDEX_FILE_SUFFIX)) {
+            fileName = fileName.substring(0,
+                    fileName.length() - DataStoreUtils.INDEX_FILE_SUFFIX.length());
+        }
+        return new File(indexFile.getParentFile(), fileName + fileSuffix);
+    }
+
     /**
      * Check whether this FileSegment is expired, and set expire status.
      * The last FileSegment cannot be marked expired.
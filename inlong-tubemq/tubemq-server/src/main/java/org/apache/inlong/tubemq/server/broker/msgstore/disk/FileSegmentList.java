@@ -21,6 +21,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -33,6 +36,8 @@ public class FileSegmentList implements SegmentList {
     // list of segments.
     private final AtomicReference<Segment[]> segmentList =
             new AtomicReference<>();
+    // the replaced segments and their replace time, deleted after the in-flight reads finish
+    private final Map<Segment, Long> replacedSegments = new ConcurrentHashMap<>();
 
     public FileSegmentList(final Segment[] s) {
         super();
@@ -51,6 +56,10 @@ public class FileSegmentList implements SegmentList {
                 segment.close();
             }
         }
+        for (Segment segment : replacedSegments.keySet()) {
+            segment.deleteFile();
+        }
+        replacedSegments.clear();
     }
 
     @Override
@@ -68,9 +77,10 @@ public class FileSegmentList implements SegmentList {
     @Override
     public Segment getRecordSeg(final long offset) throws IOException {
         Segment tmpSeg = this.findSegment(offset);
-        if (tmpSeg != null && tmpSeg.isExpired()) {
+        if (tmpSeg == null || tmpSeg.isExpired()) {
             return null;
         }
+        tmpSeg.getViewRef();
         return tmpSeg;
     }
 
@@ -127,6 +137,40 @@ public class FileSegmentList implements SegmentList {
             delete(segment);
             segment.deleteFile();
         }
+        // delete replaced segment
+        long curTime = System.currentTimeMillis();
+        Iterator<Map.Entry<Segment, Long>> it = replacedSegments.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Segment, Long> entry = it.next();
+            if (curTime - entry.getValue() > 120000) {
+                it.remove();
+                entry.getKey().deleteFile();
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(final Segment oldSeg, final Segment newSeg) {
+        while (true) {
+            int index = -1;
+            final Segment[] curViews = segmentList.get();
+            for (int i = 0; i < curViews.length; i++) {
+                if (curViews[i] == oldSeg) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index == -1) {
+                return false;
+            }
+            final Segment[] update = new Segment[curViews.length];
+            System.arraycopy(curViews, 0, update, 0, curViews.length);
+            update[index] = newSeg;
+            if (this.segmentList.compareAndSet(curViews, update)) {
+                replacedSegments.put(oldSeg, System.currentTimeMillis());
+                return true;
+            }
+        }
     }
 
     @Override
@@ -259,7 +303,8 @@ public class FileSegmentList implements SegmentList {
         }
         for (int i = 0; i < curViews.length; i++) {
             if (curViews[i] == null
-                    || curViews[i].isExpired()) {
+                    || curViews[i].isExpired()
+                    || curViews[i] instanceof RemoteSegment) {
                 continue;
             }
             sum += curViews[i].getCachedSize();
@@ -19,6 +19,7 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
+import org.apache.inlong.tubemq.corerpc.RpcDataRegion;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
 
 import java.util.ArrayList;
@@ -42,6 +43,8 @@ public class GetMessageResult {
     public boolean isFromSsdFile = false;
     public HashMap<String, TrafficInfo> tmpCounters = new HashMap<>();
     public List<TransferedMessage> transferedMessageList = new ArrayList<>();
+    // stored message frames to be sent by zero-copy transfer
+    public List<RpcDataRegion> dataRegionList = new ArrayList<>();
     public long maxOffset = TBaseConstants.META_VALUE_UNDEFINED;
 
     public GetMessageResult(boolean isSuccess, int retCode, final String errInfo,
@@ -126,6 +129,28 @@ public class GetMessageResult {
         this.transferedMessageList = transferedMessageList;
     }
 
+    public List<RpcDataRegion> getDataRegionList() {
+        return dataRegionList;
+    }
+
+    public void setDataRegionList(List<RpcDataRegion> dataRegionList) {
+        this.dataRegionList = dataRegionList;
+    }
+
+    public boolean hasMessages() {
+        return !transferedMessageList.isEmpty() || !dataRegionList.isEmpty();
+    }
+
+    /**
+     * Release the data regions if the result will not be sent to client.
+     */
+    public void releaseDataRegions() {
+        for (RpcDataRegion region : dataRegionList) {
+            region.release();
+        }
+        dataRegionList.clear();
+    }
+
     public boolean isFromSsdFile() {
         return isFromSsdFile;
     }
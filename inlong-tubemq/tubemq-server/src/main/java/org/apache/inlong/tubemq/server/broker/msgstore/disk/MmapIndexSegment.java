@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index segment read through a memory mapped file.
+ *
+ * The committed content of the segment is mapped read-only, the reads within the
+ * mapping are copied from memory instead of positional channel reads, and the pages
+ * after the latest read are loaded in advance to serve the sequential consumers.
+ * The writable segment is remapped when its unmapped committed content exceeds
+ * REMAP_THRESHOLD, the reads beyond the mapping fall back to the channel reads.
+ * The mapping is released after the segment is closed and all view references
+ * are released by relViewRef.
+ */
+public class MmapIndexSegment extends FileSegment {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MmapIndexSegment.class);
+    // the unmapped committed size that triggers the remapping of the writable segment
+    public static final long REMAP_THRESHOLD = 1024L * 1024L;
+    private static final int PAGE_SIZE = 4096;
+
+    private final int readAheadSize;
+    // the view references, include the readers inside this segment
+    private final AtomicInteger viewRefs = new AtomicInteger(0);
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    private final AtomicBoolean unmapped = new AtomicBoolean(false);
+    private volatile MappedByteBuffer mappedBuffer;
+    private volatile long mappedSize = 0L;
+    private volatile long readAheadEnd = 0L;
+
+    public MmapIndexSegment(long start, File file,
+            boolean mutable, int readAheadSize) throws IOException {
+        super(start, file, mutable, SegmentType.INDEX);
+        this.readAheadSize = readAheadSize;
+        remap();
+    }
+
+    public MmapIndexSegment(long start, File file,
+            int readAheadSize, long checkOffset) throws IOException {
+        super(start, file, SegmentType.INDEX, checkOffset);
+        this.readAheadSize = readAheadSize;
+        remap();
+    }
+
+    @Override
+    public void getViewRef() {
+        this.viewRefs.incrementAndGet();
+    }
+
+    @Override
+    public void relViewRef() {
+        int curRefs;
+        do {
+            curRefs = this.viewRefs.get();
+            if (curRefs <= 0) {
+                // unbalanced release, keep the count from going negative
+                return;
+            }
+        } while (!this.viewRefs.compareAndSet(curRefs, curRefs - 1));
+        if (curRefs == 1 && this.released.get()) {
+            unmap();
+        }
+    }
+
+    @Override
+    public void read(ByteBuffer bf, long absOffset) throws IOException {
+        relRead(bf, absOffset - getStart());
+    }
+
+    @Override
+    public void relRead(ByteBuffer bf, long relOffset) throws IOException {
+        final MappedByteBuffer curBuffer = this.mappedBuffer;
+        final int readSize = bf.remaining();
+        if (curBuffer == null
+                || relOffset < 0
+                || relOffset + readSize > this.mappedSize
+                || !acquireRead()) {
+            super.relRead(bf, relOffset);
+            checkRemap();
+            return;
+        }
+        try {
+            ByteBuffer readView = curBuffer.duplicate();
+            readView.position((int) relOffset);
+            readView.limit((int) relOffset + readSize);
+            bf.put(readView);
+            readAhead(curBuffer, relOffset, relOffset + readSize);
+        } finally {
+            relViewRef();
+        }
+    }
+
+    @Override
+    public long getRecordTime(long reqOffset) throws IOException {
+        final MappedByteBuffer curBuffer = this.mappedBuffer;
+        final long relOffset = reqOffset - getStart();
+        if (curBuffer == null
+                || relOffset < 0
+                || relOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.mappedSize
+                || !acquireRead()) {
+            return super.getRecordTime(reqOffset);
+        }
+        try {
+            return curBuffer.getLong((int) relOffset + DataStoreUtils.INDEX_POS_TIME_RECV);
+        } finally {
+            relViewRef();
+        }
+    }
+
+    @Override
+    public void setMutable(boolean mutable) {
+        super.setMutable(mutable);
+        if (!mutable) {
+            remap();
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        release();
+    }
+
+    @Override
+    public void deleteFile() {
+        release();
+        super.deleteFile();
+    }
+
+    public long getMappedSize() {
+        return mappedSize;
+    }
+
+    /**
+     * Map the committed content of the segment, the previous mapping is left
+     * to the readers still holding it and released when it is collected.
+     */
+    private synchronized void remap() {
+        if (this.released.get()) {
+            return;
+        }
+        final long mapSize = Math.min(getCommitSize(), getFile().length());
+        if (mapSize <= this.mappedSize || mapSize > Integer.MAX_VALUE) {
+            return;
+        }
+        try (RandomAccessFile randFile = new RandomAccessFile(getFile(), "r")) {
+            this.mappedBuffer = randFile.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY, 0, mapSize);
+            this.mappedSize = mapSize;
+        } catch (Throwable ee) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] failure to map index file ")
+                    .append(getFile().getAbsoluteFile())
+                    .append(", read by channel instead").toString(), ee);
+        }
+    }
+
+    private void checkRemap() {
+        if (isMutable()
+                && getCommitSize() - this.mappedSize >= REMAP_THRESHOLD) {
+            remap();
+        }
+    }
+
+    /**
+     * Load the pages after the read position in advance if the read reaches
+     * the second half of the loaded range or jumps out of it.
+     */
+    private void readAhead(MappedByteBuffer curBuffer, long readStart, long readEnd) {
+        final long curAheadEnd = this.readAheadEnd;
+        if (this.readAheadSize <= 0
+                || (readEnd + this.readAheadSize / 2 <= curAheadEnd
+                        && readStart >= curAheadEnd - 2L * this.readAheadSize)) {
+            return;
+        }
+        final long loadStart = (readEnd > curAheadEnd
+                || readStart < curAheadEnd - 2L * this.readAheadSize) ? readEnd : curAheadEnd;
+        final long loadEnd = Math.min(this.mappedSize, readEnd + this.readAheadSize);
+        this.readAheadEnd = readEnd + this.readAheadSize;
+        if (loadEnd <= loadStart) {
+            return;
+        }
+        ByteBuffer loadView = curBuffer.duplicate();
+        loadView.position((int) loadStart);
+        loadView.limit((int) loadEnd);
+        MappedByteBuffer loadSlice = (MappedByteBuffer) loadView.slice();
+        try {
+            // advise the kernel and touch the pages
+            loadSlice.load();
+        } catch (UnsupportedOperationException ee) {
+            // the slice of the mapping can not be loaded before Java 9
+            for (int pos = 0; pos < loadSlice.limit(); pos += PAGE_SIZE) {
+                loadSlice.get(pos);
+            }
+        }
+    }
+
+    private boolean acquireRead() {
+        this.viewRefs.incrementAndGet();
+        if (this.released.get()) {
+            relViewRef();
+            return false;
+        }
+        return true;
+    }
+
+    private void release() {
+        if (this.released.compareAndSet(false, true)
+                && this.viewRefs.get() <= 0) {
+            unmap();
+        }
+    }
+
+    private void unmap() {
+        final MappedByteBuffer curBuffer = this.mappedBuffer;
+        if (curBuffer == null || !this.unmapped.compareAndSet(false, true)) {
+            return;
+        }
+        this.mappedBuffer = null;
+        this.mappedSize = 0L;
+        DataStoreUtils.releaseDirectBuffer(curBuffer);
+    }
+}
@@ -21,8 +21,10 @@ import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
@@ -31,17 +33,24 @@ import org.apache.inlong.tubemq.server.broker.utils.DiskSamplePrint;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.utils.FileUtil;
 
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -55,6 +64,9 @@ public class MsgFileStore implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(MsgFileStore.class);
     private static final int MAX_META_REFRESH_DUR = 1000 * 60 * 60;
+    // the marker written after the store is flushed and closed, with the end offsets of
+    // the last segments, the recovery scan of the last segments is skipped if they match
+    private static final String CLEAN_SHUTDOWN_MARKER = ".clean_shutdown";
     private static final DiskSamplePrint samplePrintCtrl =
             new DiskSamplePrint(logger);
     // storage ID
@@ -69,6 +81,8 @@ public class MsgFileStore implements Closeable {
     private final AtomicLong curUnflushSize = new AtomicLong(0);
     // time of data's last flush operation
     private final AtomicLong lastFlushTime = new AtomicLong(System.currentTimeMillis());
+    // whether a flush is requested to the flush scheduler and not done yet
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
     // time of meta's last flush operation
     private final AtomicLong lastMetaFlushTime = new AtomicLong(0);
     private final BrokerConfig tubeConfig;
@@ -80,12 +94,18 @@ public class MsgFileStore implements Closeable {
             ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
     // message storage
     private final MessageStore messageStore;
+    // the tiered storage of the offloaded segments, null if not enabled
+    private final TieredStorage tieredStorage;
     // data file segment list
     private SegmentList dataSegments;
     // index file segment list
     private SegmentList indexSegments;
     // close status
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    // whether the store was closed cleanly before loaded
+    private final boolean cleanRecovered;
+    // the time cost to load and recover the segments
+    private final long recoveryTimeMs;
 
     /**
      * MsgFileStore, initial message file store block
@@ -104,6 +124,7 @@ public class MsgFileStore implements Closeable {
         this.messageStore = messageStore;
         this.msgStoreStatsHolder = messageStore.getMsgStoreStatsHolder();
         this.storeKey = messageStore.getStoreKey();
+        this.tieredStorage = messageStore.getTieredStorage();
         this.dataDir = new File(sBuilder.append(baseStorePath)
                 .append(File.separator).append(this.storeKey).toString());
         sBuilder.delete(0, sBuilder.length());
@@ -111,11 +132,23 @@ public class MsgFileStore implements Closeable {
                 .append(File.separator).append(this.storeKey)
                 .append(File.separator).append("index").toString());
         sBuilder.delete(0, sBuilder.length());
+        final long startTime = System.currentTimeMillis();
         FileUtil.checkDir(this.dataDir);
         FileUtil.checkDir(this.indexDir);
-        loadSegments(SegmentType.DATA, offsetIfCreate, sBuilder);
-        loadSegments(SegmentType.INDEX, offsetIfCreate, sBuilder);
+        final File markerFile = new File(this.dataDir, CLEAN_SHUTDOWN_MARKER);
+        final Properties cleanOffsets = readCleanShutdownMarker(markerFile);
+        this.cleanRecovered = (cleanOffsets != null);
+        loadSegments(SegmentType.DATA, offsetIfCreate,
+                getCheckOffset(cleanOffsets, "dataOffset"), sBuilder);
+        loadSegments(SegmentType.INDEX, offsetIfCreate,
+                getCheckOffset(cleanOffsets, "indexOffset"), sBuilder);
+        // the marker is only valid for the first load after the clean shutdown
+        if (markerFile.exists() && !markerFile.delete()) {
+            throw new IOException(sBuilder.append("[File Store] Could not delete ")
+                    .append(markerFile.getAbsolutePath()).toString());
+        }
         this.lastFlushTime.set(System.currentTimeMillis());
+        this.recoveryTimeMs = this.lastFlushTime.get() - startTime;
     }
 
     /**
@@ -151,6 +184,7 @@ public class MsgFileStore implements Closeable {
         boolean pendingMsgSizeExceed = false;
         boolean pendingMsgTimeExceed = false;
         boolean isForceMetadata = false;
+        boolean requestGroupFlush = false;
         // flushed message count and data size info
         long flushedMsgCnt = 0;
         long flushedDataSize = 0;
@@ -205,8 +239,8 @@ public class MsgFileStore implements Closeable {
                         new File(this.indexDir,
                                 DataStoreUtils.nameFromOffset(newIndexOffset, DataStoreUtils.INDEX_FILE_SUFFIX));
                 newIndexFilePath = newIndexFile.getAbsolutePath();
-                this.indexSegments.append(new FileSegment(newIndexOffset,
-                        newIndexFile, SegmentType.INDEX));
+                this.indexSegments.append(newSegment(newIndexOffset,
+                        newIndexFile, true, SegmentType.INDEX));
             }
             // check whether we need to flush to disk.
             pendingMsgSizeExceed = (messageStore.getUnflushDataHold() > 0)
@@ -215,7 +249,12 @@ public class MsgFileStore implements Closeable {
                     (this.curUnflushed.addAndGet(msgCnt) >= messageStore.getUnflushThreshold());
             pendingMsgTimeExceed =
                     (currTime - this.lastFlushTime.get() >= messageStore.getUnflushInterval());
-            if (pendingMsgCntExceed || pendingMsgTimeExceed
+            if ((pendingMsgCntExceed || pendingMsgTimeExceed || pendingMsgSizeExceed)
+                    && !isDataSegFlushed && !isIndexSegFlushed
+                    && messageStore.isFlushGroupCommit()) {
+                // coalesce the flush with the other stores on the disk
+                requestGroupFlush = this.flushRequested.compareAndSet(false, true);
+            } else if (pendingMsgCntExceed || pendingMsgTimeExceed
                     || pendingMsgSizeExceed || isDataSegFlushed || isIndexSegFlushed) {
                 isForceMetadata = (isDataSegFlushed || isIndexSegFlushed
                         || (currTime - this.lastMetaFlushTime.get() > MAX_META_REFRESH_DUR));
@@ -256,6 +295,14 @@ public class MsgFileStore implements Closeable {
             samplePrintCtrl.printExceptionCaught(e);
         } finally {
             this.writeLock.unlock();
+            if (requestGroupFlush && !messageStore.requestGroupFlush()) {
+                // the flush scheduler is stopped, flush the data by itself
+                try {
+                    flushDiskFile(true);
+                } catch (Throwable e) {
+                    samplePrintCtrl.printExceptionCaught(e);
+                }
+            }
             // add statistics.
             if (fileStoreOK) {
                 msgStoreStatsHolder.addFileFlushStatsInfo(msgCnt, indexSize, dataSize,
@@ -320,8 +367,10 @@ public class MsgFileStore implements Closeable {
         final long curDataMaxOffset = getDataMaxOffset();
         final long curDataMinOffset = getDataMinOffset();
         HashMap<String, TrafficInfo> countMap = new HashMap<>();
-        ByteBuffer dataBuffer =
-                ByteBuffer.allocate(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
+        // the data is read into a pooled direct buffer, so the file read needs no extra copy
+        ByteBuf dataBuf =
+                NettyBufferPool.acquireBuffer(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
+        ByteBuffer dataBuffer = dataBuf.nioBuffer(0, dataBuf.capacity());
         List<ClientBroker.TransferedMessage> transferedMessageList =
                 new ArrayList<>();
         // read data file by index.
@@ -376,7 +425,9 @@ public class MsgFileStore implements Closeable {
                     }
                 }
                 if (dataBuffer.capacity() < curIndexDataSize) {
-                    dataBuffer = ByteBuffer.allocate(curIndexDataSize);
+                    NettyBufferPool.releaseBuffer(dataBuf);
+                    dataBuf = NettyBufferPool.acquireBuffer(curIndexDataSize);
+                    dataBuffer = dataBuf.nioBuffer(0, dataBuf.capacity());
                 }
                 dataBuffer.clear();
                 dataBuffer.limit(curIndexDataSize);
@@ -423,6 +474,7 @@ public class MsgFileStore implements Closeable {
         if (recordSeg != null) {
             recordSeg.relViewRef();
         }
+        NettyBufferPool.releaseBuffer(dataBuf);
         if (retCode != 0) {
             if (!transferedMessageList.isEmpty()) {
                 retCode = 0;
@@ -438,6 +490,181 @@ public class MsgFileStore implements Closeable {
                 totalSize, countMap, transferedMessageList);
     }
 
+    /**
+     * Get message data regions from index and data files.
+     *
+     * Unlike getMessages(), the stored data is not read into the heap, the
+     * contiguous records in a data segment are merged into one region that is
+     * transferred to the client by sendfile, the client parses and verifies them.
+     * Message time in attributes is not parsed, so the statistics use an empty time.
+     *
+     * @param partitionId           the partitionId for reading messages
+     * @param lastRdOffset          the recent data offset read before
+     * @param reqOffset             the request index offset
+     * @param indexBuffer           the index read buffer
+     * @param isFilterConsume       whether to filter consumption
+     * @param filterKeySet          filter item set
+     * @param statsKeyBase         the statistical key prefix
+     * @param maxMsgTransferSize    the max read message size
+     * @param reqRcvTime            the timestamp of the record to be checked
+     *
+     * @return                      read result
+     */
+    public GetMessageResult getMessageRegions(int partitionId, long lastRdOffset,
+            long reqOffset, ByteBuffer indexBuffer,
+            boolean isFilterConsume,
+            Set<Integer> filterKeySet,
+            String statsKeyBase,
+            int maxMsgTransferSize,
+            long reqRcvTime) {
+        int retCode = 0;
+        int totalSize = 0;
+        String errInfo = "Ok";
+        boolean result = true;
+        int curIndexOffset = 0;
+        int readedOffset = 0;
+        Segment recordSeg = null;
+        int curIndexPartitionId = 0;
+        long curIndexDataOffset = 0L;
+        int curIndexDataSize = 0;
+        int curIndexKeyCode = 0;
+        long recvTimeInMillsec = 0L;
+        long maxDataLimitOffset = 0L;
+        long lastRdDataOffset = 0L;
+        long spanStart = -1L;
+        long spanEnd = -1L;
+        final StringBuilder sBuilder = new StringBuilder(512);
+        final long curDataMaxOffset = getDataMaxOffset();
+        final long curDataMinOffset = getDataMinOffset();
+        final String statsKey = sBuilder.append(statsKeyBase).append("#").toString();
+        sBuilder.delete(0, sBuilder.length());
+        HashMap<String, TrafficInfo> countMap = new HashMap<>();
+        List<SegmentDataRegion> regionList = new ArrayList<>();
+        // read data region by index.
+        for (curIndexOffset = 0; curIndexOffset < indexBuffer.remaining(); curIndexOffset +=
+                DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            curIndexPartitionId = indexBuffer.getInt();
+            curIndexDataOffset = indexBuffer.getLong();
+            curIndexDataSize = indexBuffer.getInt();
+            curIndexKeyCode = indexBuffer.getInt();
+            recvTimeInMillsec = indexBuffer.getLong();
+            maxDataLimitOffset = curIndexDataOffset + curIndexDataSize;
+            // skip when mismatch condition
+            if (curIndexDataOffset < 0
+                    || curIndexDataSize <= DataStoreUtils.STORE_DATA_HEADER_LEN
+                    || curIndexDataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
+                    || curIndexDataOffset < curDataMinOffset) {
+                readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                continue;
+            }
+            // read finish, then return.
+            if (curIndexDataOffset >= curDataMaxOffset
+                    || maxDataLimitOffset > curDataMaxOffset) {
+                lastRdDataOffset = curIndexDataOffset;
+                break;
+            }
+            // conduct filter operation.
+            if (curIndexPartitionId != partitionId
+                    || (isFilterConsume
+                            && !filterKeySet.contains(curIndexKeyCode))) {
+                lastRdDataOffset = maxDataLimitOffset;
+                readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                continue;
+            }
+            if (reqRcvTime != 0 && recvTimeInMillsec < reqRcvTime) {
+                continue;
+            }
+            try {
+                // locate the data segment that holds the record.
+                if (recordSeg == null
+                        || !((curIndexDataOffset >= recordSeg.getStart())
+                                && (maxDataLimitOffset <= recordSeg.getStart() + recordSeg.getCommitSize()))) {
+                    if (recordSeg != null) {
+                        addDataRegion(regionList, recordSeg, spanStart, spanEnd);
+                        releaseSegment(regionList, recordSeg);
+                        recordSeg = null;
+                        spanStart = spanEnd = -1L;
+                    }
+                    recordSeg = dataSegments.getRecordSeg(curIndexDataOffset);
+                    if (recordSeg == null) {
+                        continue;
+                    }
+                    if (this.closed.get()) {
+                        throw new Exception("Read Service has closed!");
+                    }
+                }
+            } catch (Throwable e2) {
+                samplePrintCtrl.printExceptionCaught(e2,
+                        messageStore.getStoreKey(), String.valueOf(partitionId));
+                retCode = TErrCodeConstants.INTERNAL_SERVER_ERROR;
+                sBuilder.delete(0, sBuilder.length());
+                errInfo = sBuilder.append("Get message from file failure : ")
+                        .append(e2.getCause()).toString();
+                sBuilder.delete(0, sBuilder.length());
+                result = false;
+                break;
+            }
+            // merge the record into the current span.
+            if (curIndexDataOffset != spanEnd) {
+                addDataRegion(regionList, recordSeg, spanStart, spanEnd);
+                spanStart = curIndexDataOffset;
+            }
+            spanEnd = maxDataLimitOffset;
+            readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            lastRdDataOffset = maxDataLimitOffset;
+            TrafficInfo getCount = countMap.get(statsKey);
+            if (getCount == null) {
+                countMap.put(statsKey, new TrafficInfo(1L,
+                        curIndexDataSize - DataStoreUtils.STORE_DATA_HEADER_LEN));
+            } else {
+                getCount.addMsgCntAndSize(1L,
+                        curIndexDataSize - DataStoreUtils.STORE_DATA_HEADER_LEN);
+            }
+            totalSize += curIndexDataSize;
+            // break when exceed the max transfer size.
+            if (totalSize >= maxMsgTransferSize) {
+                break;
+            }
+        }
+        // keep the last span and release resource
+        if (recordSeg != null) {
+            addDataRegion(regionList, recordSeg, spanStart, spanEnd);
+            releaseSegment(regionList, recordSeg);
+        }
+        if (retCode != 0) {
+            if (!regionList.isEmpty()) {
+                retCode = 0;
+                errInfo = "Ok";
+            }
+        }
+        if (lastRdDataOffset <= 0L) {
+            lastRdDataOffset = lastRdOffset;
+        }
+        // return result.
+        GetMessageResult getResult = new GetMessageResult(result, retCode, errInfo,
+                reqOffset, readedOffset, lastRdDataOffset,
+                totalSize, countMap, new ArrayList<>());
+        getResult.setDataRegionList(new ArrayList<>(regionList));
+        return getResult;
+    }
+
+    private void addDataRegion(List<SegmentDataRegion> regionList,
+            Segment recordSeg, long spanStart, long spanEnd) {
+        if (spanStart >= 0 && spanEnd > spanStart) {
+            regionList.add(new SegmentDataRegion(recordSeg, spanStart, spanEnd - spanStart));
+        }
+    }
+
+    private void releaseSegment(List<SegmentDataRegion> regionList, Segment recordSeg) {
+        // the segment reference is released with its last region if exists
+        if (!regionList.isEmpty()
+                && regionList.get(regionList.size() - 1).getSegment() == recordSeg) {
+            regionList.get(regionList.size() - 1).setSegmentOwner(true);
+        } else {
+            recordSeg.relViewRef();
+        }
+    }
+
     /**
      * Get the segment start Offset that contains the specified timestamp
      *
@@ -459,10 +686,18 @@ public class MsgFileStore implements Closeable {
         if (endPos <= 0) {
             return recordSeg.getStart();
         }
+        // narrow the search range by the sparse time index if present
+        long lowPos = 0;
+        final long[] indexRange = recordSeg.getTimeIndexRange(timestamp);
+        if (indexRange != null) {
+            lowPos = indexRange[0] / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            endPos = Math.max(lowPos,
+                    Math.min(endPos, indexRange[1] / DataStoreUtils.STORE_INDEX_HEAD_LEN));
+        }
         long foundTime = getTimeStamp(recordSeg,
-                0, curDataMinOffset, readBuffer);
+                lowPos * DataStoreUtils.STORE_INDEX_HEAD_LEN, curDataMinOffset, readBuffer);
         if (timestamp < foundTime) {
-            return recordSeg.getStart();
+            return recordSeg.getStart() + lowPos * DataStoreUtils.STORE_INDEX_HEAD_LEN;
         }
         foundTime = getTimeStamp(recordSeg,
                 endPos * DataStoreUtils.STORE_INDEX_HEAD_LEN,
@@ -471,8 +706,8 @@ public class MsgFileStore implements Closeable {
             return recordSeg.getStart() + endPos * DataStoreUtils.STORE_INDEX_HEAD_LEN;
         }
         long midPos = 0;
-        long startPos = 0;
-        long firstLowPos = 0;
+        long startPos = lowPos;
+        long firstLowPos = lowPos;
         long firstEqualPos = -1;
         // Dichotomy finds the first offset position less than the specified time
         while (startPos <= endPos) {
@@ -497,19 +732,102 @@ public class MsgFileStore implements Closeable {
         }
     }
 
+    /**
+     * Get the index offset of a record appended before the timestamp by the sparse
+     * time index, the records before this offset are all appended before the timestamp.
+     *
+     * @param timestamp    the specified timestamp
+     * @return             the index offset, -1 if not found
+     */
+    public long getIndexOffsetBeforeTime(long timestamp) {
+        if (this.closed.get()) {
+            return -1;
+        }
+        Segment recordSeg = indexSegments.findSegmentByTimeStamp(timestamp);
+        if (recordSeg == null) {
+            return -1;
+        }
+        final long[] indexRange = recordSeg.getTimeIndexRange(timestamp);
+        if (indexRange == null) {
+            return -1;
+        }
+        return recordSeg.getStart() + indexRange[0];
+    }
+
+    /**
+     * Skip the complete index blocks that do not contain any of the filter keys
+     * by the key filters, the skip is limited to the segment of the request offset.
+     *
+     * @param reqOffset       the request index offset
+     * @param filterKeySet    the filter keys
+     * @param msgStoreStatsHolder  the statistics holder
+     * @return                the index offset to read from
+     */
+    public long skipUnmatchedIndexBlocks(long reqOffset, Set<Integer> filterKeySet,
+            MsgStoreStatsHolder msgStoreStatsHolder) {
+        if (this.closed.get()) {
+            return reqOffset;
+        }
+        Segment recordSeg;
+        try {
+            recordSeg = indexSegments.findSegment(reqOffset);
+        } catch (Throwable e) {
+            return reqOffset;
+        }
+        if (recordSeg == null) {
+            return reqOffset;
+        }
+        int checkedBlocks = 0;
+        int skippedBlocks = 0;
+        long relPos = reqOffset - recordSeg.getStart();
+        while (true) {
+            checkedBlocks++;
+            long blockEnd = recordSeg.getKeyFilterBlockEnd(relPos, filterKeySet);
+            if (blockEnd < 0) {
+                break;
+            }
+            skippedBlocks++;
+            relPos = blockEnd;
+        }
+        msgStoreStatsHolder.addFilterBlockStats(checkedBlocks, skippedBlocks);
+        return recordSeg.getStart() + relPos;
+    }
+
     @Override
     public void close() throws IOException {
         if (this.closed.compareAndSet(false, true)) {
             this.writeLock.lock();
             try {
+                boolean flushed = false;
+                try {
+                    this.dataSegments.flushLast(true);
+                    this.indexSegments.flushLast(true);
+                    flushed = true;
+                } catch (Throwable e) {
+                    logger.error(new StringBuilder(512).append("[File Store] Flush ")
+                            .append(this.storeKey).append(" before close failure").toString(), e);
+                }
+                final long dataOffset = this.dataSegments.getCommitMaxOffset();
+                final long indexOffset = this.indexSegments.getCommitMaxOffset();
                 this.indexSegments.close();
                 this.dataSegments.close();
+                if (flushed) {
+                    writeCleanShutdownMarker(dataOffset, indexOffset);
+                }
             } finally {
                 this.writeLock.unlock();
             }
         }
     }
 
+    public boolean isCleanRecovered() {
+        return cleanRecovered;
+    }
+
+    public long getRecoveryTimeMs() {
+        return recoveryTimeMs;
+    }
+
     /**
      * Clean expired data files and index files.
      *
@@ -526,10 +844,15 @@ public class MsgFileStore implements Closeable {
         if (onlyCheck) {
             return (hasExpiredDataSegs || hasExpiredIndexSegs);
         }
-        if (hasExpiredDataSegs) {
+        if (this.tieredStorage != null) {
+            offloadSegments(dataSegments, SegmentType.DATA, start, sBuilder);
+            offloadSegments(indexSegments, SegmentType.INDEX, start, sBuilder);
+        }
+        // the replaced local segments are deleted along with the expired ones
+        if (hasExpiredDataSegs || this.tieredStorage != null) {
             dataSegments.delExpiredSegments(sBuilder);
         }
-        if (hasExpiredIndexSegs) {
+        if (hasExpiredIndexSegs || this.tieredStorage != null) {
             indexSegments.delExpiredSegments(sBuilder);
         }
         return (hasExpiredDataSegs || hasExpiredIndexSegs);
@@ -541,17 +864,35 @@ public class MsgFileStore implements Closeable {
      * @throws IOException the exception during processing
      */
     public void flushDiskFile() throws IOException {
+        flushDiskFile(false);
+    }
+
+    /**
+     * Flush the unflushed data of the last segments to disk.
+     *
+     * @param ignoreInterval   whether to flush without waiting the unflush interval,
+     *                         used by the group commit of the flush scheduler
+     * @return                 whether the data is flushed
+     * @throws IOException     the exception during processing
+     */
+    public boolean flushDiskFile(boolean ignoreInterval) throws IOException {
+        boolean flushed = false;
+        // clear the request first, so the appends after this point can request
+        // again even if no data is left to flush here
+        this.flushRequested.set(false);
         long checkTimestamp = System.currentTimeMillis();
         if ((curUnflushed.get() > 0)
-                && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+                && (ignoreInterval
+                        || checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
             long flushedMsgCnt = 0L;
             long flushedDataSize = 0L;
             boolean forceMetadata = false;
             this.writeLock.lock();
             try {
                 checkTimestamp = System.currentTimeMillis();
-                if ((curUnflushed.get() >= 0)
-                        && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+                if ((curUnflushed.get() > 0)
+                        && (ignoreInterval
+                                || checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
                     forceMetadata =
                             (checkTimestamp - lastMetaFlushTime.get()) > MAX_META_REFRESH_DUR;
                     dataSegments.flushLast(forceMetadata);
@@ -562,6 +903,7 @@ public class MsgFileStore implements Closeable {
                     flushedMsgCnt = curUnflushed.getAndSet(0);
                     flushedDataSize = curUnflushSize.getAndSet(0);
                     lastFlushTime.set(checkTimestamp);
+                    flushed = true;
                 }
             } finally {
                 this.writeLock.unlock();
@@ -570,6 +912,7 @@ public class MsgFileStore implements Closeable {
             }
         }
         msgStoreStatsHolder.chkStatsExpired(checkTimestamp);
+        return flushed;
     }
 
     public long getDataSizeInBytes() {
@@ -612,8 +955,91 @@ public class MsgFileStore implements Closeable {
         return indexSegments.getRecordSeg(offset);
     }
 
+    /**
+     * Create a segment, the index segments are read through the memory
+     * mapped files if enabled by the broker configure.
+     *
+     * @param start       the start offset of the segment
+     * @param file        the segment file
+     * @param mutable     whether the segment is writable
+     * @param segType     the segment type
+     * @return            the created segment
+     * @throws IOException  the exception while loading the segment
+     */
+    private Segment newSegment(long start, File file,
+            boolean mutable, SegmentType segType) throws IOException {
+        if (segType == SegmentType.INDEX && this.tubeConfig.isEnableIndexMmap()) {
+            return new MmapIndexSegment(start, file,
+                    mutable, this.tubeConfig.getIndexReadAheadSize());
+        }
+        return new FileSegment(start, file, mutable, segType);
+    }
+
+    /**
+     * Create the last segment of a loaded segment list, the recovery scan is skipped
+     * if the file ends at the check offset.
+     *
+     * @param start          the start offset of the segment
+     * @param file           the segment file
+     * @param checkOffset    the end offset recorded at the clean shutdown, Long.MAX_VALUE if unknown
+     * @param segType        the segment type
+     * @return               the writable segment
+     * @throws IOException   the exception while recovering the segment
+     */
+    private Segment newMutableSegment(long start, File file,
+            long checkOffset, SegmentType segType) throws IOException {
+        if (segType == SegmentType.INDEX && this.tubeConfig.isEnableIndexMmap()) {
+            return new MmapIndexSegment(start, file,
+                    this.tubeConfig.getIndexReadAheadSize(), checkOffset);
+        }
+        return new FileSegment(start, file, segType, checkOffset);
+    }
+
+    private Properties readCleanShutdownMarker(File markerFile) {
+        if (!markerFile.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(markerFile)) {
+            props.load(in);
+            getCheckOffset(props, "dataOffset");
+            getCheckOffset(props, "indexOffset");
+            return props;
+        } catch (Throwable e) {
+            logger.warn(new StringBuilder(512).append("[File Store] Ignore invalid marker ")
+                    .append(markerFile.getAbsolutePath()).toString(), e);
+            return null;
+        }
+    }
+
+    private long getCheckOffset(Properties cleanOffsets, String key) {
+        if (cleanOffsets == null) {
+            return Long.MAX_VALUE;
+        }
+        return Long.parseLong(cleanOffsets.getProperty(key));
+    }
+
+    private void writeCleanShutdownMarker(long dataOffset, long indexOffset) {
+        final File markerFile = new File(this.dataDir, CLEAN_SHUTDOWN_MARKER);
+        final File tmpFile = new File(this.dataDir, CLEAN_SHUTDOWN_MARKER + ".tmp");
+        Properties props = new Properties();
+        props.setProperty("dataOffset", String.valueOf(dataOffset));
+        props.setProperty("indexOffset", String.valueOf(indexOffset));
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                props.store(out, null);
+                out.getFD().sync();
+            }
+            Files.move(tmpFile.toPath(), markerFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Throwable e) {
+            logger.warn(new StringBuilder(512).append("[File Store] Write marker ")
+                    .append(markerFile.getAbsolutePath()).append(" failure").toString(), e);
+        }
+    }
+
     private void loadSegments(SegmentType segType, long offsetIfCreate,
-            StringBuilder sBuilder) throws IOException {
+            long checkOffset, StringBuilder sBuilder) throws IOException {
         String segTypeStr = "Data";
         File segListDir = this.dataDir;
         String fileSuffix = DataStoreUtils.DATA_FILE_SUFFIX;
@@ -642,7 +1068,7 @@ public class MsgFileStore implements Closeable {
                     final String filename = file.getName();
                     final long start =
                             Long.parseLong(filename.substring(0, filename.length() - fileSuffix.length()));
-                    accum.add(new FileSegment(start, file, false, segType));
+                    accum.add(newSegment(start, file, false, segType));
                 }
             }
         }
@@ -653,7 +1079,7 @@ public class MsgFileStore implements Closeable {
             logger.info(sBuilder.append("[File Store] Created ").append(segTypeStr)
                     .append(" segment ").append(newFile.getAbsolutePath()).toString());
             sBuilder.delete(0, sBuilder.length());
-            accum.add(new FileSegment(offsetIfCreate, newFile, segType));
+            accum.add(newSegment(offsetIfCreate, newFile, true, segType));
         } else {
             // The list of segments is required to be arranged continuously from low to high
             accum.sort(new Comparator<Segment>() {
@@ -676,20 +1102,24 @@ public class MsgFileStore implements Closeable {
                 logger.info(sBuilder.append("[File Store] Created time roll").append(segTypeStr)
                         .append(" segment ").append(newFile.getAbsolutePath()).toString());
                 sBuilder.delete(0, sBuilder.length());
-                accum.add(new FileSegment(newOffset, newFile, segType));
+                accum.add(newSegment(newOffset, newFile, true, segType));
             } else {
                 last = accum.remove(accum.size() - 1);
                 last.close();
                 logger.info(sBuilder
                         .append("[File Store] Loading the last ").append(segTypeStr)
                         .append(" segment in mutable mode and running recover on ")
-                        .append(last.getFile().getAbsolutePath()).toString());
+                        .append(last.getFile().getAbsolutePath())
+                        .append(", clean shutdown offset=").append(checkOffset).toString());
                 sBuilder.delete(0, sBuilder.length());
-                final FileSegment mutable =
-                        new FileSegment(last.getStart(), last.getFile(), segType, Long.MAX_VALUE);
+                final Segment mutable =
+                        newMutableSegment(last.getStart(), last.getFile(), checkOffset, segType);
                 accum.add(mutable);
             }
         }
+        if (this.tieredStorage != null) {
+            accum.addAll(0, loadRemoteSegments(segType, accum.get(0).getStart(), sBuilder));
+        }
         if (segType == SegmentType.DATA) {
             this.dataSegments = new FileSegmentList(accum.toArray(new Segment[accum.size()]));
         } else {
@@ -701,6 +1131,107 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
     }
 
+    /**
+     * Offload the immutable local segments not modified within the local retention time
+     * to the tiered storage, and replace them with the remote segments.
+     *
+     * @param segList          the segment list
+     * @param segType          the segment type
+     * @param checkTimestamp   the check timestamp
+     * @param sBuilder         string buffer
+     */
+    private void offloadSegments(SegmentList segList, SegmentType segType,
+            long checkTimestamp, StringBuilder sBuilder) {
+        String keyPrefix = null;
+        final Segment[] curViews = segList.getView();
+        // the last segment is writable and never offloaded
+        for (int i = 0; i < curViews.length - 1; i++) {
+            final Segment segment = curViews[i];
+            if (segment == null
+                    || segment.isExpired()
+                    || segment instanceof RemoteSegment) {
+                continue;
+            }
+            if (this.closed.get()
+                    || segment.isMutable()
+                    || checkTimestamp - segment.getFile().lastModified() <= tieredStorage.getLocalRetentionMs()) {
+                break;
+            }
+            if (keyPrefix == null) {
+                keyPrefix = tieredStorage.getSegmentKeyPrefix(this.storeKey, getSegDirName(segType));
+            }
+            try {
+                final long startTime = System.currentTimeMillis();
+                RemoteSegment remoteSeg =
+                        RemoteSegment.offload(tieredStorage, keyPrefix, segType, segment);
+                if (!segList.replace(segment, remoteSeg)) {
+                    // the segment is removed during the upload
+                    remoteSeg.deleteFile();
+                    continue;
+                }
+                logger.info(sBuilder.append("[File Store] Offloaded ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" to ").append(remoteSeg.getObjectKey()).append(", size=")
+                        .append(remoteSeg.getCachedSize()).append(", cost=")
+                        .append(System.currentTimeMillis() - startTime).append("ms").toString());
+                sBuilder.delete(0, sBuilder.length());
+            } catch (Throwable e) {
+                logger.error(sBuilder.append("[File Store] Offload ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" failure").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Load the remote segments ahead of the first local segment, the remote segments
+     * not contiguous with the local ones are ignored.
+     *
+     * @param segType       the segment type
+     * @param localStart    the start offset of the first local segment
+     * @param sBuilder      string buffer
+     * @return              the remote segments in offset order
+     * @throws IOException  the exception while loading
+     */
+    private List<Segment> loadRemoteSegments(SegmentType segType,
+            long localStart, StringBuilder sBuilder) throws IOException {
+        final List<RemoteSegment> remoteSegs = RemoteSegment.loadSegments(tieredStorage,
+                tieredStorage.getSegmentKeyPrefix(this.storeKey, getSegDirName(segType)), segType);
+        remoteSegs.sort(new Comparator<Segment>() {
+
+            @Override
+            public int compare(final Segment o1, final Segment o2) {
+                return Long.compare(o1.getStart(), o2.getStart());
+            }
+        });
+        final List<Segment> result = new ArrayList<>();
+        long expectedLast = localStart;
+        for (int i = remoteSegs.size() - 1; i >= 0; i--) {
+            final RemoteSegment remoteSeg = remoteSegs.get(i);
+            if (remoteSeg.getStart() >= localStart) {
+                // the local copy was not deleted before the broker stopped, keep the local one
+                remoteSeg.deleteFile();
+                continue;
+            }
+            if (remoteSeg.getLast() != expectedLast) {
+                logger.warn(sBuilder.append("[File Store] Ignore discontinuous remote segment ")
+                        .append(remoteSeg.getObjectKey()).append(", expected last offset is ")
+                        .append(expectedLast).toString());
+                sBuilder.delete(0, sBuilder.length());
+                continue;
+            }
+            result.add(0, remoteSeg);
+            expectedLast = remoteSeg.getStart();
+        }
+        return result;
+    }
+
+    private String getSegDirName(SegmentType segType) {
+        return (segType == SegmentType.DATA) ? "data" : "index";
+    }
+
     private void validateSegments(String segTypeStr, final List<Segment> segments) {
         // valid segments, continuous
         for (int i = 0; i < segments.size() - 1; i++) {
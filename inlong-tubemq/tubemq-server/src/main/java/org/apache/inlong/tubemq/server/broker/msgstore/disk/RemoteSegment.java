@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.ObjectStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.SegmentCache;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The immutable segment offloaded to the tiered object store, its content is read
+ * through the local segment cache. The metadata of the segment is stored as a sidecar
+ * object that is written after the segment object, so a segment is visible on recovery
+ * only if it is completely uploaded.
+ */
+public class RemoteSegment implements Segment {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(RemoteSegment.class);
+    private static final String META_SUFFIX = ".meta";
+    private final TieredStorage tieredStorage;
+    private final String objectKey;
+    private final long start;
+    private final long size;
+    private final SegmentType segmentType;
+    private final long leftAppendTime;
+    private final long rightAppendTime;
+    // the last modified time of the local file, the retention is counted from it
+    private final long lastModified;
+    private volatile long expiredTime = 0;
+    private final AtomicBoolean expired = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public RemoteSegment(TieredStorage tieredStorage, String objectKey,
+            long start, long size, SegmentType segmentType,
+            long leftAppendTime, long rightAppendTime, long lastModified) {
+        this.tieredStorage = tieredStorage;
+        this.objectKey = objectKey;
+        this.start = start;
+        this.size = size;
+        this.segmentType = segmentType;
+        this.leftAppendTime = leftAppendTime;
+        this.rightAppendTime = rightAppendTime;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Upload an immutable local segment to the object store.
+     *
+     * @param tieredStorage   the tiered storage
+     * @param keyPrefix       the object key prefix of the segment list
+     * @param segmentType     the segment type
+     * @param localSeg        the local segment
+     * @return                the remote segment of the same content
+     * @throws IOException    the exception while uploading
+     */
+    public static RemoteSegment offload(TieredStorage tieredStorage, String keyPrefix,
+            SegmentType segmentType, Segment localSeg) throws IOException {
+        RemoteSegment remoteSeg = new RemoteSegment(tieredStorage,
+                keyPrefix + localSeg.getFile().getName(), localSeg.getStart(),
+                localSeg.getCachedSize(), segmentType, localSeg.getLeftAppendTime(),
+                localSeg.getRightAppendTime(), localSeg.getFile().lastModified());
+        ObjectStore objectStore = tieredStorage.getObjectStore();
+        objectStore.upload(remoteSeg.objectKey, localSeg.getFile());
+        objectStore.put(remoteSeg.objectKey + META_SUFFIX, remoteSeg.encodeMeta());
+        tieredStorage.addOffloadStats(remoteSeg.size);
+        return remoteSeg;
+    }
+
+    /**
+     * Load the remote segments of a segment list, the segment objects without
+     * metadata are left by the interrupted uploads and are removed.
+     *
+     * @param tieredStorage   the tiered storage
+     * @param keyPrefix       the object key prefix of the segment list
+     * @param segmentType     the segment type
+     * @return                the remote segments, not sorted
+     * @throws IOException    the exception while loading
+     */
+    public static List<RemoteSegment> loadSegments(TieredStorage tieredStorage,
+            String keyPrefix, SegmentType segmentType) throws IOException {
+        ObjectStore objectStore = tieredStorage.getObjectStore();
+        List<String> keys = objectStore.list(keyPrefix);
+        List<RemoteSegment> segments = new ArrayList<>();
+        for (String key : keys) {
+            if (key.endsWith(META_SUFFIX)) {
+                continue;
+            }
+            byte[] meta = objectStore.get(key + META_SUFFIX);
+            if (meta == null) {
+                logger.warn("[Tiered Store] remove incompletely uploaded segment {}", key);
+                objectStore.delete(key);
+                continue;
+            }
+            Properties props = new Properties();
+            props.load(new ByteArrayInputStream(meta));
+            segments.add(new RemoteSegment(tieredStorage, key,
+                    Long.parseLong(props.getProperty("start")),
+                    Long.parseLong(props.getProperty("size")), segmentType,
+                    Long.parseLong(props.getProperty("leftAppendTime")),
+                    Long.parseLong(props.getProperty("rightAppendTime")),
+                    Long.parseLong(props.getProperty("lastModified"))));
+        }
+        return segments;
+    }
+
+    private byte[] encodeMeta() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("start", String.valueOf(start));
+        props.setProperty("size", String.valueOf(size));
+        props.setProperty("leftAppendTime", String.valueOf(leftAppendTime));
+        props.setProperty("rightAppendTime", String.valueOf(rightAppendTime));
+        props.setProperty("lastModified", String.valueOf(lastModified));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        props.store(out, null);
+        return out.toByteArray();
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    @Override
+    public void close() {
+        // the cached content is shared and managed by the segment cache
+        this.closed.set(true);
+    }
+
+    @Override
+    public long append(ByteBuffer buf, long leftTime, long rightTime) throws IOException {
+        throw new UnsupportedOperationException("[Tiered Store] Remote Segment is immutable!");
+    }
+
+    @Override
+    public long flush(boolean force) throws IOException {
+        return start + size;
+    }
+
+    @Override
+    public int checkAndSetExpired(long checkTimestamp, long maxValidTimeMs) {
+        if (expired.get()) {
+            return -1;
+        }
+        if (checkTimestamp - lastModified > maxValidTimeMs) {
+            if (expired.compareAndSet(false, true)) {
+                expiredTime = System.currentTimeMillis();
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public boolean needDelete() {
+        return (expired.get() && (System.currentTimeMillis() - expiredTime > 120000));
+    }
+
+    @Override
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public long getLast() {
+        return start + size;
+    }
+
+    @Override
+    public long getCommitLast() {
+        return start + size;
+    }
+
+    /**
+     * The object key as a relative path, the remote segment has no local file.
+     *
+     * @return the file of the object key
+     */
+    @Override
+    public File getFile() {
+        return new File(objectKey);
+    }
+
+    @Override
+    public void deleteFile() {
+        this.closed.set(true);
+        tieredStorage.getSegmentCache().invalidate(objectKey);
+        try {
+            logger.info(new StringBuilder(512)
+                    .append("[Tiered Store] delete remote segment ")
+                    .append(objectKey).toString());
+            // the metadata is removed first, the left object is cleaned on recovery
+            tieredStorage.getObjectStore().delete(objectKey + META_SUFFIX);
+            tieredStorage.getObjectStore().delete(objectKey);
+        } catch (Throwable e) {
+            logger.error("[Tiered Store] failure to delete remote segment " + objectKey, e);
+        }
+    }
+
+    @Override
+    public long getCachedSize() {
+        return size;
+    }
+
+    @Override
+    public long getCommitSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expired.get();
+    }
+
+    @Override
+    public boolean contains(long offset) {
+        return (size == 0 && offset == start
+                || size > 0 && offset >= start && offset <= start + size - 1);
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public void setMutable(boolean mutable) {
+        // always immutable
+    }
+
+    @Override
+    public void getViewRef() {
+
+    }
+
+    @Override
+    public void relViewRef() {
+
+    }
+
+    @Override
+    public void read(ByteBuffer bf, long absOffset) throws IOException {
+        relRead(bf, absOffset - start);
+    }
+
+    @Override
+    public void relRead(ByteBuffer bf, long relOffset) throws IOException {
+        SegmentCache segmentCache = tieredStorage.getSegmentCache();
+        SegmentCache.CacheEntry entry = segmentCache.acquire(objectKey);
+        try {
+            FileChannel channel = entry.getChannel();
+            int readSize = 0;
+            while (bf.hasRemaining()) {
+                final int l = channel.read(bf, relOffset + readSize);
+                if (l < 0) {
+                    break;
+                }
+                readSize += l;
+            }
+        } finally {
+            segmentCache.release(entry);
+        }
+    }
+
+    @Override
+    public long transferTo(long absOffset, long count,
+            WritableByteChannel target) throws IOException {
+        long startPos = absOffset - start;
+        if (startPos < 0 || startPos + count > size) {
+            throw new IOException(new StringBuilder(512)
+                    .append("[Tiered Store] Transfer range out of segment, key=")
+                    .append(objectKey).append(", position=")
+                    .append(startPos).append(", count=").append(count)
+                    .append(", size=").append(size).toString());
+        }
+        SegmentCache segmentCache = tieredStorage.getSegmentCache();
+        SegmentCache.CacheEntry entry = segmentCache.acquire(objectKey);
+        try {
+            return entry.getChannel().transferTo(startPos, count, target);
+        } finally {
+            segmentCache.release(entry);
+        }
+    }
+
+    @Override
+    public long getLeftAppendTime() {
+        return leftAppendTime;
+    }
+
+    @Override
+    public long getRightAppendTime() {
+        return rightAppendTime;
+    }
+
+    @Override
+    public boolean containTime(long timestamp) {
+        return size > 0 && timestamp >= leftAppendTime && timestamp <= rightAppendTime;
+    }
+
+    @Override
+    public long getRecordTime(long reqOffset) throws IOException {
+        ByteBuffer readUnit = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        read(readUnit, reqOffset);
+        readUnit.flip();
+        return readUnit.getLong(DataStoreUtils.INDEX_POS_TIME_RECV);
+    }
+
+    @Override
+    public long[] getTimeIndexRange(long timestamp) {
+        // the time index summary is not offloaded
+        return null;
+    }
+
+    @Override
+    public long getKeyFilterBlockEnd(long relPos, Set<Integer> filterKeySet) {
+        // the key filter summary is not offloaded
+        return -1L;
+    }
+}
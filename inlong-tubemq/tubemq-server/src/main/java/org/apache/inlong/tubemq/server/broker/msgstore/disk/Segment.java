@@ -20,6 +20,8 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
 
 /**
  * Storage segment, usually implemented in file format.
@@ -70,6 +72,8 @@ public interface Segment {
 
     void setMutable(boolean mutable);
 
+    void getViewRef();
+
     void relViewRef();
 
     /**
@@ -88,6 +92,16 @@ public interface Segment {
      */
     void relRead(ByteBuffer bf, long relOffset) throws IOException;
 
+    /**
+     * Transfer data from absolute position to the target channel without copying.
+     *
+     * @param absOffset   absolute read position
+     * @param count       the maximum bytes to transfer
+     * @param target      the target channel
+     * @return            the bytes transferred
+     */
+    long transferTo(long absOffset, long count, WritableByteChannel target) throws IOException;
+
     long getLeftAppendTime();
 
     long getRightAppendTime();
@@ -95,4 +109,23 @@ public interface Segment {
     boolean containTime(long timestamp);
 
     long getRecordTime(long reqOffset) throws IOException;
+
+    /**
+     * Get the relative position range of the index records that contains the first
+     * record appended not earlier than the timestamp, by the sparse time index.
+     *
+     * @param timestamp   the specified timestamp
+     * @return            the start and end relative positions, null if not indexed by time
+     */
+    long[] getTimeIndexRange(long timestamp);
+
+    /**
+     * Get the end relative position of the index block that contains the relative position,
+     * if the block is complete and does not contain any of the filter keys.
+     *
+     * @param relPos          the relative position of an index record
+     * @param filterKeySet    the filter keys
+     * @return                the end relative position of the block, -1 if it can not be skipped
+     */
+    long getKeyFilterBlockEnd(long relPos, Set<Integer> filterKeySet);
 }
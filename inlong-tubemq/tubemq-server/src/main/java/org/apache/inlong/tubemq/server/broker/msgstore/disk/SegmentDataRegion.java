@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.corerpc.RpcDataRegion;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A contiguous range of a data segment, sent to consumer by zero-copy transfer.
+ */
+public class SegmentDataRegion implements RpcDataRegion {
+
+    private final Segment segment;
+    private final long absOffset;
+    private final long length;
+    // whether to release the segment's view reference with this region
+    private boolean segmentOwner = false;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    public SegmentDataRegion(Segment segment, long absOffset, long length) {
+        this.segment = segment;
+        this.absOffset = absOffset;
+        this.length = length;
+    }
+
+    public Segment getSegment() {
+        return segment;
+    }
+
+    public long getAbsOffset() {
+        return absOffset;
+    }
+
+    public void setSegmentOwner(boolean segmentOwner) {
+        this.segmentOwner = segmentOwner;
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException {
+        return segment.transferTo(absOffset + position, length - position, target);
+    }
+
+    @Override
+    public void release() {
+        if (released.compareAndSet(false, true) && segmentOwner) {
+            segment.relViewRef();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+
+/**
+ * Key filter of an index segment.
+ *
+ * The index records are divided into blocks of BLOCK_RECORD_COUNT records, and a
+ * Bloom filter of the key codes is kept for each block together with the count of
+ * records added to it, so that the filter consumption can skip the complete blocks
+ * that do not contain any of the filter keys without reading their index records.
+ * The filters of the writable segment are kept in a memory mapped file next to the
+ * index file, the filters of the read-only segments are read from the file on demand.
+ */
+public class SegmentKeyFilter {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(SegmentKeyFilter.class);
+    // the record count of a block
+    public static final int BLOCK_RECORD_COUNT = 1024;
+    // the max block count of a segment, the records after it are not filtered
+    public static final int MAX_BLOCK_COUNT = 4096;
+    // the block content: added record count(int), filter bits
+    private static final int BLOCK_SIZE = 128;
+    private static final int FILTER_BITS = (BLOCK_SIZE - 4) * 8;
+    private static final int HASH_COUNT = 3;
+    private static final long BLOCK_INDEX_SIZE =
+            (long) BLOCK_RECORD_COUNT * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+
+    private final File file;
+    // the mapped file of the writable segment, null if read-only
+    private volatile MappedByteBuffer mappedBuffer;
+    // the file channel of the read-only segment, opened on demand
+    private RandomAccessFile readFile;
+    private FileChannel readChannel;
+    private volatile boolean closed = false;
+    // the relative position from which the filters need to be rebuilt
+    private long rebuildPosition = -1L;
+
+    /**
+     * Initial the key filter of an index segment
+     *
+     * @param file          the key filter file
+     * @param mutable       whether the index segment is writable
+     * @param validSize     the valid size of the index segment
+     * @throws IOException  the exception while mapping the file
+     */
+    public SegmentKeyFilter(File file, boolean mutable, long validSize) throws IOException {
+        this.file = file;
+        if (mutable) {
+            try (RandomAccessFile randFile = new RandomAccessFile(file, "rw")) {
+                this.mappedBuffer = randFile.getChannel().map(
+                        FileChannel.MapMode.READ_WRITE, 0, (long) MAX_BLOCK_COUNT * BLOCK_SIZE);
+            }
+            checkBlocks(validSize);
+        }
+    }
+
+    /**
+     * Add the index records to be appended to the segment.
+     *
+     * @param buf       the index records, from position to limit
+     * @param relPos    the relative position of the first record
+     */
+    public void addRecords(ByteBuffer buf, long relPos) {
+        final MappedByteBuffer curBuffer = this.mappedBuffer;
+        if (curBuffer == null) {
+            return;
+        }
+        int startPos = buf.position();
+        for (int itemPos = startPos; itemPos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= buf.limit(); itemPos +=
+                DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            long blockIndex = (relPos + itemPos - startPos) / BLOCK_INDEX_SIZE;
+            if (blockIndex >= MAX_BLOCK_COUNT) {
+                return;
+            }
+            int blockPos = (int) blockIndex * BLOCK_SIZE;
+            long hash = hashKey(buf.getInt(itemPos + DataStoreUtils.INDEX_POS_KEY_CODE));
+            for (int i = 0; i < HASH_COUNT; i++) {
+                int bitIndex = getBitIndex(hash, i);
+                int bytePos = blockPos + 4 + (bitIndex >>> 3);
+                curBuffer.put(bytePos, (byte) (curBuffer.get(bytePos) | (1 << (bitIndex & 7))));
+            }
+            // the count is updated after the filter bits
+            curBuffer.putInt(blockPos, curBuffer.getInt(blockPos) + 1);
+        }
+    }
+
+    /**
+     * Get the end position of the block that contains the relative position,
+     * if the block is complete and does not contain any of the filter keys.
+     *
+     * @param relPos         the relative position of an index record
+     * @param validSize      the readable size of the index segment
+     * @param filterKeySet   the filter keys
+     * @return               the end position of the block, -1 if the block can not be skipped
+     */
+    public long getUnmatchedBlockEnd(long relPos, long validSize, Set<Integer> filterKeySet) {
+        long blockIndex = relPos / BLOCK_INDEX_SIZE;
+        long blockEnd = (blockIndex + 1) * BLOCK_INDEX_SIZE;
+        if (this.closed
+                || blockIndex >= MAX_BLOCK_COUNT
+                || blockEnd > validSize
+                || filterKeySet == null
+                || filterKeySet.isEmpty()) {
+            return -1L;
+        }
+        ByteBuffer blockBuffer = readBlock((int) blockIndex);
+        if (blockBuffer == null
+                || blockBuffer.getInt(0) != BLOCK_RECORD_COUNT) {
+            return -1L;
+        }
+        for (Integer keyCode : filterKeySet) {
+            if (mayContain(blockBuffer, keyCode)) {
+                return -1L;
+            }
+        }
+        return blockEnd;
+    }
+
+    /**
+     * Get the relative position from which the filters are lost or stale,
+     * the records after it need to be added again.
+     *
+     * @return   the relative position, -1 if all filters are consistent
+     */
+    public long getRebuildPosition() {
+        return rebuildPosition;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Force the filters to disk.
+     */
+    public void flush() {
+        final MappedByteBuffer curBuffer = this.mappedBuffer;
+        if (curBuffer != null) {
+            curBuffer.force();
+        }
+    }
+
+    /**
+     * Set the key filter read-only, the filters are read from the file since then.
+     *
+     * The mapped file is not unmapped explicitly since the readers may still hold it,
+     * it is released when the buffer is collected.
+     */
+    public synchronized void seal() {
+        if (this.mappedBuffer != null) {
+            MappedByteBuffer tmpBuffer = this.mappedBuffer;
+            this.mappedBuffer = null;
+            tmpBuffer.force();
+        }
+    }
+
+    public synchronized void close() {
+        this.closed = true;
+        seal();
+        if (this.readFile != null) {
+            try {
+                this.readFile.close();
+            } catch (Throwable ee) {
+                logger.warn(new StringBuilder(512)
+                        .append("[File Store] failure to close key filter file ")
+                        .append(this.file.getAbsoluteFile()).toString(), ee);
+            }
+            this.readFile = null;
+            this.readChannel = null;
+        }
+    }
+
+    public void deleteFile() {
+        close();
+        if (this.file.exists() && !this.file.delete()) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] failure to delete key filter file ")
+                    .append(this.file.getAbsoluteFile()).toString());
+        }
+    }
+
+    private ByteBuffer readBlock(int blockIndex) {
+        final MappedByteBuffer curBuffer = this.mappedBuffer;
+        if (curBuffer != null) {
+            ByteBuffer blockBuffer = curBuffer.duplicate();
+            blockBuffer.position(blockIndex * BLOCK_SIZE);
+            blockBuffer.limit(blockIndex * BLOCK_SIZE + BLOCK_SIZE);
+            return blockBuffer.slice();
+        }
+        try {
+            FileChannel channel = getReadChannel();
+            if (channel == null) {
+                return null;
+            }
+            ByteBuffer blockBuffer = ByteBuffer.allocate(BLOCK_SIZE);
+            long readPos = (long) blockIndex * BLOCK_SIZE;
+            while (blockBuffer.hasRemaining()) {
+                if (channel.read(blockBuffer, readPos + blockBuffer.position()) < 0) {
+                    return null;
+                }
+            }
+            return blockBuffer;
+        } catch (Throwable ee) {
+            return null;
+        }
+    }
+
+    private synchronized FileChannel getReadChannel() throws IOException {
+        if (this.closed) {
+            return null;
+        }
+        if (this.readChannel == null) {
+            if (!this.file.exists()) {
+                // the segment was written before the key filter was introduced
+                this.closed = true;
+                return null;
+            }
+            this.readFile = new RandomAccessFile(this.file, "r");
+            this.readChannel = this.readFile.getChannel();
+        }
+        return this.readChannel;
+    }
+
+    private void checkBlocks(long validSize) {
+        long recordCount = validSize / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        for (int blockIndex = 0; blockIndex < MAX_BLOCK_COUNT; blockIndex++) {
+            int blockPos = blockIndex * BLOCK_SIZE;
+            long expected = Math.max(0L, Math.min(BLOCK_RECORD_COUNT,
+                    recordCount - (long) blockIndex * BLOCK_RECORD_COUNT));
+            if (this.rebuildPosition < 0
+                    && this.mappedBuffer.getInt(blockPos) != expected) {
+                this.rebuildPosition = blockIndex * BLOCK_INDEX_SIZE;
+            }
+            if (this.rebuildPosition >= 0) {
+                if (expected == 0 && this.mappedBuffer.getInt(blockPos) == 0) {
+                    break;
+                }
+                // clear the stale filter
+                for (int pos = blockPos; pos < blockPos + BLOCK_SIZE; pos += 8) {
+                    this.mappedBuffer.putLong(pos, 0L);
+                }
+            }
+        }
+    }
+
+    private static boolean mayContain(ByteBuffer blockBuffer, int keyCode) {
+        long hash = hashKey(keyCode);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bitIndex = getBitIndex(hash, i);
+            if ((blockBuffer.get(4 + (bitIndex >>> 3)) & (1 << (bitIndex & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getBitIndex(long hash, int seq) {
+        int combined = (int) hash + seq * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % FILTER_BITS;
+    }
+
+    private static long hashKey(int keyCode) {
+        long hash = (keyCode & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+        hash ^= (hash >>> 32);
+        hash *= 0xC2B2AE3D27D4EB4FL;
+        hash ^= (hash >>> 29);
+        return hash;
+    }
+}
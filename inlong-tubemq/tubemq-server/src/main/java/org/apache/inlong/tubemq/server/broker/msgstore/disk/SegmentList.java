@@ -52,6 +52,16 @@ public interface SegmentList {
 
     void delete(Segment segment);
 
+    /**
+     * Replace a segment with another one of the same content, the replaced segment
+     * is deleted by delExpiredSegments after the in-flight reads finish.
+     *
+     * @param oldSeg   the segment to replace
+     * @param newSeg   the new segment
+     * @return         whether the segment is replaced
+     */
+    boolean replace(Segment oldSeg, Segment newSeg);
+
     Segment getRecordSeg(long offset) throws IOException;
 
     Segment findSegmentByTimeStamp(long timestamp);
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sparse time index of an index segment.
+ *
+ * An entry of [record append time, record relative position] is added every
+ * RECORD_INTERVAL records or TIME_INTERVAL_MS milliseconds of append time, so that
+ * a lookup by timestamp only needs to search the index records between two entries.
+ * The entries of the writable segment are persisted in a memory mapped file next to
+ * the index file, the entries of the read-only segments are loaded at startup.
+ */
+public class SegmentTimeIndex {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(SegmentTimeIndex.class);
+    // the entry content: append time(long), relative position(long)
+    private static final int ENTRY_SIZE = 16;
+    // the max entry count of a segment, the records after it are not indexed
+    public static final int MAX_ENTRY_COUNT = 32768;
+    // the max record count between two entries
+    public static final int RECORD_INTERVAL = 1024;
+    // the max append time span between two entries
+    public static final long TIME_INTERVAL_MS = 1000L;
+    private static final long MAX_POSITION_SPAN =
+            (long) RECORD_INTERVAL * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+
+    private final File file;
+    // the entries in pairs of append time and relative position
+    private volatile long[] entries = new long[128];
+    private volatile int entryCount = 0;
+    // the mapped file of the writable segment, null if read-only
+    private MappedByteBuffer mappedBuffer;
+    private final boolean indexed;
+
+    /**
+     * Initial the time index of an index segment
+     *
+     * @param file          the time index file
+     * @param mutable       whether the index segment is writable
+     * @param validSize     the valid size of the index segment
+     * @throws IOException  the exception while loading the file
+     */
+    public SegmentTimeIndex(File file, boolean mutable, long validSize) throws IOException {
+        this.file = file;
+        if (mutable) {
+            try (RandomAccessFile randFile = new RandomAccessFile(file, "rw")) {
+                this.mappedBuffer = randFile.getChannel().map(
+                        FileChannel.MapMode.READ_WRITE, 0, (long) MAX_ENTRY_COUNT * ENTRY_SIZE);
+            }
+            loadEntries(this.mappedBuffer, validSize);
+            // clear the stale entries after the valid ones
+            for (int index = this.entryCount; index < MAX_ENTRY_COUNT; index++) {
+                if (this.mappedBuffer.getLong(index * ENTRY_SIZE) == 0L) {
+                    break;
+                }
+                this.mappedBuffer.putLong(index * ENTRY_SIZE, 0L);
+                this.mappedBuffer.putLong(index * ENTRY_SIZE + 8, 0L);
+            }
+            this.indexed = true;
+        } else if (file.exists()) {
+            try (RandomAccessFile randFile = new RandomAccessFile(file, "r")) {
+                FileChannel channel = randFile.getChannel();
+                ByteBuffer readBuffer = ByteBuffer.allocate(
+                        (int) Math.min(channel.size(), (long) MAX_ENTRY_COUNT * ENTRY_SIZE));
+                while (readBuffer.hasRemaining()) {
+                    if (channel.read(readBuffer) < 0) {
+                        break;
+                    }
+                }
+                readBuffer.flip();
+                loadEntries(readBuffer, validSize);
+            }
+            this.indexed = true;
+        } else {
+            // the segment was written before the time index was introduced
+            this.indexed = false;
+        }
+    }
+
+    /**
+     * Add the index records to be appended to the segment.
+     *
+     * @param buf       the index records, from position to limit
+     * @param relPos    the relative position of the first record
+     */
+    public void addRecords(ByteBuffer buf, long relPos) {
+        int startPos = buf.position();
+        for (int itemPos = startPos; itemPos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= buf.limit(); itemPos +=
+                DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            addEntry(buf.getLong(itemPos + DataStoreUtils.INDEX_POS_TIME_RECV),
+                    relPos + itemPos - startPos);
+        }
+    }
+
+    /**
+     * Get the relative position range of the index records that contains the first
+     * record appended not earlier than the timestamp.
+     *
+     * @param timestamp    the specified timestamp
+     * @param validSize    the valid size of the index segment
+     * @return             the start and end relative positions, null if not indexed
+     */
+    public long[] lookup(long timestamp, long validSize) {
+        final int curCount = this.entryCount;
+        final long[] curEntries = this.entries;
+        if (!this.indexed || curCount == 0
+                || validSize < DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            return null;
+        }
+        // find the last entry earlier than the timestamp
+        int low = 0;
+        int high = curCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (curEntries[mid * 2] < timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        long startPos = (found < 0) ? 0L : curEntries[found * 2 + 1];
+        long endPos = (found + 1 < curCount)
+                ? curEntries[(found + 1) * 2 + 1]
+                : validSize - DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        return new long[]{startPos, Math.max(startPos, endPos)};
+    }
+
+    public long getLastEntryPosition() {
+        final int curCount = this.entryCount;
+        return curCount == 0 ? -1L : this.entries[curCount * 2 - 1];
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Force the entries to disk.
+     */
+    public void flush() {
+        if (this.mappedBuffer != null) {
+            this.mappedBuffer.force();
+        }
+    }
+
+    /**
+     * Set the time index read-only, the mapped file is released.
+     */
+    public void seal() {
+        if (this.mappedBuffer != null) {
+            MappedByteBuffer tmpBuffer = this.mappedBuffer;
+            this.mappedBuffer = null;
+            tmpBuffer.force();
+            DataStoreUtils.releaseDirectBuffer(tmpBuffer);
+        }
+    }
+
+    public void close() {
+        seal();
+    }
+
+    public void deleteFile() {
+        seal();
+        if (this.file.exists() && !this.file.delete()) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] failure to delete time index file ")
+                    .append(this.file.getAbsoluteFile()).toString());
+        }
+    }
+
+    private void addEntry(long timeRecv, long relPos) {
+        int curCount = this.entryCount;
+        if (timeRecv <= 0 || curCount >= MAX_ENTRY_COUNT) {
+            return;
+        }
+        long[] curEntries = this.entries;
+        if (curCount > 0) {
+            long lastPos = curEntries[curCount * 2 - 1];
+            if (relPos <= lastPos
+                    || (relPos - lastPos < MAX_POSITION_SPAN
+                            && timeRecv - curEntries[curCount * 2 - 2] < TIME_INTERVAL_MS)) {
+                return;
+            }
+        }
+        if (curCount * 2 + 2 > curEntries.length) {
+            long[] newEntries = new long[curEntries.length * 2];
+            System.arraycopy(curEntries, 0, newEntries, 0, curCount * 2);
+            this.entries = newEntries;
+            curEntries = newEntries;
+        }
+        curEntries[curCount * 2] = timeRecv;
+        curEntries[curCount * 2 + 1] = relPos;
+        if (this.mappedBuffer != null) {
+            this.mappedBuffer.putLong(curCount * ENTRY_SIZE, timeRecv);
+            this.mappedBuffer.putLong(curCount * ENTRY_SIZE + 8, relPos);
+        }
+        this.entryCount = curCount + 1;
+    }
+
+    private void loadEntries(ByteBuffer buffer, long validSize) {
+        long lastPos = -1L;
+        for (int index = 0; (index + 1) * ENTRY_SIZE <= buffer.limit(); index++) {
+            long timeRecv = buffer.getLong(index * ENTRY_SIZE);
+            long relPos = buffer.getLong(index * ENTRY_SIZE + 8);
+            // stop at the first entry not consistent with the index segment
+            if (timeRecv <= 0
+                    || relPos <= lastPos
+                    || relPos % DataStoreUtils.STORE_INDEX_HEAD_LEN != 0
+                    || relPos + DataStoreUtils.STORE_INDEX_HEAD_LEN > validSize) {
+                break;
+            }
+            addEntry(timeRecv, relPos);
+            lastPos = relPos;
+        }
+    }
+}
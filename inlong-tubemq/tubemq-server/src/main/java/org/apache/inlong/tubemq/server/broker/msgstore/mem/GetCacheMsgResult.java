@@ -17,6 +17,10 @@
 
 package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
+
+import io.netty.buffer.ByteBuf;
+
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -33,6 +37,8 @@ public class GetCacheMsgResult {
     public long lastRdDataOff = -2;
     public int totalMsgSize;
     public List<ByteBuffer> cacheMsgList;
+    // the pooled buffers backing the cached messages, released by release()
+    private List<ByteBuf> pooledBufList;
 
     public GetCacheMsgResult(boolean isSuccess, int retCode, long readOffset, String errInfo) {
         this.isSuccess = isSuccess;
@@ -55,4 +61,27 @@ public class GetCacheMsgResult {
         this.cacheMsgList = cacheMsgList;
     }
 
+    public GetCacheMsgResult(boolean isSuccess, int retCode, String errInfo,
+            long readOffset, int dltOffset, long lastRdDataOff,
+            int totalMsgSize, List<ByteBuffer> cacheMsgList,
+            List<ByteBuf> pooledBufList) {
+        this(isSuccess, retCode, errInfo, readOffset, dltOffset,
+                lastRdDataOff, totalMsgSize, cacheMsgList);
+        this.pooledBufList = pooledBufList;
+    }
+
+    /**
+     * Release the pooled buffers of the cached messages,
+     * the messages must not be accessed after the release.
+     */
+    public void release() {
+        if (pooledBufList == null) {
+            return;
+        }
+        for (ByteBuf buf : pooledBufList) {
+            NettyBufferPool.releaseBuffer(buf);
+        }
+        pooledBufList.clear();
+        pooledBufList = null;
+    }
 }
@@ -19,46 +19,61 @@ package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
 import org.apache.inlong.tubemq.server.broker.metadata.ClusterConfigHolder;
+import org.apache.inlong.tubemq.server.broker.msgstore.BatchAppendItem;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sun.nio.ch.DirectBuffer;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Message's memory storage. It use direct memory store messages that received but not have been flushed to disk.
+ *
+ * Writers do not lock or wait for each other: a writer reserves its data and index space with a CAS
+ * on the reserved position, copies its entries in parallel with the other writers, then marks its
+ * reservation completed and advances the published position over the completed reservations in
+ * front of it. Readers only see the messages below the published position.
+ * The data offset is kept in the high 32 bits of a position and the index offset in the low 32 bits.
+ * Before the store is swapped out to be flushed it is sealed by setting the sign bit of the reserved
+ * position, so the writers fail to reserve space in it without taking any lock.
  */
 public class MsgMemStore implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(MsgMemStore.class);
-    // statistics of memory store
-    private final AtomicInteger cacheDataOffset = new AtomicInteger(0);
-    private final AtomicInteger cacheIndexOffset = new AtomicInteger(0);
-    private final AtomicInteger curMessageCount = new AtomicInteger(0);
-    private final ReentrantLock writeLock = new ReentrantLock();
+    // the flag of the reserved position when the store is sealed
+    private static final long SEALED_POSITION_FLAG = 1L << 63;
+    // the end position of the space reserved by writers
+    private final AtomicLong reservedPosition = new AtomicLong(0L);
+    // the end position of the messages visible to readers and flushers
+    private final AtomicLong publishedPosition = new AtomicLong(0L);
+    // index slot to the end position of the completed reservation starting at the slot
+    private final AtomicLongArray completedPositions;
+    // reservations not yet visible when their writers returned, partitionId and index end offset
+    private final ConcurrentLinkedQueue<Long> laggedReservations = new ConcurrentLinkedQueue<>();
     // partitionId to index position, accelerate query
-    private final Map<Integer, Integer> queuesMap =
-            new HashMap<>(20);
+    private final ConcurrentHashMap<Integer, Integer> queuesMap =
+            new ConcurrentHashMap<>(20);
     // key to index position, used for filter consume
-    private final Map<Integer, Integer> keysMap =
-            new HashMap<>(100);
+    private final ConcurrentHashMap<Integer, Integer> keysMap =
+            new ConcurrentHashMap<>(100);
     // where messages in memory will sink to disk
     private final int maxDataCacheSize;
     private long writeDataStartPos = -1;
@@ -87,6 +102,7 @@ public class MsgMemStore implements Closeable {
         this.maxIndexCacheSize = this.maxAllowedMsgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
         this.cacheDataSegment = ByteBuffer.allocateDirect(this.maxDataCacheSize);
         this.cachedIndexSegment = ByteBuffer.allocateDirect(this.maxIndexCacheSize);
+        this.completedPositions = new AtomicLongArray(this.maxAllowedMsgCount);
         this.leftAppendTime.set(System.currentTimeMillis());
         this.rightAppendTime.set(System.currentTimeMillis());
         this.writeDataStartPos = writeDataStartPos;
@@ -100,17 +116,55 @@ public class MsgMemStore implements Closeable {
      * @param writeIndexStartPos    the data start position
      */
     public void resetMemStoreStatus(long writeDataStartPos, long writeIndexStartPos) {
-        this.keysMap.clear();
-        this.queuesMap.clear();
-        this.cacheDataOffset.set(0);
-        this.cacheIndexOffset.set(0);
-        this.curMessageCount.set(0);
-        this.cacheDataSegment.rewind();
-        this.cachedIndexSegment.rewind();
+        clear();
+        reopen(writeDataStartPos, writeIndexStartPos);
+    }
+
+    /**
+     * Seal the store, the later space reservations fail and the store only accepts
+     * the writes that have reserved their space.
+     *
+     * @return    whether the store is sealed by this call
+     */
+    public boolean seal() {
+        long curPos;
+        do {
+            curPos = this.reservedPosition.get();
+            if ((curPos & SEALED_POSITION_FLAG) != 0L) {
+                return false;
+            }
+        } while (!this.reservedPosition.compareAndSet(curPos, curPos | SEALED_POSITION_FLAG));
+        return true;
+    }
+
+    public boolean isSealed() {
+        return (this.reservedPosition.get() & SEALED_POSITION_FLAG) != 0L;
+    }
+
+    /**
+     * Wait for the writes that reserved space before the store was sealed to be published.
+     * The writers only copy their entries after the reservation, so the wait is short.
+     */
+    public void awaitPublished() {
+        final long reservedPos = this.reservedPosition.get() & ~SEALED_POSITION_FLAG;
+        while (this.publishedPosition.get() != reservedPos) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Reopen a cleared store for writing at the given positions.
+     *
+     * @param writeDataStartPos     the data start position
+     * @param writeIndexStartPos    the index start position
+     */
+    public void reopen(long writeDataStartPos, long writeIndexStartPos) {
         this.writeDataStartPos = writeDataStartPos;
         this.writeIndexStartPos = writeIndexStartPos;
         this.leftAppendTime.set(System.currentTimeMillis());
         this.rightAppendTime.set(System.currentTimeMillis());
+        // unsealed last, the writers reserving space see the positions set above
+        this.reservedPosition.set(0L);
     }
 
     /**
@@ -131,50 +185,248 @@ public class MsgMemStore implements Closeable {
             int partitionId, int keyCode, long timeRecv,
             ByteBuffer indexEntry, int dataEntryLength,
             ByteBuffer dataEntry, AppendResult appendResult) {
-        long dataOffset;
-        long indexOffset;
-        int indexSizePos;
-        boolean isAppended = true;
-        boolean fullDataSize = false;
-        boolean fullIndexSize = false;
-        boolean fullCount = false;
-        this.writeLock.lock();
-        try {
+        long startPos;
+        long endPos;
+        boolean fullDataSize;
+        boolean fullIndexSize;
+        boolean fullCount;
+        // reserve the space of the message
+        do {
+            startPos = this.reservedPosition.get();
+            if ((startPos & SEALED_POSITION_FLAG) != 0L) {
+                return false;
+            }
+            int dataOffset = getDataOffset(startPos);
+            int indexOffset = getIndexOffset(startPos);
             // judge whether can write to memory or not.
             fullDataSize =
-                    (this.cacheDataOffset.get() + dataEntryLength > this.maxDataCacheSize);
+                    (dataOffset + dataEntryLength > this.maxDataCacheSize);
             fullCount =
-                    (this.curMessageCount.get() + 1 > maxAllowedMsgCount);
+                    (indexOffset / DataStoreUtils.STORE_INDEX_HEAD_LEN + 1 > maxAllowedMsgCount);
             fullIndexSize =
-                    (this.cacheIndexOffset.get() + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
+                    (indexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
             if (fullDataSize || fullCount || fullIndexSize) {
-                isAppended = false;
+                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
                 return false;
             }
-            // conduct message with filling process
-            indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
-            dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
-            indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
-            dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
-            this.cacheDataSegment.put(dataEntry.array());
-            this.cachedIndexSegment.put(indexEntry.array());
-            this.cacheDataOffset.getAndAdd(dataEntryLength);
-            indexSizePos = cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-            this.queuesMap.put(partitionId, indexSizePos);
-            this.keysMap.put(keyCode, indexSizePos);
-            this.curMessageCount.getAndIncrement();
-            this.rightAppendTime.set(timeRecv);
-            if (indexSizePos == 0) {
-                this.leftAppendTime.set(timeRecv);
-            }
+            endPos = buildPosition(dataOffset + dataEntryLength,
+                    indexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        } while (!this.reservedPosition.compareAndSet(startPos, endPos));
+        // fill the reserved space, then publish it
+        try {
+            fillMessage(getDataOffset(startPos), getIndexOffset(startPos),
+                    indexEntry, dataEntryLength, dataEntry, appendResult);
         } finally {
-            this.writeLock.unlock();
-            if (!isAppended) {
-                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+            completeAndPublish(partitionId, startPos, endPos, timeRecv);
+        }
+        return true;
+    }
+
+    /**
+     * Append a batch of messages to memory cache in order with one space reservation,
+     * stop at the first message that the cache has no space for.
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param timeRecv          the received timestamp
+     * @param items             the messages with stored entries built
+     * @param startIndex        the index of the first message to append
+     *
+     * @return    the count of messages appended
+     */
+    public int appendMsgs(MsgStoreStatsHolder memStatsHolder,
+            int partitionId, long timeRecv,
+            List<BatchAppendItem> items, int startIndex) {
+        long startPos;
+        long endPos = 0L;
+        int appendCnt;
+        boolean fullDataSize;
+        boolean fullIndexSize;
+        boolean fullCount;
+        // reserve the space of the messages that can be held
+        do {
+            startPos = this.reservedPosition.get();
+            if ((startPos & SEALED_POSITION_FLAG) != 0L) {
+                return 0;
             }
+            int dataOffset = getDataOffset(startPos);
+            int indexOffset = getIndexOffset(startPos);
+            appendCnt = 0;
+            fullDataSize = false;
+            fullIndexSize = false;
+            fullCount = false;
+            for (int index = startIndex; index < items.size(); index++) {
+                int dataEntryLength = items.get(index).getDataEntry().limit();
+                fullDataSize =
+                        (dataOffset + dataEntryLength > this.maxDataCacheSize);
+                fullCount =
+                        (indexOffset / DataStoreUtils.STORE_INDEX_HEAD_LEN + 1 > maxAllowedMsgCount);
+                fullIndexSize =
+                        (indexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
+                if (fullDataSize || fullCount || fullIndexSize) {
+                    break;
+                }
+                dataOffset += dataEntryLength;
+                indexOffset += DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                appendCnt++;
+            }
+            if (appendCnt == 0) {
+                break;
+            }
+            endPos = buildPosition(dataOffset, indexOffset);
+        } while (!this.reservedPosition.compareAndSet(startPos, endPos));
+        if (fullDataSize || fullCount || fullIndexSize) {
+            memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+        }
+        if (appendCnt == 0) {
+            return 0;
+        }
+        // fill the reserved space, then publish it
+        int dataOffset = getDataOffset(startPos);
+        int indexOffset = getIndexOffset(startPos);
+        try {
+            for (int index = startIndex; index < startIndex + appendCnt; index++) {
+                BatchAppendItem item = items.get(index);
+                int dataEntryLength = item.getDataEntry().limit();
+                fillMessage(dataOffset, indexOffset, item.getIndexEntry(),
+                        dataEntryLength, item.getDataEntry(), item.getAppendResult());
+                dataOffset += dataEntryLength;
+                indexOffset += DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            }
+        } finally {
+            completeAndPublish(partitionId, startPos, endPos, timeRecv);
         }
+        return appendCnt;
+    }
+
+    private void fillMessage(int dataSizePos, int indexSizePos,
+            ByteBuffer indexEntry, int dataEntryLength,
+            ByteBuffer dataEntry, AppendResult appendResult) {
+        // conduct message with filling process
+        long indexOffset = this.writeIndexStartPos + indexSizePos;
+        long dataOffset = this.writeDataStartPos + dataSizePos;
+        indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+        dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+        // copy by duplicated views, the writers fill their own reserved space in parallel
+        ByteBuffer dataWriteBuf = this.cacheDataSegment.duplicate();
+        dataWriteBuf.position(dataSizePos);
+        ByteBuffer dataReadBuf = dataEntry.duplicate();
+        dataReadBuf.limit(dataEntryLength);
+        dataReadBuf.position(0);
+        dataWriteBuf.put(dataReadBuf);
+        ByteBuffer indexWriteBuf = this.cachedIndexSegment.duplicate();
+        indexWriteBuf.position(indexSizePos);
+        indexWriteBuf.put(indexEntry.array(), 0, DataStoreUtils.STORE_INDEX_HEAD_LEN);
         appendResult.putAppendResult(indexOffset, dataOffset);
-        return true;
+    }
+
+    /**
+     * Mark the reserved space completed, then advance the published position over
+     * the completed reservations. The writer does not wait for the writers in front of it,
+     * its messages are published by the last of them when it is not visible yet.
+     * The writer that publishes a reservation updates the query positions of its messages.
+     *
+     * @param partitionId  the partitionId of the reserved space
+     * @param startPos     the start position of the reserved space
+     * @param endPos       the end position of the reserved space
+     * @param timeRecv     the received timestamp
+     */
+    private void completeAndPublish(int partitionId,
+            long startPos, long endPos, long timeRecv) {
+        if (getIndexOffset(startPos) == 0) {
+            this.leftAppendTime.set(timeRecv);
+        }
+        this.rightAppendTime.accumulateAndGet(timeRecv, Math::max);
+        this.completedPositions.set(
+                getIndexOffset(startPos) / DataStoreUtils.STORE_INDEX_HEAD_LEN, endPos);
+        long curPos;
+        long nextPos;
+        do {
+            curPos = this.publishedPosition.get();
+            int slot = getIndexOffset(curPos) / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (slot >= this.maxAllowedMsgCount) {
+                break;
+            }
+            nextPos = this.completedPositions.get(slot);
+            if (nextPos == 0L) {
+                // the reservation in front has not been completed
+                break;
+            }
+            if (this.publishedPosition.compareAndSet(curPos, nextPos)) {
+                updateQueryPositions(getIndexOffset(curPos), getIndexOffset(nextPos));
+            }
+        } while (true);
+        if (getIndexOffset(this.publishedPosition.get()) < getIndexOffset(endPos)) {
+            // record it so that the fetches of the partition can be woken once published
+            this.laggedReservations.add(buildPosition(partitionId, getIndexOffset(endPos)));
+        }
+    }
+
+    /**
+     * Poll the partitions whose messages were not visible when their writers returned
+     * but have been published now. Called after each append by the store.
+     *
+     * @return    the partition id set, null if none
+     */
+    public Set<Integer> pollLaggedPartitions() {
+        if (this.laggedReservations.isEmpty()) {
+            return null;
+        }
+        Set<Integer> partitionIds = null;
+        int publishedIndexOffset = getIndexCacheSize();
+        for (Long lagged : this.laggedReservations) {
+            if (getIndexOffset(lagged) <= publishedIndexOffset
+                    && this.laggedReservations.remove(lagged)) {
+                if (partitionIds == null) {
+                    partitionIds = new HashSet<>();
+                }
+                partitionIds.add(getDataOffset(lagged));
+            }
+        }
+        return partitionIds;
+    }
+
+    private void clearPositions() {
+        // kept sealed until reopened, the writers holding a stale reference fail to reserve
+        int usedSlots = getIndexOffset(
+                this.reservedPosition.getAndSet(SEALED_POSITION_FLAG))
+                / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        for (int slot = 0; slot < usedSlots; slot++) {
+            this.completedPositions.set(slot, 0L);
+        }
+        this.laggedReservations.clear();
+        this.publishedPosition.set(0L);
+    }
+
+    /**
+     * Update the query positions by the index entries just published, so that a reader
+     * finding a position in the maps also finds the message below the published position.
+     * The publishers may arrive here out of order, so only larger positions are kept.
+     *
+     * @param startIndexPos    the start index offset of the published entries
+     * @param endIndexPos      the end index offset of the published entries
+     */
+    private void updateQueryPositions(int startIndexPos, int endIndexPos) {
+        ByteBuffer indexReadBuf = this.cachedIndexSegment.duplicate();
+        for (int indexSizePos = startIndexPos; indexSizePos < endIndexPos; indexSizePos +=
+                DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            int partitionId = indexReadBuf.getInt(indexSizePos + DataStoreUtils.INDEX_POS_PARTITIONID);
+            int keyCode = indexReadBuf.getInt(indexSizePos + DataStoreUtils.INDEX_POS_KEY_CODE);
+            this.queuesMap.merge(partitionId, indexSizePos, Math::max);
+            this.keysMap.merge(keyCode, indexSizePos, Math::max);
+        }
+    }
+
+    private static long buildPosition(int dataOffset, int indexOffset) {
+        return (((long) dataOffset) << 32) | (indexOffset & 0xFFFFFFFFL);
+    }
+
+    private static int getDataOffset(long position) {
+        return (int) ((position & ~SEALED_POSITION_FLAG) >>> 32);
+    }
+
+    private static int getIndexOffset(long position) {
+        return (int) position;
     }
 
     /**
@@ -206,40 +458,34 @@ public class MsgMemStore implements Closeable {
             return new GetCacheMsgResult(false, TErrCodeConstants.MOVED,
                     lstRdIndexOffset, "Request offset lower than cache minOffset");
         }
-        if (lstRdIndexOffset >= this.writeIndexStartPos + this.cacheIndexOffset.get()) {
+        // snapshot the published position, the messages below it are completely filled
+        final long publishedPos = this.publishedPosition.get();
+        final int currIndexOffset = getIndexOffset(publishedPos);
+        final int currDataOffset = getDataOffset(publishedPos);
+        if (lstRdIndexOffset >= this.writeIndexStartPos + currIndexOffset) {
             return new GetCacheMsgResult(false, TErrCodeConstants.NOT_FOUND,
                     lstRdIndexOffset, "Request offset reached cache maxOffset");
         }
         int totalReadSize = 0;
-        int currIndexOffset;
-        int currDataOffset;
-        long lastDataRdOff = lstRdDataOffset;
+        long lastDataRdOff = this.writeDataStartPos + currDataOffset;
         int startReadOff = (int) (lstRdIndexOffset - this.writeIndexStartPos);
-        this.writeLock.lock();
-        try {
-            if (isFilterConsume) {
-                // filter conduct. accelerate by keysMap.
-                for (Integer keyCode : filterKeySet) {
-                    if (keyCode != null) {
-                        lastWritePos = this.keysMap.get(keyCode);
-                        if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                            hasMsg = true;
-                            break;
-                        }
+        if (isFilterConsume) {
+            // filter conduct. accelerate by keysMap.
+            for (Integer keyCode : filterKeySet) {
+                if (keyCode != null) {
+                    lastWritePos = this.keysMap.get(keyCode);
+                    if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                        hasMsg = true;
+                        break;
                     }
                 }
-            } else {
-                // orderly consume by partition id.
-                lastWritePos = this.queuesMap.get(partitionId);
-                if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                    hasMsg = true;
-                }
             }
-            currDataOffset = this.cacheDataOffset.get();
-            currIndexOffset = this.cacheIndexOffset.get();
-            lastDataRdOff = this.writeDataStartPos + currDataOffset;
-        } finally {
-            this.writeLock.unlock();
+        } else {
+            // orderly consume by partition id.
+            lastWritePos = this.queuesMap.get(partitionId);
+            if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                hasMsg = true;
+            }
         }
         int limitReadSize = currIndexOffset - startReadOff;
         // cannot find message, return not found
@@ -263,6 +509,7 @@ public class MsgMemStore implements Closeable {
         int cDataOffset = 0;
         ByteBuffer tmpIndexRdBuf = this.cachedIndexSegment.asReadOnlyBuffer();
         ByteBuffer tmpDataRdBuf = this.cacheDataSegment.asReadOnlyBuffer();
+        List<ByteBuf> pooledBufList = new ArrayList<>();
         // loop read by index
         for (int count = 0; count < maxReadCount; count++, startReadOff += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
             // cannot find matched message, return
@@ -295,12 +542,15 @@ public class MsgMemStore implements Closeable {
             if (reqRcvTime != 0 && cTimeRecv < reqRcvTime) {
                 continue;
             }
-            // read data file.
-            byte[] tmpArray = new byte[cDataSize];
-            final ByteBuffer buffer = ByteBuffer.wrap(tmpArray);
+            // copy data into a pooled buffer, released by the caller after conversion.
+            final ByteBuf pooledBuf = NettyBufferPool.acquireBuffer(cDataSize);
+            pooledBufList.add(pooledBuf);
+            final ByteBuffer buffer = pooledBuf.nioBuffer(0, cDataSize);
+            tmpDataRdBuf.limit(cDataOffset + cDataSize);
             tmpDataRdBuf.position(cDataOffset);
-            tmpDataRdBuf.get(tmpArray);
-            buffer.rewind();
+            buffer.put(tmpDataRdBuf);
+            tmpDataRdBuf.limit(tmpDataRdBuf.capacity());
+            buffer.flip();
             cacheMsgList.add(buffer);
             lastDataRdOff = cDataPos + cDataSize;
             readedSize += DataStoreUtils.STORE_INDEX_HEAD_LEN;
@@ -311,8 +561,8 @@ public class MsgMemStore implements Closeable {
             }
         }
         // return result
-        return new GetCacheMsgResult(true, 0, "Ok1",
-                lstRdIndexOffset, readedSize, lastDataRdOff, totalReadSize, cacheMsgList);
+        return new GetCacheMsgResult(true, 0, "Ok1", lstRdIndexOffset,
+                readedSize, lastDataRdOff, totalReadSize, cacheMsgList, pooledBufList);
     }
 
     /**
@@ -324,30 +574,36 @@ public class MsgMemStore implements Closeable {
      */
     public void batchFlush(MsgFileStore msgFileStore,
             StringBuilder strBuffer) throws Throwable {
-        if (this.curMessageCount.get() == 0) {
+        if (getCurMsgCount() == 0) {
             return;
         }
+        // the store being flushed has been sealed and its reserved writes published
+        final long publishedPos = this.publishedPosition.get();
+        final int indexSize = getIndexOffset(publishedPos);
+        final int dataSize = getDataOffset(publishedPos);
         ByteBuffer tmpIndexBuffer = this.cachedIndexSegment.asReadOnlyBuffer();
         final ByteBuffer tmpDataReadBuf = this.cacheDataSegment.asReadOnlyBuffer();
-        tmpIndexBuffer.flip();
-        tmpDataReadBuf.flip();
+        tmpIndexBuffer.position(0);
+        tmpIndexBuffer.limit(indexSize);
+        tmpDataReadBuf.position(0);
+        tmpDataReadBuf.limit(dataSize);
         long startTime = System.currentTimeMillis();
-        msgFileStore.appendMsg(true, startTime, strBuffer, curMessageCount.get(),
-                cacheIndexOffset.get(), tmpIndexBuffer, cacheDataOffset.get(),
+        msgFileStore.appendMsg(true, startTime, strBuffer, getCurMsgCount(),
+                indexSize, tmpIndexBuffer, dataSize,
                 tmpDataReadBuf, leftAppendTime.get(), rightAppendTime.get());
         BrokerSrvStatsHolder.updDiskSyncDataDlt(System.currentTimeMillis() - startTime);
     }
 
     public int getCurMsgCount() {
-        return this.curMessageCount.get();
+        return getIndexCacheSize() / DataStoreUtils.STORE_INDEX_HEAD_LEN;
     }
 
     public int getCurDataCacheSize() {
-        return this.cacheDataOffset.get();
+        return getDataOffset(this.publishedPosition.get());
     }
 
     public int getIndexCacheSize() {
-        return this.cacheIndexOffset.get();
+        return getIndexOffset(this.publishedPosition.get());
     }
 
     public int getMaxDataCacheSize() {
@@ -361,18 +617,27 @@ public class MsgMemStore implements Closeable {
     public int isOffsetInHold(long requestOffset) {
         if (requestOffset < this.writeIndexStartPos) {
             return -1;
-        } else if (requestOffset >= this.writeIndexStartPos + this.cacheIndexOffset.get()) {
+        } else if (requestOffset >= getIndexReservedPos()) {
+            // the offsets reserved but not yet published still belong to this store
             return 1;
         }
         return 0;
     }
 
     public long getDataLastWritePos() {
-        return this.writeDataStartPos + this.cacheDataOffset.get();
+        return this.writeDataStartPos + getCurDataCacheSize();
     }
 
     public long getIndexLastWritePos() {
-        return this.writeIndexStartPos + this.cacheIndexOffset.get();
+        return this.writeIndexStartPos + getIndexCacheSize();
+    }
+
+    public long getDataReservedPos() {
+        return this.writeDataStartPos + getDataOffset(this.reservedPosition.get());
+    }
+
+    public long getIndexReservedPos() {
+        return this.writeIndexStartPos + getIndexOffset(this.reservedPosition.get());
     }
 
     public long getIndexStartWritePos() {
@@ -396,12 +661,13 @@ public class MsgMemStore implements Closeable {
         return 0;
     }
 
+    /**
+     * Clear the store, it is sealed until reopened.
+     */
     public void clear() {
+        clearPositions();
         this.writeDataStartPos = -1;
         this.writeIndexStartPos = -1;
-        this.cacheDataOffset.set(0);
-        this.cacheIndexOffset.set(0);
-        this.curMessageCount.set(0);
         this.queuesMap.clear();
         this.keysMap.clear();
         this.cacheDataSegment.rewind();
@@ -412,8 +678,8 @@ public class MsgMemStore implements Closeable {
 
     @Override
     public void close() {
-        ((DirectBuffer) this.cacheDataSegment).cleaner().clean();
-        ((DirectBuffer) this.cachedIndexSegment).cleaner().clean();
+        DataStoreUtils.releaseDirectBuffer(this.cacheDataSegment);
+        DataStoreUtils.releaseDirectBuffer(this.cachedIndexSegment);
     }
 
 }
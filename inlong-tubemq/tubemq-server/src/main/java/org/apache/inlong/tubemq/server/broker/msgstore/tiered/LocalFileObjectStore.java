@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The object store on a local or mounted file system, the object keys are mapped to
+ * relative file paths under the root directory.
+ */
+public class LocalFileObjectStore implements ObjectStore {
+
+    private static final String TMP_FILE_SUFFIX = ".uploading";
+    private final File rootDir;
+
+    public LocalFileObjectStore(String rootPath) {
+        this.rootDir = new File(rootPath);
+        FileUtil.checkDir(this.rootDir);
+    }
+
+    @Override
+    public void upload(String key, File file) throws IOException {
+        File target = getObjectFile(key);
+        File tmpFile = prepareTmpFile(target);
+        Files.copy(file.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        commit(tmpFile, target);
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        File target = getObjectFile(key);
+        File tmpFile = prepareTmpFile(target);
+        Files.write(tmpFile.toPath(), content);
+        commit(tmpFile, target);
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        File objFile = getObjectFile(key);
+        if (!objFile.isFile()) {
+            return null;
+        }
+        return Files.readAllBytes(objFile.toPath());
+    }
+
+    @Override
+    public void download(String key, File target) throws IOException {
+        File objFile = getObjectFile(key);
+        if (!objFile.isFile()) {
+            throw new FileNotFoundException(new StringBuilder(512)
+                    .append("[Tiered Store] Object not found, key=").append(key).toString());
+        }
+        Files.copy(objFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(getObjectFile(key).toPath());
+    }
+
+    @Override
+    public List<String> list(String prefix) throws IOException {
+        List<String> keys = new ArrayList<>();
+        int sepPos = prefix.lastIndexOf('/');
+        File parent = (sepPos < 0) ? rootDir : getObjectFile(prefix.substring(0, sepPos));
+        File[] files = parent.listFiles();
+        if (files == null) {
+            return keys;
+        }
+        String keyBase = (sepPos < 0) ? "" : prefix.substring(0, sepPos + 1);
+        for (File file : files) {
+            if (!file.isFile() || file.getName().endsWith(TMP_FILE_SUFFIX)) {
+                continue;
+            }
+            String key = keyBase + file.getName();
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    private File getObjectFile(String key) {
+        return new File(rootDir, key.replace('/', File.separatorChar));
+    }
+
+    private File prepareTmpFile(File target) throws IOException {
+        FileUtil.checkDir(target.getParentFile());
+        return new File(target.getParentFile(), target.getName() + TMP_FILE_SUFFIX);
+    }
+
+    private void commit(File tmpFile, File target) throws IOException {
+        // the object is visible only after the content is completely written
+        Files.move(tmpFile.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
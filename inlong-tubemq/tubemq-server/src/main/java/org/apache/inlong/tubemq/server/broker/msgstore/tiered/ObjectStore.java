@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The remote object store of the offloaded segments, objects are written once and never modified.
+ */
+public interface ObjectStore extends Closeable {
+
+    /**
+     * Upload the content of a local file as an object.
+     *
+     * @param key          the object key
+     * @param file         the local file to upload
+     * @throws IOException the exception while uploading
+     */
+    void upload(String key, File file) throws IOException;
+
+    /**
+     * Store a small object, such as the metadata of an offloaded segment.
+     *
+     * @param key          the object key
+     * @param content      the object content
+     * @throws IOException the exception while storing
+     */
+    void put(String key, byte[] content) throws IOException;
+
+    /**
+     * Get the content of a small object.
+     *
+     * @param key          the object key
+     * @return             the object content, null if not exists
+     * @throws IOException the exception while reading
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Download an object to a local file.
+     *
+     * @param key          the object key
+     * @param target       the local file to write
+     * @throws IOException the exception while downloading
+     */
+    void download(String key, File target) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * List the keys of the objects that start with the prefix.
+     *
+     * @param prefix       the key prefix
+     * @return             the object keys
+     * @throws IOException the exception while listing
+     */
+    List<String> list(String prefix) throws IOException;
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bounded local cache of the remote segments, the segments are downloaded on the first
+ * read and evicted in least recently used order once the cache exceeds its size limit.
+ * The entries in use are never evicted, so the cache may exceed the limit temporarily.
+ */
+public class SegmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentCache.class);
+    private final ObjectStore objectStore;
+    private final File cacheDir;
+    private final long maxCacheSize;
+    // the cached entries in access order
+    private final LinkedHashMap<String, CacheEntry> entries =
+            new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong cachedSize = new AtomicLong(0);
+    private final AtomicLong hitCnt = new AtomicLong(0);
+    private final AtomicLong missCnt = new AtomicLong(0);
+    // the sequence to name the cached files, so that a reloaded entry never reuses
+    // the file of an invalidated entry still in use
+    private final AtomicLong fileSeq = new AtomicLong(0);
+
+    public SegmentCache(ObjectStore objectStore, String cachePath, long maxCacheSize) {
+        this.objectStore = objectStore;
+        this.cacheDir = new File(cachePath);
+        this.maxCacheSize = maxCacheSize;
+        FileUtil.checkDir(this.cacheDir);
+        // the files left by the last run are not tracked, so remove them
+        File[] files = this.cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && !file.delete()) {
+                    logger.warn("[Tiered Store] failure to delete cached file {}", file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the cached segment of the object, download it if not cached.
+     * The returned entry must be released by {@link #release(CacheEntry)}.
+     *
+     * @param key          the object key of the segment
+     * @return             the cached entry
+     * @throws IOException the exception while downloading
+     */
+    public CacheEntry acquire(String key) throws IOException {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new CacheEntry(key, new File(cacheDir, new StringBuilder(256)
+                        .append(key.replace('/', '#')).append('.')
+                        .append(fileSeq.incrementAndGet()).toString()));
+                entries.put(key, entry);
+            }
+            entry.refCnt++;
+        }
+        try {
+            if (entry.load()) {
+                missCnt.incrementAndGet();
+                evictIfNeeded();
+            } else {
+                hitCnt.incrementAndGet();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                entry.refCnt--;
+                if (entries.get(key) == entry && entry.refCnt == 0) {
+                    entries.remove(key);
+                }
+            }
+            throw e;
+        }
+        return entry;
+    }
+
+    public void release(CacheEntry entry) {
+        boolean needClose;
+        synchronized (this) {
+            entry.refCnt--;
+            needClose = (entry.refCnt == 0 && entry.invalid);
+        }
+        if (needClose) {
+            entry.unload();
+        } else {
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Remove the cached segment of the object, the entry in use is unloaded
+     * after its last release.
+     *
+     * @param key   the object key of the segment
+     */
+    public void invalidate(String key) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.remove(key);
+            if (entry == null) {
+                return;
+            }
+            entry.invalid = true;
+            if (entry.refCnt > 0) {
+                return;
+            }
+        }
+        entry.unload();
+    }
+
+    public long getCachedSize() {
+        return cachedSize.get();
+    }
+
+    public long getHitCount() {
+        return hitCnt.get();
+    }
+
+    public long getMissCount() {
+        return missCnt.get();
+    }
+
+    public void close() {
+        synchronized (this) {
+            for (CacheEntry entry : entries.values()) {
+                entry.invalid = true;
+                entry.unload();
+            }
+            entries.clear();
+        }
+    }
+
+    private void evictIfNeeded() {
+        if (cachedSize.get() <= maxCacheSize) {
+            return;
+        }
+        synchronized (this) {
+            Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet().iterator();
+            while (it.hasNext() && cachedSize.get() > maxCacheSize) {
+                CacheEntry entry = it.next().getValue();
+                if (entry.refCnt > 0) {
+                    continue;
+                }
+                it.remove();
+                entry.invalid = true;
+                entry.unload();
+            }
+        }
+    }
+
+    public class CacheEntry {
+
+        private final String key;
+        private final File file;
+        // guarded by the cache lock
+        private int refCnt = 0;
+        private boolean invalid = false;
+        private RandomAccessFile randFile;
+        private volatile FileChannel channel;
+        private long size = 0;
+
+        private CacheEntry(String key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+
+        public FileChannel getChannel() {
+            return channel;
+        }
+
+        private synchronized boolean load() throws IOException {
+            if (channel != null) {
+                return false;
+            }
+            objectStore.download(key, file);
+            randFile = new RandomAccessFile(file, "r");
+            channel = randFile.getChannel();
+            size = channel.size();
+            cachedSize.addAndGet(size);
+            return true;
+        }
+
+        private synchronized void unload() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+                randFile.close();
+            } catch (IOException e) {
+                logger.warn("[Tiered Store] failure to close cached file " + file, e);
+            }
+            channel = null;
+            randFile = null;
+            cachedSize.addAndGet(-size);
+            size = 0;
+            if (!file.delete()) {
+                logger.warn("[Tiered Store] failure to delete cached file {}", file);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The tiered storage of the broker, holds the object store of the offloaded segments
+ * and the local cache to read them.
+ */
+public class TieredStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredStorage.class);
+    private final ObjectStore objectStore;
+    private final SegmentCache segmentCache;
+    // the object key prefix of the broker, the brokers may share an object store
+    private final String keyPrefix;
+    private final long localRetentionMs;
+    private final AtomicLong offloadedSegCnt = new AtomicLong(0);
+    private final AtomicLong offloadedBytes = new AtomicLong(0);
+
+    public TieredStorage(BrokerConfig tubeConfig) {
+        this(new LocalFileObjectStore(tubeConfig.getTieredStorePath()),
+                tubeConfig.getTieredCachePath(), tubeConfig.getTieredCacheSize(),
+                String.valueOf(tubeConfig.getBrokerId()), tubeConfig.getTieredLocalRetentionMs());
+    }
+
+    public TieredStorage(ObjectStore objectStore, String cachePath, long cacheSize,
+            String keyPrefix, long localRetentionMs) {
+        this.objectStore = objectStore;
+        this.segmentCache = new SegmentCache(objectStore, cachePath, cacheSize);
+        this.keyPrefix = keyPrefix;
+        this.localRetentionMs = localRetentionMs;
+    }
+
+    public ObjectStore getObjectStore() {
+        return objectStore;
+    }
+
+    public SegmentCache getSegmentCache() {
+        return segmentCache;
+    }
+
+    public long getLocalRetentionMs() {
+        return localRetentionMs;
+    }
+
+    /**
+     * Get the object key prefix of the segments of a store.
+     *
+     * @param storeKey   the store key
+     * @param segDir     the segment directory, data or index
+     * @return           the object key prefix, ends with "/"
+     */
+    public String getSegmentKeyPrefix(String storeKey, String segDir) {
+        return new StringBuilder(256).append(keyPrefix).append('/')
+                .append(storeKey).append('/').append(segDir).append('/').toString();
+    }
+
+    /**
+     * Delete the offloaded segments of a removed store.
+     *
+     * @param storeKey     the store key
+     * @throws IOException the exception while deleting
+     */
+    public void deleteStoreObjects(String storeKey) throws IOException {
+        for (String segDir : new String[]{"data", "index"}) {
+            for (String key : objectStore.list(getSegmentKeyPrefix(storeKey, segDir))) {
+                segmentCache.invalidate(key);
+                objectStore.delete(key);
+            }
+        }
+        logger.info("[Tiered Store] removed offloaded segments of store {}", storeKey);
+    }
+
+    public void addOffloadStats(long segSize) {
+        offloadedSegCnt.incrementAndGet();
+        offloadedBytes.addAndGet(segSize);
+    }
+
+    public long getOffloadedSegCnt() {
+        return offloadedSegCnt.get();
+    }
+
+    public long getOffloadedBytes() {
+        return offloadedBytes.get();
+    }
+
+    public void close() {
+        segmentCache.close();
+        try {
+            objectStore.close();
+        } catch (IOException e) {
+            logger.warn("[Tiered Store] close object store failure", e);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.FileOffsetStorage;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorage;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.ZkOffsetStorage;
@@ -51,7 +52,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultOffsetManager.class);
     private final BrokerConfig brokerConfig;
-    private final OffsetStorage zkOffsetStorage;
+    private final OffsetStorage offsetStorage;
     private final ConcurrentHashMap<String/* group */, ConcurrentHashMap<String/* topic - partitionId */, OffsetStorageInfo>> cfmOffsetMap =
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String/* group */, ConcurrentHashMap<String/* topic - partitionId */, Long>> tmpOffsetMap =
@@ -60,8 +61,14 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     public DefaultOffsetManager(final BrokerConfig brokerConfig) {
         super("[Offset Manager]", brokerConfig.getZkConfig().getZkCommitPeriodMs());
         this.brokerConfig = brokerConfig;
-        zkOffsetStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
-                true, brokerConfig.getBrokerId());
+        if (brokerConfig.isFileOffsetStorage()) {
+            offsetStorage = new FileOffsetStorage(brokerConfig.getOffsetStorePath(),
+                    brokerConfig.getBrokerId(), brokerConfig.getZkConfig(),
+                    brokerConfig.getOffsetZkSyncPeriodMs());
+        } else {
+            offsetStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
+                    true, brokerConfig.getBrokerId());
+        }
         super.start();
     }
 
@@ -83,7 +90,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         this.commitTmpOffsets();
         logger.info("[Offset Manager] begin reserve final Offset.....");
         this.commitCfmOffsets(true);
-        this.zkOffsetStorage.close();
+        this.offsetStorage.close();
         logger.info("[Offset Manager] Offset Manager service stopped!");
     }
 
@@ -341,7 +348,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         Set<String> groupSet =
                 new HashSet<>(cfmOffsetMap.keySet());
         Map<String, Set<String>> localGroups =
-                zkOffsetStorage.queryZkAllGroupTopicInfos();
+                offsetStorage.queryZkAllGroupTopicInfos();
         groupSet.addAll(localGroups.keySet());
         return groupSet;
     }
@@ -364,7 +371,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     public Set<String> getUnusedGroupInfo() {
         Set<String> unUsedGroups = new HashSet<>();
         Map<String, Set<String>> localGroups =
-                zkOffsetStorage.queryZkAllGroupTopicInfos();
+                offsetStorage.queryZkAllGroupTopicInfos();
         for (String groupName : localGroups.keySet()) {
             if (!cfmOffsetMap.containsKey(groupName)) {
                 unUsedGroups.add(groupName);
@@ -387,7 +394,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
             List<String> groupLst = new ArrayList<>(1);
             groupLst.add(group);
             Map<String, Set<String>> groupTopicInfo =
-                    zkOffsetStorage.queryZKGroupTopicInfo(groupLst);
+                    offsetStorage.queryZKGroupTopicInfo(groupLst);
             result = groupTopicInfo.get(group);
         } else {
             for (OffsetStorageInfo storageInfo : topicPartOffsetMap.values()) {
@@ -417,7 +424,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     continue;
                 }
                 Map<Integer, Long> qryResult =
-                        zkOffsetStorage.queryGroupOffsetInfo(group,
+                        offsetStorage.queryGroupOffsetInfo(group,
                                 entry.getKey(), entry.getValue());
                 Map<Integer, Tuple2<Long, Long>> offsetMap = new HashMap<>();
                 for (Map.Entry<Integer, Long> item : qryResult.entrySet()) {
@@ -563,7 +570,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     .append("[Offset Manager] delete offset from memory by modifier=")
                     .append(modifier).toString();
         } else {
-            zkOffsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
             printBase = strBuff
                     .append("[Offset Manager] delete offset from memory and zk by modifier=")
                     .append(modifier).toString();
@@ -644,7 +651,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     || entry.getValue() == null || entry.getValue().isEmpty()) {
                 continue;
             }
-            zkOffsetStorage.commitOffset(entry.getKey(), entry.getValue().values(), retryable);
+            offsetStorage.commitOffset(entry.getKey(), entry.getValue().values(), retryable);
         }
         BrokerSrvStatsHolder.updZKSyncDataDlt(System.currentTimeMillis() - startTime);
     }
@@ -673,7 +680,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         OffsetStorageInfo regInfo = regInfoMap.get(offsetCacheKey);
         if (regInfo == null) {
             OffsetStorageInfo tmpRegInfo =
-                    zkOffsetStorage.loadOffset(group, topic, partitionId);
+                    offsetStorage.loadOffset(group, topic, partitionId);
             if (tmpRegInfo == null) {
                 tmpRegInfo = new OffsetStorageInfo(topic,
                         brokerConfig.getBrokerId(), partitionId, defOffset, 0);
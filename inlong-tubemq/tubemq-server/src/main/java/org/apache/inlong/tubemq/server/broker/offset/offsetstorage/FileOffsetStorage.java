@@ -0,0 +1,633 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.utils.ConcurrentHashSet;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.fileconfig.ZKConfig;
+import org.apache.inlong.tubemq.server.common.zookeeper.ZKUtil;
+import org.apache.inlong.tubemq.server.common.zookeeper.ZooKeeperWatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A offset storage implementation with local files
+ *
+ * The offsets are kept in memory and persisted into an append only log, one batch per
+ * commit, the log is forced to disk at most once per LOG_FORCE_INTERVAL_MS and compacted
+ * into a snapshot file when it grows over LOG_COMPACT_SIZE. The changed groups are
+ * replicated to ZooKeeper periodically as one aggregated node per group and broker.
+ */
+public class FileOffsetStorage implements OffsetStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileOffsetStorage.class);
+    static final String LOG_FILE_NAME = "offset.log";
+    static final String SNAPSHOT_FILE_NAME = "offset.snapshot";
+    private static final String SNAPSHOT_TMP_FILE_NAME = "offset.snapshot.tmp";
+    private static final int SNAPSHOT_MAGIC = 0x7542F5E1;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final long LOG_FORCE_INTERVAL_MS = 1000L;
+    static final long LOG_COMPACT_SIZE = 16 * 1024 * 1024L;
+
+    private final int brokerId;
+    private final File storeDir;
+    private final long logCompactSize;
+    private final long zkSyncPeriodMs;
+    private final String snapshotZkDir;
+    private ZooKeeperWatcher zkw;
+    // group -- topic -- partitionId -- committed offset
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>>> offsetMap =
+            new ConcurrentHashMap<>();
+    // the groups changed since the last replication to ZooKeeper
+    private final ConcurrentHashSet<String> changedGroups = new ConcurrentHashSet<>();
+    private final AtomicBoolean zkSyncing = new AtomicBoolean(false);
+    private final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream(4096);
+    private final CRC32 crc32 = new CRC32();
+    private RandomAccessFile logFile;
+    private FileChannel logChannel;
+    private long lastForceTime = 0;
+    private volatile long lastZkSyncTime = System.currentTimeMillis();
+    private volatile boolean closed = false;
+
+    /**
+     * Initial file offset storage object
+     *
+     * @param storePath        the directory of the storage files
+     * @param brokerId         the broker id
+     * @param zkConfig         the ZooKeeper configure, null if not replicate to ZooKeeper
+     * @param zkSyncPeriodMs   the period to replicate the changed groups to ZooKeeper
+     */
+    public FileOffsetStorage(String storePath, int brokerId,
+            ZKConfig zkConfig, long zkSyncPeriodMs) {
+        this(storePath, brokerId, zkConfig, zkSyncPeriodMs, LOG_COMPACT_SIZE);
+    }
+
+    FileOffsetStorage(String storePath, int brokerId, ZKConfig zkConfig,
+            long zkSyncPeriodMs, long logCompactSize) {
+        this.brokerId = brokerId;
+        this.storeDir = new File(storePath);
+        this.logCompactSize = logCompactSize;
+        this.zkSyncPeriodMs = zkSyncPeriodMs;
+        try {
+            if (!storeDir.exists() && !storeDir.mkdirs()) {
+                throw new IOException("Create directory failure!");
+            }
+            loadSnapshot();
+            this.logFile = new RandomAccessFile(new File(storeDir, LOG_FILE_NAME), "rw");
+            this.logChannel = logFile.getChannel();
+            replayLog();
+        } catch (IOException e) {
+            throw new RuntimeException(new StringBuilder(256)
+                    .append("[FileOffsetStorage] Load offsets from ")
+                    .append(storeDir.getAbsolutePath()).append(" failure!").toString(), e);
+        }
+        if (zkConfig == null) {
+            this.snapshotZkDir = null;
+        } else {
+            this.snapshotZkDir =
+                    ZKUtil.normalizePath(zkConfig.getZkNodeRoot()) + "/offsets-snapshot-v1";
+            try {
+                this.zkw = new ZooKeeperWatcher(zkConfig);
+            } catch (Throwable e) {
+                // the offsets are still kept locally, only the replication is disabled
+                BrokerSrvStatsHolder.incZKExcCnt();
+                logger.error(new StringBuilder(256)
+                        .append("[FileOffsetStorage] Failed to connect ZooKeeper server (")
+                        .append(zkConfig.getZkServerAddr())
+                        .append("), the offsets snapshots will not be replicated!").toString(), e);
+            }
+        }
+        logger.info(new StringBuilder(256).append("[FileOffsetStorage] File Offset Storage initiated, path=")
+                .append(storeDir.getAbsolutePath()).append(", groups=")
+                .append(offsetMap.size()).toString());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        logger.info("File Offset Storage closing .......");
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.error("[FileOffsetStorage] Compact offsets failure when closing", e);
+        }
+        syncSnapshotsToZk(true);
+        closed = true;
+        try {
+            logChannel.close();
+            logFile.close();
+        } catch (IOException e) {
+            logger.error("[FileOffsetStorage] Close offset log failure", e);
+        }
+        if (this.zkw != null) {
+            this.zkw.close();
+            this.zkw = null;
+        }
+        logger.info("File Offset Storage closed!");
+    }
+
+    @Override
+    public void commitOffset(String group,
+            Collection<OffsetStorageInfo> offsetInfoList,
+            boolean isFailRetry) {
+        if (offsetInfoList == null || offsetInfoList.isEmpty()) {
+            return;
+        }
+        List<OffsetStorageInfo> committedInfos = new ArrayList<>(offsetInfoList.size());
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            batchBuffer.reset();
+            for (final OffsetStorageInfo info : offsetInfoList) {
+                long newOffset;
+                long msgId;
+                synchronized (info) {
+                    if (!info.isModified()) {
+                        continue;
+                    }
+                    newOffset = info.getOffset();
+                    msgId = info.getMessageId();
+                    info.setModified(false);
+                }
+                committedInfos.add(info);
+                appendRecord(RECORD_PUT, group,
+                        info.getTopic(), info.getPartitionId(), msgId, newOffset);
+                applyPut(group, info.getTopic(), info.getPartitionId(), msgId, newOffset);
+            }
+            if (committedInfos.isEmpty()) {
+                return;
+            }
+            int retries = isFailRetry ? TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES : 1;
+            if (!writeBatch(retries)) {
+                // let the next commit cycle persist them again
+                for (OffsetStorageInfo info : committedInfos) {
+                    synchronized (info) {
+                        info.setModified(true);
+                    }
+                }
+                return;
+            }
+            changedGroups.add(group);
+        }
+        syncSnapshotsToZk(false);
+    }
+
+    @Override
+    public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
+        OffsetValue value = getOffsetValue(group, topic, partitionId);
+        if (value == null) {
+            return null;
+        }
+        return new OffsetStorageInfo(topic, brokerId, partitionId,
+                value.offset, value.messageId, false);
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZkAllGroupTopicInfos() {
+        return queryZKGroupTopicInfo(new ArrayList<>(offsetMap.keySet()));
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet) {
+        Map<String, Set<String>> groupTopicMap = new HashMap<>();
+        if (groupSet == null || groupSet.isEmpty()) {
+            return groupTopicMap;
+        }
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>> topicMap =
+                    offsetMap.get(group);
+            if (topicMap == null) {
+                continue;
+            }
+            Set<String> topicSet = new HashSet<>();
+            for (Map.Entry<String, ConcurrentHashMap<Integer, OffsetValue>> entry : topicMap.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    topicSet.add(entry.getKey());
+                }
+            }
+            if (!topicSet.isEmpty()) {
+                groupTopicMap.put(group, topicSet);
+            }
+        }
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<Integer, Long> queryGroupOffsetInfo(String group, String topic,
+            Set<Integer> partitionIds) {
+        Map<Integer, Long> result = new HashMap<>(partitionIds.size());
+        for (Integer partitionId : partitionIds) {
+            OffsetValue value = getOffsetValue(group, topic, partitionId);
+            result.put(partitionId, value == null ? null : value.offset);
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteGroupOffsetInfo(
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            batchBuffer.reset();
+            for (Map.Entry<String, Map<String, Set<Integer>>> entry : groupTopicPartMap.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Set<Integer>> topicEntry : entry.getValue().entrySet()) {
+                    if (topicEntry.getKey() == null || topicEntry.getValue() == null) {
+                        continue;
+                    }
+                    for (Integer partitionId : topicEntry.getValue()) {
+                        if (applyDelete(entry.getKey(), topicEntry.getKey(), partitionId)) {
+                            appendRecord(RECORD_DELETE, entry.getKey(),
+                                    topicEntry.getKey(), partitionId, -1L, -1L);
+                            changedGroups.add(entry.getKey());
+                        }
+                    }
+                }
+            }
+            if (batchBuffer.size() > 0) {
+                writeBatch(TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES);
+            }
+        }
+        syncSnapshotsToZk(false);
+    }
+
+    /**
+     * Get the offset partitions of a group's topic stored in this storage.
+     *
+     * @param group   the group name
+     * @param topic   the topic name
+     * @return the partition ids
+     */
+    public Set<Integer> getStoredPartitionIds(String group, String topic) {
+        Set<Integer> partIds = new HashSet<>();
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>> topicMap =
+                offsetMap.get(group);
+        if (topicMap != null) {
+            ConcurrentHashMap<Integer, OffsetValue> partMap = topicMap.get(topic);
+            if (partMap != null) {
+                partIds.addAll(partMap.keySet());
+            }
+        }
+        return partIds;
+    }
+
+    private OffsetValue getOffsetValue(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            return null;
+        }
+        ConcurrentHashMap<Integer, OffsetValue> partMap = topicMap.get(topic);
+        if (partMap == null) {
+            return null;
+        }
+        return partMap.get(partitionId);
+    }
+
+    private void applyPut(String group, String topic,
+            int partitionId, long messageId, long offset) {
+        offsetMap.computeIfAbsent(group, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(topic, k -> new ConcurrentHashMap<>())
+                .put(partitionId, new OffsetValue(messageId, offset));
+    }
+
+    private boolean applyDelete(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>> topicMap =
+                offsetMap.get(group);
+        if (topicMap == null) {
+            return false;
+        }
+        ConcurrentHashMap<Integer, OffsetValue> partMap = topicMap.get(topic);
+        if (partMap == null || partMap.remove(partitionId) == null) {
+            return false;
+        }
+        if (partMap.isEmpty()) {
+            topicMap.remove(topic);
+            if (topicMap.isEmpty()) {
+                offsetMap.remove(group);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Append a record to the batch buffer, the record is formatted as
+     * length(int) + crc32(int) + payload
+     */
+    private void appendRecord(byte type, String group, String topic,
+            int partitionId, long messageId, long offset) {
+        try {
+            ByteArrayOutputStream payloadStream = new ByteArrayOutputStream(128);
+            DataOutputStream payloadOut = new DataOutputStream(payloadStream);
+            writeEntry(payloadOut, type, group, topic, partitionId, messageId, offset);
+            byte[] payload = payloadStream.toByteArray();
+            crc32.reset();
+            crc32.update(payload, 0, payload.length);
+            DataOutputStream batchOut = new DataOutputStream(batchBuffer);
+            batchOut.writeInt(payload.length);
+            batchOut.writeInt((int) crc32.getValue());
+            batchOut.write(payload);
+        } catch (IOException e) {
+            // not happen for the memory streams
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeEntry(DataOutputStream out, byte type, String group,
+            String topic, int partitionId, long messageId, long offset) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(group);
+        out.writeUTF(topic);
+        out.writeInt(partitionId);
+        out.writeLong(messageId);
+        out.writeLong(offset);
+    }
+
+    private boolean writeBatch(int retries) {
+        ByteBuffer buffer = ByteBuffer.wrap(batchBuffer.toByteArray());
+        long startPos = -1;
+        for (int i = 0; i < retries; i++) {
+            try {
+                if (startPos < 0) {
+                    startPos = logChannel.size();
+                } else {
+                    // drop the partial batch left by the failed write
+                    logChannel.truncate(startPos);
+                }
+                logChannel.position(startPos);
+                while (buffer.hasRemaining()) {
+                    logChannel.write(buffer);
+                }
+                long curTime = System.currentTimeMillis();
+                if (curTime - lastForceTime >= LOG_FORCE_INTERVAL_MS) {
+                    logChannel.force(false);
+                    lastForceTime = curTime;
+                }
+                if (logChannel.size() >= logCompactSize) {
+                    compact();
+                }
+                return true;
+            } catch (IOException e) {
+                logger.error("[FileOffsetStorage] Error found when append offsets with retry " + i, e);
+                buffer.rewind();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write all offsets into a new snapshot file and then truncate the log.
+     * A crash before the truncation only replays the log records already included
+     * in the snapshot, which ends up with the same offsets.
+     */
+    private void compact() throws IOException {
+        File tmpFile = new File(storeDir, SNAPSHOT_TMP_FILE_NAME);
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile)) {
+            CheckedOutputStream checkedOut =
+                    new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+            DataOutputStream out = new DataOutputStream(checkedOut);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            int count = 0;
+            for (ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>> topicMap : offsetMap.values()) {
+                for (ConcurrentHashMap<Integer, OffsetValue> partMap : topicMap.values()) {
+                    count += partMap.size();
+                }
+            }
+            out.writeInt(count);
+            for (Map.Entry<String, ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>>> groupEntry : offsetMap
+                    .entrySet()) {
+                for (Map.Entry<String, ConcurrentHashMap<Integer, OffsetValue>> topicEntry : groupEntry.getValue()
+                        .entrySet()) {
+                    for (Map.Entry<Integer, OffsetValue> partEntry : topicEntry.getValue().entrySet()) {
+                        writeEntry(out, RECORD_PUT, groupEntry.getKey(), topicEntry.getKey(),
+                                partEntry.getKey(), partEntry.getValue().messageId,
+                                partEntry.getValue().offset);
+                    }
+                }
+            }
+            out.flush();
+            long checksum = checkedOut.getChecksum().getValue();
+            out.writeLong(checksum);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), new File(storeDir, SNAPSHOT_FILE_NAME).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logChannel.truncate(0);
+        logChannel.force(true);
+        lastForceTime = System.currentTimeMillis();
+    }
+
+    private void loadSnapshot() throws IOException {
+        File snapshotFile = new File(storeDir, SNAPSHOT_FILE_NAME);
+        if (!snapshotFile.exists()) {
+            return;
+        }
+        try (FileInputStream fileIn = new FileInputStream(snapshotFile)) {
+            CheckedInputStream checkedIn =
+                    new CheckedInputStream(new BufferedInputStream(fileIn), new CRC32());
+            DataInputStream in = new DataInputStream(checkedIn);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unknown offset snapshot format!");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                readEntry(in);
+            }
+            long checksum = checkedIn.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Offset snapshot checksum mismatch!");
+            }
+        }
+    }
+
+    private void replayLog() throws IOException {
+        long validPos = 0;
+        int recordCnt = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(new File(storeDir, LOG_FILE_NAME))))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                try {
+                    int checksum = in.readInt();
+                    in.readFully(payload);
+                    crc32.reset();
+                    crc32.update(payload, 0, length);
+                    if ((int) crc32.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                readEntry(new DataInputStream(new ByteArrayInputStream(payload)));
+                validPos += 8 + length;
+                recordCnt++;
+            }
+        }
+        if (validPos < logChannel.size()) {
+            // drop the torn tail written by a crash
+            logger.warn(new StringBuilder(256)
+                    .append("[FileOffsetStorage] Truncate the offset log from ")
+                    .append(logChannel.size()).append(" to ").append(validPos).toString());
+            logChannel.truncate(validPos);
+            logChannel.force(true);
+        }
+        logger.info(new StringBuilder(256).append("[FileOffsetStorage] Replayed ")
+                .append(recordCnt).append(" offset log records").toString());
+    }
+
+    private void readEntry(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        String group = in.readUTF();
+        String topic = in.readUTF();
+        int partitionId = in.readInt();
+        long messageId = in.readLong();
+        long offset = in.readLong();
+        if (type == RECORD_PUT) {
+            applyPut(group, topic, partitionId, messageId, offset);
+        } else if (type == RECORD_DELETE) {
+            applyDelete(group, topic, partitionId);
+        } else {
+            throw new IOException("Unknown offset record type " + type);
+        }
+    }
+
+    /**
+     * Replicate the snapshots of the changed groups to ZooKeeper,
+     * one node per group and broker with all its partitions' offsets
+     */
+    private void syncSnapshotsToZk(boolean force) {
+        if (this.zkw == null) {
+            return;
+        }
+        long curTime = System.currentTimeMillis();
+        if (!force && curTime - lastZkSyncTime < zkSyncPeriodMs) {
+            return;
+        }
+        if (!zkSyncing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            lastZkSyncTime = curTime;
+            StringBuilder sBuilder = new StringBuilder(512);
+            for (String group : changedGroups) {
+                changedGroups.remove(group);
+                String groupNode = sBuilder.append(snapshotZkDir)
+                        .append("/").append(group).append("/").append(brokerId).toString();
+                sBuilder.delete(0, sBuilder.length());
+                ConcurrentHashMap<String, ConcurrentHashMap<Integer, OffsetValue>> topicMap =
+                        offsetMap.get(group);
+                try {
+                    if (topicMap == null || topicMap.isEmpty()) {
+                        ZKUtil.delZNode(this.zkw, groupNode);
+                        continue;
+                    }
+                    for (Map.Entry<String, ConcurrentHashMap<Integer, OffsetValue>> topicEntry : topicMap
+                            .entrySet()) {
+                        for (Map.Entry<Integer, OffsetValue> partEntry : topicEntry.getValue().entrySet()) {
+                            if (sBuilder.length() > 0) {
+                                sBuilder.append(TokenConstants.ARRAY_SEP);
+                            }
+                            sBuilder.append(topicEntry.getKey())
+                                    .append(TokenConstants.ATTR_SEP).append(partEntry.getKey())
+                                    .append(TokenConstants.ATTR_SEP).append(partEntry.getValue().messageId)
+                                    .append(TokenConstants.ATTR_SEP).append(partEntry.getValue().offset);
+                        }
+                    }
+                    String snapshotData = sBuilder.toString();
+                    sBuilder.delete(0, sBuilder.length());
+                    ZKUtil.updatePersistentPath(this.zkw, groupNode, snapshotData);
+                } catch (Throwable t) {
+                    sBuilder.delete(0, sBuilder.length());
+                    changedGroups.add(group);
+                    BrokerSrvStatsHolder.incZKExcCnt();
+                    logger.error("[FileOffsetStorage] Exception during replicate offsets to ZooKeeper", t);
+                    break;
+                }
+            }
+        } finally {
+            zkSyncing.set(false);
+        }
+    }
+
+    private static class OffsetValue {
+
+        private final long messageId;
+        private final long offset;
+
+        OffsetValue(long messageId, long offset) {
+            this.messageId = messageId;
+            this.offset = offset;
+        }
+    }
+}
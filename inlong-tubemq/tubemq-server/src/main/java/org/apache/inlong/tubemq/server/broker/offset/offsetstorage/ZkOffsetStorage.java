@@ -163,6 +163,34 @@ public class ZkOffsetStorage implements OffsetStorage {
 
     }
 
+    /**
+     * Get the partitions of this broker that have offsets of a group's topic stored in zookeeper.
+     *
+     * @param group   the group name
+     * @param topic   the topic name
+     * @return the partition ids
+     */
+    public Set<Integer> queryGroupTopicPartIds(String group, String topic) {
+        String brokerNode = new StringBuilder(512).append(this.consumerZkDir).append("/")
+                .append(group).append("/offsets/").append(topic).toString();
+        Set<Integer> partIds = new HashSet<>();
+        List<String> brokerPartIds = ZKUtil.getChildren(this.zkw, brokerNode);
+        if (brokerPartIds == null) {
+            return partIds;
+        }
+        for (String idStr : brokerPartIds) {
+            if (idStr == null) {
+                continue;
+            }
+            String[] brokerPartIdStrs = idStr.split(TokenConstants.HYPHEN);
+            if (brokerPartIdStrs.length == 2
+                    && strBrokerId.equals(brokerPartIdStrs[0].trim())) {
+                partIds.add(Integer.parseInt(brokerPartIdStrs[1].trim()));
+            }
+        }
+        return partIds;
+    }
+
     private void cfmOffset(StringBuilder sb, String group,
             Collection<OffsetStorageInfo> infoList) throws OffsetStoreException {
         sb.delete(0, sb.length());
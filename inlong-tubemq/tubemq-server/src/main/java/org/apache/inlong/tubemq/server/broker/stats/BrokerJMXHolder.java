@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.server.broker.stats;
 
 import org.apache.inlong.tubemq.corebase.metric.MetricMXBean;
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
 import org.apache.inlong.tubemq.server.common.webbase.WebCallStatsHolder;
 
 import org.slf4j.Logger;
@@ -34,8 +35,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * BrokerJMXHolder
  *
- * A wrapper class for Broker JMX metric display, which currently includes RPC service status
- * and web API call status metric data output
+ * A wrapper class for Broker JMX metric display, which currently includes RPC service status,
+ * web API call status and pooled buffer status metric data output
  */
 public class BrokerJMXHolder {
 
@@ -49,6 +50,9 @@ public class BrokerJMXHolder {
     // broker web api status information
     private static final BrokerWebAPIStatusBean webAPIStatusInfo =
             new BrokerWebAPIStatusBean();
+    // broker pooled buffer status information
+    private static final BrokerBufferPoolBean bufferPoolInfo =
+            new BrokerBufferPoolBean();
 
     /**
      * Register MXBean
@@ -68,7 +72,10 @@ public class BrokerJMXHolder {
             ObjectName webAPIMxBeanName =
                     new ObjectName("org.apache.inlong.tubemq.server.broker:type=webAPI");
             mbs.registerMBean(webAPIStatusInfo, webAPIMxBeanName);
-
+            // register buffer pool jmx
+            ObjectName bufferPoolMxBeanName =
+                    new ObjectName("org.apache.inlong.tubemq.server.broker:type=bufferPool");
+            mbs.registerMBean(bufferPoolInfo, bufferPoolMxBeanName);
         } catch (Exception ex) {
             logger.error("Register Broker MXBean error: ", ex);
         }
@@ -117,4 +124,25 @@ public class BrokerJMXHolder {
             return metricValues;
         }
     }
+
+    /**
+     * BrokerBufferPoolBean
+     *
+     * Broker pooled buffer occupancy and leak metric wrapper class,
+     * the values are current gauges, so the snapshot does not reset them
+     */
+    private static class BrokerBufferPoolBean implements MetricMXBean {
+
+        @Override
+        public Map<String, Long> getValue() {
+            Map<String, Long> metricValues = new LinkedHashMap<>();
+            NettyBufferPool.getValue(metricValues);
+            return metricValues;
+        }
+
+        @Override
+        public Map<String, Long> snapshot() {
+            return getValue();
+        }
+    }
 }
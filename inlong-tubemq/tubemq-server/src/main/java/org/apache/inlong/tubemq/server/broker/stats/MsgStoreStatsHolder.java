@@ -89,6 +89,37 @@ public class MsgStoreStatsHolder {
         msgStoreStatsSets[getIndex()].msgAppendFailCnt.incValue();
     }
 
+    /**
+     * Add message compression statistics.
+     *
+     * @param rawSize         the message size before compression
+     * @param compressedSize  the compressed message size
+     */
+    public void addMsgCompressStats(int rawSize, int compressedSize) {
+        if (isClosed) {
+            return;
+        }
+        MsgStoreStatsItemSet tmStatsSet = msgStoreStatsSets[getIndex()];
+        tmStatsSet.msgCompressCnt.incValue();
+        tmStatsSet.msgCompressRawSize.addValue(rawSize);
+        tmStatsSet.msgCompressSize.addValue(compressedSize);
+    }
+
+    /**
+     * Add index block filter statistics of the filter consumption.
+     *
+     * @param checkedBlocks   the count of index blocks checked by the key filter
+     * @param skippedBlocks   the count of index blocks skipped
+     */
+    public void addFilterBlockStats(int checkedBlocks, int skippedBlocks) {
+        if (isClosed) {
+            return;
+        }
+        MsgStoreStatsItemSet tmStatsSet = msgStoreStatsSets[getIndex()];
+        tmStatsSet.fileFilterBlockChkCnt.addValue(checkedBlocks);
+        tmStatsSet.fileFilterBlockSkipCnt.addValue(skippedBlocks);
+    }
+
     /**
      * Add cache pending count statistics.
      */
@@ -403,6 +434,12 @@ public class MsgStoreStatsHolder {
         statsSet.msgAppendDurStats.getValue(statsMap, false);
         statsMap.put(statsSet.msgAppendFailCnt.getFullName(),
                 statsSet.msgAppendFailCnt.getValue());
+        statsMap.put(statsSet.msgCompressCnt.getFullName(),
+                statsSet.msgCompressCnt.getValue());
+        statsMap.put(statsSet.msgCompressRawSize.getFullName(),
+                statsSet.msgCompressRawSize.getValue());
+        statsMap.put(statsSet.msgCompressSize.getFullName(),
+                statsSet.msgCompressSize.getValue());
         statsMap.put(statsSet.cacheDataSizeFullCnt.getFullName(),
                 statsSet.cacheDataSizeFullCnt.getValue());
         statsMap.put(statsSet.cacheIndexSizeFullCnt.getFullName(),
@@ -437,6 +474,11 @@ public class MsgStoreStatsHolder {
                 statsSet.fileMsgCountFullCnt.getValue());
         statsMap.put(statsSet.fileCachedTimeFullCnt.getFullName(),
                 statsSet.fileCachedTimeFullCnt.getValue());
+        statsMap.put(statsSet.fileFilterBlockChkCnt.getFullName(),
+                statsSet.fileFilterBlockChkCnt.getValue());
+        statsMap.put(statsSet.fileFilterBlockSkipCnt.getFullName(),
+                statsSet.fileFilterBlockSkipCnt.getValue());
+        statsMap.put("file_filter_skip_ratio", statsSet.getFilterSkipRatio());
         if (isWriting) {
             statsMap.put(statsSet.snapShotTime.getFullName(),
                     System.currentTimeMillis());
@@ -464,6 +506,12 @@ public class MsgStoreStatsHolder {
         statsSet.msgAppendDurStats.getValue(strBuff, false);
         strBuff.append(",\"").append(statsSet.msgAppendFailCnt.getFullName())
                 .append("\":").append(statsSet.msgAppendFailCnt.getValue())
+                .append(",\"").append(statsSet.msgCompressCnt.getFullName())
+                .append("\":").append(statsSet.msgCompressCnt.getValue())
+                .append(",\"").append(statsSet.msgCompressRawSize.getFullName())
+                .append("\":").append(statsSet.msgCompressRawSize.getValue())
+                .append(",\"").append(statsSet.msgCompressSize.getFullName())
+                .append("\":").append(statsSet.msgCompressSize.getValue())
                 .append(",\"").append(statsSet.cacheDataSizeFullCnt.getFullName())
                 .append("\":").append(statsSet.cacheDataSizeFullCnt.getValue())
                 .append(",\"").append(statsSet.cacheMsgCountFullCnt.getFullName())
@@ -500,6 +548,11 @@ public class MsgStoreStatsHolder {
                 .append("\":").append(statsSet.fileMsgCountFullCnt.getValue())
                 .append(",\"").append(statsSet.fileCachedTimeFullCnt.getFullName())
                 .append("\":").append(statsSet.fileCachedTimeFullCnt.getValue())
+                .append(",\"").append(statsSet.fileFilterBlockChkCnt.getFullName())
+                .append("\":").append(statsSet.fileFilterBlockChkCnt.getValue())
+                .append(",\"").append(statsSet.fileFilterBlockSkipCnt.getFullName())
+                .append("\":").append(statsSet.fileFilterBlockSkipCnt.getValue())
+                .append(",\"file_filter_skip_ratio\":").append(statsSet.getFilterSkipRatio())
                 .append(",\"").append(statsSet.snapShotTime.getFullName())
                 .append("\":\"");
         if (isWriting) {
@@ -528,6 +581,15 @@ public class MsgStoreStatsHolder {
         // The count of message append failures
         protected final LongStatsCounter msgAppendFailCnt =
                 new LongStatsCounter("msg_append_fail", null);
+        // The count of compressed messages
+        protected final LongStatsCounter msgCompressCnt =
+                new LongStatsCounter("msg_compress_cnt", null);
+        // The total size of compressed messages before compression
+        protected final LongStatsCounter msgCompressRawSize =
+                new LongStatsCounter("msg_compress_raw_size", null);
+        // The total size of compressed messages after compression
+        protected final LongStatsCounter msgCompressSize =
+                new LongStatsCounter("msg_compress_size", null);
         // The cached message data full statistics
         protected final LongStatsCounter cacheDataSizeFullCnt =
                 new LongStatsCounter("cache_data_full", null);
@@ -583,6 +645,12 @@ public class MsgStoreStatsHolder {
         // The cache timeout refresh amount statistics
         protected final LongStatsCounter fileCachedTimeFullCnt =
                 new LongStatsCounter("file_time_full", null);
+        // The index block count checked by the key filter
+        protected final LongStatsCounter fileFilterBlockChkCnt =
+                new LongStatsCounter("file_filter_block_chk", null);
+        // The index block count skipped by the key filter
+        protected final LongStatsCounter fileFilterBlockSkipCnt =
+                new LongStatsCounter("file_filter_block_skip", null);
         // The snapshot time of statistics set
         protected final SinceTime snapShotTime =
                 new SinceTime("end_time", null);
@@ -595,6 +663,15 @@ public class MsgStoreStatsHolder {
             this.snapShotTime.reset(snapshotTime);
         }
 
+        // the percentage of the index blocks skipped by the key filter
+        public long getFilterSkipRatio() {
+            long checkedBlocks = this.fileFilterBlockChkCnt.getValue();
+            if (checkedBlocks <= 0) {
+                return 0L;
+            }
+            return this.fileFilterBlockSkipCnt.getValue() * 100L / checkedBlocks;
+        }
+
         public void clear() {
             this.snapShotTime.reset();
             // for file metric items
@@ -610,10 +687,15 @@ public class MsgStoreStatsHolder {
             this.fileMetaFlushCnt.clear();
             this.fileMsgCountFullCnt.clear();
             this.fileCachedTimeFullCnt.clear();
+            this.fileFilterBlockChkCnt.clear();
+            this.fileFilterBlockSkipCnt.clear();
             // for message metric items
             this.msgAppendSizeStats.clear();
             this.msgAppendDurStats.clear();
             this.msgAppendFailCnt.clear();
+            this.msgCompressCnt.clear();
+            this.msgCompressRawSize.clear();
+            this.msgCompressSize.clear();
             // for cache metric items
             this.cacheDataSizeFullCnt.clear();
             this.cacheIndexSizeFullCnt.clear();
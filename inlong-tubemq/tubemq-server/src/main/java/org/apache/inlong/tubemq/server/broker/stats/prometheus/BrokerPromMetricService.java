@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.server.broker.stats.prometheus;
 
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
 import org.apache.inlong.tubemq.server.broker.TubeBroker;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
@@ -25,6 +26,7 @@ import org.apache.inlong.tubemq.server.common.webbase.WebCallStatsHolder;
 
 import io.prometheus.client.Collector;
 import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
 import io.prometheus.client.exporter.HTTPServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,6 +101,19 @@ public class BrokerPromMetricService extends Collector {
             webAPICounter.addMetric(Arrays.asList(entry.getKey()), entry.getValue());
         }
         mfs.add(webAPICounter);
+        // pooled buffer occupancy metric data
+        GaugeMetricFamily bufferPoolGauge =
+                new GaugeMetricFamily(strBuff.append(promConfig.getPromClusterName())
+                        .append("&group=bufferPool").toString(),
+                        "The pooled buffer occupancy and leak metrics of TubeMQ-Broker node.",
+                        Arrays.asList("bufferPool"));
+        strBuff.delete(0, strBuff.length());
+        statsMap.clear();
+        NettyBufferPool.getValue(statsMap);
+        for (Map.Entry<String, Long> entry : statsMap.entrySet()) {
+            bufferPoolGauge.addMetric(Arrays.asList(entry.getKey()), entry.getValue());
+        }
+        mfs.add(bufferPoolGauge);
         // msg store metric data
         CounterMetricFamily msgStoreCounter =
                 new CounterMetricFamily(strBuff.append(promConfig.getPromClusterName())
@@ -120,6 +135,7 @@ public class BrokerPromMetricService extends Collector {
                 }
                 statsMap.clear();
                 msgStore.getMsgStoreStatsHolder().snapShort(statsMap);
+                statsMap.put("recovery_time_ms", msgStore.getRecoveryTimeMs());
                 for (Map.Entry<String, Long> entry : statsMap.entrySet()) {
                     labelValues.clear();
                     labelValues.add(entry.getKey());
@@ -134,6 +150,61 @@ public class BrokerPromMetricService extends Collector {
             }
         }
         mfs.add(msgStoreCounter);
+        // disk flush metric data
+        CounterMetricFamily diskFlushCounter =
+                new CounterMetricFamily(strBuff.append(promConfig.getPromClusterName())
+                        .append("&group=diskFlush").toString(),
+                        "The disk flush metrics of TubeMQ-Broker node.",
+                        Arrays.asList("diskFlush", "disk"));
+        strBuff.delete(0, strBuff.length());
+        Map<String, Map<String, Long>> diskStatsMap = new LinkedHashMap<>();
+        tubeBroker.getStoreManager().getDiskFlushScheduler().getDiskStats(diskStatsMap, true);
+        for (Map.Entry<String, Map<String, Long>> diskEntry : diskStatsMap.entrySet()) {
+            for (Map.Entry<String, Long> entry : diskEntry.getValue().entrySet()) {
+                labelValues.clear();
+                labelValues.add(entry.getKey());
+                labelValues.add(strBuff.append("disk=")
+                        .append(diskEntry.getKey()).toString());
+                strBuff.delete(0, strBuff.length());
+                diskFlushCounter.addMetric(labelValues, entry.getValue());
+            }
+        }
+        mfs.add(diskFlushCounter);
+        // store recovery metric data
+        CounterMetricFamily storeRecoveryCounter =
+                new CounterMetricFamily(strBuff.append(promConfig.getPromClusterName())
+                        .append("&group=storeRecovery").toString(),
+                        "The store recovery metrics at startup of TubeMQ-Broker node.",
+                        Arrays.asList("storeRecovery"));
+        strBuff.delete(0, strBuff.length());
+        Map<String, Long> recoveryStatsMap = new LinkedHashMap<>();
+        tubeBroker.getStoreManager().getStoreRecoveryStats(recoveryStatsMap);
+        for (Map.Entry<String, Long> entry : recoveryStatsMap.entrySet()) {
+            labelValues.clear();
+            labelValues.add(entry.getKey());
+            storeRecoveryCounter.addMetric(labelValues, entry.getValue());
+        }
+        mfs.add(storeRecoveryCounter);
+        // fetch rate limit metric data
+        CounterMetricFamily fetchLimitCounter =
+                new CounterMetricFamily(strBuff.append(promConfig.getPromClusterName())
+                        .append("&group=fetchRateLimit").toString(),
+                        "The fetch rate limit metrics of consume groups in TubeMQ-Broker node.",
+                        Arrays.asList("fetchRateLimit", "consumeGroup"));
+        strBuff.delete(0, strBuff.length());
+        Map<String, Map<String, Long>> groupStatsMap = new LinkedHashMap<>();
+        tubeBroker.getBrokerServiceServer().getFetchRateLimiter().getGroupStats(groupStatsMap);
+        for (Map.Entry<String, Map<String, Long>> groupEntry : groupStatsMap.entrySet()) {
+            for (Map.Entry<String, Long> entry : groupEntry.getValue().entrySet()) {
+                labelValues.clear();
+                labelValues.add(entry.getKey());
+                labelValues.add(strBuff.append("consumeGroup=")
+                        .append(groupEntry.getKey()).toString());
+                strBuff.delete(0, strBuff.length());
+                fetchLimitCounter.addMetric(labelValues, entry.getValue());
+            }
+        }
+        mfs.add(fetchLimitCounter);
         return mfs;
     }
 }
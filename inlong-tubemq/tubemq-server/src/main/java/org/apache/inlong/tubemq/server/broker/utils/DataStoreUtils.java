@@ -27,6 +27,8 @@ import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
 import com.google.protobuf.ByteString;
 
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.text.NumberFormat;
 import java.util.HashMap;
@@ -91,6 +93,56 @@ public class DataStoreUtils {
 
     public static final String DATA_FILE_SUFFIX = ".tube";
     public static final String INDEX_FILE_SUFFIX = ".index";
+    public static final String TIME_INDEX_FILE_SUFFIX = ".timeidx";
+    public static final String KEY_FILTER_FILE_SUFFIX = ".keyfilter";
+
+    // the cleaner of the direct buffers since java 9, resolved by reflection
+    // so that no internal api is referenced
+    private static final Object UNSAFE_INSTANCE;
+    private static final Method UNSAFE_INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Throwable e) {
+            // before java 9, the cleaner of the buffer is used
+            invokeCleaner = null;
+        }
+        UNSAFE_INSTANCE = unsafe;
+        UNSAFE_INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Release the memory or the file mapping of a direct buffer at once instead of
+     * when the buffer is collected, the buffer must not be accessed after the call.
+     *
+     * @param buffer   the direct buffer to release, the other buffers are ignored
+     */
+    public static void releaseDirectBuffer(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            if (UNSAFE_INVOKE_CLEANER != null) {
+                UNSAFE_INVOKE_CLEANER.invoke(UNSAFE_INSTANCE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Throwable e) {
+            // the memory is released when the buffer is collected
+        }
+    }
 
     public static int getInt(final int offset, final byte[] data) {
         return ByteBuffer.wrap(data, offset, 4).getInt();
@@ -118,7 +170,7 @@ public class DataStoreUtils {
             HashMap<String, TrafficInfo> countMap,
             String statisKeyBase,
             StringBuilder sBuilder) {
-        if (dataBuffer.array().length < dataTotalSize) {
+        if (dataBuffer.limit() < dataTotalSize) {
             return null;
         }
         final int msgLen =
@@ -137,8 +189,10 @@ public class DataStoreUtils {
         final long msgId = dataBuffer.getLong(DataStoreUtils.STORE_HEADER_POS_MSGID);
         final int flag = dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
         final int payLoadLen2 = payLoadLen;
-        final byte[] payLoadData = new byte[payLoadLen];
-        System.arraycopy(dataBuffer.array(), payLoadOffset, payLoadData, 0, payLoadLen);
+        // copy the payload once from the read buffer, which may be a pooled direct buffer
+        final ByteBuffer payLoadData = dataBuffer.duplicate();
+        payLoadData.limit(payLoadOffset + payLoadLen);
+        payLoadData.position(payLoadOffset);
         ClientBroker.TransferedMessage.Builder dataBuilder =
                 ClientBroker.TransferedMessage.newBuilder();
         dataBuilder.setMessageId(msgId);
@@ -160,7 +214,9 @@ public class DataStoreUtils {
             }
             if (attrLen > 0) {
                 final byte[] attrData = new byte[attrLen];
-                System.arraycopy(dataBuffer.array(), payLoadOffset, attrData, 0, attrLen);
+                final ByteBuffer attrBuffer = dataBuffer.duplicate();
+                attrBuffer.position(payLoadOffset);
+                attrBuffer.get(attrData);
                 try {
                     attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
                 } catch (final UnsupportedEncodingException e) {
@@ -310,6 +310,8 @@ public class BrokerAdminServlet extends AbstractWebHandler {
                             .append(",\"minDataOffset\":").append(msgStore.getDataMinOffset())
                             .append(",\"maxDataOffset\":").append(msgStore.getDataMaxOffset())
                             .append(",\"sizeInBytes\":").append(msgStore.getDataStoreSize())
+                            .append(",\"cleanRecovered\":").append(msgStore.isCleanRecovered())
+                            .append(",\"recoveryTimeMs\":").append(msgStore.getRecoveryTimeMs())
                             .append(",\"partitionInfo\":[");
                     for (int partitionId = 0; partitionId < numPartId; partitionId++) {
                         if (partitionId > 0) {
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.utils;
+
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+
+import org.apache.commons.codec.binary.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The check-sum of the configure Master pushes to broker, calculated by both
+ * Master and broker, so the broker can verify the configure it merged.
+ */
+public class ConfCheckSumUtils {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(ConfCheckSumUtils.class);
+
+    /**
+     * Calculate the broker configure's crc32 value
+     *
+     * @param brokerConfInfo  broker default config
+     * @param topicConfInfos  topic config set
+     *
+     * @return the crc32 value
+     */
+    public static int calcBrokerConfCheckSum(String brokerConfInfo,
+            Collection<String> topicConfInfos) {
+        int result = -1;
+        int capacity = 0;
+        List<String> topicConfInfoLst = new ArrayList<>(topicConfInfos);
+        Collections.sort(topicConfInfoLst);
+        capacity += brokerConfInfo.length();
+        for (String itemStr : topicConfInfoLst) {
+            capacity += itemStr.length();
+        }
+        capacity *= 2;
+        for (int i = 1; i < 3; i++) {
+            result = inCalcBufferResult(capacity, brokerConfInfo, topicConfInfoLst);
+            if (result >= 0) {
+                return result;
+            }
+            capacity *= i + 1;
+        }
+        logger.error("Calculate the CRC32 value of Broker Configure error!");
+        return 0;
+    }
+
+    private static int inCalcBufferResult(int capacity, String brokerConfInfo,
+            List<String> topicConfInfoLst) {
+        final ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put(StringUtils.getBytesUtf8(brokerConfInfo));
+        for (String itemStr : topicConfInfoLst) {
+            byte[] itemData = StringUtils.getBytesUtf8(itemStr);
+            if (itemData.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(itemData);
+        }
+        return CheckSum.crc32(buffer.array());
+    }
+}
@@ -85,6 +85,10 @@ public class MasterConfig extends AbstractFileConfig {
     private String visitPassword = "";
     private long authValidTimeStampPeriodMs = TBaseConstants.CFG_DEFAULT_AUTH_TIMESTAMP_VALID_INTERVAL;
     private int rebalanceParallel = 4;
+    // only re-balance the groups changed by consumer or partition events
+    private boolean incrementalRebalance = false;
+    // the balance rounds between two full checks in incremental re-balance mode
+    private int incRebalanceFullCheckRounds = 60;
     private long maxMetaForceUpdatePeriodMs = TBaseConstants.CFG_DEF_META_FORCE_UPDATE_PERIOD;
 
     /**
@@ -271,6 +275,14 @@ public class MasterConfig extends AbstractFileConfig {
         return rebalanceParallel;
     }
 
+    public boolean isIncrementalRebalance() {
+        return incrementalRebalance;
+    }
+
+    public int getIncRebalanceFullCheckRounds() {
+        return incRebalanceFullCheckRounds;
+    }
+
     public long getMaxMetaForceUpdatePeriodMs() {
         return maxMetaForceUpdatePeriodMs;
     }
@@ -526,6 +538,13 @@ public class MasterConfig extends AbstractFileConfig {
             int tmpParallel = this.getInt(masterConf, "rebalanceParallel");
             this.rebalanceParallel = MixedUtils.mid(tmpParallel, 1, 20);
         }
+        if (TStringUtils.isNotBlank(masterConf.get("incrementalRebalance"))) {
+            this.incrementalRebalance = this.getBoolean(masterConf, "incrementalRebalance");
+        }
+        if (TStringUtils.isNotBlank(masterConf.get("incRebalanceFullCheckRounds"))) {
+            int tmpRounds = this.getInt(masterConf, "incRebalanceFullCheckRounds");
+            this.incRebalanceFullCheckRounds = MixedUtils.mid(tmpRounds, 1, 10000);
+        }
         if (TStringUtils.isNotBlank(masterConf.get("maxMetaForceUpdatePeriodMs"))) {
             long tmpPeriodMs = this.getLong(masterConf, "maxMetaForceUpdatePeriodMs");
             if (tmpPeriodMs < TBaseConstants.CFG_MIN_META_FORCE_UPDATE_PERIOD) {
@@ -836,6 +855,8 @@ public class MasterConfig extends AbstractFileConfig {
                 .append("visitPassword", visitPassword)
                 .append("authValidTimeStampPeriodMs", authValidTimeStampPeriodMs)
                 .append("rebalanceParallel", rebalanceParallel)
+                .append("incrementalRebalance", incrementalRebalance)
+                .append("incRebalanceFullCheckRounds", incRebalanceFullCheckRounds)
                 .append("maxMetaForceUpdatePeriodMs", maxMetaForceUpdatePeriodMs)
                 .toString();
     }
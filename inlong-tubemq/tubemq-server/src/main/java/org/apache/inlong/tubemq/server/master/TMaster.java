@@ -163,6 +163,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private Thread balancerChore; // balance chore
     private boolean initialized = false;
     private boolean startupBalance = true;
+    // the balance rounds since the last full check in incremental re-balance mode
+    private int incBalanceRounds = 0;
     private int balanceDelayTimes = 0;
     private AtomicInteger curSvrBalanceParal = new AtomicInteger(0);
     private AtomicInteger curCltBalanceParal = new AtomicInteger(0);
@@ -298,6 +300,10 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         return brokerRunManager;
     }
 
+    public ConsumerEventManager getConsumerEventManager() {
+        return consumerEventManager;
+    }
+
     /**
      * Producer register request to master
      *
@@ -662,6 +668,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                 strBuff.delete(0, strBuff.length());
             }
             heartbeatManager.regConsumerNode(getConsumerKey(groupName, consumerId));
+            consumerEventManager.markGroupDirty(groupName);
         } catch (IOException e) {
             logger.warn("Failed to lock.", e);
         } finally {
@@ -1105,7 +1112,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             strBuff.delete(0, strBuff.length());
         }
         // create response
-        brokerRunManager.setHeatBeatDownConfInfo(brokerId, strBuff, builder);
+        brokerRunManager.setHeatBeatDownConfInfo(brokerId,
+                request.getSupportConfDelta(), strBuff, builder);
         BrokerConfEntity brokerConfEntity =
                 defMetaDataService.getBrokerConfByBrokerId(brokerId);
         builder.setTakeRemoveTopicInfo(true);
@@ -1649,9 +1657,16 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             return;
         }
         final boolean isStartBalance = startupBalance;
-        List<String> groupsNeedToBalance = isStartBalance
-                ? consumerHolder.getAllServerBalanceGroups()
-                : getNeedToBalanceGroups(sBuffer);
+        List<String> groupsNeedToBalance;
+        if (isStartBalance) {
+            groupsNeedToBalance = consumerHolder.getAllServerBalanceGroups();
+            consumerEventManager.drainDirtyGroups();
+            brokerRunManager.drainChangedSubTopics();
+        } else if (masterConfig.isIncrementalRebalance()) {
+            groupsNeedToBalance = getIncNeedToBalanceGroups(balanceId, sBuffer);
+        } else {
+            groupsNeedToBalance = getNeedToBalanceGroups(sBuffer);
+        }
         sBuffer.delete(0, sBuffer.length());
         int balanceTaskCnt = groupsNeedToBalance.size();
         if (balanceTaskCnt > 0) {
@@ -1857,6 +1872,17 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         if (isFirstReb) {
             finalSubInfoMap = this.loadBalancer.bukAssign(consumerHolder,
                     brokerRunManager, groups, defMetaDataService, strBuffer);
+        } else if (masterConfig.isIncrementalRebalance()) {
+            finalSubInfoMap = this.loadBalancer.stickyBalanceCluster(currentSubInfo,
+                    consumerHolder, brokerRunManager, groups, defMetaDataService, strBuffer);
+            // the groups with pending re-balance requests are checked in the next rounds
+            ConsumeGroupInfo groupInfo;
+            for (String group : groups) {
+                groupInfo = consumerHolder.getConsumeGroupInfo(group);
+                if (groupInfo != null && !groupInfo.isBalanceMapEmpty()) {
+                    consumerEventManager.markGroupDirty(group);
+                }
+            }
         } else {
             finalSubInfoMap = this.loadBalancer.balanceCluster(currentSubInfo,
                     consumerHolder, brokerRunManager, groups, defMetaDataService, strBuffer);
@@ -2147,6 +2173,69 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
      */
     private List<String> getNeedToBalanceGroups(final StringBuilder strBuffer) {
         List<String> groupsNeedToBalance = new ArrayList<>();
+        Set<String> groupHasUnfinishedEvent = getUnfinishedEventGroups(strBuffer);
+        List<String> allGroups = consumerHolder.getAllServerBalanceGroups();
+        if (groupHasUnfinishedEvent.isEmpty()) {
+            for (String group : allGroups) {
+                if (group != null) {
+                    groupsNeedToBalance.add(group);
+                }
+            }
+        } else {
+            for (String group : allGroups) {
+                if (group != null) {
+                    if (!groupHasUnfinishedEvent.contains(group)) {
+                        groupsNeedToBalance.add(group);
+                    }
+                }
+            }
+        }
+        return groupsNeedToBalance;
+    }
+
+    /**
+     * Get the groups need to balance in incremental re-balance mode, only the groups
+     * whose consumers or subscribed partitions have changed are included, and all
+     * groups are checked every incRebalanceFullCheckRounds rounds
+     *
+     * @param balanceId  the balance id
+     * @param strBuffer  string buffer
+     * @return the groups need to balance
+     */
+    private List<String> getIncNeedToBalanceGroups(long balanceId, final StringBuilder strBuffer) {
+        consumerEventManager.markTopicGroupsDirty(brokerRunManager.drainChangedSubTopics());
+        List<String> candidateGroups;
+        boolean isFullCheck = ++incBalanceRounds >= masterConfig.getIncRebalanceFullCheckRounds();
+        if (isFullCheck) {
+            incBalanceRounds = 0;
+            consumerEventManager.drainDirtyGroups();
+            candidateGroups = consumerHolder.getAllServerBalanceGroups();
+        } else {
+            candidateGroups = consumerEventManager.drainDirtyGroups();
+        }
+        Set<String> groupHasUnfinishedEvent = getUnfinishedEventGroups(strBuffer);
+        List<String> groupsNeedToBalance = new ArrayList<>(candidateGroups.size());
+        for (String group : candidateGroups) {
+            if (group == null) {
+                continue;
+            }
+            if (groupHasUnfinishedEvent.contains(group)) {
+                // keep the group for the rounds after its events have finished
+                consumerEventManager.markGroupDirty(group);
+            } else {
+                groupsNeedToBalance.add(group);
+            }
+        }
+        if (!groupsNeedToBalance.isEmpty()) {
+            logger.info(strBuffer.append("[Svr-Balance Status] ").append(balanceId)
+                    .append(" incremental balance groups=").append(groupsNeedToBalance.size())
+                    .append(", isFullCheck=").append(isFullCheck).toString());
+            strBuffer.delete(0, strBuffer.length());
+        }
+        return groupsNeedToBalance;
+    }
+
+    private Set<String> getUnfinishedEventGroups(final StringBuilder strBuffer) {
         Set<String> groupHasUnfinishedEvent = new HashSet<>();
         if (consumerEventManager.hasEvent()) {
             String group;
@@ -2167,6 +2256,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                 }
                 if (consumerEventManager.getUnfinishedCount(group) >= MAX_BALANCE_DELAY_TIME) {
                     consumerEventManager.removeAll(consumerId);
+                    consumerEventManager.markGroupDirty(group);
                     logger.info(strBuffer.append("Unfinished event for group :")
                             .append(group).append(" exceed max balanceDelayTime=")
                             .append(MAX_BALANCE_DELAY_TIME).append(", clear consumer: ")
@@ -2178,23 +2268,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             }
         }
         consumerEventManager.updateUnfinishedCountMap(groupHasUnfinishedEvent);
-        List<String> allGroups = consumerHolder.getAllServerBalanceGroups();
-        if (groupHasUnfinishedEvent.isEmpty()) {
-            for (String group : allGroups) {
-                if (group != null) {
-                    groupsNeedToBalance.add(group);
-                }
-            }
-        } else {
-            for (String group : allGroups) {
-                if (group != null) {
-                    if (!groupHasUnfinishedEvent.contains(group)) {
-                        groupsNeedToBalance.add(group);
-                    }
-                }
-            }
-        }
-        return groupsNeedToBalance;
+        return groupHasUnfinishedEvent;
     }
 
     /**
@@ -2532,6 +2606,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                 ConsumerInfo info = consumerHolder.removeConsumer(group, consumerId, isTimeout);
                 currentSubInfo.remove(consumerId);
                 consumerEventManager.removeAll(consumerId);
+                consumerEventManager.markGroupDirty(group);
                 if (info != null) {
                     if (consumerHolder.isConsumeGroupEmpty(group)) {
                         topicPSInfoManager.rmvGroupSubTopicInfo(group, info.getTopicSet());
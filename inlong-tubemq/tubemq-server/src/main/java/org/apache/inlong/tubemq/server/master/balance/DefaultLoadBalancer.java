@@ -109,40 +109,10 @@ public class DefaultLoadBalancer implements LoadBalancer {
                 continue;
             }
             Set<String> topicSet = consumeGroupInfo.getTopicSet();
-            if (consumeGroupInfo.needResourceCheck()) {
-                // check if current client meet minimal requirements
-                GroupResCtrlEntity offsetResetGroupEntity =
-                        defMetaDataService.getGroupCtrlConf(group);
-                int confAllowBClientRate = (offsetResetGroupEntity != null
-                        && offsetResetGroupEntity.getAllowedBrokerClientRate() > 0)
-                                ? offsetResetGroupEntity.getAllowedBrokerClientRate()
-                                : -2;
-                int allowRate = confAllowBClientRate > 0
-                        ? confAllowBClientRate
-                        : consumerHolder.getDefResourceRate();
-                int maxBrokerCount =
-                        brokerRunManager.getSubTopicMaxBrokerCount(topicSet);
-                int curBClientRate = (int) Math.floor(maxBrokerCount / newConsumerList.size());
-                if (curBClientRate > allowRate) {
-                    int minClientCnt = maxBrokerCount / allowRate;
-                    if (maxBrokerCount % allowRate != 0) {
-                        minClientCnt += 1;
-                    }
-                    consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
-                            curBClientRate, minClientCnt, false);
-                    if (consumeGroupInfo.isEnableBalanceChkPrint()) {
-                        logger.info(strBuffer.append("[UnBound Alloc 2] Not allocate partition :group(")
-                                .append(group).append(")'s consumer getCachedSize(")
-                                .append(consumeGroupInfo.getGroupCnt())
-                                .append(") low than min required client count:")
-                                .append(minClientCnt).toString());
-                        strBuffer.delete(0, strBuffer.length());
-                    }
-                    continue;
-                } else {
-                    consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
-                            curBClientRate, -2, true);
-                }
+            if (consumeGroupInfo.needResourceCheck()
+                    && !checkResourceRequirement(group, consumeGroupInfo, newConsumerList.size(),
+                            consumerHolder, brokerRunManager, defMetaDataService, strBuffer)) {
+                continue;
             }
             RebProcessInfo rebProcessInfo = new RebProcessInfo();
             if (!consumeGroupInfo.isBalanceMapEmpty()) {
@@ -235,6 +205,228 @@ public class DefaultLoadBalancer implements LoadBalancer {
         return finalSubInfoMap;
     }
 
+    /**
+     * Sticky load balance, only the partitions exceeding the average load of
+     * consumers and the unassigned partitions are moved
+     *
+     * @param clusterState        the current consumer subscribe info
+     * @param consumerHolder      the consumer info holder
+     * @param brokerRunManager    the broker run manager
+     * @param groupSet            the groups need to balance
+     * @param defMetaDataService  the metadata service
+     * @param strBuffer           the string buffer
+     * @return the partitions of each consumer after balance
+     */
+    @Override
+    public Map<String, Map<String, List<Partition>>> stickyBalanceCluster(
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            ConsumerInfoHolder consumerHolder,
+            BrokerRunManager brokerRunManager,
+            List<String> groupSet,
+            MetaDataService defMetaDataService,
+            StringBuilder strBuffer) {
+        Map<String/* consumer */, Map<String/* topic */, List<Partition>>> finalSubInfoMap =
+                new HashMap<>();
+        Map<String, RebProcessInfo> rejGroupClientInfoMap = new HashMap<>();
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            ConsumeGroupInfo consumeGroupInfo = consumerHolder.getConsumeGroupInfo(group);
+            if (consumeGroupInfo == null
+                    || consumeGroupInfo.isClientBalance()
+                    || consumeGroupInfo.isUnReadyServerBalance()) {
+                continue;
+            }
+            List<ConsumerInfo> consumerList = new ArrayList<>();
+            for (ConsumerInfo consumerInfo : consumeGroupInfo.getConsumerInfoList()) {
+                if (consumerInfo != null) {
+                    consumerList.add(consumerInfo);
+                }
+            }
+            if (consumerList.isEmpty()) {
+                continue;
+            }
+            if (consumeGroupInfo.needResourceCheck()
+                    && !checkResourceRequirement(group, consumeGroupInfo, consumerList.size(),
+                            consumerHolder, brokerRunManager, defMetaDataService, strBuffer)) {
+                continue;
+            }
+            // the consumers required to re-balance release all their partitions
+            List<ConsumerInfo> assignList = new ArrayList<>();
+            if (consumeGroupInfo.isBalanceMapEmpty()) {
+                assignList = consumerList;
+            } else {
+                RebProcessInfo rebProcessInfo = consumerHolder.getNeedRebNodeList(group);
+                if (!rebProcessInfo.isProcessInfoEmpty()) {
+                    rejGroupClientInfoMap.put(group, rebProcessInfo);
+                }
+                for (ConsumerInfo consumer : consumerList) {
+                    if (rebProcessInfo.needProcessList.contains(consumer.getConsumerId())
+                            || rebProcessInfo.needEscapeList.contains(consumer.getConsumerId())) {
+                        releaseAll(consumer.getConsumerId(), clusterState, finalSubInfoMap);
+                    } else {
+                        assignList.add(consumer);
+                    }
+                }
+            }
+            if (assignList.isEmpty()) {
+                continue;
+            }
+            stickyAssign(assignList,
+                    brokerRunManager.getSubBrokerAcceptSubParts(consumeGroupInfo.getTopicSet()),
+                    clusterState, finalSubInfoMap);
+        }
+        for (Entry<String, RebProcessInfo> entry : rejGroupClientInfoMap.entrySet()) {
+            consumerHolder.setRebNodeProcessed(entry.getKey(),
+                    entry.getValue().needProcessList);
+        }
+        return finalSubInfoMap;
+    }
+
+    private void stickyAssign(List<ConsumerInfo> consumerList,
+            Map<String, Partition> partMap,
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            Map<String, Map<String, List<Partition>>> finalSubInfoMap) {
+        // keep the current partitions which are still available
+        Map<String, List<Partition>> keptPartsMap = new HashMap<>();
+        for (ConsumerInfo consumer : consumerList) {
+            List<Partition> keptParts = new ArrayList<>();
+            keptPartsMap.put(consumer.getConsumerId(), keptParts);
+            Map<String, List<Partition>> topicPartMap =
+                    releaseAll(consumer.getConsumerId(), clusterState, finalSubInfoMap);
+            Map<String, Map<String, Partition>> relation = clusterState.get(consumer.getConsumerId());
+            if (relation == null) {
+                continue;
+            }
+            for (Entry<String, Map<String, Partition>> entry : relation.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                for (Partition partition : entry.getValue().values()) {
+                    Partition curPart = partMap.remove(partition.getPartitionKey());
+                    if (curPart != null) {
+                        keptParts.add(curPart);
+                        topicPartMap.computeIfAbsent(curPart.getTopic(),
+                                k -> new ArrayList<>()).add(curPart);
+                    }
+                }
+            }
+        }
+        // the most loaded consumers keep the extra partitions
+        List<ConsumerInfo> sortedList = new ArrayList<>(consumerList);
+        sortedList.sort((o1, o2) -> {
+            int cmp = Integer.compare(keptPartsMap.get(o2.getConsumerId()).size(),
+                    keptPartsMap.get(o1.getConsumerId()).size());
+            return cmp != 0 ? cmp : o1.getConsumerId().compareTo(o2.getConsumerId());
+        });
+        int totalCnt = partMap.size();
+        for (List<Partition> keptParts : keptPartsMap.values()) {
+            totalCnt += keptParts.size();
+        }
+        int minQuota = totalCnt / sortedList.size();
+        int extraCnt = totalCnt % sortedList.size();
+        List<Partition> partitionToMove = new ArrayList<>(partMap.values());
+        Map<String, Integer> quotaMap = new HashMap<>();
+        for (int i = 0; i < sortedList.size(); i++) {
+            String consumerId = sortedList.get(i).getConsumerId();
+            int quota = i < extraCnt ? minQuota + 1 : minQuota;
+            quotaMap.put(consumerId, quota);
+            List<Partition> keptParts = keptPartsMap.get(consumerId);
+            Map<String, List<Partition>> topicPartMap = finalSubInfoMap.get(consumerId);
+            while (keptParts.size() > quota) {
+                Partition partition = keptParts.remove(keptParts.size() - 1);
+                topicPartMap.get(partition.getTopic()).remove(partition);
+                partitionToMove.add(partition);
+            }
+        }
+        // assign the released and new partitions to the consumers below quota in turn
+        Collections.sort(partitionToMove);
+        List<String> takeList = new ArrayList<>();
+        Map<String, Integer> lackCntMap = new HashMap<>();
+        for (ConsumerInfo consumer : sortedList) {
+            int lackCnt = quotaMap.get(consumer.getConsumerId())
+                    - keptPartsMap.get(consumer.getConsumerId()).size();
+            if (lackCnt > 0) {
+                takeList.add(consumer.getConsumerId());
+                lackCntMap.put(consumer.getConsumerId(), lackCnt);
+            }
+        }
+        int index = 0;
+        for (Partition partition : partitionToMove) {
+            if (takeList.isEmpty()) {
+                break;
+            }
+            index = index % takeList.size();
+            String consumerId = takeList.get(index);
+            assign(partition, finalSubInfoMap, consumerId);
+            int lackCnt = lackCntMap.get(consumerId) - 1;
+            if (lackCnt > 0) {
+                lackCntMap.put(consumerId, lackCnt);
+                index++;
+            } else {
+                takeList.remove(index);
+            }
+        }
+    }
+
+    // set an empty partition list for each currently subscribed topic of the consumer
+    private Map<String, List<Partition>> releaseAll(String consumerId,
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            Map<String, Map<String, List<Partition>>> finalSubInfoMap) {
+        Map<String, List<Partition>> topicPartMap =
+                finalSubInfoMap.computeIfAbsent(consumerId, k -> new HashMap<>());
+        Map<String, Map<String, Partition>> relation = clusterState.get(consumerId);
+        if (relation != null) {
+            for (String topic : relation.keySet()) {
+                topicPartMap.put(topic, new ArrayList<>());
+            }
+        }
+        return topicPartMap;
+    }
+
+    // check if current client meet minimal requirements
+    private boolean checkResourceRequirement(String group,
+            ConsumeGroupInfo consumeGroupInfo,
+            int consumerCnt,
+            ConsumerInfoHolder consumerHolder,
+            BrokerRunManager brokerRunManager,
+            MetaDataService defMetaDataService,
+            StringBuilder strBuffer) {
+        GroupResCtrlEntity offsetResetGroupEntity =
+                defMetaDataService.getGroupCtrlConf(group);
+        int confAllowBClientRate = (offsetResetGroupEntity != null
+                && offsetResetGroupEntity.getAllowedBrokerClientRate() > 0)
+                        ? offsetResetGroupEntity.getAllowedBrokerClientRate()
+                        : -2;
+        int allowRate = confAllowBClientRate > 0
+                ? confAllowBClientRate
+                : consumerHolder.getDefResourceRate();
+        int maxBrokerCount =
+                brokerRunManager.getSubTopicMaxBrokerCount(consumeGroupInfo.getTopicSet());
+        int curBClientRate = (int) Math.floor(maxBrokerCount / consumerCnt);
+        if (curBClientRate > allowRate) {
+            int minClientCnt = maxBrokerCount / allowRate;
+            if (maxBrokerCount % allowRate != 0) {
+                minClientCnt += 1;
+            }
+            consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
+                    curBClientRate, minClientCnt, false);
+            if (consumeGroupInfo.isEnableBalanceChkPrint()) {
+                logger.info(strBuffer.append("[UnBound Alloc 2] Not allocate partition :group(")
+                        .append(group).append(")'s consumer getCachedSize(")
+                        .append(consumeGroupInfo.getGroupCnt())
+                        .append(") low than min required client count:")
+                        .append(minClientCnt).toString());
+                strBuffer.delete(0, strBuffer.length());
+            }
+            return false;
+        }
+        consumeGroupInfo.setConsumeResourceInfo(confAllowBClientRate,
+                curBClientRate, -2, true);
+        return true;
+    }
+
     // #lizard forgives
     private void balance(
             Map<String, Map<String, List<Partition>>> clusterState,
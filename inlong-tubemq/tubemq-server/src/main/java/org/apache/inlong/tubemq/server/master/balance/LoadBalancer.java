@@ -36,6 +36,14 @@ public interface LoadBalancer {
             MetaDataService defMetaDataService,
             StringBuilder sBuilder);
 
+    Map<String, Map<String, List<Partition>>> stickyBalanceCluster(
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            ConsumerInfoHolder consumerHolder,
+            BrokerRunManager brokerRunManager,
+            List<String> groups,
+            MetaDataService defMetaDataService,
+            StringBuilder sBuilder);
+
     Map<String, Map<String, Map<String, Partition>>> resetBalanceCluster(
             Map<String, Map<String, Map<String, Partition>>> clusterState,
             ConsumerInfoHolder consumerHolder,
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Immutable view of the configure pushed down to a broker.
+ *
+ * A new snapshot is built whenever the broker's configure changes, so the
+ * heartbeat threads read the topic configure list without copying it, and the
+ * difference between two snapshots can be pushed instead of the full set.
+ */
+public class BrokerConfSnapshot {
+
+    // configure id of this snapshot
+    private final long confId;
+    // check-sum of the broker and topic configure
+    private final int chkSumId;
+    private final String brokerConfInfo;
+    // topic name -> topic configure
+    private final Map<String, String> topicConfInfoMap;
+    private final List<String> topicConfInfoList;
+
+    public BrokerConfSnapshot(long confId, int chkSumId, String brokerConfInfo,
+            Map<String, String> topicConfInfoMap) {
+        this.confId = confId;
+        this.chkSumId = chkSumId;
+        this.brokerConfInfo = brokerConfInfo;
+        Map<String, String> tmpConfMap = new HashMap<>();
+        List<String> tmpConfList = new ArrayList<>();
+        if (topicConfInfoMap != null) {
+            for (Map.Entry<String, String> entry : topicConfInfoMap.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                tmpConfMap.put(entry.getKey(), entry.getValue());
+                tmpConfList.add(entry.getValue());
+            }
+        }
+        this.topicConfInfoMap = Collections.unmodifiableMap(tmpConfMap);
+        this.topicConfInfoList = Collections.unmodifiableList(tmpConfList);
+    }
+
+    public long getConfId() {
+        return confId;
+    }
+
+    public int getChkSumId() {
+        return chkSumId;
+    }
+
+    public String getBrokerConfInfo() {
+        return brokerConfInfo;
+    }
+
+    public Map<String, String> getTopicConfInfoMap() {
+        return topicConfInfoMap;
+    }
+
+    public List<String> getTopicConfInfoList() {
+        return topicConfInfoList;
+    }
+
+    /**
+     * Whether the snapshot is the configure identified by the broker report
+     *
+     * @param rptConfId    the configure id reported by broker
+     * @param rptChkSumId  the check-sum reported by broker
+     * @return true if matched
+     */
+    public boolean isVersionOf(long rptConfId, int rptChkSumId) {
+        return this.confId == rptConfId && this.chkSumId == rptChkSumId;
+    }
+
+    /**
+     * Get the topic configure changes since the base snapshot
+     *
+     * @param base   the snapshot the broker holds
+     * @return the difference
+     *         f0 : the added or modified topic configure
+     *         f1 : the removed topic names
+     */
+    public Tuple2<List<String>, List<String>> getChangesSince(BrokerConfSnapshot base) {
+        List<String> updTopicConfs = new ArrayList<>();
+        List<String> rmvTopicNames = new ArrayList<>();
+        for (Map.Entry<String, String> entry : topicConfInfoMap.entrySet()) {
+            if (!Objects.equals(entry.getValue(),
+                    base.topicConfInfoMap.get(entry.getKey()))) {
+                updTopicConfs.add(entry.getValue());
+            }
+        }
+        for (String topicName : base.topicConfInfoMap.keySet()) {
+            if (!topicConfInfoMap.containsKey(topicName)) {
+                rmvTopicNames.add(topicName);
+            }
+        }
+        return new Tuple2<>(updTopicConfs, rmvTopicNames);
+    }
+}
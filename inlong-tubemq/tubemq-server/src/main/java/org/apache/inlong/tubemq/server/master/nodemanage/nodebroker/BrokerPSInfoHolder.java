@@ -24,6 +24,7 @@ import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +43,9 @@ public class BrokerPSInfoHolder {
     private final BrokerTopicInfoView subTopicInfoView = new BrokerTopicInfoView();
     // broker publish topic view info
     private final BrokerTopicInfoView pubTopicInfoView = new BrokerTopicInfoView();
+    // topics whose subscribable partitions have changed
+    private final ConcurrentHashSet<String/* topicName */> changedSubTopicSet =
+            new ConcurrentHashSet<>();
 
     public BrokerPSInfoHolder() {
 
@@ -53,6 +57,7 @@ public class BrokerPSInfoHolder {
      * @param brokerId broker id index
      */
     public void rmvBrokerAllPushedInfo(int brokerId) {
+        addBrokerChangedSubTopics(brokerId);
         // remove broker status Info
         enablePubBrokerIdSet.remove(brokerId);
         enableSubBrokerIdSet.remove(brokerId);
@@ -77,6 +82,7 @@ public class BrokerPSInfoHolder {
         if (topicInfoMap == null) {
             return;
         }
+        addChangedSubTopics(brokerId, topicInfoMap);
         // initial broker subscribe info
         subTopicInfoView.updBrokerTopicConfInfo(brokerId, topicInfoMap);
         // initial broker publish info
@@ -95,10 +101,14 @@ public class BrokerPSInfoHolder {
         } else {
             enablePubBrokerIdSet.remove(brokerId);
         }
+        boolean subChanged;
         if (mngStatus.isAcceptSubscribe()) {
-            enableSubBrokerIdSet.add(brokerId);
+            subChanged = enableSubBrokerIdSet.add(brokerId);
         } else {
-            enableSubBrokerIdSet.remove(brokerId);
+            subChanged = enableSubBrokerIdSet.remove(brokerId);
+        }
+        if (subChanged) {
+            addBrokerChangedSubTopics(brokerId);
         }
     }
 
@@ -121,6 +131,7 @@ public class BrokerPSInfoHolder {
         if (topicInfoMap == null) {
             return true;
         }
+        addChangedSubTopics(brokerId, topicInfoMap);
         subTopicInfoView.updBrokerTopicConfInfo(brokerId, topicInfoMap);
         return pubTopicInfoView.fastUpdBrokerTopicConfInfo(brokerId, topicInfoMap);
     }
@@ -141,6 +152,45 @@ public class BrokerPSInfoHolder {
         pubTopicInfoView.updBrokerTopicConfInfo(brokerId, topicInfoMap);
     }
 
+    /**
+     * Get and clear the topics whose subscribable partitions have changed
+     *
+     * @return the changed topic set
+     */
+    public Set<String> drainChangedSubTopics() {
+        Set<String> result = new HashSet<>();
+        for (String topic : changedSubTopicSet) {
+            if (changedSubTopicSet.remove(topic)) {
+                result.add(topic);
+            }
+        }
+        return result;
+    }
+
+    private void addBrokerChangedSubTopics(int brokerId) {
+        for (TopicInfo topicInfo : subTopicInfoView.getBrokerPushedTopicInfo(brokerId)) {
+            changedSubTopicSet.add(topicInfo.getTopic());
+        }
+    }
+
+    private void addChangedSubTopics(int brokerId, Map<String, TopicInfo> topicInfoMap) {
+        TopicInfo newInfo;
+        for (TopicInfo curInfo : subTopicInfoView.getBrokerPushedTopicInfo(brokerId)) {
+            newInfo = topicInfoMap.get(curInfo.getTopic());
+            if (newInfo == null
+                    || newInfo.getPartitionNum() != curInfo.getPartitionNum()
+                    || newInfo.getTopicStoreNum() != curInfo.getTopicStoreNum()
+                    || newInfo.isAcceptSubscribe() != curInfo.isAcceptSubscribe()) {
+                changedSubTopicSet.add(curInfo.getTopic());
+            }
+        }
+        for (String topic : topicInfoMap.keySet()) {
+            if (subTopicInfoView.getBrokerPushedTopicInfo(brokerId, topic) == null) {
+                changedSubTopicSet.add(topic);
+            }
+        }
+    }
+
     /**
      * Get the maximum number of broker distributions of topic
      *
@@ -72,8 +72,8 @@ public interface BrokerRunManager {
     void setRegisterDownConfInfo(int brokerId, StringBuilder sBuffer,
             RegisterResponseM2B.Builder builder);
 
-    void setHeatBeatDownConfInfo(int brokerId, StringBuilder sBuffer,
-            HeartResponseM2B.Builder builder);
+    void setHeatBeatDownConfInfo(int brokerId, boolean supportConfDelta,
+            StringBuilder sBuffer, HeartResponseM2B.Builder builder);
 
     BrokerInfo getBrokerInfo(int brokerId);
 
@@ -98,6 +98,8 @@ public interface BrokerRunManager {
 
     Map<String, Partition> getSubBrokerAcceptSubParts(Set<String> topicSet);
 
+    Set<String> drainChangedSubTopics();
+
     List<Partition> getSubBrokerAcceptSubParts(String topic);
 
     void getSubBrokerTopicInfo(int brokerId, String topic, Tuple2<Boolean, TopicInfo> result);
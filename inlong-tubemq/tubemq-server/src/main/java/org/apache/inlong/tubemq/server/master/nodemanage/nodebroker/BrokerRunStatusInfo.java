@@ -147,6 +147,15 @@ public class BrokerRunStatusInfo {
         return brokerSyncData.getBrokerSyncData();
     }
 
+    /**
+     * Get the topic configure changes need sync to broker
+     *
+     * @return null if only the full configure can be pushed
+     */
+    public Tuple2<List<String>, List<String>> getNeedSyncDelta() {
+        return brokerSyncData.getBrokerSyncDelta();
+    }
+
     /**
      * Book broker report info
      *
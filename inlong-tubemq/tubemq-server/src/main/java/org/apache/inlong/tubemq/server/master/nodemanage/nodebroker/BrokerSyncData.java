@@ -21,20 +21,15 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
-import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corebase.utils.Tuple4;
 import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
+import org.apache.inlong.tubemq.server.common.utils.ConfCheckSumUtils;
 
-import org.apache.commons.codec.binary.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -45,17 +40,17 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class BrokerSyncData {
 
-    private static final Logger logger =
-            LoggerFactory.getLogger(BrokerSyncData.class);
     // current data push id
     private long dataPushId;
     // data need to sync
     private final AtomicLong syncDownDataConfId =
             new AtomicLong(System.currentTimeMillis());
-    private int syncDownDataChkSumId;
     private ManageStatus mngStatus;
-    private String syncDownBrokerConfInfo;
-    private Map<String, String> syncDownTopicConfInfoMap = new HashMap<>();
+    // configure to push, rebuilt as a whole when the configure changes
+    private volatile BrokerConfSnapshot syncDownSnapshot =
+            new BrokerConfSnapshot(syncDownDataConfId.get(), 0, null, null);
+    // the latest configure confirmed by broker, the base of the delta push
+    private volatile BrokerConfSnapshot ackedSnapshot = null;
     private boolean isStatusChanged = false;
     private boolean isConfChanged = false;
 
@@ -101,19 +96,18 @@ public class BrokerSyncData {
         }
 
         if (isForceSync || isSyncDataChanged(brokerConfInfo, topicConfInfoMap)) {
-            this.syncDownBrokerConfInfo = brokerConfInfo;
             if (topicConfInfoMap == null) {
-                this.syncDownTopicConfInfoMap = new HashMap<>();
-            } else {
-                this.syncDownTopicConfInfoMap = topicConfInfoMap;
+                topicConfInfoMap = new HashMap<>();
+            }
+            int newChkSumId = ConfCheckSumUtils.calcBrokerConfCheckSum(
+                    brokerConfInfo, topicConfInfoMap.values());
+            if (isStatusChanged) {
+                this.syncDownDataConfId.incrementAndGet();
             }
-            this.syncDownDataChkSumId =
-                    calculateConfigCrc32Value(syncDownBrokerConfInfo, syncDownTopicConfInfoMap);
+            this.syncDownSnapshot = new BrokerConfSnapshot(syncDownDataConfId.get(),
+                    newChkSumId, brokerConfInfo, topicConfInfoMap);
             isConfChanged = true;
         }
-        if (isStatusChanged && isConfChanged) {
-            this.syncDownDataConfId.incrementAndGet();
-        }
         return new Tuple2<>(isStatusChanged, isConfChanged);
     }
 
@@ -148,6 +142,7 @@ public class BrokerSyncData {
                 this.syncUpTopicInfoMap = tmpInfoMap;
             }
             this.lastDataUpTime = System.currentTimeMillis();
+            bookAckedSnapshot(syncDataConfId, syncDataChkSumId);
         }
         return isConfSynchronized();
     }
@@ -159,12 +154,11 @@ public class BrokerSyncData {
      *         false: not synchronized
      */
     public boolean isConfSynchronized() {
-        return (this.syncDownDataConfId.get() == this.syncUpDataConfId
-                && this.syncDownDataChkSumId == this.syncUpDataChkSumId);
+        return this.syncDownSnapshot.isVersionOf(syncUpDataConfId, syncUpDataChkSumId);
     }
 
     public boolean isDownTopicConfEmpty() {
-        return this.syncDownTopicConfInfoMap.isEmpty();
+        return this.syncDownSnapshot.getTopicConfInfoMap().isEmpty();
     }
 
     /**
@@ -173,18 +167,32 @@ public class BrokerSyncData {
      * @return return data container,
      */
     public Tuple4<Long, Integer, String, List<String>> getBrokerSyncData() {
-        if (isConfSynchronized()) {
-            return new Tuple4<>(syncDownDataConfId.get(), syncDownDataChkSumId, null, null);
+        BrokerConfSnapshot curSnapshot = this.syncDownSnapshot;
+        if (curSnapshot.isVersionOf(syncUpDataConfId, syncUpDataChkSumId)) {
+            return new Tuple4<>(curSnapshot.getConfId(),
+                    curSnapshot.getChkSumId(), null, null);
         } else {
-            List<String> topicInfoList = new ArrayList<>();
-            for (String topicInfo : syncDownTopicConfInfoMap.values()) {
-                if (topicInfo != null) {
-                    topicInfoList.add(topicInfo);
-                }
-            }
-            return new Tuple4<>(syncDownDataConfId.get(), syncDownDataChkSumId,
-                    syncDownBrokerConfInfo, topicInfoList);
+            return new Tuple4<>(curSnapshot.getConfId(), curSnapshot.getChkSumId(),
+                    curSnapshot.getBrokerConfInfo(), curSnapshot.getTopicConfInfoList());
+        }
+    }
+
+    /**
+     * Get the topic configure changes need sync to broker
+     *
+     * @return null if the broker does not hold a confirmed configure, otherwise
+     *         f0 : the added or modified topic configure
+     *         f1 : the removed topic names
+     */
+    public Tuple2<List<String>, List<String>> getBrokerSyncDelta() {
+        BrokerConfSnapshot curSnapshot = this.syncDownSnapshot;
+        BrokerConfSnapshot baseSnapshot = this.ackedSnapshot;
+        if (baseSnapshot == null
+                || curSnapshot.isVersionOf(syncUpDataConfId, syncUpDataChkSumId)
+                || !baseSnapshot.isVersionOf(syncUpDataConfId, syncUpDataChkSumId)) {
+            return null;
         }
+        return curSnapshot.getChangesSince(baseSnapshot);
     }
 
     /**
@@ -214,8 +222,31 @@ public class BrokerSyncData {
      */
     private boolean isSyncDataChanged(String brokerConfInfo,
             Map<String, String> topicConfInfoMap) {
-        return !Objects.equals(syncDownBrokerConfInfo, brokerConfInfo)
-                || !Objects.equals(syncDownTopicConfInfoMap, topicConfInfoMap);
+        BrokerConfSnapshot curSnapshot = this.syncDownSnapshot;
+        return !Objects.equals(curSnapshot.getBrokerConfInfo(), brokerConfInfo)
+                || !Objects.equals(curSnapshot.getTopicConfInfoMap(), topicConfInfoMap);
+    }
+
+    /**
+     * Book the configure confirmed by broker as the base of the delta push,
+     * a broker reporting topic configure different from the pushed one
+     * gets the full configure at the next change
+     *
+     * @param syncDataConfId   the reported configure id
+     * @param syncDataChkSumId the reported check-sum id
+     */
+    private void bookAckedSnapshot(long syncDataConfId, int syncDataChkSumId) {
+        BrokerConfSnapshot curSnapshot = this.syncDownSnapshot;
+        if (!curSnapshot.isVersionOf(syncDataConfId, syncDataChkSumId)) {
+            return;
+        }
+        if (curSnapshot.getTopicConfInfoMap().size() == syncUpTopicConfInfos.size()
+                && new HashSet<>(curSnapshot.getTopicConfInfoList())
+                        .containsAll(syncUpTopicConfInfos)) {
+            this.ackedSnapshot = curSnapshot;
+        } else {
+            this.ackedSnapshot = null;
+        }
     }
 
     /**
@@ -228,11 +259,12 @@ public class BrokerSyncData {
         sBuffer.append("{\"dataPushId\":").append(dataPushId)
                 .append(",\"mngStatus\":\"").append(mngStatus.getDescription())
                 .append("\",\"syncDownDataConfId\":").append(syncDownDataConfId.get())
-                .append(",\"syncDownDataChkSumId\":").append(syncDownDataChkSumId)
+                .append(",\"syncDownDataChkSumId\":").append(syncDownSnapshot.getChkSumId())
                 .append(",\"isStatusChanged\":").append(isStatusChanged)
                 .append(",\"isConfChanged\":").append(isConfChanged)
-                .append(",\"syncDownBrokerConfInfo\":\"").append(syncDownBrokerConfInfo)
-                .append("\",\"syncDownTopicConfInfoMap\":\"").append(syncDownTopicConfInfoMap.toString())
+                .append(",\"syncDownBrokerConfInfo\":\"").append(syncDownSnapshot.getBrokerConfInfo())
+                .append("\",\"syncDownTopicConfInfoMap\":\"")
+                .append(syncDownSnapshot.getTopicConfInfoMap().toString())
                 .append("\",\"syncUpDataConfId\":").append(syncUpDataConfId)
                 .append(",\"syncUpDataChkSumId\":").append(syncUpDataChkSumId)
                 .append(",\"syncUpBrokerConfInfo\":\"").append(syncUpBrokerConfInfo)
@@ -296,49 +328,4 @@ public class BrokerSyncData {
         }
         return topicInfoMap;
     }
-
-    /**
-     * Calculate the sync-data's crc32 value
-     *
-     * @param brokerConfInfo  broker default config
-     * @param topicConfInfoMap topic config set
-     *
-     * @return the crc32 value
-     */
-    private int calculateConfigCrc32Value(String brokerConfInfo,
-            Map<String, String> topicConfInfoMap) {
-        int result = -1;
-        int capacity = 0;
-        List<String> topicConfInfoLst =
-                new ArrayList<>(topicConfInfoMap.values());
-        Collections.sort(topicConfInfoLst);
-        capacity += brokerConfInfo.length();
-        for (String itemStr : topicConfInfoLst) {
-            capacity += itemStr.length();
-        }
-        capacity *= 2;
-        for (int i = 1; i < 3; i++) {
-            result = inCalcBufferResult(capacity, brokerConfInfo, topicConfInfoLst);
-            if (result >= 0) {
-                return result;
-            }
-            capacity *= i + 1;
-        }
-        logger.error("Calculate the CRC32 value of Broker Configure error!");
-        return 0;
-    }
-
-    private int inCalcBufferResult(int capacity, String brokerConfInfo,
-            List<String> topicConfInfoLst) {
-        final ByteBuffer buffer = ByteBuffer.allocate(capacity);
-        buffer.put(StringUtils.getBytesUtf8(brokerConfInfo));
-        for (String itemStr : topicConfInfoLst) {
-            byte[] itemData = StringUtils.getBytesUtf8(itemStr);
-            if (itemData.length > buffer.remaining()) {
-                return -1;
-            }
-            buffer.put(itemData);
-        }
-        return CheckSum.crc32(buffer.array());
-    }
 }
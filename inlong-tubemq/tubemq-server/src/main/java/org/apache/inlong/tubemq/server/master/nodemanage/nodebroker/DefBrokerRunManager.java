@@ -384,8 +384,8 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
     }
 
     @Override
-    public void setHeatBeatDownConfInfo(int brokerId, StringBuilder sBuffer,
-            HeartResponseM2B.Builder builder) {
+    public void setHeatBeatDownConfInfo(int brokerId, boolean supportConfDelta,
+            StringBuilder sBuffer, HeartResponseM2B.Builder builder) {
         BrokerRunStatusInfo runStatusInfo =
                 brokerRunSyncManageMap.get(brokerId);
         if (runStatusInfo == null) {
@@ -410,14 +410,30 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
             builder.setNeedReportData(true);
             builder.setTakeConfInfo(true);
             builder.setBrokerDefaultConfInfo(retTuple.getF2());
-            builder.addAllBrokerTopicSetConfInfo(retTuple.getF3());
-            logger.info(sBuffer.append("[TMaster sync] heartbeat sync config: brokerId = ")
-                    .append(brokerId).append(",configureId=").append(retTuple.getF0())
-                    .append(",stopWrite=").append(builder.getStopWrite())
-                    .append(",stopRead=").append(builder.getStopRead())
-                    .append(",checksumId=").append(retTuple.getF1())
-                    .append(",default configure is ").append(retTuple.getF2())
-                    .append(",topic configure is ").append(retTuple.getF3()).toString());
+            Tuple2<List<String>, List<String>> deltaTuple =
+                    supportConfDelta ? runStatusInfo.getNeedSyncDelta() : null;
+            if (deltaTuple == null) {
+                builder.addAllBrokerTopicSetConfInfo(retTuple.getF3());
+                logger.info(sBuffer.append("[TMaster sync] heartbeat sync config: brokerId = ")
+                        .append(brokerId).append(",configureId=").append(retTuple.getF0())
+                        .append(",stopWrite=").append(builder.getStopWrite())
+                        .append(",stopRead=").append(builder.getStopRead())
+                        .append(",checksumId=").append(retTuple.getF1())
+                        .append(",default configure is ").append(retTuple.getF2())
+                        .append(",topic configure is ").append(retTuple.getF3()).toString());
+            } else {
+                builder.setConfDelta(true);
+                builder.addAllBrokerTopicSetConfInfo(deltaTuple.getF0());
+                builder.addAllDeltaRemovedTopics(deltaTuple.getF1());
+                logger.info(sBuffer.append("[TMaster sync] heartbeat sync config delta: brokerId = ")
+                        .append(brokerId).append(",configureId=").append(retTuple.getF0())
+                        .append(",stopWrite=").append(builder.getStopWrite())
+                        .append(",stopRead=").append(builder.getStopRead())
+                        .append(",checksumId=").append(retTuple.getF1())
+                        .append(",default configure is ").append(retTuple.getF2())
+                        .append(",changed topic configure is ").append(deltaTuple.getF0())
+                        .append(",removed topics is ").append(deltaTuple.getF1()).toString());
+            }
             sBuffer.delete(0, sBuffer.length());
         }
     }
@@ -527,6 +543,11 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
         return brokerPubSubInfo.getAcceptSubParts(topicSet);
     }
 
+    @Override
+    public Set<String> drainChangedSubTopics() {
+        return brokerPubSubInfo.drainChangedSubTopics();
+    }
+
     @Override
     public List<Partition> getSubBrokerAcceptSubParts(String topic) {
         return brokerPubSubInfo.getAcceptSubParts(topic);
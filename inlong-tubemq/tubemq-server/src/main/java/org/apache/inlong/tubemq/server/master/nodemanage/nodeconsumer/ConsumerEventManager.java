@@ -18,12 +18,15 @@
 package org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer;
 
 import org.apache.inlong.tubemq.corebase.balance.ConsumerEvent;
+import org.apache.inlong.tubemq.corebase.utils.ConcurrentHashSet;
 import org.apache.inlong.tubemq.server.master.stats.MasterSrvStatsHolder;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -42,6 +45,9 @@ public class ConsumerEventManager {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String/* group */, AtomicInteger> groupUnfinishedCountMap =
             new ConcurrentHashMap<>();
+    // groups whose consumers or subscribed partitions have changed since the last balance
+    private final ConcurrentHashSet<String/* group */> dirtyGroupSet =
+            new ConcurrentHashSet<>();
 
     private final ConsumerInfoHolder consumerHolder;
 
@@ -136,6 +142,8 @@ public class ConsumerEventManager {
                     event = eventList.removeFirst();
                     if (eventList.isEmpty()) {
                         currentEventMap.remove(consumerId);
+                        // re-check the group once its consumer has finished the events
+                        markGroupDirty(group);
                         if (selDisConnMap) {
                             MasterSrvStatsHolder.decSvrBalDisConConsumerCnt();
                         } else {
@@ -153,6 +161,62 @@ public class ConsumerEventManager {
         }
     }
 
+    /**
+     * Mark the group as needing a re-balance
+     *
+     * @param group    the group name
+     */
+    public void markGroupDirty(String group) {
+        if (group != null) {
+            dirtyGroupSet.add(group);
+        }
+    }
+
+    /**
+     * Mark the groups as needing a re-balance
+     *
+     * @param groups    the group names
+     */
+    public void markGroupsDirty(Collection<String> groups) {
+        for (String group : groups) {
+            markGroupDirty(group);
+        }
+    }
+
+    /**
+     * Mark the groups subscribing the topics as needing a re-balance
+     *
+     * @param topics    the topics whose partitions have changed
+     */
+    public void markTopicGroupsDirty(Set<String> topics) {
+        Set<String> groupSet;
+        for (String topic : topics) {
+            groupSet = consumerHolder.getRegTopicGroupMap().get(topic);
+            if (groupSet != null) {
+                markGroupsDirty(groupSet);
+            }
+        }
+    }
+
+    /**
+     * Get and clear the groups needing a re-balance
+     *
+     * @return the dirty group list
+     */
+    public List<String> drainDirtyGroups() {
+        List<String> groups = new ArrayList<>();
+        for (String group : dirtyGroupSet) {
+            if (dirtyGroupSet.remove(group)) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    public int getDirtyGroupCount() {
+        return dirtyGroupSet.size();
+    }
+
     public int getUnfinishedCount(String groupName) {
         if (groupName == null) {
             return 0;
@@ -281,6 +345,7 @@ public class ConsumerEventManager {
     public void clear() {
         disconnectEventMap.clear();
         connectEventMap.clear();
+        dirtyGroupSet.clear();
     }
 
     @Override
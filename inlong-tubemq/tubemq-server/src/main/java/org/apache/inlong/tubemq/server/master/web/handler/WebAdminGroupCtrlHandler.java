@@ -998,6 +998,7 @@ public class WebAdminGroupCtrlHandler extends AbstractWebHandler {
                 .append(", creator=").append(opEntity.getModifyUser()).toString());
         sBuffer.delete(0, sBuffer.length());
         consumerInfoHolder.addRebConsumerInfo(groupName, consumerIdSet, reJoinWait);
+        master.getConsumerEventManager().markGroupDirty(groupName);
         WebParameterUtils.buildSuccessResult(sBuffer);
         return sBuffer;
     }
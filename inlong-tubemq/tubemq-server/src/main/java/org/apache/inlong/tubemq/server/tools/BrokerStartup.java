@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.server.tools;
 
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
+import org.apache.inlong.tubemq.corerpc.netty.NettyBufferPool;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.TubeBroker;
 
@@ -30,6 +31,8 @@ public class BrokerStartup {
             LoggerFactory.getLogger(BrokerStartup.class);
 
     public static void main(final String[] args) throws Exception {
+        // count the pooled buffer leaks, must be done before any buffer is created
+        NettyBufferPool.installLeakCounter();
         // get configure file path
         ProcessResult result = new ProcessResult();
         if (!CliUtils.getConfigFilePath(args, result)) {
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.tools;
+
+import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.FileOffsetStorage;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.ZkOffsetStorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Offset Storage Migrate Tool
+ *
+ * Copy the broker's group offsets stored in ZooKeeper into the file offset storage,
+ * should be run once with the broker stopped before switching offsetStorageType to file.
+ */
+public class OffsetStorageMigrateAdmin {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(OffsetStorageMigrateAdmin.class);
+
+    public static void main(final String[] args) throws Exception {
+        // get configure file path
+        ProcessResult result = new ProcessResult();
+        if (!CliUtils.getConfigFilePath(args, result)) {
+            System.err.println(result.getErrMsg());
+            System.exit(1);
+        }
+        String configFilePath = (String) result.getRetData();
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.loadFromFile(configFilePath);
+        final long start = System.currentTimeMillis();
+        FileOffsetStorage fileStorage =
+                new FileOffsetStorage(brokerConfig.getOffsetStorePath(),
+                        brokerConfig.getBrokerId(), brokerConfig.getZkConfig(),
+                        brokerConfig.getOffsetZkSyncPeriodMs());
+        if (!fileStorage.queryZkAllGroupTopicInfos().isEmpty()) {
+            fileStorage.close();
+            throw new RuntimeException(new StringBuilder(512)
+                    .append("[Offset Migrate] the file offset storage is not empty, path is ")
+                    .append(brokerConfig.getOffsetStorePath()).toString());
+        }
+        ZkOffsetStorage zkStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
+                true, brokerConfig.getBrokerId());
+        int groupCnt = 0;
+        int partCnt = 0;
+        try {
+            Map<String, Set<String>> groupTopicMap = zkStorage.queryZkAllGroupTopicInfos();
+            for (Map.Entry<String, Set<String>> entry : groupTopicMap.entrySet()) {
+                List<OffsetStorageInfo> offsetInfos = new ArrayList<>();
+                for (String topic : entry.getValue()) {
+                    for (Integer partitionId : zkStorage.queryGroupTopicPartIds(entry.getKey(), topic)) {
+                        OffsetStorageInfo info =
+                                zkStorage.loadOffset(entry.getKey(), topic, partitionId);
+                        if (info != null) {
+                            info.setModified(true);
+                            offsetInfos.add(info);
+                        }
+                    }
+                }
+                fileStorage.commitOffset(entry.getKey(), offsetInfos, true);
+                groupCnt++;
+                partCnt += offsetInfos.size();
+            }
+        } finally {
+            zkStorage.close();
+            fileStorage.close();
+        }
+        logger.info(new StringBuilder(512)
+                .append("[Offset Migrate] Migrated ").append(groupCnt)
+                .append(" groups and ").append(partCnt)
+                .append(" partition offsets from ZooKeeper to ")
+                .append(brokerConfig.getOffsetStorePath()).append(", cost ")
+                .append(System.currentTimeMillis() - start).append(" ms").toString());
+    }
+}
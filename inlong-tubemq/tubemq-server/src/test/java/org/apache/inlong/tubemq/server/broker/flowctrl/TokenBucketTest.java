@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.flowctrl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TokenBucket and FetchRateLimiter test.
+ */
+public class TokenBucketTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void refillAndDebt() {
+        long now = 0L;
+        // 1000 tokens per second, 100 tokens burst
+        TokenBucket bucket = new TokenBucket(1000L, 100L, now);
+        Assert.assertEquals(0, bucket.getWaitMs(now));
+        // take the burst and 100 more tokens, the debt is paid back in 100 ms
+        bucket.consume(200L, now);
+        Assert.assertEquals(100L, bucket.getWaitMs(now));
+        Assert.assertEquals(40L, bucket.getWaitMs(now + 60 * MS));
+        Assert.assertEquals(0L, bucket.getWaitMs(now + 101 * MS));
+        // the idle time does not accumulate more tokens than the burst
+        now += 10_000 * MS;
+        bucket.consume(150L, now);
+        Assert.assertEquals(50L, bucket.getWaitMs(now));
+    }
+
+    @Test
+    public void hierarchicalLimit() {
+        Map<String, Long> groupLimits = new HashMap<>();
+        groupLimits.put("slowGroup", 1000L);
+        FetchRateLimiter limiter =
+                new FetchRateLimiter(0L, 0L, 0L, groupLimits, 1000L);
+        Assert.assertTrue(limiter.isEnabled());
+        Assert.assertEquals(0, limiter.checkAllowed("slowGroup", "topic"));
+        limiter.consume("slowGroup", "topic", 3000L);
+        // the group over its limit waits about 2 seconds, the other groups are not limited
+        long waitMs = limiter.checkAllowed("slowGroup", "topic");
+        Assert.assertTrue(waitMs > 1900L && waitMs <= 2000L);
+        Assert.assertEquals(0, limiter.checkAllowed("fastGroup", "topic"));
+        limiter.consume("fastGroup", "topic", 1000000L);
+        Assert.assertEquals(0, limiter.checkAllowed("fastGroup", "topic"));
+        Map<String, Map<String, Long>> statsMap = new HashMap<>();
+        limiter.getGroupStats(statsMap);
+        Assert.assertEquals(1L, statsMap.get("slowGroup").get("fetch_throttled_cnt").longValue());
+        Assert.assertEquals(3000L, statsMap.get("slowGroup").get("fetch_passed_bytes").longValue());
+        Assert.assertEquals(0L, statsMap.get("fastGroup").get("fetch_throttled_cnt").longValue());
+        // the topic bucket limits all groups of the topic
+        limiter = new FetchRateLimiter(0L, 1000L, 0L, Collections.emptyMap(), 1000L);
+        limiter.consume("groupA", "topic", 2000L);
+        Assert.assertTrue(limiter.checkAllowed("groupB", "topic") > 0);
+        Assert.assertEquals(0, limiter.checkAllowed("groupB", "otherTopic"));
+        Assert.assertFalse(new FetchRateLimiter(0L, 0L, 0L, null, 1000L).isEnabled());
+    }
+}
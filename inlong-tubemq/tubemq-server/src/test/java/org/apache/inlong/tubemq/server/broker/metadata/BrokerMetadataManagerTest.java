@@ -17,6 +17,8 @@
 
 package org.apache.inlong.tubemq.server.broker.metadata;
 
+import org.apache.inlong.tubemq.server.common.utils.ConfCheckSumUtils;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -54,6 +56,66 @@ public class BrokerMetadataManagerTest {
         Assert.assertEquals(count, 6);
     }
 
+    @Test
+    public void updateBrokerTopicConfigDelta() {
+        brokerMetadataManager = new BrokerMetadataManager();
+        String newBrokerDefMetaConfInfo = "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+        List<String> newTopicMetaConfInfoList = new LinkedList<>();
+        newTopicMetaConfInfoList.add("topic1:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        newTopicMetaConfInfoList.add("topic2:4:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        brokerMetadataManager.updateBrokerTopicConfigMap(0L, 0,
+                newBrokerDefMetaConfInfo, newTopicMetaConfInfoList, true, new StringBuilder());
+        // modify topic2, add topic3 and remove topic1
+        List<String> updTopicMetaConfInfoList = new LinkedList<>();
+        updTopicMetaConfInfoList.add("topic2:8:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        updTopicMetaConfInfoList.add("topic3:6:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        List<String> rmvTopicNames = new LinkedList<>();
+        rmvTopicNames.add("topic1");
+        int newConfCheckSumId = ConfCheckSumUtils.calcBrokerConfCheckSum(
+                newBrokerDefMetaConfInfo, updTopicMetaConfInfoList);
+        Assert.assertTrue(brokerMetadataManager.updateBrokerTopicConfigDelta(1L,
+                newConfCheckSumId, newBrokerDefMetaConfInfo, updTopicMetaConfInfoList,
+                rmvTopicNames, new StringBuilder()));
+        Assert.assertTrue(brokerMetadataManager.isConfSynchronized());
+        Assert.assertEquals(1L, brokerMetadataManager.getBrokerMetadataConfId());
+        Assert.assertEquals(newConfCheckSumId, brokerMetadataManager.getBrokerConfCheckSumId());
+        Assert.assertEquals(2, brokerMetadataManager.getTopicMetaConfInfoLst().size());
+        Assert.assertNull(brokerMetadataManager.getTopicMetadata("topic1"));
+        Assert.assertEquals(8, brokerMetadataManager.getNumPartitions("topic2"));
+        Assert.assertEquals(6, brokerMetadataManager.getNumPartitions("topic3"));
+    }
+
+    @Test
+    public void updateBrokerTopicConfigDeltaMismatch() {
+        brokerMetadataManager = new BrokerMetadataManager();
+        String newBrokerDefMetaConfInfo = "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+        List<String> newTopicMetaConfInfoList = new LinkedList<>();
+        newTopicMetaConfInfoList.add("topic1:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        brokerMetadataManager.updateBrokerTopicConfigMap(0L, 0,
+                newBrokerDefMetaConfInfo, newTopicMetaConfInfoList, true, new StringBuilder());
+        // the delta misses topic2 which Master has added before
+        List<String> updTopicMetaConfInfoList = new LinkedList<>();
+        updTopicMetaConfInfoList.add("topic3:6:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        List<String> masterTopicMetaConfInfoList = new LinkedList<>(newTopicMetaConfInfoList);
+        masterTopicMetaConfInfoList.add("topic2:4:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        masterTopicMetaConfInfoList.addAll(updTopicMetaConfInfoList);
+        int masterConfCheckSumId = ConfCheckSumUtils.calcBrokerConfCheckSum(
+                newBrokerDefMetaConfInfo, masterTopicMetaConfInfoList);
+        Assert.assertFalse(brokerMetadataManager.updateBrokerTopicConfigDelta(2L,
+                masterConfCheckSumId, newBrokerDefMetaConfInfo, updTopicMetaConfInfoList,
+                new LinkedList<>(), new StringBuilder()));
+        // the merged configure is not applied, and the full configure is required
+        Assert.assertFalse(brokerMetadataManager.isConfSynchronized());
+        Assert.assertEquals(0L, brokerMetadataManager.getBrokerMetadataConfId());
+        Assert.assertEquals(0, brokerMetadataManager.getBrokerConfCheckSumId());
+        Assert.assertNull(brokerMetadataManager.getTopicMetadata("topic3"));
+        // the full configure restores the synchronization
+        brokerMetadataManager.updateBrokerTopicConfigMap(2L, masterConfCheckSumId,
+                newBrokerDefMetaConfInfo, masterTopicMetaConfInfoList, true, new StringBuilder());
+        Assert.assertTrue(brokerMetadataManager.isConfSynchronized());
+        Assert.assertEquals(3, brokerMetadataManager.getTopicMetaConfInfoLst().size());
+    }
+
     @Test
     public void updateBrokerRemoveTopicMap() {
         brokerMetadataManager = new BrokerMetadataManager();
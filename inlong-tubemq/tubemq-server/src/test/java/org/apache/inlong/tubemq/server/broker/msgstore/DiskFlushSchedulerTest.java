@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * DiskFlushScheduler test.
+ */
+public class DiskFlushSchedulerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void getDiskKey() throws Exception {
+        File dir1 = tempFolder.newFolder("store1");
+        File dir2 = new File(tempFolder.getRoot(), "store2" + File.separator + "index");
+        // the directories on the same file system share the disk key
+        Assert.assertEquals(DiskFlushScheduler.getDiskKey(dir1),
+                DiskFlushScheduler.getDiskKey(dir2));
+    }
+
+    @Test
+    public void groupCommitFlush() throws Exception {
+        DiskFlushScheduler scheduler = new DiskFlushScheduler(new BrokerConfig());
+        MessageStore store1 = mockStore("store-1", "disk-a");
+        MessageStore store2 = mockStore("store-2", "disk-a");
+        MessageStore store3 = mockStore("store-3", "disk-b");
+        scheduler.register(store1);
+        scheduler.register(store2);
+        scheduler.register(store3);
+        // the requests are rejected before the scheduler started
+        Assert.assertFalse(scheduler.isGroupCommit());
+        Assert.assertFalse(scheduler.requestFlush(store1));
+        scheduler.start();
+        try {
+            Assert.assertTrue(scheduler.isGroupCommit());
+            Assert.assertTrue(scheduler.requestFlush(store1));
+            Assert.assertTrue(scheduler.requestFlush(store2));
+            Assert.assertTrue(scheduler.requestFlush(store1));
+            verify(store1, timeout(5000)).flushFile(true);
+            verify(store2, timeout(5000)).flushFile(true);
+            verify(store3, never()).flushFile(true);
+            // each disk has its own statistics
+            Map<String, Map<String, Long>> diskStatsMap = new HashMap<>();
+            scheduler.getDiskStats(diskStatsMap, false);
+            Assert.assertEquals(2, diskStatsMap.size());
+            Map<String, Long> statsA = diskStatsMap.get("disk-a");
+            Assert.assertEquals(3L, statsA.get("disk_flush_requests").longValue());
+            Assert.assertTrue(statsA.get("disk_group_commits") >= 1L);
+            Assert.assertTrue(statsA.get("disk_flush_dlt_count") >= 2L);
+            Assert.assertEquals(2L, statsA.get("disk_store_count").longValue());
+            Assert.assertEquals(0L,
+                    diskStatsMap.get("disk-b").get("disk_flush_requests").longValue());
+        } finally {
+            scheduler.close();
+        }
+        Assert.assertFalse(scheduler.isGroupCommit());
+        Assert.assertFalse(scheduler.requestFlush(store1));
+    }
+
+    private MessageStore mockStore(String storeKey, String diskKey) throws Exception {
+        MessageStore store = mock(MessageStore.class);
+        when(store.getStoreKey()).thenReturn(storeKey);
+        when(store.getDiskKey()).thenReturn(diskKey);
+        when(store.isClosed()).thenReturn(false);
+        when(store.flushFile(true)).thenReturn(true);
+        return store;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PendingFetchManager test.
+ */
+public class PendingFetchManagerTest {
+
+    @Test
+    public void testNotifyTriggersFetch() throws Exception {
+        PendingFetchManager fetchManager = new PendingFetchManager(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            Assert.assertTrue(fetchManager.holdFetch("test", 1, 0L, () -> 0L, 30000L, latch::countDown));
+            Assert.assertEquals(1, fetchManager.getPendingCount());
+            // other partitions do not wake the held request
+            fetchManager.notifyMsgArrived("test", 2);
+            Assert.assertFalse(latch.await(50, TimeUnit.MILLISECONDS));
+            fetchManager.notifyMsgArrived("test", 1);
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, fetchManager.getPendingCount());
+        } finally {
+            fetchManager.close();
+        }
+    }
+
+    @Test
+    public void testTimeoutTriggersFetch() throws Exception {
+        PendingFetchManager fetchManager = new PendingFetchManager(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            long startTime = System.currentTimeMillis();
+            Assert.assertTrue(fetchManager.holdFetch("test", 1, 0L, () -> 0L, 100L, latch::countDown));
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() - startTime >= 90L);
+            Assert.assertEquals(0, fetchManager.getPendingCount());
+        } finally {
+            fetchManager.close();
+        }
+    }
+
+    @Test
+    public void testArrivedBeforeHoldTriggersFetch() throws Exception {
+        PendingFetchManager fetchManager = new PendingFetchManager(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            // the messages arrived after the read of offset 10 and before the hold
+            fetchManager.notifyMsgArrived("test", 1);
+            Assert.assertTrue(fetchManager.holdFetch("test", 1, 10L, () -> 20L, 30000L, latch::countDown));
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, fetchManager.getPendingCount());
+        } finally {
+            fetchManager.close();
+        }
+    }
+
+    @Test
+    public void testRemovePartition() throws Exception {
+        PendingFetchManager fetchManager = new PendingFetchManager(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            Assert.assertTrue(fetchManager.holdFetch("test", 1, 0L, () -> 0L, 30000L, latch::countDown));
+            Assert.assertEquals(1, fetchManager.getPartitionCount());
+            // the consumer left the partition, its held fetch is woken and the queue removed
+            fetchManager.removePartition("test", 1);
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, fetchManager.getPendingCount());
+            Assert.assertEquals(0, fetchManager.getPartitionCount());
+        } finally {
+            fetchManager.close();
+        }
+    }
+
+    @Test
+    public void testEmptiedQueueRemoved() throws Exception {
+        PendingFetchManager fetchManager = new PendingFetchManager(2);
+        try {
+            final CountDownLatch latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                Assert.assertTrue(fetchManager.holdFetch("test", i, 0L, () -> 0L, 50L, latch::countDown));
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, fetchManager.getPendingCount());
+            Assert.assertEquals(0, fetchManager.getPartitionCount());
+        } finally {
+            fetchManager.close();
+        }
+    }
+
+    @Test
+    public void testCloseTriggersPending() throws Exception {
+        PendingFetchManager fetchManager = new PendingFetchManager(2);
+        final CountDownLatch latch = new CountDownLatch(2);
+        Assert.assertTrue(fetchManager.holdFetch("test", 1, 0L, () -> 0L, 30000L, latch::countDown));
+        Assert.assertTrue(fetchManager.holdFetch("test", 2, 0L, () -> 0L, 30000L, latch::countDown));
+        fetchManager.close();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // no request can be held after closed
+        Assert.assertFalse(fetchManager.holdFetch("test", 1, 0L, () -> 0L, 30000L, latch::countDown));
+    }
+}
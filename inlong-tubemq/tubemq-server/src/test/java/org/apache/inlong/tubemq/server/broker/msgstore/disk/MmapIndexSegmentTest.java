@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * MmapIndexSegment test.
+ */
+public class MmapIndexSegmentTest {
+
+    @Test
+    public void testReadMappedAndTail() throws IOException {
+        File dir = Files.createTempDirectory("mmapidx").toFile();
+        File indexFile = new File(dir, "00000000000000001000"
+                + DataStoreUtils.INDEX_FILE_SUFFIX);
+        MmapIndexSegment segment = new MmapIndexSegment(1000L, indexFile, true, 4096);
+        try {
+            // nothing mapped for the empty segment
+            Assert.assertEquals(0L, segment.getMappedSize());
+            segment.append(buildRecords(0, 1000), 1L, 1000L);
+            segment.flush(true);
+            // the tail is read by channel before remapped
+            ByteBuffer readBuffer = ByteBuffer.allocate(10 * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            segment.read(readBuffer, 1000L + 20 * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            readBuffer.flip();
+            Assert.assertEquals(21L, readBuffer.getLong(DataStoreUtils.INDEX_POS_TIME_RECV));
+            // the sealed segment maps the whole content
+            segment.setMutable(false);
+            long segSize = 1000L * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            Assert.assertEquals(segSize, segment.getMappedSize());
+            for (int i = 0; i < 1000; i += 100) {
+                readBuffer.clear();
+                segment.relRead(readBuffer, (long) i * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                readBuffer.flip();
+                Assert.assertEquals(10 * DataStoreUtils.STORE_INDEX_HEAD_LEN, readBuffer.remaining());
+                for (int j = 0; j < 10; j++) {
+                    Assert.assertEquals(i + j + 1L, readBuffer.getLong(
+                            j * DataStoreUtils.STORE_INDEX_HEAD_LEN + DataStoreUtils.INDEX_POS_TIME_RECV));
+                }
+            }
+            Assert.assertEquals(500L,
+                    segment.getRecordTime(1000L + 499L * DataStoreUtils.STORE_INDEX_HEAD_LEN));
+            // the read across the mapping end falls back to the channel read
+            readBuffer.clear();
+            segment.relRead(readBuffer, segSize - DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            readBuffer.flip();
+            Assert.assertEquals(DataStoreUtils.STORE_INDEX_HEAD_LEN, readBuffer.remaining());
+        } finally {
+            segment.close();
+            segment.deleteFile();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testUnmapAfterViewReleased() throws IOException {
+        File dir = Files.createTempDirectory("mmapidx").toFile();
+        File indexFile = new File(dir, "00000000000000000000"
+                + DataStoreUtils.INDEX_FILE_SUFFIX);
+        MmapIndexSegment segment = new MmapIndexSegment(0L, indexFile, true, 0);
+        segment.append(buildRecords(0, 100), 1L, 100L);
+        segment.flush(true);
+        segment.close();
+        segment = new MmapIndexSegment(0L, indexFile, false, 0);
+        Assert.assertEquals(100L * DataStoreUtils.STORE_INDEX_HEAD_LEN, segment.getMappedSize());
+        segment.getViewRef();
+        segment.close();
+        // the mapping is kept until the view is released
+        Assert.assertEquals(100L * DataStoreUtils.STORE_INDEX_HEAD_LEN, segment.getMappedSize());
+        segment.relViewRef();
+        Assert.assertEquals(0L, segment.getMappedSize());
+        segment.deleteFile();
+        dir.delete();
+    }
+
+    static ByteBuffer buildRecords(int startIndex, int count) {
+        ByteBuffer buf = ByteBuffer.allocate(count * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        for (int i = startIndex; i < startIndex + count; i++) {
+            buf.putInt(1);
+            buf.putLong(i * 100L);
+            buf.putInt(100);
+            buf.putInt(0);
+            buf.putLong(i + 1L);
+        }
+        buf.flip();
+        return buf;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * MsgFileStore group commit flush test.
+ */
+public class MsgFileStoreFlushTest {
+
+    private static final int MSG_DATA_SIZE = DataStoreUtils.STORE_DATA_HEADER_LEN + 64;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testRequestAgainAfterEmptyFlush() throws Exception {
+        MessageStore msgStore = mock(MessageStore.class);
+        when(msgStore.getStoreKey()).thenReturn("flush-0");
+        when(msgStore.getMsgStoreStatsHolder()).thenReturn(new MsgStoreStatsHolder());
+        when(msgStore.getUnflushThreshold()).thenReturn(1);
+        when(msgStore.getUnflushInterval()).thenReturn(Integer.MAX_VALUE);
+        when(msgStore.isFlushGroupCommit()).thenReturn(true);
+        when(msgStore.requestGroupFlush()).thenReturn(true);
+        // the second message fills the data segment
+        BrokerConfig tubeConfig = spy(new BrokerConfig());
+        when(tubeConfig.getMaxSegmentSize()).thenReturn(2 * MSG_DATA_SIZE);
+        MsgFileStore fileStore = new MsgFileStore(msgStore,
+                tubeConfig, tmpFolder.getRoot().getAbsolutePath(), 0L);
+        try {
+            appendMsg(fileStore);
+            verify(msgStore, times(1)).requestGroupFlush();
+            // the segment roll flushes the data before the requested flush runs
+            appendMsg(fileStore);
+            verify(msgStore, times(1)).requestGroupFlush();
+            Assert.assertFalse(fileStore.flushDiskFile(true));
+            // the request is cleared by the flush, so the next append requests again
+            appendMsg(fileStore);
+            verify(msgStore, times(2)).requestGroupFlush();
+            Assert.assertTrue(fileStore.flushDiskFile(true));
+        } finally {
+            fileStore.close();
+        }
+    }
+
+    private void appendMsg(MsgFileStore fileStore) {
+        long currTime = System.currentTimeMillis();
+        ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        ByteBuffer dataBuffer = ByteBuffer.allocate(MSG_DATA_SIZE);
+        indexBuffer.putInt(DataStoreUtils.INDEX_POS_MSG_SIZE, MSG_DATA_SIZE);
+        fileStore.appendMsg(false, currTime, new StringBuilder(512), 1,
+                indexBuffer.limit(), indexBuffer, dataBuffer.limit(), dataBuffer,
+                currTime, currTime);
+    }
+}
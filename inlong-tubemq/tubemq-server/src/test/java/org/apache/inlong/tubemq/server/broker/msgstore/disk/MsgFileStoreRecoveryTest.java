@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * MsgFileStore recovery test.
+ */
+public class MsgFileStoreRecoveryTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testCleanShutdownMarker() throws IOException {
+        MessageStore msgStore = mock(MessageStore.class);
+        when(msgStore.getStoreKey()).thenReturn("test-0");
+        when(msgStore.getMsgStoreStatsHolder()).thenReturn(new MsgStoreStatsHolder());
+        BrokerConfig tubeConfig = new BrokerConfig();
+        String basePath = tmpFolder.getRoot().getAbsolutePath();
+        File marker = new File(basePath, "test-0" + File.separator + ".clean_shutdown");
+        MsgFileStore fileStore = new MsgFileStore(msgStore, tubeConfig, basePath, 0L);
+        Assert.assertFalse(fileStore.isCleanRecovered());
+        fileStore.close();
+        Assert.assertTrue(marker.exists());
+        // the marker is consumed by the next load
+        fileStore = new MsgFileStore(msgStore, tubeConfig, basePath, 0L);
+        Assert.assertTrue(fileStore.isCleanRecovered());
+        Assert.assertFalse(marker.exists());
+        fileStore.close();
+        // the segments changed after the marker are recovered by the scan
+        File indexFile = new File(basePath, "test-0" + File.separator + "index"
+                + File.separator + DataStoreUtils.nameFromOffset(0L, DataStoreUtils.INDEX_FILE_SUFFIX));
+        try (FileOutputStream out = new FileOutputStream(indexFile, true)) {
+            out.write(new byte[DataStoreUtils.STORE_INDEX_HEAD_LEN]);
+        }
+        fileStore = new MsgFileStore(msgStore, tubeConfig, basePath, 0L);
+        Assert.assertTrue(fileStore.isCleanRecovered());
+        Assert.assertEquals(0L, fileStore.getIndexMaxOffset());
+        Assert.assertEquals(0L, indexFile.length());
+        fileStore.close();
+    }
+}
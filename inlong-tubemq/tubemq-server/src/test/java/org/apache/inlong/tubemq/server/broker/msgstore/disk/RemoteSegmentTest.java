@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.LocalFileObjectStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.SegmentCache;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * RemoteSegment and the tiered storage test.
+ */
+public class RemoteSegmentTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testOffloadAndReadThroughCache() throws IOException {
+        TieredStorage tieredStorage = new TieredStorage(
+                new LocalFileObjectStore(tmpFolder.newFolder("store").getAbsolutePath()),
+                tmpFolder.newFolder("cache").getAbsolutePath(), 1024 * 1024L, "1", 60000L);
+        File dataDir = tmpFolder.newFolder("data");
+        byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+        FileSegment localSeg = new FileSegment(100L, new File(dataDir,
+                DataStoreUtils.nameFromOffset(100L, DataStoreUtils.DATA_FILE_SUFFIX)),
+                true, SegmentType.DATA);
+        localSeg.append(ByteBuffer.wrap(content), 1L, 2L);
+        localSeg.flush(true);
+        localSeg.setMutable(false);
+        FileSegment lastSeg = new FileSegment(120L, new File(dataDir,
+                DataStoreUtils.nameFromOffset(120L, DataStoreUtils.DATA_FILE_SUFFIX)),
+                true, SegmentType.DATA);
+        FileSegmentList segList = new FileSegmentList(new Segment[]{localSeg, lastSeg});
+        String keyPrefix = tieredStorage.getSegmentKeyPrefix("test-0", "data");
+        try {
+            RemoteSegment remoteSeg =
+                    RemoteSegment.offload(tieredStorage, keyPrefix, SegmentType.DATA, localSeg);
+            Assert.assertTrue(segList.replace(localSeg, remoteSeg));
+            // the remote segment serves the reads and is not counted in the local size
+            Assert.assertSame(remoteSeg, segList.findSegment(105L));
+            Assert.assertEquals(0L, segList.getSizeInBytes());
+            ByteBuffer readBuffer = ByteBuffer.allocate(10);
+            remoteSeg.read(readBuffer, 105L);
+            readBuffer.flip();
+            Assert.assertEquals("56789abcde",
+                    new String(readBuffer.array(), 0, readBuffer.limit(), StandardCharsets.UTF_8));
+            Assert.assertEquals(1L, tieredStorage.getSegmentCache().getMissCount());
+            Assert.assertEquals(content.length, tieredStorage.getSegmentCache().getCachedSize());
+            // the offloaded segments are recovered from the object store
+            List<RemoteSegment> loaded =
+                    RemoteSegment.loadSegments(tieredStorage, keyPrefix, SegmentType.DATA);
+            Assert.assertEquals(1, loaded.size());
+            Assert.assertEquals(100L, loaded.get(0).getStart());
+            Assert.assertEquals(120L, loaded.get(0).getLast());
+            // the deleted segment is removed from the object store and the cache
+            remoteSeg.deleteFile();
+            Assert.assertEquals(0L, tieredStorage.getSegmentCache().getCachedSize());
+            Assert.assertTrue(RemoteSegment.loadSegments(tieredStorage,
+                    keyPrefix, SegmentType.DATA).isEmpty());
+        } finally {
+            segList.close();
+            lastSeg.deleteFile();
+            tieredStorage.close();
+        }
+        // the replaced local segment is deleted when the list is closed
+        Assert.assertFalse(localSeg.getFile().exists());
+    }
+
+    @Test
+    public void testCacheEviction() throws IOException {
+        LocalFileObjectStore objectStore =
+                new LocalFileObjectStore(tmpFolder.newFolder("store").getAbsolutePath());
+        objectStore.put("seg/a", new byte[8]);
+        objectStore.put("seg/b", new byte[8]);
+        SegmentCache segmentCache = new SegmentCache(objectStore,
+                tmpFolder.newFolder("cache").getAbsolutePath(), 10L);
+        // the entries in use are not evicted even if the cache is full
+        SegmentCache.CacheEntry entryA = segmentCache.acquire("seg/a");
+        SegmentCache.CacheEntry entryB = segmentCache.acquire("seg/b");
+        Assert.assertEquals(16L, segmentCache.getCachedSize());
+        segmentCache.release(entryB);
+        Assert.assertEquals(8L, segmentCache.getCachedSize());
+        segmentCache.release(entryA);
+        segmentCache.release(segmentCache.acquire("seg/a"));
+        Assert.assertEquals(1L, segmentCache.getHitCount());
+        // the least recently used entry is evicted by the next download
+        segmentCache.release(segmentCache.acquire("seg/b"));
+        Assert.assertEquals(8L, segmentCache.getCachedSize());
+        segmentCache.release(segmentCache.acquire("seg/b"));
+        Assert.assertEquals(2L, segmentCache.getHitCount());
+        Assert.assertEquals(3L, segmentCache.getMissCount());
+        segmentCache.close();
+        Assert.assertEquals(0L, segmentCache.getCachedSize());
+    }
+}
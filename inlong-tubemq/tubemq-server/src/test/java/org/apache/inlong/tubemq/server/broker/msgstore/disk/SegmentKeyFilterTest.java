@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * SegmentKeyFilter test.
+ */
+public class SegmentKeyFilterTest {
+
+    private static final long BLOCK_SIZE =
+            (long) SegmentKeyFilter.BLOCK_RECORD_COUNT * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+
+    @Test
+    public void testUnmatchedBlocks() throws IOException {
+        File dir = Files.createTempDirectory("keyfilter").toFile();
+        File file = new File(dir, "00000000000000000000.keyfilter");
+        SegmentKeyFilter keyFilter = new SegmentKeyFilter(file, true, 0);
+        try {
+            // 2 complete blocks with keys 1 and 2, the third block contains key 3
+            int count = 2500;
+            ByteBuffer records = buildRecords(count, 2048, 1, 2, 3);
+            keyFilter.addRecords(records, 0);
+            long validSize = (long) count * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            Set<Integer> filterKeys = Collections.singleton(3);
+            Assert.assertEquals(BLOCK_SIZE,
+                    keyFilter.getUnmatchedBlockEnd(0, validSize, filterKeys));
+            Assert.assertEquals(2 * BLOCK_SIZE,
+                    keyFilter.getUnmatchedBlockEnd(BLOCK_SIZE + 28, validSize, filterKeys));
+            // the incomplete block is not skipped
+            Assert.assertEquals(-1L,
+                    keyFilter.getUnmatchedBlockEnd(2 * BLOCK_SIZE, validSize, filterKeys));
+            // the block is not skipped if any key matches
+            Set<Integer> matchedKeys = new HashSet<>();
+            matchedKeys.add(3);
+            matchedKeys.add(2);
+            Assert.assertEquals(-1L,
+                    keyFilter.getUnmatchedBlockEnd(0, validSize, matchedKeys));
+            // the block beyond the readable size is not skipped
+            Assert.assertEquals(-1L,
+                    keyFilter.getUnmatchedBlockEnd(BLOCK_SIZE, BLOCK_SIZE + 28, filterKeys));
+        } finally {
+            keyFilter.deleteFile();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testSegmentReloadAndRebuild() throws IOException {
+        File dir = Files.createTempDirectory("keyfilter").toFile();
+        File indexFile = new File(dir, "00000000000000000000"
+                + DataStoreUtils.INDEX_FILE_SUFFIX);
+        File filterFile = new File(dir, "00000000000000000000"
+                + DataStoreUtils.KEY_FILTER_FILE_SUFFIX);
+        Set<Integer> filterKeys = Collections.singleton(3);
+        FileSegment segment = new FileSegment(0, indexFile, true, SegmentType.INDEX);
+        segment.append(buildRecords(3000, 3000, 1, 2, 3), 1L, 1L);
+        segment.flush(true);
+        Assert.assertEquals(BLOCK_SIZE, segment.getKeyFilterBlockEnd(0, filterKeys));
+        segment.close();
+        Assert.assertTrue(filterFile.exists());
+        // reload as the read-only segment
+        segment = new FileSegment(0, indexFile, false, SegmentType.INDEX);
+        Assert.assertEquals(2 * BLOCK_SIZE, segment.getKeyFilterBlockEnd(BLOCK_SIZE, filterKeys));
+        Assert.assertEquals(-1L,
+                segment.getKeyFilterBlockEnd(BLOCK_SIZE, Collections.singleton(1)));
+        segment.close();
+        // the lost filters are rebuilt by the writable segment
+        Assert.assertTrue(filterFile.delete());
+        segment = new FileSegment(0, indexFile, true, SegmentType.INDEX);
+        segment.flush(true);
+        Assert.assertEquals(BLOCK_SIZE, segment.getKeyFilterBlockEnd(0, filterKeys));
+        segment.deleteFile();
+        Assert.assertFalse(filterFile.exists());
+        dir.delete();
+    }
+
+    private ByteBuffer buildRecords(int count, int switchPos,
+            int keyCode1, int keyCode2, int keyCode3) {
+        ByteBuffer buf = ByteBuffer.allocate(count * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        for (int i = 0; i < count; i++) {
+            buf.putInt(1);
+            buf.putLong(i * 100L);
+            buf.putInt(100);
+            if (i < switchPos) {
+                buf.putInt(i % 2 == 0 ? keyCode1 : keyCode2);
+            } else {
+                buf.putInt(keyCode3);
+            }
+            buf.putLong(1L + i);
+        }
+        buf.flip();
+        return buf;
+    }
+}
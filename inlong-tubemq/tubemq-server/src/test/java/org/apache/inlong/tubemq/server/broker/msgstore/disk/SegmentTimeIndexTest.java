@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * SegmentTimeIndex test.
+ */
+public class SegmentTimeIndexTest {
+
+    private static final long BASE_TIME = 1600000000000L;
+
+    @Test
+    public void testSparseEntries() throws IOException {
+        File dir = Files.createTempDirectory("timeidx").toFile();
+        File file = new File(dir, "00000000000000000000.timeidx");
+        SegmentTimeIndex timeIndex = new SegmentTimeIndex(file, true, 0);
+        try {
+            // 3000 records within one second, an entry every 1024 records
+            timeIndex.addRecords(buildRecords(3000, BASE_TIME, 0), 0);
+            Assert.assertEquals(3, timeIndex.getEntryCount());
+            Assert.assertEquals(2048L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    timeIndex.getLastEntryPosition());
+            // a record after the time interval adds an entry
+            timeIndex.addRecords(buildRecords(1, BASE_TIME + 5000, 0),
+                    3000L * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            Assert.assertEquals(4, timeIndex.getEntryCount());
+        } finally {
+            timeIndex.deleteFile();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        File dir = Files.createTempDirectory("timeidx").toFile();
+        File file = new File(dir, "00000000000000000000.timeidx");
+        SegmentTimeIndex timeIndex = new SegmentTimeIndex(file, true, 0);
+        try {
+            Assert.assertNull(timeIndex.lookup(BASE_TIME, 0));
+            // a record every 10 milliseconds
+            int count = 1000;
+            timeIndex.addRecords(buildRecords(count, BASE_TIME, 10), 0);
+            long validSize = (long) count * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            long[] range = timeIndex.lookup(BASE_TIME + 5005, validSize);
+            Assert.assertNotNull(range);
+            // the record 501 is the first one not earlier than the timestamp
+            long targetPos = 501L * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            Assert.assertTrue(range[0] < targetPos);
+            Assert.assertTrue(range[1] >= targetPos);
+            Assert.assertTrue(range[1] - range[0] <= 1024L * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            range = timeIndex.lookup(BASE_TIME - 1, validSize);
+            Assert.assertEquals(0L, range[0]);
+            range = timeIndex.lookup(BASE_TIME + 100000, validSize);
+            Assert.assertEquals(validSize - DataStoreUtils.STORE_INDEX_HEAD_LEN, range[1]);
+        } finally {
+            timeIndex.deleteFile();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testReloadAndSegmentLookup() throws IOException {
+        File dir = Files.createTempDirectory("timeidx").toFile();
+        File indexFile = new File(dir, "00000000000000000000"
+                + DataStoreUtils.INDEX_FILE_SUFFIX);
+        int count = 5000;
+        long validSize = (long) count * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        FileSegment segment = new FileSegment(0, indexFile, true, SegmentType.INDEX);
+        segment.append(buildRecords(count, BASE_TIME, 10), BASE_TIME, BASE_TIME);
+        segment.flush(true);
+        long[] expected = segment.getTimeIndexRange(BASE_TIME + 20005);
+        Assert.assertNotNull(expected);
+        segment.close();
+        File timeIndexFile = new File(dir, "00000000000000000000"
+                + DataStoreUtils.TIME_INDEX_FILE_SUFFIX);
+        Assert.assertTrue(timeIndexFile.exists());
+        // reload as the read-only segment
+        segment = new FileSegment(0, indexFile, false, SegmentType.INDEX);
+        Assert.assertArrayEquals(expected, segment.getTimeIndexRange(BASE_TIME + 20005));
+        segment.close();
+        // the lost time index is rebuilt by the writable segment
+        Assert.assertTrue(timeIndexFile.delete());
+        segment = new FileSegment(0, indexFile, true, SegmentType.INDEX);
+        Assert.assertArrayEquals(expected, segment.getTimeIndexRange(BASE_TIME + 20005));
+        Assert.assertEquals(validSize, segment.getCachedSize());
+        segment.deleteFile();
+        dir.delete();
+    }
+
+    private ByteBuffer buildRecords(int count, long startTime, long timeStep) {
+        ByteBuffer buf = ByteBuffer.allocate(count * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        for (int i = 0; i < count; i++) {
+            buf.putInt(1);
+            buf.putLong(i * 100L);
+            buf.putInt(100);
+            buf.putInt(0);
+            buf.putLong(startTime + i * timeStep);
+        }
+        buf.flip();
+        return buf;
+    }
+}
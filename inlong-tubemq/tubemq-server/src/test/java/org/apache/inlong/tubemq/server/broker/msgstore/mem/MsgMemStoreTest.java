@@ -17,13 +17,21 @@
 
 package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
+import org.apache.inlong.tubemq.server.broker.msgstore.BatchAppendItem;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MsgMemStore test.
@@ -105,4 +113,230 @@ public class MsgMemStoreTest {
         // get messages
         GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null, 0);
     }
+
+    @Test
+    public void appendMsgs() {
+        byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        List<BatchAppendItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            BatchAppendItem item = new BatchAppendItem(testData, 33, 11, 1);
+            final ByteBuffer dataBuffer =
+                    ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+            dataBuffer.putInt(33);
+            dataBuffer.putInt(0);
+            dataBuffer.putLong(-1L);
+            dataBuffer.putLong(2222L);
+            dataBuffer.putInt(255555);
+            dataBuffer.putInt(11);
+            dataBuffer.putLong(222L + i);
+            dataBuffer.putInt(1);
+            dataBuffer.put(testData);
+            dataBuffer.flip();
+            ByteBuffer indexBuffer =
+                    ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            indexBuffer.putInt(0);
+            indexBuffer.putLong(-1L);
+            indexBuffer.putInt(dataBuffer.limit());
+            indexBuffer.putInt(11);
+            indexBuffer.putLong(System.currentTimeMillis());
+            indexBuffer.flip();
+            item.setStoreEntries(dataBuffer, indexBuffer);
+            items.add(item);
+        }
+        // the cache only allows 2 messages
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 2, 0, 0);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        int appendCnt = msgMemStore.appendMsgs(memStatsHolder, 0,
+                System.currentTimeMillis(), items, 0);
+        Assert.assertEquals(2, appendCnt);
+        Assert.assertEquals(0, items.get(0).getAppendResult().getAppendIndexOffset());
+        Assert.assertEquals(DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                items.get(1).getAppendResult().getAppendIndexOffset());
+        Assert.assertEquals(2, msgMemStore.getCurMsgCount());
+        // no space left for the third message
+        Assert.assertEquals(0, msgMemStore.appendMsgs(memStatsHolder, 0,
+                System.currentTimeMillis(), items, appendCnt));
+    }
+
+    @Test
+    public void concurrentAppendMsg() throws Exception {
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        final int threadCnt = 4;
+        final int msgCnt = 500;
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        final MsgMemStore msgMemStore =
+                new MsgMemStore(2 * 1024 * 1024, threadCnt * msgCnt, 0, 0);
+        final MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        final Set<Long> indexOffsets = new HashSet<>();
+        final AtomicInteger failCnt = new AtomicInteger(0);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCnt; i++) {
+            final int partitionId = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < msgCnt; j++) {
+                    ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
+                    dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+                    dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+                    dataBuffer.put(new byte[DataStoreUtils.STORE_DATA_HEADER_LEN - 8]);
+                    dataBuffer.put(testData);
+                    dataBuffer.flip();
+                    ByteBuffer indexBuffer =
+                            ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                    indexBuffer.putInt(partitionId);
+                    indexBuffer.putLong(-1L);
+                    indexBuffer.putInt(msgBufLen);
+                    indexBuffer.putInt(11);
+                    indexBuffer.putLong(System.currentTimeMillis());
+                    indexBuffer.flip();
+                    AppendResult appendResult = new AppendResult();
+                    if (msgMemStore.appendMsg(memStatsHolder, partitionId, 11,
+                            System.currentTimeMillis(), indexBuffer,
+                            msgBufLen, dataBuffer, appendResult)) {
+                        synchronized (indexOffsets) {
+                            indexOffsets.add(appendResult.getAppendIndexOffset());
+                        }
+                    } else {
+                        failCnt.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failCnt.get());
+        Assert.assertEquals(threadCnt * msgCnt, indexOffsets.size());
+        Assert.assertEquals(threadCnt * msgCnt, msgMemStore.getCurMsgCount());
+        Assert.assertEquals(threadCnt * msgCnt * msgBufLen, msgMemStore.getCurDataCacheSize());
+        Assert.assertEquals(threadCnt * msgCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                msgMemStore.getIndexCacheSize());
+        // each partition reads back all of its messages
+        GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 0,
+                threadCnt * msgCnt * msgBufLen, threadCnt * msgCnt, 1, false, false, null, 0);
+        Assert.assertTrue(getCacheMsgResult.isSuccess);
+        Assert.assertEquals(msgCnt, getCacheMsgResult.cacheMsgList.size());
+        getCacheMsgResult.release();
+        // the cache is full
+        Assert.assertFalse(msgMemStore.appendMsg(memStatsHolder, 0, 11,
+                System.currentTimeMillis(), ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN),
+                msgBufLen, ByteBuffer.allocate(msgBufLen), new AppendResult()));
+    }
+
+    @Test
+    public void concurrentAppendAndRead() throws Exception {
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        final int threadCnt = 4;
+        final int msgCnt = 2000;
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        final MsgMemStore msgMemStore =
+                new MsgMemStore(threadCnt * msgCnt * msgBufLen, threadCnt * msgCnt, 0, 0);
+        final MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        final AtomicInteger emptySuccessCnt = new AtomicInteger(0);
+        final AtomicInteger readCnt = new AtomicInteger(0);
+        final CountDownLatch writeLatch = new CountDownLatch(threadCnt);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCnt; i++) {
+            final int partitionId = i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < msgCnt; j++) {
+                    ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
+                    dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+                    dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+                    dataBuffer.put(new byte[DataStoreUtils.STORE_DATA_HEADER_LEN - 8]);
+                    dataBuffer.put(testData);
+                    dataBuffer.flip();
+                    ByteBuffer indexBuffer =
+                            ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                    indexBuffer.putInt(partitionId);
+                    indexBuffer.putLong(-1L);
+                    indexBuffer.putInt(msgBufLen);
+                    indexBuffer.putInt(11);
+                    indexBuffer.putLong(System.currentTimeMillis());
+                    indexBuffer.flip();
+                    msgMemStore.appendMsg(memStatsHolder, partitionId, 11,
+                            System.currentTimeMillis(), indexBuffer,
+                            msgBufLen, dataBuffer, new AppendResult());
+                }
+                writeLatch.countDown();
+            });
+            threads.add(thread);
+        }
+        // the reader of partition 1 reads all published entries from its offset each time,
+        // a successful read must return messages
+        Thread reader = new Thread(() -> {
+            long readOffset = 0L;
+            while (readCnt.get() < msgCnt) {
+                GetCacheMsgResult result = msgMemStore.getMessages(0L, readOffset,
+                        Integer.MAX_VALUE, Integer.MAX_VALUE, 1, false, false, null, 0L);
+                if (result.isSuccess) {
+                    if (result.cacheMsgList.isEmpty()) {
+                        emptySuccessCnt.incrementAndGet();
+                    }
+                    readCnt.addAndGet(result.cacheMsgList.size());
+                    readOffset += result.dltOffset;
+                    result.release();
+                } else if (writeLatch.getCount() == 0 && readCnt.get() < msgCnt) {
+                    break;
+                }
+            }
+        });
+        reader.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        reader.join(30000L);
+        Assert.assertFalse(reader.isAlive());
+        Assert.assertEquals(0, emptySuccessCnt.get());
+        Assert.assertEquals(msgCnt, readCnt.get());
+    }
+
+    @Test
+    public void sealAndReopen() {
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        MsgMemStore msgMemStore = new MsgMemStore(2 * 1024 * 1024, 10, 100L, 200L);
+        MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, 0, 11,
+                System.currentTimeMillis(), ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN),
+                msgBufLen, ByteBuffer.allocate(msgBufLen), new AppendResult()));
+        // the sealed store refuses the writes but keeps its content
+        Assert.assertTrue(msgMemStore.seal());
+        Assert.assertTrue(msgMemStore.isSealed());
+        Assert.assertFalse(msgMemStore.seal());
+        Assert.assertFalse(msgMemStore.appendMsg(memStatsHolder, 0, 11,
+                System.currentTimeMillis(), ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN),
+                msgBufLen, ByteBuffer.allocate(msgBufLen), new AppendResult()));
+        msgMemStore.awaitPublished();
+        Assert.assertEquals(1, msgMemStore.getCurMsgCount());
+        Assert.assertEquals(100L + msgBufLen, msgMemStore.getDataReservedPos());
+        Assert.assertEquals(200L + DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                msgMemStore.getIndexReservedPos());
+        Assert.assertEquals(msgMemStore.getIndexLastWritePos(), msgMemStore.getIndexReservedPos());
+        // the cleared store stays sealed until reopened
+        msgMemStore.clear();
+        Assert.assertTrue(msgMemStore.isSealed());
+        Assert.assertEquals(0, msgMemStore.getCurMsgCount());
+        msgMemStore.reopen(300L, 400L);
+        Assert.assertFalse(msgMemStore.isSealed());
+        AppendResult appendResult = new AppendResult();
+        Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, 0, 11,
+                System.currentTimeMillis(), ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN),
+                msgBufLen, ByteBuffer.allocate(msgBufLen), appendResult));
+        Assert.assertEquals(400L, appendResult.getAppendIndexOffset());
+        Assert.assertEquals(300L + msgBufLen, msgMemStore.getDataLastWritePos());
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FileOffsetStorage test.
+ */
+public class FileOffsetStorageTest {
+
+    private static final long UNIT = DataStoreUtils.STORE_INDEX_HEAD_LEN;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void commitAndRecover() throws Exception {
+        String storePath = tempFolder.newFolder("offsets").getAbsolutePath();
+        FileOffsetStorage storage = new FileOffsetStorage(storePath, 1, null, 60000L);
+        List<OffsetStorageInfo> infos = new ArrayList<>();
+        infos.add(new OffsetStorageInfo("topicA", 1, 0, 10 * UNIT, 100L));
+        infos.add(new OffsetStorageInfo("topicA", 1, 1, 20 * UNIT, 200L));
+        infos.add(new OffsetStorageInfo("topicB", 1, 0, 30 * UNIT, 300L));
+        storage.commitOffset("group1", infos, false);
+        // the committed infos are not written again until modified
+        for (OffsetStorageInfo info : infos) {
+            Assert.assertFalse(info.isModified());
+        }
+        long logSize = new File(storePath, FileOffsetStorage.LOG_FILE_NAME).length();
+        storage.commitOffset("group1", infos, false);
+        Assert.assertEquals(logSize, new File(storePath, FileOffsetStorage.LOG_FILE_NAME).length());
+        infos.get(0).getAndSetOffset(15 * UNIT);
+        storage.commitOffset("group1", infos, false);
+        // reopen without closing replays the log
+        FileOffsetStorage recovered = new FileOffsetStorage(storePath, 1, null, 60000L);
+        OffsetStorageInfo info = recovered.loadOffset("group1", "topicA", 0);
+        Assert.assertNotNull(info);
+        Assert.assertEquals(15 * UNIT, info.getOffset());
+        Assert.assertEquals(100L, info.getMessageId());
+        Assert.assertFalse(info.isFirstCreate());
+        Assert.assertNull(recovered.loadOffset("group1", "topicB", 1));
+        Map<String, Set<String>> groupTopicMap = recovered.queryZkAllGroupTopicInfos();
+        Assert.assertEquals(new HashSet<>(Arrays.asList("topicA", "topicB")),
+                groupTopicMap.get("group1"));
+        Map<Integer, Long> offsetMap = recovered.queryGroupOffsetInfo("group1", "topicA",
+                new HashSet<>(Arrays.asList(1, 2)));
+        Assert.assertEquals(20 * UNIT, offsetMap.get(1).longValue());
+        Assert.assertNull(offsetMap.get(2));
+        recovered.close();
+        storage.close();
+    }
+
+    @Test
+    public void deleteAndCompact() throws Exception {
+        String storePath = tempFolder.newFolder("offsets").getAbsolutePath();
+        FileOffsetStorage storage = new FileOffsetStorage(storePath, 1, null, 60000L, 1024L);
+        OffsetStorageInfo info = new OffsetStorageInfo("topicA", 1, 0, 0L, 0L);
+        for (int i = 1; i <= 100; i++) {
+            info.getAndSetOffset(i * UNIT);
+            storage.commitOffset("group1", Collections.singletonList(info), false);
+        }
+        storage.commitOffset("group2",
+                Collections.singletonList(new OffsetStorageInfo("topicB", 1, 3, UNIT, 1L)), false);
+        // the log is compacted into the snapshot when it grows over the threshold
+        Assert.assertTrue(new File(storePath, FileOffsetStorage.SNAPSHOT_FILE_NAME).exists());
+        Assert.assertTrue(new File(storePath, FileOffsetStorage.LOG_FILE_NAME).length() < 1024L);
+        Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+        groupTopicPartMap.put("group2",
+                Collections.singletonMap("topicB", Collections.singleton(3)));
+        storage.deleteGroupOffsetInfo(groupTopicPartMap);
+        Assert.assertNull(storage.loadOffset("group2", "topicB", 3));
+        storage.close();
+        FileOffsetStorage recovered = new FileOffsetStorage(storePath, 1, null, 60000L, 1024L);
+        Assert.assertEquals(100 * UNIT, recovered.loadOffset("group1", "topicA", 0).getOffset());
+        Assert.assertNull(recovered.loadOffset("group2", "topicB", 3));
+        Assert.assertFalse(recovered.queryZkAllGroupTopicInfos().containsKey("group2"));
+        recovered.close();
+    }
+
+    @Test
+    public void truncateTornTail() throws Exception {
+        String storePath = tempFolder.newFolder("offsets").getAbsolutePath();
+        FileOffsetStorage storage = new FileOffsetStorage(storePath, 1, null, 60000L);
+        storage.commitOffset("group1",
+                Collections.singletonList(new OffsetStorageInfo("topicA", 1, 0, UNIT, 1L)), false);
+        storage.commitOffset("group1",
+                Collections.singletonList(new OffsetStorageInfo("topicA", 1, 0, 2 * UNIT, 2L)), false);
+        File logFile = new File(storePath, FileOffsetStorage.LOG_FILE_NAME);
+        long logSize = logFile.length();
+        // simulate a crash in the middle of the last record
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(logSize - 3);
+        }
+        FileOffsetStorage recovered = new FileOffsetStorage(storePath, 1, null, 60000L);
+        Assert.assertEquals(UNIT, recovered.loadOffset("group1", "topicA", 0).getOffset());
+        Assert.assertEquals(logSize / 2, logFile.length());
+        recovered.close();
+    }
+}
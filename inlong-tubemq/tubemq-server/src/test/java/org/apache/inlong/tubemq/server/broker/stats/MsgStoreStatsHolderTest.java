@@ -79,6 +79,10 @@ public class MsgStoreStatsHolderTest {
         msgStoreStatsHolder.addCachePending();
         msgStoreStatsHolder.addCachePending();
         msgStoreStatsHolder.addCachePending();
+        msgStoreStatsHolder.addMsgCompressStats(1000, 300);
+        msgStoreStatsHolder.addMsgCompressStats(500, 200);
+        msgStoreStatsHolder.addFilterBlockStats(10, 4);
+        msgStoreStatsHolder.addFilterBlockStats(6, 4);
         msgStoreStatsHolder.getValue(retMap);
         Assert.assertNotNull(retMap.get("reset_time"));
         Assert.assertEquals(3, retMap.get("msg_append_size_count").longValue());
@@ -91,6 +95,12 @@ public class MsgStoreStatsHolderTest {
         Assert.assertEquals(2, retMap.get("cache_time_full").longValue());
         Assert.assertEquals(3, retMap.get("cache_flush_pending").longValue());
         Assert.assertEquals(2, retMap.get("cache_realloc").longValue());
+        Assert.assertEquals(2, retMap.get("msg_compress_cnt").longValue());
+        Assert.assertEquals(1500, retMap.get("msg_compress_raw_size").longValue());
+        Assert.assertEquals(500, retMap.get("msg_compress_size").longValue());
+        Assert.assertEquals(16, retMap.get("file_filter_block_chk").longValue());
+        Assert.assertEquals(8, retMap.get("file_filter_block_skip").longValue());
+        Assert.assertEquals(50, retMap.get("file_filter_skip_ratio").longValue());
         Assert.assertNotNull(retMap.get("end_time"));
         msgStoreStatsHolder.getMsgStoreStatsInfo(false, strBuff);
         System.out.println("\n the second is : " + strBuff.toString());
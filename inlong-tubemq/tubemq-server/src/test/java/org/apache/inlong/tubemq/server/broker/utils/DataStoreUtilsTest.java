@@ -17,10 +17,18 @@
 
 package org.apache.inlong.tubemq.server.broker.utils;
 
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
 
 /**
  * DataStoreUtils test.
@@ -37,4 +45,52 @@ public class DataStoreUtilsTest {
         // get int by DataStoreUtils
         Assert.assertEquals(val, 123);
     }
+
+    @Test
+    public void getTransferMsgFromDirectBuffer() {
+        byte[] payLoad = "test-payload".getBytes();
+        int dataLen = DataStoreUtils.STORE_DATA_HEADER_LEN + payLoad.length;
+        // the stored data is read into a direct buffer from the pool
+        ByteBuffer dataBuffer = ByteBuffer.allocateDirect(dataLen);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payLoad.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(123);
+        dataBuffer.putInt(1);
+        dataBuffer.putLong(0L);
+        dataBuffer.putLong(System.currentTimeMillis());
+        dataBuffer.putInt(0);
+        dataBuffer.putInt(0);
+        dataBuffer.putLong(1000L);
+        dataBuffer.putInt(0);
+        dataBuffer.put(payLoad);
+        dataBuffer.flip();
+        HashMap<String, TrafficInfo> countMap = new HashMap<>();
+        ClientBroker.TransferedMessage message = DataStoreUtils.getTransferMsg(
+                dataBuffer, dataLen, countMap, "test", new StringBuilder(512));
+        Assert.assertNotNull(message);
+        Assert.assertEquals(1000L, message.getMessageId());
+        Assert.assertEquals(123, message.getCheckSum());
+        Assert.assertArrayEquals(payLoad, message.getPayLoadData().toByteArray());
+        Assert.assertEquals(1, countMap.size());
+        // the buffer shorter than the stored size is rejected
+        Assert.assertNull(DataStoreUtils.getTransferMsg(
+                dataBuffer, dataLen + 1, countMap, "test", new StringBuilder(512)));
+    }
+
+    @Test
+    public void releaseDirectBuffer() throws Exception {
+        // the heap buffer and null are ignored
+        DataStoreUtils.releaseDirectBuffer(null);
+        DataStoreUtils.releaseDirectBuffer(ByteBuffer.allocate(16));
+        DataStoreUtils.releaseDirectBuffer(ByteBuffer.allocateDirect(16));
+        // the mapped file can be deleted once released
+        File file = File.createTempFile("release-direct-buffer", ".tmp");
+        MappedByteBuffer mappedBuffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            mappedBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 1024);
+        }
+        mappedBuffer.putLong(0, 123L);
+        DataStoreUtils.releaseDirectBuffer(mappedBuffer);
+        Assert.assertTrue(file.delete());
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeGroupInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DefaultLoadBalancer test.
+ */
+public class DefaultLoadBalancerTest {
+
+    private static final String GROUP = "test_group";
+    private static final String TOPIC = "test_topic";
+
+    @Test
+    public void stickyBalanceWithNewConsumer() {
+        List<Partition> partitions = buildPartitions(6);
+        Map<String, Map<String, Map<String, Partition>>> clusterState = new HashMap<>();
+        setSubscribed(clusterState, "c1", partitions.subList(0, 4));
+        setSubscribed(clusterState, "c2", partitions.subList(4, 6));
+        Map<String, Map<String, List<Partition>>> result =
+                stickyBalance(clusterState, partitions, "c1", "c2", "c3");
+        // each consumer gets 2 partitions, only the 2 extra partitions of c1 are moved
+        Assert.assertEquals(2, result.get("c1").get(TOPIC).size());
+        Assert.assertEquals(2, result.get("c2").get(TOPIC).size());
+        Assert.assertEquals(2, result.get("c3").get(TOPIC).size());
+        Assert.assertTrue(partitions.subList(0, 4).containsAll(result.get("c1").get(TOPIC)));
+        Assert.assertTrue(result.get("c2").get(TOPIC).containsAll(partitions.subList(4, 6)));
+        Assert.assertTrue(partitions.subList(0, 4).containsAll(result.get("c3").get(TOPIC)));
+        assertAllAssigned(partitions, result);
+    }
+
+    @Test
+    public void stickyBalanceWithPartitionChange() {
+        List<Partition> partitions = buildPartitions(8);
+        Map<String, Map<String, Map<String, Partition>>> clusterState = new HashMap<>();
+        setSubscribed(clusterState, "c1", partitions.subList(0, 3));
+        setSubscribed(clusterState, "c2", partitions.subList(3, 6));
+        // partitions 0 and 1 are no longer available, partitions 6 and 7 are added
+        List<Partition> available = new ArrayList<>(partitions.subList(2, 8));
+        Map<String, Map<String, List<Partition>>> result =
+                stickyBalance(clusterState, available, "c1", "c2");
+        Assert.assertEquals(3, result.get("c1").get(TOPIC).size());
+        Assert.assertEquals(3, result.get("c2").get(TOPIC).size());
+        Assert.assertTrue(result.get("c1").get(TOPIC).contains(partitions.get(2)));
+        Assert.assertTrue(result.get("c2").get(TOPIC).containsAll(partitions.subList(3, 6)));
+        assertAllAssigned(available, result);
+    }
+
+    private Map<String, Map<String, List<Partition>>> stickyBalance(
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            List<Partition> partitions, String... consumerIds) {
+        List<ConsumerInfo> consumerList = new ArrayList<>();
+        for (String consumerId : consumerIds) {
+            ConsumerInfo consumerInfo = mock(ConsumerInfo.class);
+            when(consumerInfo.getConsumerId()).thenReturn(consumerId);
+            consumerList.add(consumerInfo);
+        }
+        ConsumeGroupInfo groupInfo = mock(ConsumeGroupInfo.class);
+        when(groupInfo.getConsumerInfoList()).thenReturn(consumerList);
+        when(groupInfo.getTopicSet()).thenReturn(Collections.singleton(TOPIC));
+        when(groupInfo.isBalanceMapEmpty()).thenReturn(true);
+        ConsumerInfoHolder consumerHolder = mock(ConsumerInfoHolder.class);
+        when(consumerHolder.getConsumeGroupInfo(GROUP)).thenReturn(groupInfo);
+        Map<String, Partition> partMap = new HashMap<>();
+        for (Partition partition : partitions) {
+            partMap.put(partition.getPartitionKey(), partition);
+        }
+        BrokerRunManager brokerRunManager = mock(BrokerRunManager.class);
+        when(brokerRunManager.getSubBrokerAcceptSubParts(any(Set.class))).thenReturn(partMap);
+        return new DefaultLoadBalancer().stickyBalanceCluster(clusterState, consumerHolder,
+                brokerRunManager, Collections.singletonList(GROUP),
+                mock(MetaDataService.class), new StringBuilder(512));
+    }
+
+    private List<Partition> buildPartitions(int count) {
+        List<Partition> partitions = new ArrayList<>();
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        for (int i = 0; i < count; i++) {
+            partitions.add(new Partition(brokerInfo, TOPIC, i));
+        }
+        return partitions;
+    }
+
+    private void setSubscribed(Map<String, Map<String, Map<String, Partition>>> clusterState,
+            String consumerId, List<Partition> partitions) {
+        Map<String, Partition> partMap = new HashMap<>();
+        for (Partition partition : partitions) {
+            partMap.put(partition.getPartitionKey(), partition);
+        }
+        Map<String, Map<String, Partition>> topicPartMap = new HashMap<>();
+        topicPartMap.put(TOPIC, partMap);
+        clusterState.put(consumerId, topicPartMap);
+    }
+
+    private void assertAllAssigned(List<Partition> partitions,
+            Map<String, Map<String, List<Partition>>> result) {
+        Set<Partition> assigned = new HashSet<>();
+        int assignedCnt = 0;
+        for (Map<String, List<Partition>> topicPartMap : result.values()) {
+            for (List<Partition> partList : topicPartMap.values()) {
+                assigned.addAll(partList);
+                assignedCnt += partList.size();
+            }
+        }
+        Assert.assertEquals(partitions.size(), assignedCnt);
+        Assert.assertEquals(new HashSet<>(partitions), assigned);
+    }
+}
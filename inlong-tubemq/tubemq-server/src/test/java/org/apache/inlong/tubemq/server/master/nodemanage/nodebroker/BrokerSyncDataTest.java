@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
+import org.apache.inlong.tubemq.corebase.utils.Tuple4;
+import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BrokerSyncData test
+ */
+public class BrokerSyncDataTest {
+
+    private static final String BROKER_CONF =
+            "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+    private static final String TOPIC1_CONF =
+            "topic1:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1";
+    private static final String TOPIC2_CONF =
+            "topic2:4:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1";
+    private static final String TOPIC2_NEW_CONF =
+            "topic2:8:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1";
+    private static final String TOPIC3_CONF =
+            "topic3:6:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1";
+
+    private final BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+    private BrokerSyncData syncData;
+
+    @Before
+    public void setUp() {
+        syncData = new BrokerSyncData();
+        Map<String, String> topicConfMap = new HashMap<>();
+        topicConfMap.put("topic1", TOPIC1_CONF);
+        topicConfMap.put("topic2", TOPIC2_CONF);
+        syncData.updBrokerSyncData(true, 1L,
+                ManageStatus.STATUS_MANAGE_ONLINE, BROKER_CONF, topicConfMap);
+    }
+
+    @Test
+    public void testDeltaAfterBrokerConfirmed() {
+        Tuple4<Long, Integer, String, List<String>> fullData = syncData.getBrokerSyncData();
+        Assert.assertEquals(2, fullData.getF3().size());
+        // no confirmed configure, only the full configure can be pushed
+        Assert.assertNull(syncData.getBrokerSyncDelta());
+        reportAppliedConf(fullData);
+        Assert.assertTrue(syncData.isConfSynchronized());
+        Assert.assertNull(syncData.getBrokerSyncData().getF2());
+        // modify topic2, add topic3 and remove topic1
+        Map<String, String> topicConfMap = new HashMap<>();
+        topicConfMap.put("topic2", TOPIC2_NEW_CONF);
+        topicConfMap.put("topic3", TOPIC3_CONF);
+        syncData.updBrokerSyncData(false, 2L,
+                ManageStatus.STATUS_MANAGE_ONLINE, BROKER_CONF, topicConfMap);
+        Assert.assertFalse(syncData.isConfSynchronized());
+        Tuple2<List<String>, List<String>> delta = syncData.getBrokerSyncDelta();
+        Assert.assertNotNull(delta);
+        Assert.assertEquals(2, delta.getF0().size());
+        Assert.assertTrue(delta.getF0().contains(TOPIC2_NEW_CONF));
+        Assert.assertTrue(delta.getF0().contains(TOPIC3_CONF));
+        Assert.assertEquals(1, delta.getF1().size());
+        Assert.assertEquals("topic1", delta.getF1().get(0));
+        // broker applies the changes and reports the new configure
+        reportAppliedConf(syncData.getBrokerSyncData());
+        Assert.assertTrue(syncData.isConfSynchronized());
+        Assert.assertNull(syncData.getBrokerSyncDelta());
+    }
+
+    @Test
+    public void testFullSyncWhenReportMismatched() {
+        Tuple4<Long, Integer, String, List<String>> fullData = syncData.getBrokerSyncData();
+        // the broker claims the pushed version but holds other topic configure
+        List<String> topicConfs = new ArrayList<>();
+        topicConfs.add(TOPIC1_CONF);
+        syncData.bookBrokerReportInfo(brokerInfo, fullData.getF0(),
+                fullData.getF1(), true, BROKER_CONF, topicConfs);
+        Map<String, String> topicConfMap = new HashMap<>();
+        topicConfMap.put("topic1", TOPIC1_CONF);
+        topicConfMap.put("topic3", TOPIC3_CONF);
+        syncData.updBrokerSyncData(false, 2L,
+                ManageStatus.STATUS_MANAGE_ONLINE, BROKER_CONF, topicConfMap);
+        Assert.assertNull(syncData.getBrokerSyncDelta());
+        Assert.assertEquals(2, syncData.getBrokerSyncData().getF3().size());
+    }
+
+    private void reportAppliedConf(Tuple4<Long, Integer, String, List<String>> appliedData) {
+        syncData.bookBrokerReportInfo(brokerInfo, appliedData.getF0(), appliedData.getF1(),
+                true, appliedData.getF2(), new ArrayList<>(appliedData.getF3()));
+    }
+}
@@ -18,13 +18,19 @@
 package org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer;
 
 import org.apache.inlong.tubemq.corebase.balance.ConsumerEvent;
+import org.apache.inlong.tubemq.corebase.utils.ConcurrentHashSet;
 
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ConsumerEventManagerTest {
 
@@ -56,4 +62,28 @@ public class ConsumerEventManagerTest {
         consumerEventManager.removeAll("consumer002");
         Assert.assertFalse(consumerEventManager.hasEvent());
     }
+
+    @Test
+    public void dirtyGroupTest() {
+        ConcurrentHashMap<String, ConcurrentHashSet<String>> topicGroupMap =
+                new ConcurrentHashMap<>();
+        ConcurrentHashSet<String> groupSet = new ConcurrentHashSet<>();
+        groupSet.add("group002");
+        groupSet.add("group003");
+        topicGroupMap.put("topic001", groupSet);
+        when(consumerInfoHolder.getRegTopicGroupMap()).thenReturn(topicGroupMap);
+        when(consumerInfoHolder.getGroupName("consumer001")).thenReturn("group001");
+
+        consumerEventManager.markGroupDirty("group001");
+        consumerEventManager.markTopicGroupsDirty(Collections.singleton("topic001"));
+        Assert.assertEquals(3, consumerEventManager.getDirtyGroupCount());
+        List<String> dirtyGroups = consumerEventManager.drainDirtyGroups();
+        Assert.assertEquals(3, dirtyGroups.size());
+        Assert.assertEquals(0, consumerEventManager.getDirtyGroupCount());
+        // the group is marked again once its consumer has finished the events
+        consumerEventManager.addConnectEvent("consumer001", mock(ConsumerEvent.class));
+        consumerEventManager.removeFirst("consumer001", new StringBuilder(512));
+        Assert.assertEquals(Collections.singletonList("group001"),
+                consumerEventManager.drainDirtyGroups());
+    }
 }